@@ -0,0 +1,129 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Refuses to start an AOT build whose bean conditions no longer match the configuration.
+ *
+ * <p>Spring AOT evaluates conditions such as {@code @ConditionalOnProperty} while building, so
+ * the settings in {@link #SETTINGS} are frozen into fast-start and native builds. At build
+ * time this class records their values in {@value #RESOURCE}; when the application runs with
+ * the generated artifacts it compares them with the runtime environment and fails before the
+ * context is created, instead of silently serving the build-time engine or web stack.
+ * Registered in {@code META-INF/spring/aot.factories} and {@code META-INF/spring.factories}.
+ */
+public class AotSettingsCheck implements BeanFactoryInitializationAotProcessor, EnvironmentPostProcessor, Ordered {
+
+    /** Build-time values, written next to the generated classes */
+    static final String RESOURCE = "META-INF/tinytasks/aot-settings.properties";
+
+    /** Settings read by bean conditions, with the value each condition assumes when unset */
+    static final Map<String, String> SETTINGS = Map.of(
+            "tinytasks.repository.type", "memory",
+            "spring.main.web-application-type", "servlet",
+            "tinytasks.metrics.enabled", "true",
+            "tinytasks.rate-limit.enabled", "true",
+            "spring.threads.virtual.enabled", "false");
+
+    /**
+     * Records the build-time settings as a resource of the AOT build.
+     *
+     * @param beanFactory the bean factory being processed
+     * @return the contribution writing {@value #RESOURCE}
+     */
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Properties baked = snapshot(beanFactory.getBean(Environment.class));
+        return (generationContext, code) -> {
+            StringBuilder content = new StringBuilder("# Settings fixed by Spring AOT processing\n");
+            baked.stringPropertyNames().stream().sorted()
+                    .forEach(key -> content.append(key).append('=').append(baked.getProperty(key)).append('\n'));
+            generationContext.getGeneratedFiles().addResourceFile(RESOURCE, content);
+            generationContext.getRuntimeHints().resources().registerPattern(RESOURCE);
+        };
+    }
+
+    /**
+     * Compares the runtime settings with the recorded ones when running from AOT artifacts.
+     *
+     * @param environment the environment with every property source loaded
+     * @param application the application being started
+     * @throws IllegalStateException if a setting differs from its build-time value
+     */
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return;
+        }
+        ClassPathResource resource = new ClassPathResource(RESOURCE, AotSettingsCheck.class.getClassLoader());
+        if (!resource.exists()) {
+            return;
+        }
+        Properties baked = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            baked.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + RESOURCE, e);
+        }
+        verify(baked, environment);
+    }
+
+    /** Runs after the config data processor, so application.properties is already loaded */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Reads the current value of every checked setting.
+     *
+     * @param environment the environment to read
+     * @return each setting, with its default when unset
+     */
+    static Properties snapshot(Environment environment) {
+        Properties values = new Properties();
+        SETTINGS.forEach((key, fallback) -> values.setProperty(key, environment.getProperty(key, fallback)));
+        return values;
+    }
+
+    /**
+     * Fails if any recorded setting has a different value now.
+     *
+     * @param baked the values recorded at build time
+     * @param environment the runtime environment
+     * @throws IllegalStateException listing every mismatch and how to rebuild
+     */
+    static void verify(Properties baked, Environment environment) {
+        Properties current = snapshot(environment);
+        List<String> mismatches = new ArrayList<>();
+        for (String key : baked.stringPropertyNames().stream().sorted().toList()) {
+            String runtime = current.getProperty(key);
+            if (runtime != null && !runtime.trim().equalsIgnoreCase(baked.getProperty(key).trim())) {
+                mismatches.add(key + "=" + runtime + " (built with " + baked.getProperty(key) + ")");
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("This AOT build fixed its bean conditions at build time, but "
+                    + String.join(", ", mismatches) + ". Rebuild with -Dtinytasks.aot.repository-type and "
+                    + "-Dtinytasks.aot.web-application-type set to the values to run, or start without "
+                    + "-Dspring.aot.enabled=true.");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the cold tier of the in-memory engine ({@code tinytasks.repository.type=memory}).
+ * Tasks completed longer than {@code age} ago are moved out of the heap into compressed
+ * segment files, and stay readable by id and through {@code ?include=archived}.
+ *
+ * @param enabled whether completed tasks are archived at all
+ * @param age time a task must have been completed before it is archived
+ * @param interval how often completed tasks are checked
+ * @param directory folder for archive segments; cleared on startup, since the memory engine starts empty
+ * @param blockSize uncompressed bytes per compressed block; larger blocks compress better, smaller
+ *                  ones make single lookups cheaper
+ * @param segmentSize bytes after which a new segment file is started
+ */
+@ConfigurationProperties(prefix = "tinytasks.archive")
+public record ArchiveProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("7d") Duration age,
+        @DefaultValue("1m") Duration interval,
+        @DefaultValue("data/archive") Path directory,
+        @DefaultValue("16384") int blockSize,
+        @DefaultValue("67108864") long segmentSize) {
+}
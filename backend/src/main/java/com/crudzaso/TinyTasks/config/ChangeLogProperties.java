@@ -0,0 +1,14 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the change feed behind {@code GET /api/todos/changes}.
+ *
+ * @param capacity number of recent changes retained; clients further behind get a full resync
+ */
+@ConfigurationProperties(prefix = "tinytasks.changes")
+public record ChangeLogProperties(
+        @DefaultValue("10000") int capacity) {
+}
@@ -1,6 +1,9 @@
 package com.crudzaso.TinyTasks.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -11,6 +14,14 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class CorsConfig implements WebMvcConfigurer {
 
+    private static final String[] ALLOWED_ORIGINS = {
+            "http://localhost:5500",
+            "http://127.0.0.1:5500",
+            "https://tinytasks-frontend.onrender.com"
+    };
+    private static final String[] ALLOWED_METHODS = {"GET", "POST", "PUT", "DELETE"};
+    private static final String[] EXPOSED_HEADERS = {"ETag", "X-Next-Cursor", "X-Total-Count", "X-Change-Seq", "Retry-After"};
+
     /**
      * Configures CORS mappings for API endpoints.
      * Allows requests from localhost (development) and production frontend.
@@ -20,12 +31,29 @@ public class CorsConfig implements WebMvcConfigurer {
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
-                .allowedOrigins(
-                        "http://localhost:5500",
-                        "http://127.0.0.1:5500",
-                        "https://tinytasks-frontend.onrender.com"
-                )
-                .allowedMethods("GET", "POST", "PUT", "DELETE")
-                .allowedHeaders("*");
+                .allowedOrigins(ALLOWED_ORIGINS)
+                .allowedMethods(ALLOWED_METHODS)
+                .allowedHeaders("*")
+                .exposedHeaders(EXPOSED_HEADERS);
+    }
+
+    /**
+     * Applies the same CORS mappings when the reactive stack serves requests.
+     *
+     * @return configurer registering the mappings with WebFlux
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public WebFluxConfigurer reactiveCorsConfigurer() {
+        return new WebFluxConfigurer() {
+            @Override
+            public void addCorsMappings(org.springframework.web.reactive.config.CorsRegistry registry) {
+                registry.addMapping("/api/**")
+                        .allowedOrigins(ALLOWED_ORIGINS)
+                        .allowedMethods(ALLOWED_METHODS)
+                        .allowedHeaders("*")
+                        .exposedHeaders(EXPOSED_HEADERS);
+            }
+        };
     }
 }
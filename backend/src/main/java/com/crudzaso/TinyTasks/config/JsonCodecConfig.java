@@ -0,0 +1,33 @@
+package com.crudzaso.TinyTasks.config;
+
+import com.crudzaso.TinyTasks.controller.TodoHttpMessageConverter;
+import com.crudzaso.TinyTasks.controller.TodoJsonCodec;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Puts {@link TodoHttpMessageConverter} ahead of the default converters, so task bodies
+ * skip Jackson while everything else is still written by the configured Jackson converter.
+ */
+@Configuration
+public class JsonCodecConfig implements WebMvcConfigurer {
+
+    /**
+     * Registers the task converter first, falling back to the Jackson converter already in the list.
+     *
+     * @param converters the converters configured by Spring Boot
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+                .map(MappingJackson2HttpMessageConverter.class::cast)
+                .findFirst()
+                .ifPresent(jackson -> converters.add(0,
+                        new TodoHttpMessageConverter(TodoJsonCodec.shared(), jackson)));
+    }
+}
@@ -0,0 +1,35 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the log-structured merge tree engine ({@code tinytasks.repository.type=lsm}).
+ *
+ * @param directory folder holding the manifest, memtable logs and sorted runs
+ * @param fsync when memtable log records are forced to disk
+ * @param fsyncInterval how often the background flusher forces the log in {@link WalProperties.Fsync#INTERVAL} mode
+ * @param memtableEntries entries the in-memory table takes before it is frozen and flushed to a run
+ * @param blockSize bytes per run block, the unit read from disk by a point lookup
+ * @param bloomBitsPerKey bloom filter bits per run entry; 10 gives about 1% false positives
+ * @param level0Runs flushed runs that trigger a compaction into level 1
+ * @param level1Bytes size of level 1 before it is compacted into level 2
+ * @param levelRatio growth factor between the size limits of consecutive levels
+ * @param runBytes size at which compaction starts a new output run
+ */
+@ConfigurationProperties(prefix = "tinytasks.lsm")
+public record LsmProperties(
+        @DefaultValue("data/lsm") Path directory,
+        @DefaultValue("always") WalProperties.Fsync fsync,
+        @DefaultValue("10ms") Duration fsyncInterval,
+        @DefaultValue("262144") int memtableEntries,
+        @DefaultValue("4096") int blockSize,
+        @DefaultValue("10") int bloomBitsPerKey,
+        @DefaultValue("4") int level0Runs,
+        @DefaultValue("134217728") long level1Bytes,
+        @DefaultValue("10") int levelRatio,
+        @DefaultValue("33554432") long runBytes) {
+}
@@ -0,0 +1,16 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for the memory-mapped snapshot engine ({@code tinytasks.repository.type=mapped}).
+ *
+ * @param snapshot snapshot file served through a memory mapping and rewritten on checkpoint
+ */
+@ConfigurationProperties(prefix = "tinytasks.mapped")
+public record MappedProperties(
+        @DefaultValue("data/todos.snapshot") Path snapshot) {
+}
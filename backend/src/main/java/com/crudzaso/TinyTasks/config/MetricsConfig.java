@@ -0,0 +1,184 @@
+package com.crudzaso.TinyTasks.config;
+
+import com.crudzaso.TinyTasks.repository.LsmTodoRepository;
+import com.crudzaso.TinyTasks.repository.MeteredTodoRepository;
+import com.crudzaso.TinyTasks.repository.TodoRepository;
+import com.crudzaso.TinyTasks.repository.WalTodoRepository;
+import com.crudzaso.TinyTasks.service.MicrometerTodoMetrics;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import com.crudzaso.TinyTasks.service.TodoTenants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics configuration for TinyTasks.
+ * With {@code tinytasks.metrics.enabled=true} (the default) the active storage engine is
+ * wrapped in a {@link MeteredTodoRepository} and the service reports through Micrometer;
+ * meters are exposed at {@code /actuator/prometheus}. With {@code false} neither wrapper
+ * exists and the service gets {@link TodoMetrics#NOOP}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String ENABLED = "tinytasks.metrics.enabled";
+
+    /**
+     * Wraps the storage engine in a timing decorator once it is initialized.
+     * The write-ahead log engine also publishes its write-behind queue depth, batch latency and
+     * whether the writer has failed, and the LSM engine its write amplification, run count and
+     * block reads.
+     *
+     * @param registry the meter registry, resolved lazily when the engine is created
+     * @return the post-processor
+     */
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    static BeanPostProcessor meteredTodoRepositoryPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TodoRepository repository && !(bean instanceof MeteredTodoRepository)) {
+                    if (bean instanceof WalTodoRepository wal) {
+                        instrumentWriteBehind(wal, registry.getObject());
+                    }
+                    if (bean instanceof LsmTodoRepository lsm) {
+                        instrumentLsm(lsm, registry.getObject());
+                    }
+                    return new MeteredTodoRepository(repository, registry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void instrumentWriteBehind(WalTodoRepository wal, MeterRegistry registry) {
+        Gauge.builder("tinytasks.wal.queue.depth", wal, WalTodoRepository::pendingWrites)
+                .description("Log records waiting for the background writer")
+                .register(registry);
+        Gauge.builder("tinytasks.wal.failed", wal, repository -> repository.writeFailure() == null ? 0 : 1)
+                .description("1 once a log write or force failed and mutations are refused")
+                .register(registry);
+        Timer flush = Timer.builder("tinytasks.wal.flush")
+                .description("Time to write, and force if configured, one background batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        Counter records = Counter.builder("tinytasks.wal.flushed.records")
+                .description("Log records written by the background writer")
+                .register(registry);
+        Counter coalesced = Counter.builder("tinytasks.wal.coalesced.records")
+                .description("Status records dropped because a later one in the batch superseded them")
+                .register(registry);
+        wal.setFlushObserver((written, dropped, nanos) -> {
+            flush.record(nanos, TimeUnit.NANOSECONDS);
+            records.increment(written);
+            coalesced.increment(dropped);
+        });
+    }
+
+    private static void instrumentLsm(LsmTodoRepository lsm, MeterRegistry registry) {
+        Gauge.builder("tinytasks.lsm.write.amplification", lsm, repository -> repository.stats().writeAmplification())
+                .description("Bytes written to logs and runs per byte of mutations applied")
+                .register(registry);
+        Gauge.builder("tinytasks.lsm.runs", lsm,
+                        repository -> repository.stats().runsPerLevel().stream().mapToInt(Integer::intValue).sum())
+                .description("Sorted runs across all levels")
+                .register(registry);
+        Gauge.builder("tinytasks.lsm.disk", lsm, repository -> repository.stats().diskBytes())
+                .description("Size of the sorted runs")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("tinytasks.lsm.block.reads", lsm, repository -> repository.stats().blockReads())
+                .description("Run blocks read from disk by lookups, pages and compaction")
+                .register(registry);
+    }
+
+    /**
+     * Publishes how many tenants and tenant tasks are in memory, the size of every resident
+     * tenant tagged with its name, and how many tenants were evicted. Tenant names are chosen
+     * by clients, but at most {@link TenantProperties#maxTenants()} are resident, and a tenant's
+     * gauge is removed when it is evicted.
+     *
+     * @param registry the meter registry, resolved lazily when the tenant registry is created
+     * @return the post-processor
+     */
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    static BeanPostProcessor tenantMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TodoTenants tenants) {
+                    instrumentTenants(tenants, registry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    static void instrumentTenants(TodoTenants tenants, MeterRegistry registry) {
+        Gauge.builder("tinytasks.tenants.resident", tenants, TodoTenants::residentTenants)
+                .description("Named tenants held in memory")
+                .register(registry);
+        Gauge.builder("tinytasks.tenants.todos.stored", tenants, TodoTenants::residentTodos)
+                .description("Tasks held by named tenants in memory")
+                .register(registry);
+        Counter evictions = Counter.builder("tinytasks.tenants.evicted")
+                .description("Idle tenants written to disk and dropped from memory")
+                .register(registry);
+        Map<String, Gauge> stored = new ConcurrentHashMap<>();
+        tenants.setObserver(new TodoTenants.Observer() {
+            @Override
+            public void loaded(String name, TodoRepository repository) {
+                stored.put(name, Gauge.builder("tinytasks.tenants.todos", repository, TodoRepository::count)
+                        .description("Tasks held by one resident named tenant")
+                        .tag("tenant", name)
+                        .register(registry));
+            }
+
+            @Override
+            public void evicted(String name) {
+                Gauge gauge = stored.remove(name);
+                if (gauge != null) {
+                    registry.remove(gauge);
+                }
+                evictions.increment();
+            }
+        });
+    }
+
+    /**
+     * Service-level timers, counters and store gauges.
+     *
+     * @param registry the meter registry
+     * @param repository the active storage engine
+     * @return Micrometer-backed metrics
+     */
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    TodoMetrics micrometerTodoMetrics(MeterRegistry registry, TodoRepository repository) {
+        return new MicrometerTodoMetrics(registry, repository);
+    }
+
+    /**
+     * Metrics that record nothing, used when instrumentation is turned off.
+     *
+     * @return {@link TodoMetrics#NOOP}
+     */
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false")
+    TodoMetrics noopTodoMetrics() {
+        return TodoMetrics.NOOP;
+    }
+}
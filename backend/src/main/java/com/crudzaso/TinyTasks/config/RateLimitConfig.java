@@ -0,0 +1,58 @@
+package com.crudzaso.TinyTasks.config;
+
+import com.crudzaso.TinyTasks.controller.RateLimitInterceptor;
+import com.crudzaso.TinyTasks.controller.RateLimitWebFilter;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Rate limiting for the TinyTasks API.
+ * With {@code tinytasks.rate-limit.enabled=true} (the default) every {@code /api/**} request
+ * passes through a {@link RateLimitInterceptor}, or a {@link RateLimitWebFilter} on the reactive stack;
+ * with {@code false} neither is registered at all.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tinytasks.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimitProperties properties;
+    private final TodoMetrics metrics;
+
+    /**
+     * Creates the configuration.
+     *
+     * @param properties budgets and client identification
+     * @param metrics counts refused requests
+     */
+    public RateLimitConfig(RateLimitProperties properties, TodoMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers the limiter for the API paths.
+     *
+     * @param registry the interceptor registry to configure
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(properties, metrics))
+                .addPathPatterns("/api/**");
+    }
+
+    /**
+     * Registers the limiter for the API paths when the reactive stack serves requests.
+     *
+     * @return the filter, picked up by WebFlux with every other {@code WebFilter} bean
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public RateLimitWebFilter rateLimitWebFilter() {
+        return new RateLimitWebFilter(properties, metrics);
+    }
+}
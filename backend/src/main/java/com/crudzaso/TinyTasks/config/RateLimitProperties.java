@@ -0,0 +1,28 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Per-client request budgets for {@code /api/**}.
+ * Reads are {@code GET} and {@code HEAD} requests; every other method is a write.
+ *
+ * @param enabled false removes the limiter from the request path entirely
+ * @param readsPerSecond sustained reads allowed per client
+ * @param readBurst reads a client may make at once after being idle
+ * @param writesPerSecond sustained writes allowed per client
+ * @param writeBurst writes a client may make at once after being idle
+ * @param clientHeader request header naming the client, such as an API key set by a gateway;
+ *                     empty to identify clients by remote address
+ * @param maxClients clients tracked individually per budget; beyond it new clients share one bucket
+ */
+@ConfigurationProperties(prefix = "tinytasks.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") double readsPerSecond,
+        @DefaultValue("200") int readBurst,
+        @DefaultValue("20") double writesPerSecond,
+        @DefaultValue("40") int writeBurst,
+        @DefaultValue("") String clientHeader,
+        @DefaultValue("100000") int maxClients) {
+}
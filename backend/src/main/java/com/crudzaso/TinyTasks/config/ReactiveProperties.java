@@ -0,0 +1,19 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the reactive API ({@code spring.main.web-application-type=reactive}).
+ *
+ * @param storageThreads threads running blocking repository calls off the event loop; the default
+ *                       matches Tomcat's request threads, so an engine sees the same concurrency on either stack
+ * @param storageQueue repository calls that may wait for a storage thread before requests are refused with 503
+ * @param pageSize tasks read per repository call while a full list is streamed
+ */
+@ConfigurationProperties(prefix = "tinytasks.reactive")
+public record ReactiveProperties(
+        @DefaultValue("200") int storageThreads,
+        @DefaultValue("100000") int storageQueue,
+        @DefaultValue("256") int pageSize) {
+}
@@ -0,0 +1,26 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the reactive stack on Reactor Netty. Tomcat stays on the classpath for the servlet
+ * stack, and Spring Boot would otherwise serve WebFlux through Tomcat's servlet adapter,
+ * which keeps a request thread pool instead of a handful of event loops.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    /**
+     * Creates the Netty server factory; {@code server.*} settings are applied to it as usual.
+     *
+     * @return the factory, which replaces Spring Boot's default choice
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
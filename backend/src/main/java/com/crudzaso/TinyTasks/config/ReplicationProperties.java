@@ -0,0 +1,57 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the replicated storage engine ({@code tinytasks.repository.type=replicated}).
+ *
+ * @param role whether this node owns the mutation log or follows another node
+ * @param port TCP port the leader accepts followers on; 0 picks a free port
+ * @param bindAddress interface the leader listens on; loopback unless followers run on other hosts
+ * @param secret shared by the leader and its followers, which prove they know it before the
+ *               leader sends them any task or accepts their writes; required off loopback
+ * @param leader {@code host:port} of the leader a follower connects to
+ * @param consistency how far a write must have spread before it is acknowledged
+ * @param ackTimeout longest a write waits for followers in {@link Consistency#READ_YOUR_WRITES} mode
+ * @param backlog recent log records the leader keeps so reconnecting followers can catch up
+ *                without a full snapshot
+ * @param reconnectDelay pause before a follower retries a lost connection
+ */
+@ConfigurationProperties(prefix = "tinytasks.replication")
+public record ReplicationProperties(
+        @DefaultValue("leader") Role role,
+        @DefaultValue("7070") int port,
+        @DefaultValue("127.0.0.1") String bindAddress,
+        @DefaultValue("") String secret,
+        @DefaultValue("localhost:7070") String leader,
+        @DefaultValue("async") Consistency consistency,
+        @DefaultValue("1s") Duration ackTimeout,
+        @DefaultValue("65536") int backlog,
+        @DefaultValue("1s") Duration reconnectDelay) {
+
+    /**
+     * Part a node plays in replication.
+     */
+    public enum Role {
+        /** Applies every mutation and streams the ordered log to followers */
+        LEADER,
+        /** Applies the leader's log, serves reads locally and forwards writes to the leader */
+        FOLLOWER
+    }
+
+    /**
+     * Guarantee given to a client once a write returns.
+     */
+    public enum Consistency {
+        /** The write is applied on the leader; followers catch up shortly after */
+        ASYNC,
+        /**
+         * The leader waits until every connected follower has applied the write, up to
+         * {@link #ackTimeout()}, so a read on any node afterwards observes it
+         */
+        READ_YOUR_WRITES
+    }
+}
@@ -0,0 +1,14 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the sharded storage engine ({@code tinytasks.repository.type=sharded}).
+ *
+ * @param shards number of partitions, each owned by one writer thread; 0 uses one per available core
+ */
+@ConfigurationProperties(prefix = "tinytasks.sharded")
+public record ShardedProperties(
+        @DefaultValue("0") int shards) {
+}
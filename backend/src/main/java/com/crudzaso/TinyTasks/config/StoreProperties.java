@@ -0,0 +1,14 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits on what the service lets into the store.
+ *
+ * @param maxTodos tasks the store may hold; creates beyond it are refused, 0 = unlimited
+ */
+@ConfigurationProperties(prefix = "tinytasks.store")
+public record StoreProperties(
+        @DefaultValue("0") int maxTodos) {
+}
@@ -0,0 +1,18 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the live update stream ({@code GET /api/todos/stream}).
+ *
+ * @param maxSubscribers open streams allowed at once; further clients get 503
+ * @param heartbeat interval between keep-alive comments on idle streams
+ */
+@ConfigurationProperties(prefix = "tinytasks.stream")
+public record StreamProperties(
+        @DefaultValue("20000") int maxSubscribers,
+        @DefaultValue("30s") Duration heartbeat) {
+}
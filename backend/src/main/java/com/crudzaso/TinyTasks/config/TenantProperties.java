@@ -0,0 +1,29 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for tenant partitions, selected per request with the {@code X-Tenant} header.
+ * Requests without the header use the default tenant, which is the configured storage engine.
+ *
+ * @param maxTodos tasks each named tenant may hold, 0 = unlimited; lowered further when
+ *                 {@code tinytasks.store.max-todos} divided between {@code maxTenants} is smaller
+ * @param maxTenants named tenants that may exist, resident or parked; requests for new ones
+ *                   beyond it are refused
+ * @param changesCapacity recent changes retained per named tenant for {@code /changes}
+ * @param idleTimeout time without requests or open streams after which a named tenant is
+ *                    written to {@code directory} and dropped from memory
+ * @param directory where evicted tenants are parked until their next request
+ */
+@ConfigurationProperties(prefix = "tinytasks.tenants")
+public record TenantProperties(
+        @DefaultValue("100000") int maxTodos,
+        @DefaultValue("100") int maxTenants,
+        @DefaultValue("1000") int changesCapacity,
+        @DefaultValue("30m") Duration idleTimeout,
+        @DefaultValue("data/tenants") Path directory) {
+}
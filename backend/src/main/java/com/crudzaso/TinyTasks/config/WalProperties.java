@@ -0,0 +1,54 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the write-ahead log storage engine ({@code tinytasks.repository.type=wal}).
+ *
+ * @param directory folder holding log segments and snapshots
+ * @param fsync when appended records are forced to disk
+ * @param fsyncInterval how often the background flusher forces the log in {@link Fsync#INTERVAL} mode
+ * @param snapshotEvery number of logged mutations between compacted snapshots
+ * @param ack when a mutation is acknowledged to the caller
+ * @param queueCapacity records that may wait for the background writer in {@link Ack#MEMORY} mode
+ *                      before writers block
+ */
+@ConfigurationProperties(prefix = "tinytasks.wal")
+public record WalProperties(
+        @DefaultValue("data") Path directory,
+        @DefaultValue("always") Fsync fsync,
+        @DefaultValue("10ms") Duration fsyncInterval,
+        @DefaultValue("1000000") int snapshotEvery,
+        @DefaultValue("flush") Ack ack,
+        @DefaultValue("65536") int queueCapacity) {
+
+    /**
+     * Point at which a mutation is acknowledged.
+     */
+    public enum Ack {
+        /** The request thread writes the record, and waits for the fsync if {@link Fsync#ALWAYS} */
+        FLUSH,
+        /**
+         * The record is queued once applied in memory; a single background writer drains the
+         * queue in batches, coalescing repeated status changes of one task. Mutations still
+         * queued are lost on a crash.
+         */
+        MEMORY
+    }
+
+    /**
+     * Durability policy for appended log records.
+     */
+    public enum Fsync {
+        /** Every mutation waits for an fsync; concurrent writers share one (group commit) */
+        ALWAYS,
+        /** A background flusher forces the log periodically; writers never wait */
+        INTERVAL,
+        /** Records reach the OS page cache only; survives JVM crashes, not power loss */
+        NEVER
+    }
+}
@@ -0,0 +1,98 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.config.RateLimitProperties;
+import com.crudzaso.TinyTasks.service.RateLimiter;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits each API request only if its client has budget left, with separate
+ * {@link RateLimiter}s for reads and writes. A refused request is answered here with
+ * 429 and {@code Retry-After}, before any handler, service or repository code runs.
+ * CORS preflights are never limited.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    /** Body of every refused request */
+    static final byte[] TOO_MANY_REQUESTS = "{\"error\":\"Too many requests\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimiter reads;
+    private final RateLimiter writes;
+    private final String clientHeader;
+    private final TodoMetrics metrics;
+
+    /**
+     * Creates an interceptor with limiters sized from configuration.
+     *
+     * @param properties budgets and client identification
+     * @param metrics counts refused requests as {@code rate_limit_read} and {@code rate_limit_write} rejections
+     */
+    public RateLimitInterceptor(RateLimitProperties properties, TodoMetrics metrics) {
+        this(new RateLimiter(properties.readsPerSecond(), properties.readBurst(), properties.maxClients()),
+                new RateLimiter(properties.writesPerSecond(), properties.writeBurst(), properties.maxClients()),
+                properties.clientHeader(), metrics);
+    }
+
+    /**
+     * Creates an interceptor around existing limiters.
+     *
+     * @param reads budget for {@code GET} and {@code HEAD}
+     * @param writes budget for every other method
+     * @param clientHeader header naming the client, or empty to use the remote address
+     * @param metrics counts refused requests
+     */
+    public RateLimitInterceptor(RateLimiter reads, RateLimiter writes, String clientHeader, TodoMetrics metrics) {
+        this.reads = reads;
+        this.writes = writes;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        String method = request.getMethod();
+        boolean read = method.equals("GET") || method.equals("HEAD");
+        long wait = (read ? reads : writes).tryAcquire(client(request));
+        if (wait == RateLimiter.ALLOWED) {
+            return true;
+        }
+        metrics.rejected(read ? "rate_limit_read" : "rate_limit_write");
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter(wait));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(TOO_MANY_REQUESTS.length);
+        response.getOutputStream().write(TOO_MANY_REQUESTS);
+        return false;
+    }
+
+    private String client(HttpServletRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeader(clientHeader);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /** {@code Retry-After} value for a nanosecond wait: whole seconds, rounded up, at least 1 */
+    static String retryAfter(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return String.valueOf(Math.max(1, (nanos + second - 1) / second));
+    }
+}
@@ -0,0 +1,98 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.config.RateLimitProperties;
+import com.crudzaso.TinyTasks.service.RateLimiter;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * The reactive stack's counterpart of {@link RateLimitInterceptor}: the same budgets, client
+ * identification and 429 response, applied to {@code /api/**} before any handler runs.
+ * Admission never blocks, so the check runs on the event loop.
+ */
+public class RateLimitWebFilter implements WebFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final RateLimiter reads;
+    private final RateLimiter writes;
+    private final String clientHeader;
+    private final TodoMetrics metrics;
+
+    /**
+     * Creates a filter with limiters sized from configuration.
+     *
+     * @param properties budgets and client identification
+     * @param metrics counts refused requests as {@code rate_limit_read} and {@code rate_limit_write} rejections
+     */
+    public RateLimitWebFilter(RateLimitProperties properties, TodoMetrics metrics) {
+        this(new RateLimiter(properties.readsPerSecond(), properties.readBurst(), properties.maxClients()),
+                new RateLimiter(properties.writesPerSecond(), properties.writeBurst(), properties.maxClients()),
+                properties.clientHeader(), metrics);
+    }
+
+    /**
+     * Creates a filter around existing limiters.
+     *
+     * @param reads budget for {@code GET} and {@code HEAD}
+     * @param writes budget for every other method
+     * @param clientHeader header naming the client, or empty to use the remote address
+     * @param metrics counts refused requests
+     */
+    public RateLimitWebFilter(RateLimiter reads, RateLimiter writes, String clientHeader, TodoMetrics metrics) {
+        this.reads = reads;
+        this.writes = writes;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!request.getPath().pathWithinApplication().value().startsWith(API_PREFIX)
+                || CorsUtils.isPreFlightRequest(request)) {
+            return chain.filter(exchange);
+        }
+        HttpMethod method = request.getMethod();
+        boolean read = method == HttpMethod.GET || method == HttpMethod.HEAD;
+        long wait = (read ? reads : writes).tryAcquire(client(request));
+        if (wait == RateLimiter.ALLOWED) {
+            return chain.filter(exchange);
+        }
+        metrics.rejected(read ? "rate_limit_read" : "rate_limit_write");
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RateLimitInterceptor.retryAfter(wait));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(RateLimitInterceptor.TOO_MANY_REQUESTS.length);
+        return response.writeWith(Mono.fromSupplier(() ->
+                response.bufferFactory().wrap(RateLimitInterceptor.TOO_MANY_REQUESTS)));
+    }
+
+    private String client(ServerHttpRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeaders().getFirst(clientHeader);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+}
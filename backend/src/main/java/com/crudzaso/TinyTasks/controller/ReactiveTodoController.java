@@ -0,0 +1,465 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.model.BatchResult;
+import com.crudzaso.TinyTasks.model.CreateTodoRequest;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoCounts;
+import com.crudzaso.TinyTasks.service.ReactiveTodoService;
+import com.crudzaso.TinyTasks.service.StoreFullException;
+import com.crudzaso.TinyTasks.service.TodoEventBroadcaster;
+import com.crudzaso.TinyTasks.service.TodoTenants;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking REST controller for Todo task management, serving the same {@code /api/todos}
+ * routes, parameters, headers and status codes as {@link TodoController} when the application
+ * runs on the reactive stack ({@code spring.main.web-application-type=reactive}).
+ *
+ * <p>No handler blocks its event loop: storage calls run on the repository's storage threads,
+ * and full lists and NDJSON downloads are written as the client reads them.
+ * Named tenants are only served by {@link TodoController}; here the {@value TodoController#TENANT_HEADER}
+ * header may only name the default tenant.
+ */
+@RestController
+@RequestMapping("/api/todos")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTodoController {
+
+    /** Page size used for search when no limit is given */
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+
+    /** Page size used when only a cursor is given */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final ReactiveTodoService todoService;
+    private final TodoEventBroadcaster broadcaster;
+
+    /** Distinguishes ETags of this process from those of earlier ones */
+    private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    /**
+     * Constructs controller with service and live update dependency injection.
+     *
+     * @param todoService the non-blocking service layer
+     * @param broadcaster pushes changes to {@code /stream} subscribers
+     */
+    public ReactiveTodoController(ReactiveTodoService todoService, TodoEventBroadcaster broadcaster) {
+        this.todoService = todoService;
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * Retrieves tasks, as {@link TodoController#getAllTodos}.
+     * The full list is tagged with the store version like on the servlet stack, but instead of
+     * being cached it is streamed from storage page by page as the client reads it.
+     *
+     * @param after id of the last task already seen, 0 for the first page
+     * @param limit maximum number of tasks in the page
+     * @param done true for completed tasks only, false for pending tasks only
+     * @param include {@code archived} to list archived tasks too
+     * @param ifNoneMatch ETags the client already holds for the whole list
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with a list of {@link Todo} objects, HTTP 304 if the list is unchanged,
+     *         HTTP 400 on invalid paging parameters
+     */
+    @GetMapping
+    public Mono<ResponseEntity<Flux<Todo>>> getAllTodos(@RequestParam(required = false) Integer after,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) Boolean done,
+                                                        @RequestParam(required = false) String include,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                        String ifNoneMatch,
+                                                        @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                                        String tenant) {
+        requireDefaultTenant(tenant);
+        boolean archived = TodoController.includeArchived(include);
+        if (after == null && limit == null && done == null) {
+            if (archived) {
+                return Mono.just(ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .body(todoService.getAllTodos(true)));
+            }
+            return getFullList(ifNoneMatch);
+        }
+        int cursor = after == null ? 0 : after;
+        int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        Mono<List<Todo>> page = done == null
+                ? todoService.getTodoPage(cursor, size, archived)
+                : todoService.getTodoPageByDone(done, cursor, size, archived);
+        return page.map(todos -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (!todos.isEmpty() && todos.size() == size) {
+                response.header(TodoController.NEXT_CURSOR_HEADER, String.valueOf(todos.get(todos.size() - 1).getId()));
+            }
+            return response.body(Flux.fromIterable(todos));
+        });
+    }
+
+    private Mono<ResponseEntity<Flux<Todo>>> getFullList(String ifNoneMatch) {
+        return todoService.getVersion().map(version -> {
+            // The list is read after the version and cursor, so it holds every change counted in them
+            String changeSequence = String.valueOf(todoService.getChangeSequence());
+            if (version < 0) {
+                return ResponseEntity.ok()
+                        .header(TodoController.CHANGE_SEQUENCE_HEADER, changeSequence)
+                        .body(todoService.getAllTodos(false));
+            }
+            String etag = "\"" + etagPrefix + "-" + version + "\"";
+            if (TodoController.matchesAny(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .header(TodoController.CHANGE_SEQUENCE_HEADER, changeSequence)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(todoService.getAllTodos(false));
+        });
+    }
+
+    /**
+     * Searches task titles, best matches first, as {@link TodoController#searchTodos}.
+     *
+     * @param q free text to search for
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the matching tasks and the hit total in {@value TodoController#TOTAL_COUNT_HEADER},
+     *         HTTP 400 on validation error
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<Todo>>> searchTodos(@RequestParam(required = false) String q,
+                                                        @RequestParam(defaultValue = "0") int offset,
+                                                        @RequestParam(defaultValue = "" + DEFAULT_SEARCH_SIZE) int limit,
+                                                        @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                                        String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.searchTodos(q, offset, limit)
+                .map(result -> ResponseEntity.ok()
+                        .header(TodoController.TOTAL_COUNT_HEADER, String.valueOf(result.total()))
+                        .body(result.todos()));
+    }
+
+    /**
+     * Lists what changed since the client's cursor, as {@link TodoController#getChanges}.
+     *
+     * @param since the cursor the client is up to date with
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the changes and the next cursor
+     */
+    @GetMapping("/changes")
+    public Mono<TodoChanges> getChanges(@RequestParam(defaultValue = "0") long since,
+                                        @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                        String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.getChangesSince(since);
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of live changes, with the events of
+     * {@link TodoController#streamChanges}. A batch is only fetched once the client has
+     * taken the previous one, so changes that arrive meanwhile are coalesced as on the servlet stack.
+     *
+     * @param lastEventId cursor of the last event received before reconnecting
+     * @param since cursor to start from on a first connection, usually {@value TodoController#CHANGE_SEQUENCE_HEADER}
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the event stream, HTTP 503 when too many streams are open
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<TodoChanges>>> streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = TodoController.TENANT_HEADER, required = false) String tenant) {
+        requireDefaultTenant(tenant);
+        EventStream stream = new EventStream();
+        TodoEventBroadcaster.Subscription subscription =
+                broadcaster.subscribe(stream, lastEventId != null ? lastEventId : since);
+        if (subscription == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Flux<ServerSentEvent<TodoChanges>> events = Flux.create(sink -> {
+            sink.onDispose(subscription::cancel);
+            stream.attach(sink);
+        });
+        // Response headers go out with the first event, so an idle stream opens with a comment
+        return ResponseEntity.ok(events.startWith(ServerSentEvent.<TodoChanges>builder().comment("connected").build()));
+    }
+
+    /**
+     * Counts tasks by completion status.
+     *
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with total, done and pending counts
+     */
+    @GetMapping("/count")
+    public Mono<TodoCounts> countTodos(
+            @RequestHeader(value = TodoController.TENANT_HEADER, required = false) String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.countTodos();
+    }
+
+    /**
+     * Streams all tasks as newline-delimited JSON, reading from storage only as fast as the client consumes.
+     *
+     * @param include {@code archived} to stream archived tasks too
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return one {@link Todo} per line
+     */
+    @GetMapping(produces = TodoController.NDJSON)
+    public Flux<Todo> streamTodos(@RequestParam(required = false) String include,
+                                  @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                  String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.getAllTodos(TodoController.includeArchived(include));
+    }
+
+    /**
+     * Creates a new task with the specified title.
+     * Title must be at least 3 characters after trimming.
+     *
+     * @param request body containing the task title
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 201 with created todo on success, HTTP 400 on validation error,
+     *         HTTP 507 when the store is full
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Todo>> createTodo(@RequestBody CreateTodoRequest request,
+                                                 @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                                 String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.createTodo(request.title())
+                .map(todo -> ResponseEntity.status(HttpStatus.CREATED).body(todo));
+    }
+
+    /**
+     * Creates several tasks in one request, reporting each item individually.
+     *
+     * @param requests list of bodies, each containing a task title
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per item, HTTP 400 if the batch size is invalid
+     */
+    @PostMapping("/batch")
+    public Mono<List<BatchResult>> createTodos(@RequestBody List<CreateTodoRequest> requests,
+                                               @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                               String tenant) {
+        requireDefaultTenant(tenant);
+        List<String> titles = requests.stream()
+                .map(request -> request == null ? null : request.title())
+                .toList();
+        return todoService.createTodos(titles);
+    }
+
+    /**
+     * Toggles several tasks in one request.
+     *
+     * @param ids the task identifiers
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per id, HTTP 400 if the batch size is invalid
+     */
+    @PutMapping("/batch/toggle")
+    public Mono<List<BatchResult>> toggleTodos(@RequestBody int[] ids,
+                                               @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                               String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.toggleTodos(ids);
+    }
+
+    /**
+     * Deletes several tasks in one request.
+     *
+     * @param ids the task identifiers
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per id, HTTP 400 if the batch size is invalid
+     */
+    @DeleteMapping("/batch")
+    public Mono<List<BatchResult>> deleteTodos(@RequestBody int[] ids,
+                                               @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                               String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.deleteTodos(ids);
+    }
+
+    /**
+     * Toggles the completion status of a task.
+     *
+     * @param id the unique identifier of the task
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with updated todo if found, HTTP 404 otherwise
+     */
+    @PutMapping("/{id}/toggle")
+    public Mono<ResponseEntity<Todo>> toggleTodo(@PathVariable int id,
+                                                 @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                                 String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.toggleTodo(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /**
+     * Deletes a task from the system.
+     *
+     * @param id the unique identifier of the task
+     * @param tenant value of the {@value TodoController#TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 204 if successfully deleted, HTTP 404 if not found
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteTodo(@PathVariable int id,
+                                                 @RequestHeader(value = TodoController.TENANT_HEADER, required = false)
+                                                 String tenant) {
+        requireDefaultTenant(tenant);
+        return todoService.deleteTodo(id)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    /**
+     * Rejects invalid input, whether thrown by a handler or signalled by the service.
+     *
+     * @param e the validation failure
+     * @return HTTP 400 with the error message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Reports a create refused by the store cap.
+     *
+     * @param e the refusal
+     * @return HTTP 507 with the error message
+     */
+    @ExceptionHandler(StoreFullException.class)
+    public ResponseEntity<Map<String, String>> handleStoreFull(StoreFullException e) {
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Sheds load once every storage thread is busy and the storage queue is full.
+     *
+     * @param e the refusal from the storage scheduler
+     * @return HTTP 503 asking the client to retry in a second
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleStorageBusy(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Storage is busy"));
+    }
+
+    private static void requireDefaultTenant(String tenant) {
+        if (tenant != null && !tenant.isEmpty() && !tenant.equals(TodoTenants.DEFAULT)) {
+            throw new IllegalArgumentException("Named tenants are only served by the servlet stack");
+        }
+    }
+
+    /**
+     * Hands the broadcaster's batches to one response. The broadcaster's sender, a virtual
+     * thread, waits here until the client has asked for the next event, so a slow client
+     * never has batches queued up for it.
+     */
+    private static final class EventStream implements TodoEventBroadcaster.EventSink {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demand = lock.newCondition();
+        private FluxSink<ServerSentEvent<TodoChanges>> sink;
+        private boolean closed;
+
+        void attach(FluxSink<ServerSentEvent<TodoChanges>> sink) {
+            boolean alreadyClosed;
+            lock.lock();
+            try {
+                this.sink = sink;
+                alreadyClosed = closed;
+                sink.onRequest(requested -> signal());
+                demand.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (alreadyClosed) {
+                sink.complete();
+            }
+        }
+
+        @Override
+        public void send(TodoChanges changes) throws IOException {
+            emit(ServerSentEvent.builder(changes)
+                    .id(String.valueOf(changes.latest()))
+                    .event("changes")
+                    .build());
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emit(ServerSentEvent.<TodoChanges>builder().comment("keep-alive").build());
+        }
+
+        @Override
+        public void close() {
+            FluxSink<ServerSentEvent<TodoChanges>> current;
+            lock.lock();
+            try {
+                closed = true;
+                current = sink;
+                demand.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (current != null) {
+                current.complete();
+            }
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                demand.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void emit(ServerSentEvent<TodoChanges> event) throws IOException {
+            lock.lock();
+            try {
+                while (!closed && (sink == null || sink.requestedFromDownstream() == 0)) {
+                    demand.await();
+                }
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                sink.next(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the client");
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,59 +1,442 @@
 package com.crudzaso.TinyTasks.controller;
 
+import com.crudzaso.TinyTasks.model.CreateTodoRequest;
 import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoCounts;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import com.crudzaso.TinyTasks.service.StoreFullException;
+import com.crudzaso.TinyTasks.service.TenantLimitException;
+import com.crudzaso.TinyTasks.service.TodoEventBroadcaster;
 import com.crudzaso.TinyTasks.service.TodoService;
+import com.crudzaso.TinyTasks.service.TodoTenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 /**
  * REST controller for Todo task management.
  * Provides CRUD endpoints following RESTful conventions.
+ * Serves the servlet stack; {@link ReactiveTodoController} takes its place on the reactive one.
  */
 @RestController
 @RequestMapping("/api/todos")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TodoController {
 
-    private final TodoService todoService;
+    /** Media type for newline-delimited JSON streaming */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /** Response header carrying the cursor for the next page */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /** Response header carrying the total number of search hits */
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /** Response header carrying the change cursor the full list is current with */
+    public static final String CHANGE_SEQUENCE_HEADER = "X-Change-Seq";
+
+    /** Request header selecting the tenant; requests without it use the default tenant */
+    public static final String TENANT_HEADER = "X-Tenant";
+
+    /** Page size used for search when no limit is given */
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+
+    /** Page size used when only a cursor is given, and when streaming */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final TodoTenants tenants;
+
+    /** Serializes the full task list and NDJSON lines */
+    private final TodoJsonCodec codec = TodoJsonCodec.shared();
 
     /**
-     * Constructs controller with service dependency injection.
+     * Constructs controller whose default tenant is the given service, with default tenant settings.
      *
-     * @param todoService the service layer for business logic
+     * @param todoService the service layer for business logic of the default tenant
      */
     public TodoController(TodoService todoService) {
-        this.todoService = todoService;
+        this(new TodoTenants(todoService));
     }
 
     /**
-     * Retrieves all tasks from the system.
+     * Constructs controller with tenant registry dependency injection.
      *
-     * @return list of all {@link Todo} objects
+     * @param tenants resolves the {@value #TENANT_HEADER} header to a tenant's service and broadcaster
+     */
+    @Autowired
+    public TodoController(TodoTenants tenants) {
+        this.tenants = tenants;
+    }
+
+    /**
+     * Retrieves tasks from the system.
+     * Without parameters the whole list is returned with a strong ETag derived from the
+     * store version; a matching {@code If-None-Match} is answered with 304 without reading
+     * any task, and the serialized list is reused until the version changes. Stores that do
+     * not fit in the heap are streamed page by page instead, and never cached. The
+     * {@value #CHANGE_SEQUENCE_HEADER} header holds the cursor for {@code /changes}.
+     * With {@code after} and/or
+     * {@code limit} a single keyset page is returned, and the
+     * {@value #NEXT_CURSOR_HEADER} header holds the cursor of the next page
+     * when more tasks may follow. With {@code done} only completed or pending
+     * tasks are returned, always as a page. With {@code include=archived} tasks moved to
+     * cold storage are merged in by id; such lists are neither cached nor tagged.
+     *
+     * @param after id of the last task already seen, 0 for the first page
+     * @param limit maximum number of tasks in the page
+     * @param done true for completed tasks only, false for pending tasks only
+     * @param include {@code archived} to list archived tasks too
+     * @param ifNoneMatch ETags the client already holds for the whole list
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with a list of {@link Todo} objects, HTTP 304 if the list is unchanged,
+     *         HTTP 400 on invalid paging parameters
      */
     @GetMapping
-    public List<Todo> getAllTodos() {
-        return todoService.getAllTodos();
+    public ResponseEntity<?> getAllTodos(@RequestParam(required = false) Integer after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) Boolean done,
+                                         @RequestParam(required = false) String include,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                         String ifNoneMatch,
+                                         @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        TodoTenants.Tenant current = tenants.get(tenant);
+        boolean archived = includeArchived(include);
+        if (after == null && limit == null && done == null) {
+            if (archived) {
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(current.service().fitsInHeap()
+                                ? current.service().getAllTodos(true)
+                                : streamList(current, true));
+            }
+            return getFullList(current, ifNoneMatch);
+        }
+        TodoService todoService = current.service();
+        try {
+            int cursor = after == null ? 0 : after;
+            int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            List<Todo> page = done == null
+                    ? todoService.getTodoPage(cursor, size, archived)
+                    : todoService.getTodoPageByDone(done, cursor, size, archived);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (!page.isEmpty() && page.size() == size) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+            }
+            return response.body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> getFullList(TodoTenants.Tenant tenant, String ifNoneMatch) {
+        TodoService todoService = tenant.service();
+        long version = todoService.getVersion();
+        if (version < 0) {
+            long changeSequence = todoService.getChangeSequence();
+            return ResponseEntity.ok()
+                    .header(CHANGE_SEQUENCE_HEADER, String.valueOf(changeSequence))
+                    .body(todoService.getAllTodos());
+        }
+        String etag = "\"" + tenant.etagPrefix() + "-" + version + "\"";
+        if (matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        if (!todoService.fitsInHeap()) {
+            // Pages are read after the version and cursor, so they hold every change counted in them
+            long changeSequence = todoService.getChangeSequence();
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .header(CHANGE_SEQUENCE_HEADER, String.valueOf(changeSequence))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(streamList(tenant, false));
+        }
+        TodoTenants.CachedBody cached = tenant.cachedBody();
+        if (cached == null || cached.version() != version) {
+            // The list is read after the version and cursor, so it holds every change counted in them
+            long changeSequence = todoService.getChangeSequence();
+            cached = new TodoTenants.CachedBody(version, changeSequence, codec.encodeList(todoService.getAllTodos()));
+            tenant.cacheBody(cached);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .header(CHANGE_SEQUENCE_HEADER, String.valueOf(cached.changeSequence()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.json());
+    }
+
+    /**
+     * Writes the whole list as one JSON array, page by page, for stores too large to
+     * build it in memory.
+     */
+    private StreamingResponseBody streamList(TodoTenants.Tenant tenant, boolean archived) {
+        return outputStream -> {
+            outputStream.write('[');
+            int after = 0;
+            List<Todo> page;
+            do {
+                tenant.touch();
+                page = tenant.service().getTodoPage(after, DEFAULT_PAGE_SIZE, archived);
+                codec.writeElements(page, after == 0, outputStream);
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == DEFAULT_PAGE_SIZE);
+            outputStream.write(']');
+        };
+    }
+
+    /** Weak comparison, as RFC 9110 prescribes for {@code If-None-Match} */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches task titles, best matches first.
+     * Every word of {@code q} must appear in the title; the last one may be a prefix,
+     * so the endpoint can back a type-ahead box.
+     *
+     * @param q free text to search for
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the matching tasks and the hit total in {@value #TOTAL_COUNT_HEADER},
+     *         HTTP 400 on validation error
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchTodos(@RequestParam(required = false) String q,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "" + DEFAULT_SEARCH_SIZE) int limit,
+                                         @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        try {
+            TodoSearchResult result = tenants.get(tenant).service().searchTodos(q, offset, limit);
+            return ResponseEntity.ok()
+                    .header(TOTAL_COUNT_HEADER, String.valueOf(result.total()))
+                    .body(result.todos());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Lists what changed since the client's cursor: tasks created or updated, in their
+     * current state, and ids deleted. Clients start from the {@value #CHANGE_SEQUENCE_HEADER}
+     * header of the full list, or from 0, and send back {@code latest} each time.
+     * A cursor outside the retained window returns {@code resync: true} with every task, or
+     * with none and {@code reload: true} when the store is streamed page by page.
+     *
+     * @param since the cursor the client is up to date with
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the changes and the next cursor
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<TodoChanges> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                  @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        return ResponseEntity.ok(tenants.get(tenant).service().getChangesSince(since));
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of live changes.
+     * Every event is named {@code changes}, carries a {@link TodoChanges} batch like
+     * {@code /changes} and has the batch's {@code latest} cursor as its id, so a browser
+     * {@code EventSource} resumes through {@code Last-Event-ID} after a reconnect.
+     *
+     * @param lastEventId cursor of the last event received before reconnecting
+     * @param since cursor to start from on a first connection, usually {@value #CHANGE_SEQUENCE_HEADER}
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with the event stream, HTTP 503 when too many streams are open
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        TodoEventBroadcaster broadcaster = tenants.get(tenant).broadcaster();
+        SseEmitter emitter = new SseEmitter(0L);
+        TodoEventBroadcaster.Subscription subscription = broadcaster.subscribe(new TodoEventBroadcaster.EventSink() {
+            @Override
+            public void send(TodoChanges changes) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(changes.latest()))
+                        .name("changes")
+                        .data(changes, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        }, lastEventId != null ? lastEventId : since);
+        if (subscription == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Counts tasks by completion status.
+     *
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with total, done and pending counts
+     */
+    @GetMapping("/count")
+    public ResponseEntity<TodoCounts> countTodos(
+            @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        return ResponseEntity.ok(tenants.get(tenant).service().countTodos());
+    }
+
+    /**
+     * Streams all tasks as newline-delimited JSON.
+     * Tasks are read page by page and flushed as they go, so the full list
+     * is never copied or buffered in memory.
+     *
+     * @param include {@code archived} to stream archived tasks too
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return streaming body writing one {@link Todo} per line
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamTodos(
+            @RequestParam(required = false) String include,
+            @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        TodoTenants.Tenant current = tenants.get(tenant);
+        boolean archived = includeArchived(include);
+        StreamingResponseBody body = outputStream -> {
+            int after = 0;
+            List<Todo> page;
+            do {
+                // Keeps a long download from counting as idle time
+                current.touch();
+                page = current.service().getTodoPage(after, DEFAULT_PAGE_SIZE, archived);
+                codec.writeLines(page, outputStream);
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+                outputStream.flush();
+            } while (page.size() == DEFAULT_PAGE_SIZE);
+        };
+        return ResponseEntity.ok().body(body);
     }
 
     /**
      * Creates a new task with the specified title.
      * Title must be at least 3 characters after trimming.
      *
-     * @param request map containing the task title
-     * @return HTTP 201 with created todo on success, HTTP 400 on validation error
+     * @param request body containing the task title
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 201 with created todo on success, HTTP 400 on validation error,
+     *         HTTP 507 when the store is full
      */
     @PostMapping
-    public ResponseEntity<?> createTodo(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> createTodo(@RequestBody CreateTodoRequest request,
+                                        @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
         try {
-            String title = request.get("title");
-            Todo newTodo = todoService.createTodo(title);
+            Todo newTodo = tenants.get(tenant).service().createTodo(request.title());
             return ResponseEntity.status(HttpStatus.CREATED).body(newTodo);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", e.getMessage()));
+        } catch (StoreFullException e) {
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Creates several tasks in one request.
+     * Each item is validated like {@link #createTodo(CreateTodoRequest)} and reported individually;
+     * items that do not fit in the store are reported with status 507.
+     *
+     * @param requests list of bodies, each containing a task title
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per item, HTTP 400 if the batch size is invalid
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTodos(@RequestBody List<CreateTodoRequest> requests,
+                                         @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        try {
+            TodoService todoService = tenants.get(tenant).service();
+            List<String> titles = requests.stream()
+                    .map(request -> request == null ? null : request.title())
+                    .toList();
+            return ResponseEntity.ok(todoService.createTodos(titles));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Toggles several tasks in one request.
+     *
+     * @param ids the task identifiers
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per id, HTTP 400 if the batch size is invalid
+     */
+    @PutMapping("/batch/toggle")
+    public ResponseEntity<?> toggleTodos(@RequestBody int[] ids,
+                                         @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        try {
+            return ResponseEntity.ok(tenants.get(tenant).service().toggleTodos(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Deletes several tasks in one request.
+     *
+     * @param ids the task identifiers
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
+     * @return HTTP 200 with one result per id, HTTP 400 if the batch size is invalid
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<?> deleteTodos(@RequestBody int[] ids,
+                                         @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        try {
+            return ResponseEntity.ok(tenants.get(tenant).service().deleteTodos(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
         }
     }
 
@@ -62,11 +445,13 @@ public class TodoController {
      * Inverts the done field (true to false or vice versa).
      *
      * @param id the unique identifier of the task
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
      * @return HTTP 200 with updated todo if found, HTTP 404 otherwise
      */
     @PutMapping("/{id}/toggle")
-    public ResponseEntity<?> toggleTodo(@PathVariable int id) {
-        return todoService.toggleTodo(id)
+    public ResponseEntity<?> toggleTodo(@PathVariable int id,
+                                        @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        return tenants.get(tenant).service().toggleTodo(id)
                 .map(todo -> ResponseEntity.ok(todo))
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(null));
@@ -76,14 +461,48 @@ public class TodoController {
      * Deletes a task from the system.
      *
      * @param id the unique identifier of the task
+     * @param tenant value of the {@value #TENANT_HEADER} header, absent for the default tenant
      * @return HTTP 204 if successfully deleted, HTTP 404 if not found
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTodo(@PathVariable int id) {
-        if (todoService.deleteTodo(id)) {
+    public ResponseEntity<Void> deleteTodo(@PathVariable int id,
+                                           @RequestHeader(value = TENANT_HEADER, required = false) String tenant) {
+        if (tenants.get(tenant).service().deleteTodo(id)) {
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
         }
     }
+
+    static boolean includeArchived(String include) {
+        if (include == null || include.isEmpty()) {
+            return false;
+        }
+        if (!include.equals("archived")) {
+            throw new IllegalArgumentException("include must be 'archived'");
+        }
+        return true;
+    }
+
+    /**
+     * Rejects requests naming an invalid tenant or {@code include} option.
+     *
+     * @param e the validation failure
+     * @return HTTP 400 with the error message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Answers a request for a new tenant beyond the tenant limit with HTTP 507, like a full store.
+     *
+     * @param e the exception
+     * @return HTTP 507 with the error message
+     */
+    @ExceptionHandler(TenantLimitException.class)
+    public ResponseEntity<Map<String, String>> handleTenantLimit(TenantLimitException e) {
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(Map.of("error", e.getMessage()));
+    }
 }
@@ -0,0 +1,108 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.model.CreateTodoRequest;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Message converter that writes {@link Todo} and {@code List<Todo>} bodies and reads
+ * {@link CreateTodoRequest} bodies with {@link TodoJsonCodec} instead of Jackson.
+ *
+ * <p>Controller methods return {@code ResponseEntity<?>}, so whether a list holds only
+ * tasks is checked on the value itself; any other list, such as batch results, is handed
+ * to the fallback converter, which must be able to write it. For the same reason a
+ * {@link StreamingResponseBody} is not seen by Spring's streaming support, so JSON arrays
+ * written page by page are run here, on the request thread.
+ */
+public class TodoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final TodoJsonCodec codec;
+    private final GenericHttpMessageConverter<Object> fallback;
+
+    /**
+     * Creates a converter.
+     *
+     * @param codec encodes and decodes the task JSON
+     * @param fallback writes lists that are not made of tasks, usually the Jackson converter
+     */
+    public TodoHttpMessageConverter(TodoJsonCodec codec, GenericHttpMessageConverter<Object> fallback) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.codec = codec;
+        this.fallback = fallback;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Todo.class || clazz == CreateTodoRequest.class || List.class.isAssignableFrom(clazz)
+                || StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type == CreateTodoRequest.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return clazz == CreateTodoRequest.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (clazz == Todo.class || List.class.isAssignableFrom(clazz)
+                || StreamingResponseBody.class.isAssignableFrom(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return readInternal(CreateTodoRequest.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        byte[] body = inputMessage.getBody().readAllBytes();
+        try {
+            return new CreateTodoRequest(codec.readTitle(body));
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        if (value instanceof Todo todo) {
+            codec.write(todo, outputMessage.getBody());
+        } else if (value instanceof List<?> list && onlyTodos(list)) {
+            codec.writeList((List<Todo>) list, outputMessage.getBody());
+        } else if (value instanceof StreamingResponseBody body) {
+            body.writeTo(outputMessage.getBody());
+        } else {
+            fallback.write(value, type, outputMessage.getHeaders().getContentType(), outputMessage);
+        }
+    }
+
+    private static boolean onlyTodos(List<?> list) {
+        for (Object element : list) {
+            if (!(element instanceof Todo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
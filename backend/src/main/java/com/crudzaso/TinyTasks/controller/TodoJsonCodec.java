@@ -0,0 +1,591 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hand-written JSON encoder and decoder for the fixed shape of {@link Todo}.
+ * Produces exactly what Jackson writes for a {@code Todo} or a {@code List<Todo>}
+ * ({@code {"id":1,"title":"...","done":false,"createdAt":...}}), without reflection or a generator:
+ * field names are pre-encoded, numbers are written digit by digit, and escaped titles are
+ * kept in a small cache because the same title strings are serialized again on every list.
+ *
+ * <p>Output goes through pooled 16 KB buffers that are flushed straight to the response
+ * stream, so a list of any size is written without building the whole body in memory.
+ * Create requests are parsed directly from the request bytes into the title, skipping
+ * any other field, instead of materializing a {@code Map}. Safe for concurrent use.
+ */
+public final class TodoJsonCodec {
+
+    /** Codec shared by the controller and the message converter */
+    private static final TodoJsonCodec SHARED = new TodoJsonCodec(1 << 14);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] TITLE = ascii(",\"title\":");
+    private static final byte[] DONE_TRUE = ascii(",\"done\":true");
+    private static final byte[] DONE_FALSE = ascii(",\"done\":false");
+    private static final byte[] CREATED_AT = ascii(",\"createdAt\":");
+    private static final byte[] COMPLETED_AT = ascii(",\"completedAt\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+    private static final byte[][] LITERALS = {ascii("true"), ascii("false"), NULL};
+
+    /** Title cache slot; the title is compared before the bytes are reused */
+    private record CachedTitle(String title, byte[] json) {
+    }
+
+    private final CachedTitle[] titles;
+    private final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * Creates a codec.
+     *
+     * @param titleCacheSize number of escaped titles kept; rounded up to a power of two
+     */
+    public TodoJsonCodec(int titleCacheSize) {
+        this.titles = new CachedTitle[Integer.highestOneBit(Math.max(1, titleCacheSize - 1)) << 1];
+    }
+
+    /**
+     * Gets the codec shared by the web layer.
+     *
+     * @return the shared codec
+     */
+    public static TodoJsonCodec shared() {
+        return SHARED;
+    }
+
+    /**
+     * Writes one task as a JSON object.
+     *
+     * @param todo the task
+     * @param out destination, not closed
+     * @throws IOException if the stream fails
+     */
+    public void write(Todo todo, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        try {
+            output.todo(todo);
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Writes tasks as a JSON array.
+     *
+     * @param todos the tasks
+     * @param out destination, not closed
+     * @throws IOException if the stream fails
+     */
+    public void writeList(List<Todo> todos, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        try {
+            output.array(todos);
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Writes one page of a JSON array that is streamed page by page: every task is
+     * preceded by a comma unless it opens the array. The caller writes the brackets.
+     *
+     * @param todos the tasks of the page
+     * @param first true if no task was written before this page
+     * @param out destination, neither flushed nor closed
+     * @throws IOException if the stream fails
+     */
+    public void writeElements(List<Todo> todos, boolean first, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        try {
+            for (int i = 0; i < todos.size(); i++) {
+                if (i > 0 || !first) {
+                    output.put((byte) ',');
+                }
+                output.todo(todos.get(i));
+            }
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Writes tasks as newline-delimited JSON, one object per line.
+     *
+     * @param todos the tasks
+     * @param out destination, neither flushed nor closed
+     * @throws IOException if the stream fails
+     */
+    public void writeLines(List<Todo> todos, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        try {
+            for (Todo todo : todos) {
+                output.todo(todo);
+                output.put((byte) '\n');
+            }
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Encodes tasks as a JSON array into a new byte array, for bodies that are cached.
+     *
+     * @param todos the tasks
+     * @return the encoded array
+     */
+    public byte[] encodeList(List<Todo> todos) {
+        Output output = new Output(null);
+        try {
+            output.array(todos);
+            return Arrays.copyOf(output.buffer, output.position);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreachable: no stream to fail", e);
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Extracts the {@code title} of a create request such as {@code {"title":"Buy milk"}}.
+     * Other fields are skipped; numbers and booleans are returned as their text, like
+     * binding to {@code Map<String, String>} does.
+     *
+     * @param json the request body
+     * @return the title, or null if it is missing or {@code null}
+     * @throws IllegalArgumentException if the body is not a single JSON object
+     */
+    public String readTitle(byte[] json) {
+        return new Parser(json).titleOfObject();
+    }
+
+    /** Escaped, quoted UTF-8 form of a title, from the cache when the same string was seen before */
+    private byte[] title(String title) {
+        int slot = title.hashCode() & (titles.length - 1);
+        CachedTitle cached = titles[slot];
+        if (cached != null && (cached.title() == title || cached.title().equals(title))) {
+            return cached.json();
+        }
+        byte[] json = escape(title);
+        titles[slot] = new CachedTitle(title, json);
+        return json;
+    }
+
+    /** Quotes and escapes a string the way Jackson does by default */
+    static byte[] escape(String value) {
+        int length = value.length();
+        boolean plain = true;
+        for (int i = 0; i < length && plain; i++) {
+            char c = value.charAt(i);
+            plain = c >= 0x20 && c < 0x80 && c != '"' && c != '\\';
+        }
+        if (plain) {
+            byte[] json = new byte[length + 2];
+            json[0] = '"';
+            // Every char is ASCII here, so its ISO-8859-1 byte is its UTF-8 byte
+            System.arraycopy(value.getBytes(StandardCharsets.ISO_8859_1), 0, json, 1, length);
+            json[length + 1] = '"';
+            return json;
+        }
+        StringBuilder escaped = new StringBuilder(length + 8).append('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                case '\b' -> escaped.append("\\b");
+                case '\f' -> escaped.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append("\\u00").append((char) HEX[c >> 4]).append((char) HEX[c & 0xF]);
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] borrow() {
+        byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    private void giveBack(byte[] buffer) {
+        if (buffer.length == BUFFER_SIZE && pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffers.offer(buffer);
+        } else if (buffer.length == BUFFER_SIZE) {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Write cursor over a pooled buffer. With a stream the buffer is flushed whenever it
+     * fills; without one it grows, for {@link #encodeList(List)}.
+     */
+    private final class Output {
+
+        private final OutputStream out;
+        private byte[] buffer = borrow();
+        private int position;
+
+        private Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void array(List<Todo> todos) throws IOException {
+            put((byte) '[');
+            for (int i = 0; i < todos.size(); i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                todo(todos.get(i));
+            }
+            put((byte) ']');
+        }
+
+        void todo(Todo todo) throws IOException {
+            put(ID);
+            integer(todo.getId());
+            put(TITLE);
+            put(todo.getTitle() == null ? NULL : title(todo.getTitle()));
+            put(todo.isDone() ? DONE_TRUE : DONE_FALSE);
+            // Unknown timestamps are left out, as Jackson does for their default value
+            if (todo.getCreatedAt() != 0) {
+                put(CREATED_AT);
+                integer(todo.getCreatedAt());
+            }
+            if (todo.getCompletedAt() != 0) {
+                put(COMPLETED_AT);
+                integer(todo.getCompletedAt());
+            }
+            put((byte) '}');
+        }
+
+        void integer(long value) throws IOException {
+            ensure(20);
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    put(ascii(Long.toString(value)));
+                    return;
+                }
+                buffer[position++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position += digits;
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position && out != null && bytes.length > BUFFER_SIZE / 2) {
+                // Large titles go straight to the stream instead of through the buffer
+                flush();
+                out.write(bytes);
+                return;
+            }
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void ensure(int space) throws IOException {
+            if (buffer.length - position >= space) {
+                return;
+            }
+            if (out != null) {
+                flush();
+            }
+            if (buffer.length - position < space) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + space));
+            }
+        }
+
+        void flush() throws IOException {
+            if (out != null && position > 0) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        void release() {
+            giveBack(buffer);
+        }
+    }
+
+    /**
+     * Minimal JSON reader for a create request: one object whose {@code title} is kept
+     * and whose other members are skipped.
+     */
+    private static final class Parser {
+
+        private final byte[] json;
+        private int position;
+
+        private Parser(byte[] json) {
+            this.json = json;
+        }
+
+        String titleOfObject() {
+            skipWhitespace();
+            expect('{');
+            String title = null;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String name = string();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    if (name.equals("title")) {
+                        title = scalar();
+                    } else {
+                        skipValue(0);
+                    }
+                    skipWhitespace();
+                    byte next = next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw error("Expected ',' or '}'");
+                    }
+                }
+            }
+            skipWhitespace();
+            if (position != json.length) {
+                throw error("Unexpected content after the object");
+            }
+            return title;
+        }
+
+        /** A string, a literal or a number, as text; null for {@code null} */
+        private String scalar() {
+            byte first = peek();
+            if (first == '"') {
+                return string();
+            }
+            if (first == '{' || first == '[') {
+                throw error("Title must be a string");
+            }
+            int start = position;
+            skipLiteral();
+            String text = new String(json, start, position - start, StandardCharsets.US_ASCII);
+            return text.equals("null") ? null : text;
+        }
+
+        private String string() {
+            expect('"');
+            int start = position;
+            while (position < json.length && json[position] != '"' && json[position] != '\\') {
+                position++;
+            }
+            if (position < json.length && json[position] == '"') {
+                // No escapes: decode the raw bytes in one go
+                return new String(json, start, position++ - start, StandardCharsets.UTF_8);
+            }
+            StringBuilder text = new StringBuilder(new String(json, start, position - start, StandardCharsets.UTF_8));
+            while (true) {
+                if (position >= json.length) {
+                    throw error("Unterminated string");
+                }
+                byte b = json[position++];
+                if (b == '"') {
+                    return text.toString();
+                }
+                if (b != '\\') {
+                    int runStart = position - 1;
+                    while (position < json.length && json[position] != '"' && json[position] != '\\') {
+                        position++;
+                    }
+                    text.append(new String(json, runStart, position - runStart, StandardCharsets.UTF_8));
+                    continue;
+                }
+                byte escape = next();
+                switch (escape) {
+                    case '"' -> text.append('"');
+                    case '\\' -> text.append('\\');
+                    case '/' -> text.append('/');
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > json.length) {
+                            throw error("Truncated unicode escape");
+                        }
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(json[position++], 16);
+                            if (digit < 0) {
+                                throw error("Invalid unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                    }
+                    default -> throw error("Invalid escape");
+                }
+            }
+        }
+
+        private void skipValue(int depth) {
+            if (depth > 64) {
+                throw error("Nesting too deep");
+            }
+            byte first = peek();
+            if (first == '"') {
+                string();
+            } else if (first == '{' || first == '[') {
+                byte close = first == '{' ? (byte) '}' : (byte) ']';
+                position++;
+                skipWhitespace();
+                if (peek() == close) {
+                    position++;
+                    return;
+                }
+                while (true) {
+                    skipWhitespace();
+                    if (first == '{') {
+                        string();
+                        skipWhitespace();
+                        expect(':');
+                        skipWhitespace();
+                    }
+                    skipValue(depth + 1);
+                    skipWhitespace();
+                    byte next = next();
+                    if (next == close) {
+                        return;
+                    }
+                    if (next != ',') {
+                        throw error("Expected ',' or '" + (char) close + "'");
+                    }
+                }
+            } else {
+                skipLiteral();
+            }
+        }
+
+        /** One of {@code true}, {@code false} and {@code null}, or a number as RFC 8259 defines it */
+        private void skipLiteral() {
+            for (byte[] literal : LITERALS) {
+                if (Arrays.equals(json, position, Math.min(position + literal.length, json.length),
+                        literal, 0, literal.length)) {
+                    position += literal.length;
+                    return;
+                }
+            }
+            int start = position;
+            if (position < json.length && json[position] == '-') {
+                position++;
+            }
+            if (position < json.length && json[position] == '0') {
+                position++;
+            } else if (skipDigits() == 0) {
+                position = start;
+                throw error("Expected a value");
+            }
+            if (position < json.length && json[position] == '.') {
+                position++;
+                if (skipDigits() == 0) {
+                    throw error("Expected a digit");
+                }
+            }
+            if (position < json.length && (json[position] == 'e' || json[position] == 'E')) {
+                position++;
+                if (position < json.length && (json[position] == '+' || json[position] == '-')) {
+                    position++;
+                }
+                if (skipDigits() == 0) {
+                    throw error("Expected a digit");
+                }
+            }
+        }
+
+        private int skipDigits() {
+            int start = position;
+            while (position < json.length && json[position] >= '0' && json[position] <= '9') {
+                position++;
+            }
+            return position - start;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length) {
+                byte b = json[position];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private byte peek() {
+            if (position >= json.length) {
+                throw error("Unexpected end of input");
+            }
+            return json[position];
+        }
+
+        private byte next() {
+            byte b = peek();
+            position++;
+            return b;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                position--;
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
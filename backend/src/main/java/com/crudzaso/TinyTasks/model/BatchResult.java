@@ -0,0 +1,74 @@
+package com.crudzaso.TinyTasks.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a batch request.
+ * Carries the HTTP status the item would have received as a single request,
+ * plus either the affected task or an error message.
+ *
+ * @param status HTTP status code for this item
+ * @param todo the created or updated task, if any
+ * @param error the validation or lookup error, if any
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(int status, Todo todo, String error) {
+
+    /**
+     * Result for a task that was created.
+     *
+     * @param todo the created task
+     * @return a 201 result
+     */
+    public static BatchResult created(Todo todo) {
+        return new BatchResult(201, todo, null);
+    }
+
+    /**
+     * Result for a task that was updated.
+     *
+     * @param todo the updated task
+     * @return a 200 result
+     */
+    public static BatchResult ok(Todo todo) {
+        return new BatchResult(200, todo, null);
+    }
+
+    /**
+     * Result for a task that was deleted.
+     *
+     * @return a 204 result
+     */
+    public static BatchResult deleted() {
+        return new BatchResult(204, null, null);
+    }
+
+    /**
+     * Result for an item that failed validation.
+     *
+     * @param error the validation message
+     * @return a 400 result
+     */
+    public static BatchResult badRequest(String error) {
+        return new BatchResult(400, null, error);
+    }
+
+    /**
+     * Result for an item refused because the store is full.
+     *
+     * @param error the reason
+     * @return a 507 result
+     */
+    public static BatchResult storeFull(String error) {
+        return new BatchResult(507, null, error);
+    }
+
+    /**
+     * Result for an id that does not exist.
+     *
+     * @return a 404 result
+     */
+    public static BatchResult notFound() {
+        return new BatchResult(404, null, "Not found");
+    }
+}
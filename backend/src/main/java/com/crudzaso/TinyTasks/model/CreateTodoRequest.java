@@ -0,0 +1,9 @@
+package com.crudzaso.TinyTasks.model;
+
+/**
+ * Body of a request creating one task.
+ *
+ * @param title the requested title, validated by the service
+ */
+public record CreateTodoRequest(String title) {
+}
@@ -1,8 +1,12 @@
 package com.crudzaso.TinyTasks.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * Domain model representing a task.
- * Contains task identifier, description, and completion status.
+ * Contains task identifier, description, completion status, and when the task was created
+ * and completed. Timestamps are epoch milliseconds; 0 means unknown, or not completed, and is
+ * left out of the JSON form.
  */
 public class Todo {
 
@@ -15,6 +19,14 @@ public class Todo {
     /** Completion status (true = done, false = pending) */
     private boolean done;
 
+    /** Creation time in epoch milliseconds, 0 if unknown */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long createdAt;
+
+    /** Time the task was last completed in epoch milliseconds, 0 while pending or if unknown */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long completedAt;
+
     /**
      * Default constructor for JSON deserialization.
      */
@@ -22,13 +34,14 @@ public class Todo {
     }
 
     /**
-     * Creates a new pending task with the specified title.
+     * Creates a new pending task with the specified title, created now.
      *
      * @param title the task description
      */
     public Todo(String title){
         this.title = title;
         this.done = false;
+        this.createdAt = System.currentTimeMillis();
     }
 
     /**
@@ -44,6 +57,35 @@ public class Todo {
         this.done = done;
     }
 
+    /**
+     * Creates a task with all fields, timestamps included.
+     *
+     * @param id the task identifier
+     * @param title the task description
+     * @param done the completion status
+     * @param createdAt creation time in epoch milliseconds, 0 if unknown
+     * @param completedAt completion time in epoch milliseconds, 0 if pending or unknown
+     */
+    public Todo(int id, String title, boolean done, long createdAt, long completedAt) {
+        this.id = id;
+        this.title = title;
+        this.done = done;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * Copies this task with a new completion status. Completing a pending task stamps the
+     * completion time; reopening one clears it.
+     *
+     * @param done the new completion status
+     * @return a new {@link Todo}; this one is left unchanged
+     */
+    public Todo withDone(boolean done) {
+        long completed = !done ? 0 : this.done ? completedAt : System.currentTimeMillis();
+        return new Todo(id, title, done, createdAt, completed);
+    }
+
     /**
      * Gets the task identifier.
      *
@@ -98,12 +140,50 @@ public class Todo {
         this.done = done;
     }
 
+    /**
+     * Gets the creation time.
+     *
+     * @return epoch milliseconds, 0 if unknown
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Sets the creation time.
+     *
+     * @param createdAt epoch milliseconds, 0 if unknown
+     */
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Gets the time the task was completed.
+     *
+     * @return epoch milliseconds, 0 while pending or if unknown
+     */
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * Sets the time the task was completed.
+     *
+     * @param completedAt epoch milliseconds, 0 while pending or if unknown
+     */
+    public void setCompletedAt(long completedAt) {
+        this.completedAt = completedAt;
+    }
+
     @Override
     public String toString() {
         return "Todo{" +
                 "id=" + id +
                 ", title='" + title + '\'' +
                 ", done=" + done +
+                ", createdAt=" + createdAt +
+                ", completedAt=" + completedAt +
                 '}';
     }
 
@@ -0,0 +1,40 @@
+package com.crudzaso.TinyTasks.model;
+
+import java.util.List;
+
+/**
+ * Changes to the task list since a client's cursor.
+ *
+ * @param latest cursor to send as {@code since} on the next request
+ * @param resync true if the client was too far behind: {@code upserted} then holds every
+ *               task and the client should replace its list instead of patching it
+ * @param upserted current state of tasks created or updated since the cursor
+ * @param deleted ids of tasks deleted since the cursor
+ * @param reload true on a resync of a store too large to send in one batch: {@code upserted}
+ *               is then empty and the client should load the full list again instead
+ */
+public record TodoChanges(long latest, boolean resync, List<Todo> upserted, List<Integer> deleted,
+                          boolean reload) {
+
+    /**
+     * Creates a batch the client can apply by itself.
+     *
+     * @param latest cursor to send as {@code since} on the next request
+     * @param resync true if {@code upserted} holds every task
+     * @param upserted current state of tasks created or updated since the cursor
+     * @param deleted ids of tasks deleted since the cursor
+     */
+    public TodoChanges(long latest, boolean resync, List<Todo> upserted, List<Integer> deleted) {
+        this(latest, resync, upserted, deleted, false);
+    }
+
+    /**
+     * Creates a resync telling the client to reload the full list, for stores that page it.
+     *
+     * @param latest cursor the reloaded list is at least current with
+     * @return a batch with no tasks and {@code reload} set
+     */
+    public static TodoChanges reload(long latest) {
+        return new TodoChanges(latest, true, List.of(), List.of(), true);
+    }
+}
@@ -0,0 +1,25 @@
+package com.crudzaso.TinyTasks.model;
+
+/**
+ * Number of stored tasks, split by completion status.
+ * {@code total}, {@code done} and {@code pending} cover the tasks held in memory;
+ * archived tasks are counted apart.
+ *
+ * @param total all tasks held in memory
+ * @param done completed tasks held in memory
+ * @param pending tasks not yet completed
+ * @param archived completed tasks moved to the archive
+ */
+public record TodoCounts(int total, int done, int pending, int archived) {
+
+    /**
+     * Creates counts for a store without an archive.
+     *
+     * @param total all stored tasks
+     * @param done completed tasks
+     * @param pending tasks not yet completed
+     */
+    public TodoCounts(int total, int done, int pending) {
+        this(total, done, pending, 0);
+    }
+}
@@ -0,0 +1,12 @@
+package com.crudzaso.TinyTasks.model;
+
+import java.util.List;
+
+/**
+ * One page of title search hits.
+ *
+ * @param total number of tasks matching the query
+ * @param todos the requested page of matching tasks, best matches first
+ */
+public record TodoSearchResult(int total, List<Todo> todos) {
+}
@@ -0,0 +1,473 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Allocation-light in-memory implementation of {@link TodoRepository}.
+ * Stores todos as parallel primitive columns instead of one object per task:
+ * ids in an {@code int[]}, timestamps in {@code long[]}s, done/live flags in bitsets and titles as UTF-8 bytes
+ * in a single shared arena. An int-keyed open-addressing index maps ids to slots
+ * without boxing. Selected with {@code tinytasks.repository.type=compact}.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "compact")
+public class CompactTodoRepository implements TodoRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Index key marking a never-used bucket (ids start at 1) */
+    private static final int EMPTY = 0;
+
+    /** Index key marking a bucket whose id was removed */
+    private static final int REMOVED = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Slot columns, appended in id order; deleted slots stay until compaction */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] titleOffsets = new int[INITIAL_CAPACITY];
+    private int[] titleLengths = new int[INITIAL_CAPACITY];
+    private long[] createdAts = new long[INITIAL_CAPACITY];
+    private long[] completedAts = new long[INITIAL_CAPACITY];
+    private final BitSet done = new BitSet();
+    private final BitSet live = new BitSet();
+
+    /** UTF-8 title bytes for every slot, addressed by offset and length */
+    private byte[] titleArena = new byte[INITIAL_CAPACITY * 16];
+    private int arenaSize;
+
+    /** Open-addressing index from id to slot, linear probing */
+    private int[] indexKeys = new int[INITIAL_CAPACITY * 2];
+    private int[] indexSlots = new int[INITIAL_CAPACITY * 2];
+    private int indexUsed;
+
+    /** Title index; ids resolve back through {@link #findById(int)} */
+    private final TodoSearchIndex searchIndex = new TodoSearchIndex();
+
+    private int slotCount;
+    private int liveCount;
+    private int doneCount;
+    private int nextId = 1;
+
+    /** Bumped under the write lock after every successful mutation; read without it */
+    private volatile long version;
+
+    /**
+     * Retrieves all live tasks in id order.
+     *
+     * @return list of all {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Todo> result = new ArrayList<>(liveCount);
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                result.add(materialize(slot));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Binary-searches the id column for the cursor; slots are always kept in id order.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int insertion = Arrays.binarySearch(ids, 0, slotCount, afterId);
+            int first = insertion >= 0 ? insertion + 1 : -insertion - 1;
+            List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+            for (int slot = live.nextSetBit(first); slot >= 0 && page.size() < limit; slot = live.nextSetBit(slot + 1)) {
+                page.add(materialize(slot));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a task by probing the primitive index; only the returned
+     * {@link Todo} and its title are allocated.
+     *
+     * @param id the task identifier
+     * @return Optional containing the {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> findById(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(id);
+            return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the task to the columns and assigns the next ID.
+     *
+     * @param todo the task to save
+     * @return the saved {@link Todo} with assigned ID
+     */
+    @Override
+    public Todo save(Todo todo) {
+        byte[] title = todo.getTitle() == null
+                ? new byte[0]
+                : todo.getTitle().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            todo.setId(nextId++);
+            append(todo.getId(), title, todo.isDone(), todo.getCreatedAt(), todo.getCompletedAt());
+            searchIndex.add(todo.getId(), todo.getTitle());
+            version++;
+            return todo;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flips the done bit of a task in place, stamping the completion time when it becomes done.
+     *
+     * @param id the task identifier
+     * @return Optional containing the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> toggle(int id) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(id);
+            if (slot < 0) {
+                return Optional.empty();
+            }
+            done.flip(slot);
+            boolean completed = done.get(slot);
+            completedAts[slot] = completed ? System.currentTimeMillis() : 0;
+            doneCount += completed ? 1 : -1;
+            version++;
+            return Optional.of(materialize(slot));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the slot of a task as dead and compacts once dead slots outnumber live ones.
+     *
+     * @param id the task identifier
+     * @return true if the task existed and was removed, false otherwise
+     */
+    @Override
+    public boolean delete(int id) {
+        lock.writeLock().lock();
+        try {
+            int bucket = bucketOf(id);
+            if (bucket < 0) {
+                return false;
+            }
+            int slot = indexSlots[bucket];
+            indexKeys[bucket] = REMOVED;
+            live.clear(slot);
+            if (done.get(slot)) {
+                doneCount--;
+            }
+            done.clear(slot);
+            liveCount--;
+            searchIndex.remove(id);
+            if (slotCount > INITIAL_CAPACITY && liveCount < slotCount / 2) {
+                compact();
+            }
+            version++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves a batch of tasks while holding the write lock once.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        lock.writeLock().lock();
+        try {
+            return TodoRepository.super.saveAll(todos);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Toggles a batch of tasks while holding the write lock once.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        lock.writeLock().lock();
+        try {
+            return TodoRepository.super.toggleAll(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a batch of tasks while holding the write lock once.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
+     */
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        lock.writeLock().lock();
+        try {
+            return TodoRepository.super.deleteAll(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        return searchIndex.search(query, offset, limit, id -> findById(id).orElse(null));
+    }
+
+    @Override
+    public int countByDone(boolean completed) {
+        lock.readLock().lock();
+        try {
+            return completed ? doneCount : liveCount - doneCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scans the done bitset a word at a time from the cursor slot. Completed tasks come
+     * straight from its set bits; for pending tasks runs of completed slots are skipped
+     * with {@link BitSet#nextClearBit(int)}.
+     *
+     * @param completed true for completed tasks, false for pending ones
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findByDone(boolean completed, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int insertion = Arrays.binarySearch(ids, 0, slotCount, afterId);
+            int slot = insertion >= 0 ? insertion + 1 : -insertion - 1;
+            List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+            while (page.size() < limit) {
+                // Dead slots always have their done bit cleared
+                slot = completed ? done.nextSetBit(slot) : live.nextSetBit(slot);
+                if (slot < 0) {
+                    break;
+                }
+                if (!completed && done.get(slot)) {
+                    slot = done.nextClearBit(slot);
+                    continue;
+                }
+                page.add(materialize(slot));
+                slot++;
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap retained by the columns, index and title arena.
+     *
+     * @return approximate size in bytes
+     */
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 4L * (ids.length + titleOffsets.length + titleLengths.length)
+                    + 8L * (createdAts.length + completedAts.length);
+            long bitsets = (done.size() + live.size()) / 8;
+            long index = 4L * (indexKeys.length + indexSlots.length);
+            return columns + bitsets + index + titleArena.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(int id, byte[] title, boolean isDone, long createdAt, long completedAt) {
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+            completedAts = Arrays.copyOf(completedAts, capacity);
+        }
+        if (arenaSize + title.length > titleArena.length) {
+            titleArena = Arrays.copyOf(titleArena, Math.max(titleArena.length * 2, arenaSize + title.length));
+        }
+        int slot = slotCount++;
+        ids[slot] = id;
+        titleOffsets[slot] = arenaSize;
+        titleLengths[slot] = title.length;
+        createdAts[slot] = createdAt;
+        completedAts[slot] = isDone ? completedAt : 0;
+        System.arraycopy(title, 0, titleArena, arenaSize, title.length);
+        arenaSize += title.length;
+        live.set(slot);
+        done.set(slot, isDone);
+        if (isDone) {
+            doneCount++;
+        }
+        liveCount++;
+        index(id, slot);
+    }
+
+    private Todo materialize(int slot) {
+        String title = new String(titleArena, titleOffsets[slot], titleLengths[slot], StandardCharsets.UTF_8);
+        return new Todo(ids[slot], title, done.get(slot), createdAts[slot], completedAts[slot]);
+    }
+
+    private int slotOf(int id) {
+        int bucket = bucketOf(id);
+        return bucket < 0 ? -1 : indexSlots[bucket];
+    }
+
+    private int bucketOf(int id) {
+        int mask = indexKeys.length - 1;
+        for (int bucket = mix(id) & mask; ; bucket = (bucket + 1) & mask) {
+            int key = indexKeys[bucket];
+            if (key == id) {
+                return bucket;
+            }
+            if (key == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void index(int id, int slot) {
+        // Keep at least half of the buckets empty so probe chains stay short
+        if ((indexUsed + 1) * 2 > indexKeys.length) {
+            rebuildIndex(Math.max(indexKeys.length, Integer.highestOneBit(Math.max(liveCount, 1)) * 4));
+        }
+        int mask = indexKeys.length - 1;
+        int bucket = mix(id) & mask;
+        while (indexKeys[bucket] != EMPTY) {
+            bucket = (bucket + 1) & mask;
+        }
+        indexKeys[bucket] = id;
+        indexSlots[bucket] = slot;
+        indexUsed++;
+    }
+
+    private void rebuildIndex(int capacity) {
+        indexKeys = new int[capacity];
+        indexSlots = new int[capacity];
+        indexUsed = 0;
+        int mask = capacity - 1;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            int bucket = mix(ids[slot]) & mask;
+            while (indexKeys[bucket] != EMPTY) {
+                bucket = (bucket + 1) & mask;
+            }
+            indexKeys[bucket] = ids[slot];
+            indexSlots[bucket] = slot;
+            indexUsed++;
+        }
+    }
+
+    /**
+     * Rewrites the columns and arena without dead slots, preserving id order.
+     */
+    private void compact() {
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(liveCount) * 2);
+        int[] newIds = new int[capacity];
+        int[] newOffsets = new int[capacity];
+        int[] newLengths = new int[capacity];
+        long[] newCreatedAts = new long[capacity];
+        long[] newCompletedAts = new long[capacity];
+        BitSet newDone = new BitSet(capacity);
+        int liveBytes = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            liveBytes += titleLengths[slot];
+        }
+        byte[] newArena = new byte[Math.max(INITIAL_CAPACITY * 16, liveBytes * 2)];
+        int target = 0;
+        int newArenaSize = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            newIds[target] = ids[slot];
+            newOffsets[target] = newArenaSize;
+            newLengths[target] = titleLengths[slot];
+            newCreatedAts[target] = createdAts[slot];
+            newCompletedAts[target] = completedAts[slot];
+            System.arraycopy(titleArena, titleOffsets[slot], newArena, newArenaSize, titleLengths[slot]);
+            newArenaSize += titleLengths[slot];
+            newDone.set(target, done.get(slot));
+            target++;
+        }
+        ids = newIds;
+        titleOffsets = newOffsets;
+        titleLengths = newLengths;
+        createdAts = newCreatedAts;
+        completedAts = newCompletedAts;
+        titleArena = newArena;
+        arenaSize = newArenaSize;
+        done.clear();
+        done.or(newDone);
+        live.clear();
+        live.set(0, target);
+        slotCount = target;
+        rebuildIndex(Math.max(INITIAL_CAPACITY * 2, Integer.highestOneBit(Math.max(liveCount, 1)) * 4));
+    }
+
+    /** Spreads sequential ids across buckets (murmur3 finalizer) */
+    private static int mix(int id) {
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+
+/**
+ * Forward-only walk over the entries of one source of the log-structured merge tree, in
+ * ascending id order. A cursor starts on its first entry; once {@link #value()} returns
+ * null it is exhausted.
+ */
+interface LsmCursor {
+
+    /**
+     * Gets the id of the current entry.
+     *
+     * @return the task identifier; undefined once exhausted
+     */
+    int id();
+
+    /**
+     * Gets the current entry.
+     *
+     * @return the task, {@link LsmTodoRepository#TOMBSTONE} for a deletion, or null once exhausted
+     */
+    Todo value();
+
+    /**
+     * Moves to the next entry.
+     *
+     * @throws IOException if the next entry cannot be read
+     */
+    void next() throws IOException;
+
+    /**
+     * Walks the entries of a memtable after {@code afterId}.
+     *
+     * @param entries the memtable
+     * @param afterId ids up to this one are skipped
+     * @return the cursor
+     */
+    static LsmCursor of(NavigableMap<Integer, Todo> entries, int afterId) {
+        Iterator<Map.Entry<Integer, Todo>> iterator = entries.tailMap(afterId, false).entrySet().iterator();
+        return new LsmCursor() {
+            private int id;
+            private Todo value;
+
+            {
+                next();
+            }
+
+            @Override
+            public int id() {
+                return id;
+            }
+
+            @Override
+            public Todo value() {
+                return value;
+            }
+
+            @Override
+            public void next() {
+                if (iterator.hasNext()) {
+                    Map.Entry<Integer, Todo> entry = iterator.next();
+                    id = entry.getKey();
+                    value = entry.getValue();
+                } else {
+                    value = null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Merges sources into one walk in id order. When several sources hold an id, the one
+     * listed first wins and the others' entries for it are skipped.
+     *
+     * @param sources the cursors, newest data first
+     * @return the merged cursor
+     * @throws IOException if a source cannot be advanced
+     */
+    static LsmCursor merge(List<LsmCursor> sources) throws IOException {
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+            int byId = Integer.compare(sources.get(a).id(), sources.get(b).id());
+            return byId != 0 ? byId : Integer.compare(a, b);
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).value() != null) {
+                heap.add(i);
+            }
+        }
+        LsmCursor merged = new LsmCursor() {
+            private int id;
+            private Todo value;
+
+            @Override
+            public int id() {
+                return id;
+            }
+
+            @Override
+            public Todo value() {
+                return value;
+            }
+
+            @Override
+            public void next() throws IOException {
+                if (heap.isEmpty()) {
+                    value = null;
+                    return;
+                }
+                LsmCursor newest = sources.get(heap.peek());
+                id = newest.id();
+                value = newest.value();
+                while (!heap.isEmpty() && sources.get(heap.peek()).id() == id) {
+                    int source = heap.poll();
+                    sources.get(source).next();
+                    if (sources.get(source).value() != null) {
+                        heap.add(source);
+                    }
+                }
+            }
+        };
+        merged.next();
+        return merged;
+    }
+}
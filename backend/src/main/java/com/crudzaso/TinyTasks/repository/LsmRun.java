@@ -0,0 +1,535 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable sorted run of the log-structured merge tree: entries keyed by todo id, in
+ * ascending order, each either a task or a tombstone. Written once by a flush or a
+ * compaction and never modified.
+ * <pre>
+ * blocks  entries back to back, a new block started once one reaches the block size
+ * entry   id:int flags:byte createdAt:long completedAt:long titleLength:int title:UTF-8
+ * index   per block: firstId:int offset:long length:int
+ * bloom   long[words], k bits set per id
+ * footer  entries:long tombstones:long minId:int maxId:int blocks:int
+ *         indexOffset:long bloomOffset:long bloomWords:int hashes:int magic:int
+ * </pre>
+ *
+ * <p>Opening a run loads the block index and the bloom filter onto the heap; the blocks
+ * stay on disk. A point lookup that passes the bloom filter reads exactly one block. Runs
+ * are reference counted: the channel is closed once no published state uses the run, and
+ * the file deleted too if compaction replaced it.
+ */
+final class LsmRun {
+
+    private static final int MAGIC = 0x4c534d31;
+    private static final int FOOTER_SIZE = 8 + 8 + 4 + 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final int ENTRY_HEADER_SIZE = 4 + 1 + 8 + 8 + 4;
+    private static final int INDEX_ENTRY_SIZE = 4 + 8 + 4;
+
+    private static final byte TOMBSTONE_FLAG = 1;
+    private static final byte DONE_FLAG = 2;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long entries;
+    private final int minId;
+    private final int maxId;
+    private final int[] blockFirstIds;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final long[] bloom;
+    private final int hashes;
+
+    /** Published states using this run; the run is closed when it drops to 0 */
+    private final AtomicInteger references = new AtomicInteger();
+    private volatile boolean obsolete;
+
+    private LsmRun(long number, Path path, FileChannel channel, long size, long entries, int minId, int maxId,
+                   int[] blockFirstIds, long[] blockOffsets, int[] blockLengths, long[] bloom, int hashes) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.entries = entries;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.blockFirstIds = blockFirstIds;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.bloom = bloom;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Opens a run, reading its index and bloom filter.
+     *
+     * @param number the run's number, which names its file
+     * @param path the run file
+     * @return the opened run
+     * @throws IOException if the file cannot be read or is not a run
+     */
+    static LsmRun open(long number, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Truncated LSM run: " + path);
+            }
+            ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long entries = footer.getLong();
+            footer.getLong();
+            int minId = footer.getInt();
+            int maxId = footer.getInt();
+            int blocks = footer.getInt();
+            long indexOffset = footer.getLong();
+            long bloomOffset = footer.getLong();
+            int bloomWords = footer.getInt();
+            int hashes = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Not an LSM run: " + path);
+            }
+            ByteBuffer index = read(channel, indexOffset, blocks * INDEX_ENTRY_SIZE);
+            int[] firstIds = new int[blocks];
+            long[] offsets = new long[blocks];
+            int[] lengths = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                firstIds[i] = index.getInt();
+                offsets[i] = index.getLong();
+                lengths[i] = index.getInt();
+            }
+            long[] bloom = new long[bloomWords];
+            read(channel, bloomOffset, bloomWords * 8).asLongBuffer().get(bloom);
+            return new LsmRun(number, path, channel, size, entries, minId, maxId, firstIds, offsets, lengths,
+                    bloom, hashes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the size of an entry once encoded, which is what a run spends on it.
+     *
+     * @param todo the task, or {@link LsmTodoRepository#TOMBSTONE}
+     * @return encoded bytes
+     */
+    static int encodedSize(Todo todo) {
+        return ENTRY_HEADER_SIZE + (todo.getTitle() == null ? 0 : todo.getTitle().length());
+    }
+
+    /**
+     * Gets the run's number.
+     *
+     * @return the number, which grows with every run written
+     */
+    long number() {
+        return number;
+    }
+
+    /**
+     * Gets the file size.
+     *
+     * @return bytes on disk
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of entries, tombstones included.
+     *
+     * @return entry count
+     */
+    long entries() {
+        return entries;
+    }
+
+    /**
+     * Gets the smallest id in the run.
+     *
+     * @return the first id
+     */
+    int minId() {
+        return minId;
+    }
+
+    /**
+     * Gets the largest id in the run.
+     *
+     * @return the last id
+     */
+    int maxId() {
+        return maxId;
+    }
+
+    /**
+     * Looks an id up, reading at most one block.
+     *
+     * @param id the task identifier
+     * @param blockReads incremented for every block read from disk
+     * @return the task, {@link LsmTodoRepository#TOMBSTONE} if the run deletes it, or null if
+     *         the run says nothing about it
+     * @throws IOException if the block cannot be read
+     */
+    Todo get(int id, AtomicLong blockReads) throws IOException {
+        if (id < minId || id > maxId || !mightContain(id)) {
+            return null;
+        }
+        int block = blockOf(id);
+        blockReads.incrementAndGet();
+        ByteBuffer buffer = read(channel, blockOffsets[block], blockLengths[block]);
+        while (buffer.hasRemaining()) {
+            int entryId = buffer.getInt();
+            if (entryId > id) {
+                return null;
+            }
+            if (entryId == id) {
+                return decode(id, buffer);
+            }
+            skip(buffer);
+        }
+        return null;
+    }
+
+    /**
+     * Opens a cursor on the first entry with an id greater than {@code afterId}.
+     *
+     * @param afterId ids up to this one are skipped
+     * @param blockReads incremented for every block read from disk
+     * @return the cursor
+     * @throws IOException if the first block cannot be read
+     */
+    Cursor cursor(int afterId, AtomicLong blockReads) throws IOException {
+        return new Cursor(afterId, blockReads);
+    }
+
+    /**
+     * Records that a published state uses this run.
+     */
+    void retain() {
+        references.incrementAndGet();
+    }
+
+    /**
+     * Records that a state using this run was retired; the last release closes the run,
+     * and deletes its file if compaction has replaced it.
+     */
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            try {
+                channel.close();
+                if (obsolete) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                LsmTodoRepository.log.warn("Could not release LSM run {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * Marks the run as replaced by compaction, so its file is deleted once unused.
+     */
+    void markObsolete() {
+        obsolete = true;
+    }
+
+    private boolean mightContain(int id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) bloom.length * 64;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int blockOf(int id) {
+        int index = Arrays.binarySearch(blockFirstIds, id);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    private static long mix(int id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static Todo decode(int id, ByteBuffer buffer) {
+        byte flags = buffer.get();
+        long createdAt = buffer.getLong();
+        long completedAt = buffer.getLong();
+        byte[] title = new byte[buffer.getInt()];
+        buffer.get(title);
+        if ((flags & TOMBSTONE_FLAG) != 0) {
+            return LsmTodoRepository.TOMBSTONE;
+        }
+        return new Todo(id, new String(title, StandardCharsets.UTF_8), (flags & DONE_FLAG) != 0, createdAt, completedAt);
+    }
+
+    private static void skip(ByteBuffer buffer) {
+        buffer.position(buffer.position() + 1 + 8 + 8);
+        int titleLength = buffer.getInt();
+        buffer.position(buffer.position() + titleLength);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of LSM run");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads a run in id order, one block at a time.
+     */
+    final class Cursor implements LsmCursor {
+
+        private final AtomicLong blockReads;
+        private int block;
+        private ByteBuffer buffer;
+        private int id;
+        private Todo value;
+
+        private Cursor(int afterId, AtomicLong blockReads) throws IOException {
+            this.blockReads = blockReads;
+            this.block = afterId < minId ? 0 : blockOf(afterId + 1);
+            this.buffer = block < blockFirstIds.length ? load(block) : null;
+            do {
+                next();
+            } while (value != null && id <= afterId);
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public Todo value() {
+            return value;
+        }
+
+        @Override
+        public void next() throws IOException {
+            while (buffer != null && !buffer.hasRemaining()) {
+                block++;
+                buffer = block < blockFirstIds.length ? load(block) : null;
+            }
+            if (buffer == null) {
+                value = null;
+                return;
+            }
+            id = buffer.getInt();
+            value = decode(id, buffer);
+        }
+
+        private ByteBuffer load(int index) throws IOException {
+            blockReads.incrementAndGet();
+            return read(channel, blockOffsets[index], blockLengths[index]);
+        }
+    }
+
+    /**
+     * Streams sorted entries into one or more run files, starting a new file once the
+     * current one reaches the target size.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final int blockSize;
+        private final int bitsPerKey;
+
+        private FileChannel channel;
+        private Path temporary;
+        private ByteBuffer block;
+        private int blockFirstId;
+        private long offset;
+        private long entries;
+        private long tombstones;
+        private int minId;
+        private int maxId;
+        private int[] ids = new int[1024];
+        private ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 64);
+        private int blocks;
+
+        /**
+         * Creates a writer; nothing is written until the first entry.
+         *
+         * @param blockSize bytes gathered before a block is written
+         * @param bitsPerKey bloom filter bits per entry
+         */
+        Writer(int blockSize, int bitsPerKey) {
+            this.blockSize = blockSize;
+            this.bitsPerKey = bitsPerKey;
+            this.block = ByteBuffer.allocate(Math.max(blockSize * 2, 4096));
+        }
+
+        /**
+         * Starts a new file.
+         *
+         * @param target the run file; written to a temporary sibling until {@link #finish(Path)}
+         * @throws IOException if the file cannot be created
+         */
+        void start(Path target) throws IOException {
+            temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            block.clear();
+            offset = 0;
+            entries = 0;
+            tombstones = 0;
+            index.clear();
+            blocks = 0;
+        }
+
+        /**
+         * Gets whether a file is being written.
+         *
+         * @return true between {@link #start(Path)} and {@link #finish(Path)}
+         */
+        boolean started() {
+            return channel != null;
+        }
+
+        /**
+         * Gets the bytes written to the current file so far.
+         *
+         * @return bytes written, the pending block included
+         */
+        long written() {
+            return offset + block.position();
+        }
+
+        /**
+         * Appends an entry; ids must be added in ascending order.
+         *
+         * @param id the task identifier
+         * @param todo the task, or {@link LsmTodoRepository#TOMBSTONE}
+         * @throws IOException if a block cannot be written
+         */
+        void add(int id, Todo todo) throws IOException {
+            boolean tombstone = todo == LsmTodoRepository.TOMBSTONE;
+            byte[] title = tombstone ? new byte[0] : todo.getTitle().getBytes(StandardCharsets.UTF_8);
+            if (block.position() > 0 && block.position() + ENTRY_HEADER_SIZE + title.length > blockSize) {
+                writeBlock();
+            }
+            if (block.remaining() < ENTRY_HEADER_SIZE + title.length) {
+                block = ByteBuffer.allocate(block.position() + ENTRY_HEADER_SIZE + title.length).put(block.flip());
+            }
+            if (block.position() == 0) {
+                blockFirstId = id;
+            }
+            byte flags = tombstone ? TOMBSTONE_FLAG : todo.isDone() ? DONE_FLAG : 0;
+            block.putInt(id).put(flags)
+                    .putLong(tombstone ? 0 : todo.getCreatedAt())
+                    .putLong(tombstone ? 0 : todo.getCompletedAt())
+                    .putInt(title.length).put(title);
+            if (entries == 0) {
+                minId = id;
+            }
+            maxId = id;
+            if (entries == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[(int) entries++] = id;
+            if (tombstone) {
+                tombstones++;
+            }
+        }
+
+        /**
+         * Writes the index, bloom filter and footer, forces the file and moves it into place.
+         *
+         * @param target the run file passed to {@link #start(Path)}
+         * @return the size of the finished file
+         * @throws IOException if the file cannot be completed
+         */
+        long finish(Path target) throws IOException {
+            if (block.position() > 0) {
+                writeBlock();
+            }
+            long indexOffset = offset;
+            write(index.flip());
+            int hashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+            int words = (int) Math.max(1, (entries * bitsPerKey + 63) / 64);
+            long[] bloom = new long[words];
+            long bits = (long) words * 64;
+            for (int i = 0; i < entries; i++) {
+                long hash = mix(ids[i]);
+                int h1 = (int) hash;
+                int h2 = (int) (hash >>> 32);
+                for (int k = 0; k < hashes; k++) {
+                    long bit = Math.floorMod(h1 + (long) k * h2, bits);
+                    bloom[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            long bloomOffset = offset;
+            ByteBuffer bloomBuffer = ByteBuffer.allocate(words * 8);
+            bloomBuffer.asLongBuffer().put(bloom);
+            write(bloomBuffer);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE)
+                    .putLong(entries).putLong(tombstones).putInt(minId).putInt(maxId).putInt(blocks)
+                    .putLong(indexOffset).putLong(bloomOffset).putInt(words).putInt(hashes).putInt(MAGIC);
+            write(footer.flip());
+            channel.force(true);
+            channel.close();
+            channel = null;
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            return offset;
+        }
+
+        /**
+         * Abandons the file being written, if any.
+         *
+         * @throws IOException if the temporary file cannot be removed
+         */
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int length = block.position();
+            if (index.remaining() < INDEX_ENTRY_SIZE) {
+                index = ByteBuffer.allocate(index.capacity() * 2).put(index.flip());
+            }
+            index.putInt(blockFirstId).putLong(offset).putInt(length);
+            blocks++;
+            write(block.flip());
+            block.clear();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,1272 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.LsmProperties;
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Implementation of {@link TodoRepository} as a log-structured merge tree, for task sets
+ * larger than the heap. Selected with {@code tinytasks.repository.type=lsm}.
+ *
+ * <p>Mutations go to a sorted in-memory table, logged through {@link TodoLog} so they
+ * survive a crash; deletions are stored as tombstones. A full memtable is frozen and a
+ * background thread writes it out as an immutable {@link LsmRun} in level 0, then merges
+ * runs down a leveled layout: level 0 is compacted into level 1 once it holds
+ * {@link LsmProperties#level0Runs()} runs, and every deeper level into the next once it
+ * exceeds its size limit. Below level 0 the runs of a level never overlap, so a point
+ * lookup reads at most one block per level, and the bloom filter of each run usually
+ * spares even that. Pages merge every source in id order.
+ *
+ * <p>Readers never lock: they pin an immutable {@code State} listing the memtables and
+ * runs, which keeps compacted-away runs open until the last reader is done. Counts are
+ * kept exactly and persisted in the manifest with each flush. Search scans the tree once
+ * per query and keeps only the ids of matching tasks, and {@link #fitsInHeap()} tells the
+ * service to page through full lists and resyncs rather than call {@link #findAll()}.
+ *
+ * <p>Once a record cannot be written to or forced in the memtable log, the store refuses every
+ * later mutation and checkpoint, so nothing is acknowledged or flushed behind a gap in the log;
+ * {@link #writeFailure()} reports the cause until the store is reopened. Writers that must wait
+ * for a flush give up with an error while the background thread keeps failing.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "lsm")
+public class LsmTodoRepository implements TodoRepository, AutoCloseable {
+
+    static final Logger log = LoggerFactory.getLogger(LsmTodoRepository.class);
+
+    /** Memtable and run value of a deleted task */
+    static final Todo TOMBSTONE = new Todo(0, null, false);
+
+    private static final String MANIFEST_FILE = "MANIFEST";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".sst";
+    private static final int MANIFEST_MAGIC = 0x4c534d4d;
+
+    /** Frozen memtables waiting for a flush before writers block */
+    private static final int MAX_FROZEN = 2;
+
+    private final LsmProperties properties;
+
+    /** Orders mutations so the memtable log matches the memtable */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Guards publishing a new state and the manifest; taken after {@link #writeLock} */
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition work = stateLock.newCondition();
+    private final Condition settled = stateLock.newCondition();
+
+    private volatile State state;
+    private final AtomicLong version = new AtomicLong();
+
+    /** Logical state, changed under the write lock */
+    private int nextId = 1;
+    private volatile int live;
+    private volatile int done;
+
+    /** What the manifest records, changed by the background thread under the state lock */
+    private int persistedNextId = 1;
+    private int persistedLive;
+    private int persistedDone;
+    private long persistedGeneration;
+    private long nextRunNumber = 1;
+
+    /** Whether the background thread found nothing to do; guarded by the state lock */
+    private boolean idle;
+    private IOException failure;
+    private volatile boolean closed;
+
+    /** First failed log write or force; once set, mutations are refused */
+    private volatile Throwable writeFailure;
+
+    /** Opens the channels behind memtable logs */
+    private final TodoLog.Channels channels;
+
+    private final AtomicLong ingestedBytes = new AtomicLong();
+    private final AtomicLong loggedBytes = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private final AtomicLong compactedBytes = new AtomicLong();
+    private final AtomicLong blockReads = new AtomicLong();
+
+    private final Thread compactor;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Disk activity of the engine, for write amplification and read cost.
+     *
+     * @param ingestedBytes encoded size of every mutation applied
+     * @param loggedBytes bytes appended to memtable logs
+     * @param flushedBytes bytes of runs written from memtables
+     * @param compactedBytes bytes of runs written by compaction
+     * @param blockReads run blocks read from disk by lookups, pages and compaction
+     * @param runsPerLevel number of runs in each level, level 0 first
+     * @param diskBytes size of every run currently in the tree
+     */
+    public record Stats(long ingestedBytes, long loggedBytes, long flushedBytes, long compactedBytes,
+                        long blockReads, List<Integer> runsPerLevel, long diskBytes) {
+
+        /**
+         * Gets the bytes written to disk for every byte of mutations applied.
+         *
+         * @return write amplification, or 0 before any mutation
+         */
+        public double writeAmplification() {
+            return ingestedBytes == 0 ? 0 : (double) (loggedBytes + flushedBytes + compactedBytes) / ingestedBytes;
+        }
+    }
+
+    /**
+     * In-memory table of the most recent mutations and the log segment that backs it.
+     */
+    private static final class Memtable {
+
+        final ConcurrentSkipListMap<Integer, Todo> entries = new ConcurrentSkipListMap<>();
+        final TodoLog segment;
+        final long generation;
+
+        /** Distinct ids held, changed under the write lock */
+        int size;
+
+        /** Logical state once the last mutation of this memtable was applied, set when it is frozen */
+        int nextId;
+        int live;
+        int done;
+
+        Memtable(TodoLog segment, long generation) {
+            this.segment = segment;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Immutable view of the tree that readers pin while they use it.
+     */
+    private static final class State {
+
+        final Memtable memtable;
+
+        /** Memtables waiting to be flushed, newest first */
+        final List<Memtable> frozen;
+
+        /** Level 0 newest first, then every deeper level ordered by id */
+        final List<List<LsmRun>> levels;
+
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        State(Memtable memtable, List<Memtable> frozen, List<List<LsmRun>> levels) {
+            this.memtable = memtable;
+            this.frozen = List.copyOf(frozen);
+            List<List<LsmRun>> copy = new ArrayList<>(levels.size());
+            for (List<LsmRun> level : levels) {
+                copy.add(List.copyOf(level));
+            }
+            this.levels = List.copyOf(copy);
+            for (List<LsmRun> level : this.levels) {
+                level.forEach(LsmRun::retain);
+            }
+        }
+
+        boolean tryRetain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                for (List<LsmRun> level : levels) {
+                    level.forEach(LsmRun::release);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs merged by one compaction.
+     *
+     * @param level the level the inputs are taken from
+     * @param upper inputs from {@code level}
+     * @param lower overlapping inputs from the next level
+     */
+    private record Compaction(int level, List<LsmRun> upper, List<LsmRun> lower) {
+    }
+
+    /**
+     * Position of an appended record that a writer may need to wait for.
+     */
+    private record Pending(TodoLog segment, long seq) {
+    }
+
+    /**
+     * Opens the tree in the configured directory, replaying memtable logs not yet flushed,
+     * and starts the background flush and compaction thread.
+     *
+     * @param properties location, durability and shape of the tree
+     * @throws IOException if the directory cannot be read or written
+     */
+    public LsmTodoRepository(LsmProperties properties) throws IOException {
+        this(properties, TodoLog.Channels.FILES);
+    }
+
+    /**
+     * Opens the tree through the given log channels, so tests can make writes fail.
+     *
+     * @param properties location, durability and shape of the tree
+     * @param channels opens the memtable logs
+     * @throws IOException if the directory cannot be read or written
+     */
+    LsmTodoRepository(LsmProperties properties, TodoLog.Channels channels) throws IOException {
+        this.properties = properties;
+        this.channels = channels;
+        Files.createDirectories(properties.directory());
+        recover();
+        compactor = Thread.ofPlatform().name("tinytasks-lsm-compactor").daemon().start(this::background);
+        if (properties.fsync() == WalProperties.Fsync.INTERVAL) {
+            long intervalNanos = properties.fsyncInterval().toNanos();
+            flusher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("tinytasks-lsm-flusher").daemon().factory());
+            flusher.scheduleWithFixedDelay(this::syncQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return scan(0, Integer.MAX_VALUE, todo -> true);
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return scan(afterId, limit, todo -> true);
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        return scan(afterId, limit, todo -> todo.isDone() == done);
+    }
+
+    /**
+     * Searches titles in one pass over the tree, keeping only the ids of matching tasks,
+     * then reads the requested page of hits from the same pinned state.
+     *
+     * @param query free text to search for
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @return the total number of hits and the requested page
+     */
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        TodoSearchIndex.Scan scan = new TodoSearchIndex.Scan(query);
+        State pinned = acquire();
+        try {
+            for (LsmCursor cursor = cursor(pinned, 0); cursor.value() != null; cursor.next()) {
+                Todo todo = cursor.value();
+                if (todo != TOMBSTONE) {
+                    scan.accept(todo.getId(), todo.getTitle());
+                }
+            }
+            return scan.hits().page(offset, limit, id -> {
+                try {
+                    Todo todo = lookup(pinned, id);
+                    return todo == TOMBSTONE ? null : todo;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read LSM run", e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read LSM run", e);
+        } finally {
+            pinned.release();
+        }
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        State pinned = acquire();
+        try {
+            Todo todo = lookup(pinned, id);
+            return todo == null || todo == TOMBSTONE ? Optional.empty() : Optional.of(todo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read LSM run", e);
+        } finally {
+            pinned.release();
+        }
+    }
+
+    @Override
+    public int count() {
+        return live;
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        int completed = this.done;
+        return done ? completed : live - completed;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * The tree is meant to outgrow the heap, so full lists are read page by page.
+     *
+     * @return always false
+     */
+    @Override
+    public boolean fitsInHeap() {
+        return false;
+    }
+
+    /**
+     * Saves a task and logs its creation.
+     *
+     * @param todo the task to save
+     * @return the saved {@link Todo} with assigned ID
+     */
+    @Override
+    public Todo save(Todo todo) {
+        return saveAll(List.of(todo)).get(0);
+    }
+
+    /**
+     * Toggles a task and logs its resulting status.
+     *
+     * @param id the task identifier
+     * @return Optional containing the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> toggle(int id) {
+        return toggleAll(new int[]{id}).get(0);
+    }
+
+    /**
+     * Writes a tombstone for a task and logs the deletion.
+     *
+     * @param id the task identifier
+     * @return true if the task existed and was removed, false otherwise
+     */
+    @Override
+    public boolean delete(int id) {
+        return deleteAll(new int[]{id})[0];
+    }
+
+    /**
+     * Saves a batch of tasks with one log write and at most one fsync.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        List<TodoLogRecord> records = new ArrayList<>(todos.size());
+        Pending pending;
+        writeLock.lock();
+        try {
+            makeRoom();
+            for (Todo todo : todos) {
+                todo.setId(nextId++);
+                store(todo.getId(), null, todo);
+                records.add(TodoLogRecord.create(todo));
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return todos;
+    }
+
+    /**
+     * Toggles a batch of tasks with one log write and at most one fsync.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        List<Optional<Todo>> toggled = new ArrayList<>(ids.length);
+        List<TodoLogRecord> records = new ArrayList<>(ids.length);
+        Pending pending;
+        writeLock.lock();
+        try {
+            makeRoom();
+            for (int id : ids) {
+                Todo current = current(id);
+                if (current == null) {
+                    toggled.add(Optional.empty());
+                    continue;
+                }
+                Todo updated = current.withDone(!current.isDone());
+                store(id, current, updated);
+                records.add(TodoLogRecord.setDone(updated));
+                toggled.add(Optional.of(updated));
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return toggled;
+    }
+
+    /**
+     * Removes a batch of tasks with one log write and at most one fsync.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
+     */
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        List<TodoLogRecord> records = new ArrayList<>(ids.length);
+        Pending pending;
+        writeLock.lock();
+        try {
+            makeRoom();
+            for (int i = 0; i < ids.length; i++) {
+                Todo current = current(ids[i]);
+                if (current != null) {
+                    store(ids[i], current, TOMBSTONE);
+                    records.add(TodoLogRecord.delete(ids[i]));
+                    deleted[i] = true;
+                }
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return deleted;
+    }
+
+    /**
+     * Flushes the memtable and waits until every flush and compaction it leads to is done.
+     *
+     * @throws IOException if the background thread or the memtable log failed
+     */
+    public void checkpoint() throws IOException {
+        writeLock.lock();
+        try {
+            Throwable logFailure = writeFailure;
+            if (logFailure != null) {
+                throw new IOException("Memtable log failed; the memtable may hold unlogged changes", logFailure);
+            }
+            if (state.memtable.size > 0) {
+                freeze();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        stateLock.lock();
+        try {
+            while ((!idle || !state.frozen.isEmpty()) && !closed) {
+                if (failure != null) {
+                    throw new IOException("LSM background work failed", failure);
+                }
+                settled.awaitUninterruptibly();
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Gets disk activity counters and the current shape of the tree.
+     *
+     * @return the statistics
+     */
+    public Stats stats() {
+        State pinned = acquire();
+        try {
+            List<Integer> runs = new ArrayList<>(pinned.levels.size());
+            long diskBytes = 0;
+            for (List<LsmRun> level : pinned.levels) {
+                runs.add(level.size());
+                for (LsmRun run : level) {
+                    diskBytes += run.size();
+                }
+            }
+            return new Stats(ingestedBytes.get(), loggedBytes.get(), flushedBytes.get(), compactedBytes.get(),
+                    blockReads.get(), runs, diskBytes);
+        } finally {
+            pinned.release();
+        }
+    }
+
+    /**
+     * Stops background work and closes logs and runs. Called by Spring on shutdown; the
+     * memtable is not flushed, its log is replayed on the next start.
+     *
+     * @throws IOException if a log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        stateLock.lock();
+        try {
+            closed = true;
+            work.signalAll();
+            settled.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+        try {
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            State last = state;
+            for (Memtable frozen : last.frozen) {
+                frozen.segment.close();
+            }
+            last.memtable.segment.close();
+            last.release();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Walks the tree from {@code afterId}, collecting up to {@code limit} tasks that match.
+     */
+    private List<Todo> scan(int afterId, int limit, Predicate<Todo> filter) {
+        State pinned = acquire();
+        try {
+            List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+            for (LsmCursor cursor = cursor(pinned, afterId); cursor.value() != null && page.size() < limit;
+                 cursor.next()) {
+                if (cursor.value() != TOMBSTONE && filter.test(cursor.value())) {
+                    page.add(cursor.value());
+                }
+            }
+            return page;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read LSM run", e);
+        } finally {
+            pinned.release();
+        }
+    }
+
+    private LsmCursor cursor(State pinned, int afterId) throws IOException {
+        List<LsmCursor> sources = new ArrayList<>();
+        sources.add(LsmCursor.of(pinned.memtable.entries, afterId));
+        for (Memtable frozen : pinned.frozen) {
+            sources.add(LsmCursor.of(frozen.entries, afterId));
+        }
+        for (LsmRun run : pinned.levels.get(0)) {
+            sources.add(run.cursor(afterId, blockReads));
+        }
+        for (int level = 1; level < pinned.levels.size(); level++) {
+            sources.add(new LevelCursor(pinned.levels.get(level), afterId, blockReads));
+        }
+        return LsmCursor.merge(sources);
+    }
+
+    /**
+     * Finds the newest entry for an id: memtables first, then level 0 newest first, then
+     * the one run of every deeper level whose range covers the id.
+     *
+     * @return the task, {@link #TOMBSTONE}, or null if the tree never held the id
+     */
+    private Todo lookup(State pinned, int id) throws IOException {
+        Todo value = pinned.memtable.entries.get(id);
+        if (value != null) {
+            return value;
+        }
+        for (Memtable frozen : pinned.frozen) {
+            value = frozen.entries.get(id);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (LsmRun run : pinned.levels.get(0)) {
+            value = run.get(id, blockReads);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (int level = 1; level < pinned.levels.size(); level++) {
+            LsmRun run = covering(pinned.levels.get(level), id);
+            if (run != null) {
+                value = run.get(id, blockReads);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static LsmRun covering(List<LsmRun> level, int id) {
+        int low = 0;
+        int high = level.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            LsmRun run = level.get(mid);
+            if (id < run.minId()) {
+                high = mid - 1;
+            } else if (id > run.maxId()) {
+                low = mid + 1;
+            } else {
+                return run;
+            }
+        }
+        return null;
+    }
+
+    /** Pins the current state; callers must release it */
+    private State acquire() {
+        while (true) {
+            State current = state;
+            if (current.tryRetain()) {
+                return current;
+            }
+        }
+    }
+
+    /** Publishes a new state and unpins the previous one; must hold the state lock */
+    private void publish(State next) {
+        State previous = state;
+        state = next;
+        previous.release();
+    }
+
+    /**
+     * Gets the live task for an id, as seen by the writer.
+     * Must be called while holding the write lock.
+     */
+    private Todo current(int id) {
+        State pinned = acquire();
+        try {
+            Todo todo = lookup(pinned, id);
+            return todo == TOMBSTONE ? null : todo;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read LSM run", e);
+        } finally {
+            pinned.release();
+        }
+    }
+
+    /**
+     * Puts an entry in the memtable and updates the counts.
+     * Must be called while holding the write lock.
+     *
+     * @param previous the live task being replaced, or null
+     * @param next the new task, or {@link #TOMBSTONE}
+     */
+    private void store(int id, Todo previous, Todo next) {
+        Memtable memtable = state.memtable;
+        if (memtable.entries.put(id, next) == null) {
+            memtable.size++;
+        }
+        int liveDelta = (next != TOMBSTONE ? 1 : 0) - (previous != null ? 1 : 0);
+        int doneDelta = (next != TOMBSTONE && next.isDone() ? 1 : 0) - (previous != null && previous.isDone() ? 1 : 0);
+        live += liveDelta;
+        done += doneDelta;
+        ingestedBytes.addAndGet(LsmRun.encodedSize(next));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Refuses a mutation once the log may be missing records, and freezes a memtable left
+     * full by an earlier freeze that failed, before anything is applied.
+     * Must be called while holding the write lock.
+     */
+    private void makeRoom() {
+        Throwable logFailure = writeFailure;
+        if (logFailure != null) {
+            throw new IllegalStateException("LSM memtable log failed; refusing writes until the store is reopened",
+                    logFailure);
+        }
+        if (state.memtable.size >= properties.memtableEntries()) {
+            try {
+                freeze();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not freeze the LSM memtable", e);
+            }
+        }
+    }
+
+    /**
+     * Logs records with a single write, then freezes the memtable if it is full. A failed
+     * write stops the store; a failed freeze is left to the next writer's {@link #makeRoom()},
+     * since the records are already logged.
+     * Must be called while holding the write lock.
+     *
+     * @return the position to wait for, or null if there is nothing to wait for
+     */
+    private Pending append(List<TodoLogRecord> records) {
+        if (records.isEmpty()) {
+            return null;
+        }
+        TodoLog segment = state.memtable.segment;
+        long seq;
+        try {
+            long before = segment.size();
+            seq = segment.append(records);
+            loggedBytes.addAndGet(segment.size() - before);
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not append to LSM memtable log", e);
+        }
+        if (state.memtable.size >= properties.memtableEntries()) {
+            try {
+                freeze();
+            } catch (IOException e) {
+                log.warn("Could not freeze the full LSM memtable; the next write retries", e);
+            }
+        }
+        return new Pending(segment, seq);
+    }
+
+    /** Records the first log failure, after which mutations are refused */
+    private void fail(Throwable logFailure) {
+        if (writeFailure == null) {
+            writeFailure = logFailure;
+        }
+    }
+
+    /**
+     * Gets why the memtable log may be missing records, if it is.
+     *
+     * @return the first failed log write or force, or null if none failed
+     */
+    public Throwable writeFailure() {
+        return writeFailure;
+    }
+
+    private void awaitDurable(Pending pending) {
+        if (pending == null || properties.fsync() != WalProperties.Fsync.ALWAYS) {
+            return;
+        }
+        try {
+            pending.segment().sync(pending.seq());
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not sync LSM memtable log", e);
+        }
+    }
+
+    /**
+     * Swaps in an empty memtable with a new log segment and hands the full one to the
+     * background thread, waiting first if {@link #MAX_FROZEN} are already queued.
+     * Must be called while holding the write lock.
+     *
+     * @throws IOException if the memtables queued ahead cannot be flushed, or the new log
+     *         segment cannot be created
+     */
+    private void freeze() throws IOException {
+        stateLock.lock();
+        try {
+            while (state.frozen.size() >= MAX_FROZEN && !closed) {
+                if (failure != null) {
+                    throw new IOException("LSM flush failed; the memtable cannot be frozen", failure);
+                }
+                settled.awaitUninterruptibly();
+            }
+            Memtable full = state.memtable;
+            full.nextId = nextId;
+            full.live = live;
+            full.done = done;
+            long generation = full.generation + 1;
+            Memtable fresh = new Memtable(TodoLog.open(segmentPath(generation), 0, channels), generation);
+            List<Memtable> frozen = new ArrayList<>(state.frozen.size() + 1);
+            frozen.add(full);
+            frozen.addAll(state.frozen);
+            publish(new State(fresh, frozen, state.levels));
+            idle = false;
+            work.signal();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Background loop: flushes frozen memtables oldest first, then compacts until every
+     * level is within its limits, then sleeps until the next freeze.
+     */
+    private void background() {
+        while (!closed) {
+            try {
+                if (!flushOldest() && !compactOnce()) {
+                    stateLock.lock();
+                    try {
+                        if (closed) {
+                            return;
+                        }
+                        if (state.frozen.isEmpty()) {
+                            idle = true;
+                            failure = null;
+                            settled.signalAll();
+                            work.awaitUninterruptibly();
+                        }
+                    } finally {
+                        stateLock.unlock();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("LSM flush or compaction failed; retrying", e);
+                stateLock.lock();
+                try {
+                    failure = e instanceof IOException io ? io : new IOException(e);
+                    settled.signalAll();
+                    if (closed) {
+                        return;
+                    }
+                    work.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                } finally {
+                    stateLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the oldest frozen memtable to a new level-0 run and drops its log.
+     *
+     * @return false if no memtable was waiting
+     */
+    private boolean flushOldest() throws IOException {
+        List<Memtable> frozen = state.frozen;
+        if (frozen.isEmpty()) {
+            return false;
+        }
+        Memtable oldest = frozen.get(frozen.size() - 1);
+        List<LsmRun> written = write(LsmCursor.of(oldest.entries, 0), false, Long.MAX_VALUE, flushedBytes);
+        stateLock.lock();
+        try {
+            List<Memtable> remaining = new ArrayList<>(state.frozen);
+            remaining.remove(oldest);
+            List<List<LsmRun>> levels = new ArrayList<>(state.levels);
+            List<LsmRun> level0 = new ArrayList<>(written);
+            level0.addAll(levels.get(0));
+            levels.set(0, level0);
+            persistedNextId = oldest.nextId;
+            persistedLive = oldest.live;
+            persistedDone = oldest.done;
+            persistedGeneration = oldest.generation + 1;
+            writeManifest(levels);
+            publish(new State(state.memtable, remaining, levels));
+            failure = null;
+            settled.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+        oldest.segment.close();
+        deleteSegmentsBefore(oldest.generation + 1);
+        return true;
+    }
+
+    /**
+     * Merges one set of overlapping runs into the next level, or moves a run down when
+     * nothing overlaps it.
+     *
+     * @return false if every level is within its limits
+     */
+    private boolean compactOnce() throws IOException {
+        List<List<LsmRun>> levels = state.levels;
+        Compaction compaction = pick(levels);
+        if (compaction == null) {
+            return false;
+        }
+        int target = compaction.level() + 1;
+        List<LsmRun> outputs;
+        if (compaction.level() > 0 && compaction.lower().isEmpty()) {
+            outputs = compaction.upper();
+        } else {
+            List<LsmCursor> sources = new ArrayList<>();
+            for (LsmRun run : compaction.upper()) {
+                sources.add(run.cursor(0, blockReads));
+            }
+            sources.add(new LevelCursor(compaction.lower(), 0, blockReads));
+            boolean bottom = true;
+            for (int deeper = target + 1; deeper < levels.size(); deeper++) {
+                bottom &= levels.get(deeper).isEmpty();
+            }
+            outputs = write(LsmCursor.merge(sources), bottom, properties.runBytes(), compactedBytes);
+        }
+        stateLock.lock();
+        try {
+            List<List<LsmRun>> next = new ArrayList<>(state.levels);
+            if (next.size() <= target) {
+                next.add(List.of());
+            }
+            List<LsmRun> source = new ArrayList<>(next.get(compaction.level()));
+            source.removeAll(compaction.upper());
+            next.set(compaction.level(), source);
+            List<LsmRun> destination = new ArrayList<>(next.get(target));
+            destination.removeAll(compaction.lower());
+            destination.addAll(outputs);
+            destination.sort(Comparator.comparingInt(LsmRun::minId));
+            next.set(target, destination);
+            writeManifest(next);
+            if (outputs != compaction.upper()) {
+                compaction.upper().forEach(LsmRun::markObsolete);
+                compaction.lower().forEach(LsmRun::markObsolete);
+            }
+            publish(new State(state.memtable, state.frozen, next));
+        } finally {
+            stateLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Chooses the next compaction: level 0 once it has too many runs, otherwise the
+     * shallowest level over its size limit.
+     */
+    private Compaction pick(List<List<LsmRun>> levels) {
+        List<LsmRun> level0 = levels.get(0);
+        if (level0.size() >= properties.level0Runs()) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (LsmRun run : level0) {
+                min = Math.min(min, run.minId());
+                max = Math.max(max, run.maxId());
+            }
+            return new Compaction(0, level0, overlapping(levels, 1, min, max));
+        }
+        long limit = properties.level1Bytes();
+        for (int level = 1; level < levels.size(); level++, limit *= properties.levelRatio()) {
+            long bytes = 0;
+            for (LsmRun run : levels.get(level)) {
+                bytes += run.size();
+            }
+            if (bytes > limit) {
+                return cheapest(levels, level);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks the run of a level that rewrites the fewest bytes of the next level per byte it
+     * pushes down, which keeps write amplification low when updates cluster in id ranges.
+     */
+    private static Compaction cheapest(List<List<LsmRun>> levels, int level) {
+        Compaction best = null;
+        double bestRatio = Double.MAX_VALUE;
+        for (LsmRun run : levels.get(level)) {
+            List<LsmRun> lower = overlapping(levels, level + 1, run.minId(), run.maxId());
+            long lowerBytes = 0;
+            for (LsmRun overlapped : lower) {
+                lowerBytes += overlapped.size();
+            }
+            double ratio = (double) lowerBytes / run.size();
+            if (ratio < bestRatio) {
+                bestRatio = ratio;
+                best = new Compaction(level, List.of(run), lower);
+            }
+        }
+        return best;
+    }
+
+    private static List<LsmRun> overlapping(List<List<LsmRun>> levels, int level, int min, int max) {
+        if (level >= levels.size()) {
+            return List.of();
+        }
+        List<LsmRun> overlapping = new ArrayList<>();
+        for (LsmRun run : levels.get(level)) {
+            if (run.maxId() >= min && run.minId() <= max) {
+                overlapping.add(run);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Writes the entries of a cursor to new runs, starting another one every
+     * {@code runBytes}.
+     *
+     * @param dropTombstones whether deletions can be forgotten because no deeper level holds data
+     * @param written receives the bytes written
+     * @return the opened runs, in id order
+     */
+    private List<LsmRun> write(LsmCursor cursor, boolean dropTombstones, long runBytes, AtomicLong written)
+            throws IOException {
+        List<LsmRun> runs = new ArrayList<>();
+        try (LsmRun.Writer writer = new LsmRun.Writer(properties.blockSize(), properties.bloomBitsPerKey())) {
+            long number = 0;
+            for (; cursor.value() != null; cursor.next()) {
+                if (dropTombstones && cursor.value() == TOMBSTONE) {
+                    continue;
+                }
+                if (!writer.started()) {
+                    number = nextRunNumber++;
+                    writer.start(runPath(number));
+                }
+                writer.add(cursor.id(), cursor.value());
+                if (writer.written() >= runBytes) {
+                    written.addAndGet(writer.finish(runPath(number)));
+                    runs.add(LsmRun.open(number, runPath(number)));
+                }
+            }
+            if (writer.started()) {
+                written.addAndGet(writer.finish(runPath(number)));
+                runs.add(LsmRun.open(number, runPath(number)));
+            }
+            return runs;
+        } catch (IOException | RuntimeException e) {
+            for (LsmRun run : runs) {
+                run.retain();
+                run.markObsolete();
+                run.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the manifest with the given levels and the persisted logical state.
+     * Must be called while holding the state lock.
+     * <pre>
+     * magic:int nextId:int live:int done:int generation:long nextRun:long
+     * levels:int { runs:int { number:long }* }* crc32c:int
+     * </pre>
+     */
+    private void writeManifest(List<List<LsmRun>> levels) throws IOException {
+        int runs = 0;
+        for (List<LsmRun> level : levels) {
+            runs += level.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 4 + 8 * 2 + 4 + levels.size() * 4 + runs * 8 + 4);
+        buffer.putInt(MANIFEST_MAGIC).putInt(persistedNextId).putInt(persistedLive).putInt(persistedDone)
+                .putLong(persistedGeneration).putLong(nextRunNumber).putInt(levels.size());
+        for (List<LsmRun> level : levels) {
+            buffer.putInt(level.size());
+            for (LsmRun run : level) {
+                buffer.putLong(run.number());
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue()).flip();
+        Path manifest = properties.directory().resolve(MANIFEST_FILE);
+        Path temporary = properties.directory().resolve(MANIFEST_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens the runs listed in the manifest, removes files it does not list and replays
+     * the memtable logs written since the last flush.
+     */
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        List<List<LsmRun>> levels = new ArrayList<>();
+        levels.add(List.of());
+        Set<Long> listed = new HashSet<>();
+        Path manifest = properties.directory().resolve(MANIFEST_FILE);
+        if (Files.exists(manifest)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(manifest));
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), 0, buffer.limit() - 4);
+            if (buffer.limit() < 8 || buffer.getInt() != MANIFEST_MAGIC
+                    || buffer.getInt(buffer.limit() - 4) != (int) crc.getValue()) {
+                throw new IOException("Corrupt LSM manifest: " + manifest);
+            }
+            persistedNextId = buffer.getInt();
+            persistedLive = buffer.getInt();
+            persistedDone = buffer.getInt();
+            persistedGeneration = buffer.getLong();
+            nextRunNumber = buffer.getLong();
+            levels.clear();
+            for (int level = buffer.getInt(); level > 0; level--) {
+                List<LsmRun> runs = new ArrayList<>();
+                for (int run = buffer.getInt(); run > 0; run--) {
+                    long number = buffer.getLong();
+                    runs.add(LsmRun.open(number, runPath(number)));
+                    listed.add(number);
+                }
+                levels.add(runs);
+            }
+        }
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                boolean orphan = name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX)
+                        && !listed.contains(Long.parseLong(name.substring(RUN_PREFIX.length(),
+                        name.length() - RUN_SUFFIX.length())));
+                if (orphan || name.endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        deleteSegmentsBefore(persistedGeneration);
+        nextId = persistedNextId;
+        live = persistedLive;
+        done = persistedDone;
+
+        List<Long> generations = segmentGenerations();
+        long generation = generations.isEmpty() ? persistedGeneration : generations.get(generations.size() - 1);
+        // Replay into a memtable without a segment, then open the last segment for appending
+        Memtable replaying = new Memtable(null, generation);
+        state = new State(replaying, List.of(), levels);
+        long validLength = 0;
+        for (long segment : generations) {
+            validLength = TodoLog.replay(segmentPath(segment), this::replay);
+        }
+        Memtable recovered = new Memtable(TodoLog.open(segmentPath(generation), validLength, channels), generation);
+        recovered.entries.putAll(replaying.entries);
+        recovered.size = replaying.size;
+        publish(new State(recovered, List.of(), levels));
+        log.info("Opened LSM todo store in {} in {} ms ({} runs, {} memtable entries replayed)",
+                properties.directory(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                listed.size(), recovered.size);
+    }
+
+    /** Applies a logged record on top of what the tree already holds */
+    private void replay(TodoLogRecord record) {
+        Todo current = current(record.id());
+        switch (record.type()) {
+            case CREATE -> {
+                store(record.id(), current, record.toTodo());
+                nextId = Math.max(nextId, record.id() + 1);
+            }
+            case SET_DONE -> {
+                if (current != null && current.isDone() != record.done()) {
+                    store(record.id(), current, record.applyTo(current));
+                }
+            }
+            case DELETE -> {
+                if (current != null) {
+                    store(record.id(), current, TOMBSTONE);
+                }
+            }
+        }
+    }
+
+    private List<Long> segmentGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsBefore(long firstGeneration) throws IOException {
+        for (long old : segmentGenerations()) {
+            if (old < firstGeneration) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            state.memtable.segment.sync();
+        } catch (IOException e) {
+            log.warn("Periodic LSM memtable log flush failed", e);
+        }
+    }
+
+    private Path segmentPath(long generation) {
+        return properties.directory().resolve(String.format("%s%016d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private Path runPath(long number) {
+        return properties.directory().resolve(String.format("%s%016d%s", RUN_PREFIX, number, RUN_SUFFIX));
+    }
+
+    /**
+     * Walks the runs of one level below level 0, which never overlap, one after another.
+     */
+    private static final class LevelCursor implements LsmCursor {
+
+        private final List<LsmRun> runs;
+        private final int afterId;
+        private final AtomicLong blockReads;
+        private int index;
+        private LsmCursor current;
+
+        LevelCursor(List<LsmRun> runs, int afterId, AtomicLong blockReads) throws IOException {
+            this.runs = runs;
+            this.afterId = afterId;
+            this.blockReads = blockReads;
+            while (index < runs.size() && runs.get(index).maxId() <= afterId) {
+                index++;
+            }
+            advanceRun();
+        }
+
+        @Override
+        public int id() {
+            return current.id();
+        }
+
+        @Override
+        public Todo value() {
+            return current == null ? null : current.value();
+        }
+
+        @Override
+        public void next() throws IOException {
+            current.next();
+            if (current.value() == null) {
+                index++;
+                advanceRun();
+            }
+        }
+
+        private void advanceRun() throws IOException {
+            current = null;
+            while (index < runs.size()) {
+                current = runs.get(index).cursor(afterId, blockReads);
+                if (current.value() != null) {
+                    return;
+                }
+                index++;
+            }
+        }
+    }
+}
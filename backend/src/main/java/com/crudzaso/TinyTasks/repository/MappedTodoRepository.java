@@ -0,0 +1,463 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.MappedProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link TodoRepository} that serves reads straight from a
+ * memory-mapped {@link TodoSnapshot}, decoding each task only when it is requested.
+ * Creates, toggles and deletes go to an in-memory overlay that shadows the mapped base;
+ * deletes of base tasks are kept as tombstones.
+ *
+ * <p>Opening only maps the file and reads its header, so startup time does not grow with
+ * the number of stored tasks. Status counts and filtered pages read the mapped done
+ * column, one byte per task, on first use. {@link #checkpoint()} merges the overlay into a new snapshot;
+ * it runs on shutdown. Selected with {@code tinytasks.repository.type=mapped}.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "mapped")
+public class MappedTodoRepository implements TodoRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedTodoRepository.class);
+
+    /** Overlay marker for a task deleted from the mapped base */
+    private static final Todo TOMBSTONE = new Todo(0, null, false);
+
+    private final MappedProperties properties;
+
+    /**
+     * Mapped base and the changes made since it was written, published together so a
+     * reader never pairs a base with the overlay of another checkpoint.
+     *
+     * @param base mapped snapshot, or null when no snapshot exists yet
+     * @param overlay tasks created or changed since the base was written, plus tombstones
+     */
+    private record View(TodoSnapshot base, ConcurrentNavigableMap<Integer, Todo> overlay) {
+    }
+
+    /** Replaced as a whole by each checkpoint; its overlay is only changed under the write lock */
+    private volatile View view;
+    private final AtomicInteger nextId;
+
+    /** Number of live tasks across base and overlay */
+    private final AtomicInteger size;
+
+    /** Completed tasks across base and overlay; -1 until first counted, then maintained under the write lock */
+    private volatile int doneCount = -1;
+
+    /** Bumped under the write lock after every successful mutation; read without it */
+    private volatile long version;
+
+    /** Serializes mutations so read-then-update steps see a stable state */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Title index, built on the first search so opening stays independent of size; then maintained */
+    private volatile TodoSearchIndex searchIndex;
+
+    /** Done bits of the base by position, built on the first filtered page after each swap */
+    private volatile DoneColumn doneColumn;
+
+    /**
+     * Completed positions of one mapped snapshot; never changed once published.
+     *
+     * @param snapshot the snapshot the bits were read from
+     * @param done bit {@code i} is set if the task at position {@code i} is done
+     */
+    private record DoneColumn(TodoSnapshot snapshot, BitSet done) {
+    }
+
+    /**
+     * Maps the configured snapshot file, if present.
+     *
+     * @param properties location of the snapshot file
+     * @throws IOException if the snapshot exists but cannot be mapped
+     */
+    public MappedTodoRepository(MappedProperties properties) throws IOException {
+        this.properties = properties;
+        long start = System.nanoTime();
+        TodoSnapshot base = TodoSnapshot.open(properties.snapshot());
+        this.view = new View(base, new ConcurrentSkipListMap<>());
+        this.nextId = new AtomicInteger(base == null ? 1 : base.header().nextId());
+        this.size = new AtomicInteger(base == null ? 0 : base.count());
+        log.info("Mapped {} todos from {} in {} ms", base == null ? 0 : base.count(), properties.snapshot(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return findPage(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Merges the mapped base and the overlay in id order, starting at the cursor.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        View current = view;
+        TodoSnapshot snapshot = current.base();
+        List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Map.Entry<Integer, Todo>> changes = current.overlay().tailMap(afterId, false).entrySet().iterator();
+        Map.Entry<Integer, Todo> change = changes.hasNext() ? changes.next() : null;
+        int index = 0;
+        int count = 0;
+        if (snapshot != null) {
+            int position = snapshot.indexOf(afterId);
+            index = position >= 0 ? position + 1 : -position - 1;
+            count = snapshot.count();
+        }
+        while (page.size() < limit && (index < count || change != null)) {
+            int baseId = index < count ? snapshot.idAt(index) : Integer.MAX_VALUE;
+            if (change != null && change.getKey() <= baseId) {
+                if (change.getValue() != TOMBSTONE) {
+                    page.add(change.getValue());
+                }
+                if (change.getKey() == baseId) {
+                    index++;
+                }
+                change = changes.hasNext() ? changes.next() : null;
+            } else {
+                page.add(snapshot.todoAt(index));
+                index++;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Pages through tasks with one status. Base positions come from a bit set over the
+     * mapped done column, so tasks with the other status are skipped a word at a time
+     * without being decoded; overlay entries, which shadow the base, are merged in id order.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        View current = view;
+        TodoSnapshot snapshot = current.base();
+        List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Map.Entry<Integer, Todo>> changes = current.overlay().tailMap(afterId, false).entrySet().iterator();
+        Map.Entry<Integer, Todo> change = changes.hasNext() ? changes.next() : null;
+        BitSet bits = null;
+        int index = 0;
+        int count = 0;
+        if (snapshot != null) {
+            bits = doneColumn(snapshot);
+            count = snapshot.count();
+            int position = snapshot.indexOf(afterId);
+            index = nextWithStatus(bits, done, position >= 0 ? position + 1 : -position - 1, count);
+        }
+        while (page.size() < limit && (index < count || change != null)) {
+            int baseId = index < count ? snapshot.idAt(index) : Integer.MAX_VALUE;
+            if (change != null && change.getKey() <= baseId) {
+                Todo changed = change.getValue();
+                if (changed != TOMBSTONE && changed.isDone() == done) {
+                    page.add(changed);
+                }
+                if (change.getKey() == baseId) {
+                    index = nextWithStatus(bits, done, index + 1, count);
+                }
+                change = changes.hasNext() ? changes.next() : null;
+            } else {
+                page.add(snapshot.todoAt(index));
+                index = nextWithStatus(bits, done, index + 1, count);
+            }
+        }
+        return page;
+    }
+
+    private BitSet doneColumn(TodoSnapshot snapshot) {
+        DoneColumn column = doneColumn;
+        if (column == null || column.snapshot() != snapshot) {
+            // Built from the immutable mapping, so concurrent builds agree and either may win
+            BitSet done = new BitSet(snapshot.count());
+            for (int index = 0; index < snapshot.count(); index++) {
+                if (snapshot.isDoneAt(index)) {
+                    done.set(index);
+                }
+            }
+            column = new DoneColumn(snapshot, done);
+            doneColumn = column;
+        }
+        return column.done();
+    }
+
+    private static int nextWithStatus(BitSet bits, boolean done, int from, int count) {
+        if (from >= count) {
+            return count;
+        }
+        if (done) {
+            int next = bits.nextSetBit(from);
+            return next < 0 ? count : next;
+        }
+        return Math.min(bits.nextClearBit(from), count);
+    }
+
+    /**
+     * Looks the task up in the overlay first, then binary-searches the mapped id column.
+     *
+     * @param id the task identifier
+     * @return Optional containing the {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> findById(int id) {
+        View current = view;
+        Todo changed = current.overlay().get(id);
+        if (changed != null) {
+            return changed == TOMBSTONE ? Optional.empty() : Optional.of(changed);
+        }
+        TodoSnapshot snapshot = current.base();
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        int index = snapshot.indexOf(id);
+        return index < 0 ? Optional.empty() : Optional.of(snapshot.todoAt(index));
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        writeLock.lock();
+        try {
+            todo.setId(nextId.getAndIncrement());
+            view.overlay().put(todo.getId(), todo);
+            size.incrementAndGet();
+            if (todo.isDone()) {
+                adjustDoneCount(1);
+            }
+            if (searchIndex != null) {
+                searchIndex.add(todo.getId(), todo.getTitle());
+            }
+            version++;
+            return todo;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Todo> toggle(int id) {
+        writeLock.lock();
+        try {
+            Optional<Todo> toggled = findById(id)
+                    .map(current -> current.withDone(!current.isDone()));
+            toggled.ifPresent(todo -> {
+                view.overlay().put(id, todo);
+                adjustDoneCount(todo.isDone() ? 1 : -1);
+                version++;
+            });
+            return toggled;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) {
+        writeLock.lock();
+        try {
+            Optional<Todo> existing = findById(id);
+            if (existing.isEmpty()) {
+                return false;
+            }
+            if (existing.get().isDone()) {
+                adjustDoneCount(-1);
+            }
+            View current = view;
+            TodoSnapshot snapshot = current.base();
+            if (snapshot != null && snapshot.indexOf(id) >= 0) {
+                current.overlay().put(id, TOMBSTONE);
+            } else {
+                current.overlay().remove(id);
+            }
+            size.decrementAndGet();
+            if (searchIndex != null) {
+                searchIndex.remove(id);
+            }
+            version++;
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        return size.get();
+    }
+
+    /**
+     * Counts tasks by status. The first call scans the mapped done column once, one byte
+     * per task, so opening the snapshot stays independent of its size; afterwards the
+     * count is maintained by every mutation.
+     *
+     * @param done true to count completed tasks, false for pending ones
+     * @return number of matching tasks
+     */
+    @Override
+    public int countByDone(boolean done) {
+        int completed = doneCount;
+        if (completed < 0) {
+            writeLock.lock();
+            try {
+                if (doneCount < 0) {
+                    doneCount = countDone();
+                }
+                completed = doneCount;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return done ? completed : size.get() - completed;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        TodoSearchIndex index = searchIndex;
+        if (index == null) {
+            writeLock.lock();
+            try {
+                if (searchIndex == null) {
+                    TodoSearchIndex built = new TodoSearchIndex();
+                    for (Todo todo : findAll()) {
+                        built.add(todo.getId(), todo.getTitle());
+                    }
+                    searchIndex = built;
+                }
+                index = searchIndex;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return index.search(query, offset, limit, id -> findById(id).orElse(null));
+    }
+
+    private int countDone() {
+        int completed = 0;
+        View current = view;
+        TodoSnapshot snapshot = current.base();
+        if (snapshot != null) {
+            for (int index = 0; index < snapshot.count(); index++) {
+                Todo changed = current.overlay().get(snapshot.idAt(index));
+                if (changed == null && snapshot.isDoneAt(index)) {
+                    completed++;
+                }
+            }
+        }
+        for (Todo todo : current.overlay().values()) {
+            if (todo != TOMBSTONE && todo.isDone()) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /** Must be called with the write lock held */
+    private void adjustDoneCount(int delta) {
+        if (doneCount >= 0) {
+            doneCount += delta;
+        }
+    }
+
+    /**
+     * Saves a batch of tasks while holding the write lock once.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        writeLock.lock();
+        try {
+            return TodoRepository.super.saveAll(todos);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Toggles a batch of tasks while holding the write lock once.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        writeLock.lock();
+        try {
+            return TodoRepository.super.toggleAll(ids);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a batch of tasks while holding the write lock once.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
+     */
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        writeLock.lock();
+        try {
+            return TodoRepository.super.deleteAll(ids);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes base and overlay into a new snapshot, maps it and drops the merged overlay.
+     * Mutations wait while the checkpoint runs.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        writeLock.lock();
+        try {
+            Files.createDirectories(properties.snapshot().toAbsolutePath().getParent());
+            TodoSnapshot.write(properties.snapshot(), new TodoSnapshot.Header(0, nextId.get()), this);
+            // One volatile write: readers see the old base with its overlay or the new base with none
+            view = new View(TodoSnapshot.open(properties.snapshot()), new ConcurrentSkipListMap<>());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checkpoints pending changes. Called by Spring on shutdown.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!view.overlay().isEmpty()) {
+            checkpoint();
+        }
+    }
+}
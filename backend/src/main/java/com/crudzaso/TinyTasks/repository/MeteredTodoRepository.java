@@ -0,0 +1,241 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Decorator that times every {@link TodoRepository} call with a Micrometer histogram
+ * ({@code tinytasks.repository.operations}, tagged by operation).
+ * It is only wrapped around the active engine when metrics are enabled, so with
+ * {@code tinytasks.metrics.enabled=false} calls go straight to the engine.
+ */
+public class MeteredTodoRepository implements TodoRepository, AutoCloseable {
+
+    private final TodoRepository delegate;
+
+    private final Timer findAll;
+    private final Timer findPage;
+    private final Timer findById;
+    private final Timer save;
+    private final Timer toggle;
+    private final Timer delete;
+    private final Timer countByDone;
+    private final Timer findByDone;
+    private final Timer search;
+    private final Timer findArchivedPage;
+    private final Timer saveAll;
+    private final Timer toggleAll;
+    private final Timer deleteAll;
+
+    /**
+     * Wraps an engine and registers one timer per operation.
+     *
+     * @param delegate the engine that stores the tasks
+     * @param registry the registry to publish to
+     */
+    public MeteredTodoRepository(TodoRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        String engine = delegate.getClass().getSimpleName();
+        this.findAll = timer(registry, engine, "findAll");
+        this.findPage = timer(registry, engine, "findPage");
+        this.findById = timer(registry, engine, "findById");
+        this.save = timer(registry, engine, "save");
+        this.toggle = timer(registry, engine, "toggle");
+        this.delete = timer(registry, engine, "delete");
+        this.countByDone = timer(registry, engine, "countByDone");
+        this.findByDone = timer(registry, engine, "findByDone");
+        this.search = timer(registry, engine, "search");
+        this.findArchivedPage = timer(registry, engine, "findArchivedPage");
+        this.saveAll = timer(registry, engine, "saveAll");
+        this.toggleAll = timer(registry, engine, "toggleAll");
+        this.deleteAll = timer(registry, engine, "deleteAll");
+    }
+
+    private static Timer timer(MeterRegistry registry, String engine, String operation) {
+        return Timer.builder("tinytasks.repository.operations")
+                .description("Latency of TodoRepository operations")
+                .tag("engine", engine)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(afterId, limit);
+        } finally {
+            findPage.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            findById.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        long start = System.nanoTime();
+        try {
+            return delegate.save(todo);
+        } finally {
+            save.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Optional<Todo> toggle(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.toggle(id);
+        } finally {
+            toggle.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean delete(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.delete(id);
+        } finally {
+            delete.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countByDone(done);
+        } finally {
+            countByDone.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByDone(done, afterId, limit);
+        } finally {
+            findByDone.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.search(query, offset, limit);
+        } finally {
+            search.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    @Override
+    public boolean fitsInHeap() {
+        return delegate.fitsInHeap();
+    }
+
+    @Override
+    public int countArchived() {
+        return delegate.countArchived();
+    }
+
+    @Override
+    public List<Todo> findArchivedPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findArchivedPage(afterId, limit);
+        } finally {
+            findArchivedPage.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void addRemoteChangeListener(IntConsumer listener) {
+        delegate.addRemoteChangeListener(listener);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return delegate.estimatedBytes();
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveAll(todos);
+        } finally {
+            saveAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        long start = System.nanoTime();
+        try {
+            return delegate.toggleAll(ids);
+        } finally {
+            toggleAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            deleteAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Closes the wrapped engine if it holds resources, such as the write-ahead log.
+     *
+     * @throws Exception if the engine fails to close
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@link TodoRepository} for the reactive API.
+ * Nothing happens until a result is subscribed to, and no method may block the subscribing
+ * thread, which is usually an event loop; the semantics of each operation are those of the
+ * {@link TodoRepository} method of the same name.
+ */
+public interface ReactiveTodoRepository {
+
+    /**
+     * Streams all tasks in ascending id order.
+     * Tasks are read from storage as the subscriber requests them, so a slow consumer
+     * holds back the reads instead of having the whole store buffered for it.
+     *
+     * @return every stored {@link Todo}
+     */
+    Flux<Todo> findAll();
+
+    /**
+     * Retrieves one page of tasks after a keyset cursor, as {@link TodoRepository#findPage(int, int)}.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return the page, in ascending id order
+     */
+    Mono<List<Todo>> findPage(int afterId, int limit);
+
+    /**
+     * Retrieves one page of tasks with the given completion status, as
+     * {@link TodoRepository#findByDone(boolean, int, int)}.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return the page, in ascending id order
+     */
+    Mono<List<Todo>> findByDone(boolean done, int afterId, int limit);
+
+    /**
+     * Retrieves one page of archived tasks, as {@link TodoRepository#findArchivedPage(int, int)}.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return the page, in ascending id order
+     */
+    Mono<List<Todo>> findArchivedPage(int afterId, int limit);
+
+    /**
+     * Finds a task by its unique identifier.
+     *
+     * @param id the task identifier
+     * @return the {@link Todo}, or empty if there is none
+     */
+    Mono<Todo> findById(int id);
+
+    /**
+     * Searches task titles, as {@link TodoRepository#search(String, int, int)}.
+     *
+     * @param query free text to search for
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @return the total number of hits and the requested page
+     */
+    Mono<TodoSearchResult> search(String query, int offset, int limit);
+
+    /**
+     * Saves a new task and assigns an auto-generated ID.
+     *
+     * @param todo the task to save
+     * @return the saved {@link Todo}
+     */
+    Mono<Todo> save(Todo todo);
+
+    /**
+     * Saves several new tasks in one operation.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved tasks, in the same order
+     */
+    Mono<List<Todo>> saveAll(List<Todo> todos);
+
+    /**
+     * Inverts the completion status of a task atomically.
+     *
+     * @param id the task identifier
+     * @return the updated {@link Todo}, or empty if there is none
+     */
+    Mono<Todo> toggle(int id);
+
+    /**
+     * Toggles several tasks in one operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found
+     */
+    Mono<List<Optional<Todo>>> toggleAll(int[] ids);
+
+    /**
+     * Removes a task.
+     *
+     * @param id the task identifier
+     * @return true if the task existed and was removed
+     */
+    Mono<Boolean> delete(int id);
+
+    /**
+     * Removes several tasks in one operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
+     */
+    Mono<boolean[]> deleteAll(int[] ids);
+
+    /**
+     * Counts the stored tasks.
+     *
+     * @return number of stored tasks
+     */
+    Mono<Integer> count();
+
+    /**
+     * Counts the tasks with the given completion status.
+     *
+     * @param done true to count completed tasks, false for pending ones
+     * @return number of matching tasks
+     */
+    Mono<Integer> countByDone(boolean done);
+
+    /**
+     * Counts the tasks moved to cold storage.
+     *
+     * @return number of archived tasks
+     */
+    Mono<Integer> countArchived();
+
+    /**
+     * Gets the store version, as {@link TodoRepository#version()}.
+     *
+     * @return the current version, or -1 if the engine does not track one
+     */
+    Mono<Long> version();
+
+    /**
+     * Tells whether every task may be read into the heap at once, as
+     * {@link TodoRepository#fitsInHeap()}. Answered without blocking.
+     *
+     * @return true unless the store may outgrow the heap
+     */
+    boolean fitsInHeap();
+}
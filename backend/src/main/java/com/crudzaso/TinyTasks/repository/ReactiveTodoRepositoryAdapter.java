@@ -0,0 +1,185 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ReactiveProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Serves {@link ReactiveTodoRepository} from the configured blocking storage engine.
+ *
+ * <p>Every call runs on a bounded pool of storage threads and never on the subscriber's, so an
+ * engine waiting on an fsync, a disk read or a replication ack stalls one storage thread
+ * instead of an event loop. Calls that find every thread busy queue up to
+ * {@link ReactiveProperties#storageQueue()}; beyond that they fail with a
+ * {@link java.util.concurrent.RejectedExecutionException} rather than piling up without bound.
+ *
+ * <p>{@link #findAll()} walks the store with keyset pages of {@link ReactiveProperties#pageSize()}
+ * tasks and reads the next page only once the subscriber has asked for more, so a slow
+ * client holds at most two pages in memory.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTodoRepositoryAdapter implements ReactiveTodoRepository, AutoCloseable {
+
+    /** Seconds an idle storage thread is kept before it is released */
+    private static final int STORAGE_THREAD_TTL = 60;
+
+    /** Cursor state of a findAll whose last page came back short */
+    private static final int EXHAUSTED = -1;
+
+    private final TodoRepository repository;
+    private final Scheduler storage;
+    private final int pageSize;
+
+    /**
+     * Creates an adapter with its own storage threads.
+     *
+     * @param repository the storage engine
+     * @param properties storage thread and paging settings
+     */
+    @Autowired
+    public ReactiveTodoRepositoryAdapter(TodoRepository repository, ReactiveProperties properties) {
+        this(repository, Schedulers.newBoundedElastic(properties.storageThreads(), properties.storageQueue(),
+                "tinytasks-storage", STORAGE_THREAD_TTL, true), properties.pageSize());
+    }
+
+    /**
+     * Creates an adapter running repository calls on the given scheduler.
+     *
+     * @param repository the storage engine
+     * @param storage where blocking calls run; disposed by {@link #close()}
+     * @param pageSize tasks read per repository call by {@link #findAll()}
+     */
+    public ReactiveTodoRepositoryAdapter(TodoRepository repository, Scheduler storage, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.repository = repository;
+        this.storage = storage;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public Flux<Todo> findAll() {
+        return Flux.<List<Todo>, Integer>generate(() -> 0, (after, sink) -> {
+                    if (after == EXHAUSTED) {
+                        sink.complete();
+                        return after;
+                    }
+                    List<Todo> page = repository.findPage(after, pageSize);
+                    if (page.isEmpty()) {
+                        sink.complete();
+                        return after;
+                    }
+                    sink.next(page);
+                    return page.size() < pageSize ? EXHAUSTED : page.get(page.size() - 1).getId();
+                })
+                // Requests travel up to the storage thread, so every page is read there
+                .subscribeOn(storage)
+                .concatMapIterable(page -> page, 1);
+    }
+
+    @Override
+    public Mono<List<Todo>> findPage(int afterId, int limit) {
+        return offload(() -> repository.findPage(afterId, limit));
+    }
+
+    @Override
+    public Mono<List<Todo>> findByDone(boolean done, int afterId, int limit) {
+        return offload(() -> repository.findByDone(done, afterId, limit));
+    }
+
+    @Override
+    public Mono<List<Todo>> findArchivedPage(int afterId, int limit) {
+        return offload(() -> repository.findArchivedPage(afterId, limit));
+    }
+
+    @Override
+    public Mono<Todo> findById(int id) {
+        return offload(() -> repository.findById(id).orElse(null));
+    }
+
+    @Override
+    public Mono<TodoSearchResult> search(String query, int offset, int limit) {
+        return offload(() -> repository.search(query, offset, limit));
+    }
+
+    @Override
+    public Mono<Todo> save(Todo todo) {
+        return offload(() -> repository.save(todo));
+    }
+
+    @Override
+    public Mono<List<Todo>> saveAll(List<Todo> todos) {
+        return offload(() -> repository.saveAll(todos));
+    }
+
+    @Override
+    public Mono<Todo> toggle(int id) {
+        return offload(() -> repository.toggle(id).orElse(null));
+    }
+
+    @Override
+    public Mono<List<Optional<Todo>>> toggleAll(int[] ids) {
+        return offload(() -> repository.toggleAll(ids));
+    }
+
+    @Override
+    public Mono<Boolean> delete(int id) {
+        return offload(() -> repository.delete(id));
+    }
+
+    @Override
+    public Mono<boolean[]> deleteAll(int[] ids) {
+        return offload(() -> repository.deleteAll(ids));
+    }
+
+    @Override
+    public Mono<Integer> count() {
+        return offload(repository::count);
+    }
+
+    @Override
+    public Mono<Integer> countByDone(boolean done) {
+        return offload(() -> repository.countByDone(done));
+    }
+
+    @Override
+    public Mono<Integer> countArchived() {
+        return offload(repository::countArchived);
+    }
+
+    @Override
+    public Mono<Long> version() {
+        return offload(repository::version);
+    }
+
+    @Override
+    public boolean fitsInHeap() {
+        return repository.fitsInHeap();
+    }
+
+    /**
+     * Stops the storage threads; calls already running finish first.
+     */
+    @Override
+    public void close() {
+        storage.dispose();
+    }
+
+    /** A null result completes the Mono empty */
+    private <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(storage);
+    }
+}
@@ -0,0 +1,222 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ReplicationProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory implementation of {@link TodoRepository} kept identical across several nodes.
+ * Every node serves reads from its own {@link TodoRepositoryImp}. The leader applies all
+ * mutations and streams them as an ordered log of {@link TodoLogRecord}s over TCP; followers
+ * apply that log in order and forward the writes they receive to the leader, so IDs are
+ * assigned in one place and every node converges on the same list.
+ *
+ * <p>With {@link ReplicationProperties.Consistency#READ_YOUR_WRITES} a write returns only
+ * once every connected follower has applied it, so a client sent to any node next sees its
+ * own change; with {@link ReplicationProperties.Consistency#ASYNC} followers lag slightly.
+ * Selected with {@code tinytasks.repository.type=replicated} and {@code tinytasks.replication.role}.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "replicated")
+public class ReplicatedTodoRepository implements TodoRepository, AutoCloseable {
+
+    /**
+     * Local store and the version offset carried over from the stores it replaced.
+     * Swapped as one value so {@link #version()} never goes backwards.
+     */
+    private record Store(TodoRepositoryImp todos, long versionBase) {
+
+        long version() {
+            return versionBase + todos.version();
+        }
+    }
+
+    private volatile Store store = new Store(new TodoRepositoryImp(), 0);
+
+    private final List<IntConsumer> remoteListeners = new CopyOnWriteArrayList<>();
+
+    /** Exactly one of these is set, depending on the role */
+    private final ReplicationLeader leader;
+    private final ReplicationFollower follower;
+
+    /**
+     * Starts this node as a leader or a follower.
+     *
+     * @param properties role, addresses and consistency settings
+     * @throws IOException if the leader cannot bind its port
+     */
+    public ReplicatedTodoRepository(ReplicationProperties properties) throws IOException {
+        if (properties.role() == ReplicationProperties.Role.LEADER) {
+            leader = new ReplicationLeader(store.todos(), properties, this::remoteChange);
+            follower = null;
+        } else {
+            leader = null;
+            follower = new ReplicationFollower(properties, () -> store.todos(), this::install,
+                    record -> remoteChange(record.id()));
+        }
+    }
+
+    /**
+     * Gets the port the leader accepts followers on.
+     *
+     * @return the bound port, or -1 on a follower
+     */
+    public int replicationPort() {
+        return leader == null ? -1 : leader.port();
+    }
+
+    /**
+     * Gets the number of followers currently streaming from this node.
+     *
+     * @return connected followers, or 0 on a follower
+     */
+    public int followerCount() {
+        return leader == null ? 0 : leader.followerCount();
+    }
+
+    /**
+     * Gets the last leader log position this follower has applied.
+     *
+     * @return the applied position, or -1 on the leader
+     */
+    public long replicatedPosition() {
+        return follower == null ? -1 : follower.position();
+    }
+
+    @Override
+    public void addRemoteChangeListener(IntConsumer listener) {
+        remoteListeners.add(listener);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return store.todos().findAll();
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return store.todos().findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        return store.todos().findById(id);
+    }
+
+    @Override
+    public int count() {
+        return store.todos().count();
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        return store.todos().countByDone(done);
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        return store.todos().findByDone(done, afterId, limit);
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        return store.todos().search(query, offset, limit);
+    }
+
+    @Override
+    public long version() {
+        return store.version();
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        if (leader != null) {
+            return leader.save(todo);
+        }
+        TodoLogRecord created = follower.forward(ReplicationProtocol.OP_CREATE, 0, todo.getTitle());
+        todo.setId(created.id());
+        todo.setDone(created.done());
+        // The leader created the task, so its clock is the one every node records
+        todo.setCreatedAt(created.createdAt());
+        todo.setCompletedAt(created.completedAt());
+        return todo;
+    }
+
+    @Override
+    public Optional<Todo> toggle(int id) {
+        if (leader != null) {
+            return leader.toggle(id);
+        }
+        TodoLogRecord toggled = follower.forward(ReplicationProtocol.OP_TOGGLE, id, null);
+        return toggled == null ? Optional.empty() : Optional.of(toggled.toTodo());
+    }
+
+    @Override
+    public boolean delete(int id) {
+        if (leader != null) {
+            return leader.delete(id);
+        }
+        return follower.forward(ReplicationProtocol.OP_DELETE, id, null) != null;
+    }
+
+    /**
+     * Applies the whole batch under one leader lock; followers forward each task in turn.
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        return leader != null ? leader.saveAll(todos) : TodoRepository.super.saveAll(todos);
+    }
+
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        return leader != null ? leader.toggleAll(ids) : TodoRepository.super.toggleAll(ids);
+    }
+
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        return leader != null ? leader.deleteAll(ids) : TodoRepository.super.deleteAll(ids);
+    }
+
+    /**
+     * Stops replicating: the leader closes its port, a follower disconnects.
+     *
+     * @throws IOException if a socket fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        if (leader != null) {
+            leader.close();
+        } else {
+            follower.close();
+        }
+    }
+
+    /** Replaces a follower's store with a freshly loaded snapshot */
+    private void install(TodoRepositoryImp fresh) {
+        Store previous = store;
+        store = new Store(fresh, previous.version() + 1);
+        Set<Integer> changed = new HashSet<>();
+        for (Todo todo : previous.todos().findAll()) {
+            changed.add(todo.getId());
+        }
+        for (Todo todo : fresh.findAll()) {
+            changed.add(todo.getId());
+        }
+        for (int id : changed) {
+            remoteChange(id);
+        }
+    }
+
+    private void remoteChange(int id) {
+        for (IntConsumer listener : remoteListeners) {
+            listener.accept(id);
+        }
+    }
+}
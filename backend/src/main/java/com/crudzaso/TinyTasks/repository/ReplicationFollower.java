@@ -0,0 +1,345 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ReplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Follower side of replication: keeps a connection to the leader, applies its log to the
+ * local store in order and forwards writes received by this node.
+ *
+ * <p>A single thread owns the connection: it sends the last applied position on connect,
+ * applies snapshots and records as they arrive, and acknowledges after every burst so the
+ * leader can release writes waiting for read-your-writes. A lost connection is retried
+ * after {@link ReplicationProperties#reconnectDelay()}; forwarded writes fail meanwhile.
+ */
+final class ReplicationFollower implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private static final SecureRandom NONCES = new SecureRandom();
+
+    /** Longest the leader may take to answer each step of the handshake */
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    /** Longest a forwarded write waits for the leader's reply */
+    private static final long FORWARD_TIMEOUT_SECONDS = 30;
+
+    private final ReplicationProperties properties;
+    private final Supplier<TodoRepositoryImp> store;
+    private final Consumer<TodoRepositoryImp> installer;
+    private final Consumer<TodoLogRecord> applied;
+
+    /** Leader epoch and log position the local store reflects; written by the connection thread */
+    private long epoch;
+    private volatile long position;
+    private final ReentrantLock positionLock = new ReentrantLock();
+    private final Condition positionAdvanced = positionLock.newCondition();
+
+    private final Map<Long, CompletableFuture<Optional<TodoLogRecord>>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final ReentrantLock outLock = new ReentrantLock();
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+
+    private final Thread connection;
+    private volatile boolean closed;
+
+    /**
+     * Starts following the configured leader.
+     *
+     * @param properties leader address, consistency and reconnect settings
+     * @param store gets the local store records are applied to
+     * @param installer replaces the local store with one loaded from a snapshot
+     * @param applied notified after each record from the leader is applied
+     */
+    ReplicationFollower(ReplicationProperties properties, Supplier<TodoRepositoryImp> store,
+                        Consumer<TodoRepositoryImp> installer, Consumer<TodoLogRecord> applied) {
+        this.properties = properties;
+        this.store = store;
+        this.installer = installer;
+        this.applied = applied;
+        this.connection = Thread.ofPlatform().name("todo-replication-follower").daemon().start(this::run);
+    }
+
+    /**
+     * Gets the last leader log position applied locally.
+     *
+     * @return the applied position
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Sends a write to the leader and waits for its outcome. In read-your-writes mode it
+     * also waits until the local store has applied it, so this node's next read observes it.
+     *
+     * @param op one of the {@code ReplicationProtocol.OP_*} operations
+     * @param id the task identifier, for toggles and deletes
+     * @param title the task title, for creates
+     * @return the task after the write, or null if the id does not exist
+     */
+    TodoLogRecord forward(byte op, int id, String title) {
+        DataOutputStream stream = out;
+        if (stream == null) {
+            throw new IllegalStateException("Replication leader " + properties.leader() + " is unreachable");
+        }
+        long request = requests.incrementAndGet();
+        CompletableFuture<Optional<TodoLogRecord>> reply = new CompletableFuture<>();
+        pending.put(request, reply);
+        outLock.lock();
+        try {
+            stream.writeByte(ReplicationProtocol.FORWARD);
+            stream.writeLong(request);
+            stream.writeByte(op);
+            stream.writeInt(id);
+            ReplicationProtocol.writeTitle(stream, title);
+            stream.flush();
+        } catch (IOException e) {
+            pending.remove(request);
+            throw new IllegalStateException("Replication leader " + properties.leader() + " is unreachable", e);
+        } finally {
+            outLock.unlock();
+        }
+        Optional<TodoLogRecord> outcome;
+        try {
+            outcome = reply.get(FORWARD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forwarding a write", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Write forwarded to " + properties.leader() + " did not complete", e);
+        } finally {
+            pending.remove(request);
+        }
+        return outcome.orElse(null);
+    }
+
+    /**
+     * Blocks until the local store has applied the leader's log up to a position, or the
+     * acknowledgement timeout passes.
+     *
+     * @param target leader log position
+     */
+    void awaitPosition(long target) {
+        long remaining = properties.ackTimeout().toNanos();
+        positionLock.lock();
+        try {
+            while (position < target && remaining > 0) {
+                remaining = positionAdvanced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket connected = connect()) {
+                follow(connected);
+            } catch (IOException e) {
+                if (!closed && out != null) {
+                    log.info("Replication connection to {} lost: {}", properties.leader(), e.toString());
+                } else if (!closed) {
+                    log.debug("Replication leader {} unreachable: {}", properties.leader(), e.toString());
+                }
+            } finally {
+                out = null;
+                socket = null;
+                failPending();
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(properties.reconnectDelay());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        String leader = properties.leader();
+        int colon = leader.lastIndexOf(':');
+        Socket connected = new Socket();
+        connected.setTcpNoDelay(true);
+        connected.connect(new InetSocketAddress(leader.substring(0, colon),
+                Integer.parseInt(leader.substring(colon + 1))), 5_000);
+        socket = connected;
+        return connected;
+    }
+
+    /** Handshakes, then applies frames until the connection fails */
+    private void follow(Socket connected) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream(), 1 << 16));
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream(), 1 << 16));
+        connected.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        if (in.readByte() != ReplicationProtocol.CHALLENGE) {
+            throw new IOException("Expected CHALLENGE");
+        }
+        byte[] nonce = new byte[ReplicationProtocol.NONCE_SIZE];
+        in.readFully(nonce);
+        byte[] challenge = new byte[ReplicationProtocol.NONCE_SIZE];
+        NONCES.nextBytes(challenge);
+        outLock.lock();
+        try {
+            stream.writeByte(ReplicationProtocol.HELLO);
+            stream.write(challenge);
+            stream.write(ReplicationProtocol.proof(properties.secret(), ReplicationProtocol.HELLO, nonce, challenge));
+            stream.writeLong(epoch);
+            stream.writeLong(position);
+            stream.flush();
+        } finally {
+            outLock.unlock();
+        }
+        // Nothing from the peer is applied until it has proven it holds the secret too
+        if (in.readByte() != ReplicationProtocol.WELCOME) {
+            throw new IOException("Expected WELCOME");
+        }
+        byte[] proof = new byte[ReplicationProtocol.PROOF_SIZE];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, ReplicationProtocol.proof(properties.secret(),
+                ReplicationProtocol.WELCOME, nonce, challenge))) {
+            log.warn("Rejected replication leader {}: wrong secret", properties.leader());
+            return;
+        }
+        connected.setSoTimeout(0);
+        out = stream;
+        log.info("Following replication leader {}", properties.leader());
+        long acknowledged = -1;
+        while (true) {
+            byte type = in.readByte();
+            switch (type) {
+                case ReplicationProtocol.SNAPSHOT -> loadSnapshot(in);
+                case ReplicationProtocol.RECORD -> {
+                    long next = in.readLong();
+                    TodoLogRecord record = ReplicationProtocol.readRecord(in);
+                    if (next != position + 1) {
+                        throw new IOException("Replication log gap: expected " + (position + 1) + " but got " + next);
+                    }
+                    store.get().apply(record);
+                    position = next;
+                    applied.accept(record);
+                }
+                case ReplicationProtocol.RESULT -> {
+                    long request = in.readLong();
+                    long at = in.readLong();
+                    byte status = in.readByte();
+                    if (status == ReplicationProtocol.RESULT_FAILED) {
+                        fail(request, ReplicationProtocol.readTitle(in));
+                    } else {
+                        complete(request, at, status == ReplicationProtocol.RESULT_FOUND
+                                ? ReplicationProtocol.readRecord(in) : null);
+                    }
+                }
+                default -> throw new IOException("Unexpected frame " + type);
+            }
+            // Acknowledge once per burst rather than once per record
+            if (in.available() == 0 && position != acknowledged) {
+                acknowledged = position;
+                signalPosition();
+                outLock.lock();
+                try {
+                    stream.writeByte(ReplicationProtocol.ACK);
+                    stream.writeLong(acknowledged);
+                    stream.flush();
+                } finally {
+                    outLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void loadSnapshot(DataInputStream in) throws IOException {
+        long snapshotEpoch = in.readLong();
+        long snapshotPosition = in.readLong();
+        int count = in.readInt();
+        TodoRepositoryImp fresh = new TodoRepositoryImp();
+        for (int i = 0; i < count; i++) {
+            fresh.apply(ReplicationProtocol.readRecord(in));
+        }
+        installer.accept(fresh);
+        epoch = snapshotEpoch;
+        position = snapshotPosition;
+        log.info("Loaded replication snapshot of {} tasks at position {}", count, snapshotPosition);
+    }
+
+    /**
+     * Hands a forwarded write's outcome to its caller once the local store has caught up,
+     * when read-your-writes is configured. Waiting on the caller's thread keeps this
+     * connection thread free to apply the records it is waiting for.
+     */
+    private void complete(long request, long at, TodoLogRecord outcome) {
+        CompletableFuture<Optional<TodoLogRecord>> reply = pending.get(request);
+        if (reply == null) {
+            return;
+        }
+        if (properties.consistency() == ReplicationProperties.Consistency.READ_YOUR_WRITES && position < at) {
+            reply.completeAsync(() -> {
+                awaitPosition(at);
+                return Optional.ofNullable(outcome);
+            }, Thread::startVirtualThread);
+        } else {
+            reply.complete(Optional.ofNullable(outcome));
+        }
+    }
+
+    private void fail(long request, String message) {
+        CompletableFuture<Optional<TodoLogRecord>> reply = pending.get(request);
+        if (reply != null) {
+            reply.completeExceptionally(new IllegalStateException("Leader rejected the write: " + message));
+        }
+    }
+
+    private void signalPosition() {
+        positionLock.lock();
+        try {
+            positionAdvanced.signalAll();
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    private void failPending() {
+        IllegalStateException lost = new IllegalStateException("Replication connection lost");
+        for (CompletableFuture<Optional<TodoLogRecord>> reply : pending.values()) {
+            reply.completeExceptionally(lost);
+        }
+    }
+
+    /**
+     * Disconnects from the leader and stops reconnecting.
+     *
+     * @throws IOException if the socket fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        connection.interrupt();
+        Socket connected = socket;
+        if (connected != null) {
+            connected.close();
+        }
+    }
+}
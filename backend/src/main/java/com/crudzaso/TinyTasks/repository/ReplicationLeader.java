@@ -0,0 +1,525 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ReplicationProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Leader side of replication: applies every mutation to its store, numbers it in an ordered
+ * log and streams that log to followers over TCP.
+ *
+ * <p>The most recent {@link ReplicationProperties#backlog()} records stay in a ring, so a
+ * follower that reconnects picks up where it left off; one that is too far behind, is new,
+ * or last saw a different leader process (epoch) receives a full snapshot first.
+ * Every follower gets its own sender thread, so a slow follower only delays itself.
+ *
+ * <p>A peer must answer the leader's challenge with the shared secret before it is sent any
+ * task or may forward a write. Without a secret the leader only listens on loopback.
+ */
+final class ReplicationLeader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    /** Largest number of records copied out of the ring per write to a follower */
+    private static final int MAX_BATCH = 4096;
+
+    /** Longest a peer may take to answer the challenge before it is dropped */
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    private static final SecureRandom NONCES = new SecureRandom();
+
+    private final TodoRepositoryImp memory;
+    private final ReplicationProperties properties;
+    private final IntConsumer remoteChanges;
+
+    /** Identifies this leader process; the log restarts from zero with every new epoch */
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    /** Orders mutations so the log matches the store; also guards the ring */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition appended = writeLock.newCondition();
+    private final TodoLogRecord[] ring;
+    private volatile long seq;
+
+    private final ReentrantLock ackLock = new ReentrantLock();
+    private final Condition ackAdvanced = ackLock.newCondition();
+
+    private final ServerSocket server;
+    private final Set<Follower> followers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService forwarded = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+
+    /**
+     * Starts accepting followers.
+     *
+     * @param memory the leader's store
+     * @param properties address, secret, consistency and backlog settings
+     * @param remoteChanges notified with the id of every write forwarded by a follower
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalStateException if asked to listen beyond loopback without a secret
+     */
+    ReplicationLeader(TodoRepositoryImp memory, ReplicationProperties properties, IntConsumer remoteChanges)
+            throws IOException {
+        this.memory = memory;
+        this.properties = properties;
+        this.remoteChanges = remoteChanges;
+        this.ring = new TodoLogRecord[properties.backlog()];
+        InetAddress address = InetAddress.getByName(properties.bindAddress());
+        if (!address.isLoopbackAddress() && properties.secret().isBlank()) {
+            throw new IllegalStateException("tinytasks.replication.secret must be set to listen on "
+                    + properties.bindAddress());
+        }
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(address, properties.port()));
+        Thread.ofPlatform().name("todo-replication-accept").daemon().start(this::accept);
+        log.info("Replication leader listening on {}", server.getLocalSocketAddress());
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    int followerCount() {
+        return followers.size();
+    }
+
+    Todo save(Todo todo) {
+        long position;
+        writeLock.lock();
+        try {
+            memory.save(todo);
+            position = append(TodoLogRecord.create(todo));
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return todo;
+    }
+
+    Optional<Todo> toggle(int id) {
+        Optional<Todo> toggled;
+        long position;
+        writeLock.lock();
+        try {
+            toggled = memory.toggle(id);
+            position = toggled.isPresent() ? append(TodoLogRecord.setDone(toggled.get())) : seq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return toggled;
+    }
+
+    boolean delete(int id) {
+        boolean deleted;
+        long position;
+        writeLock.lock();
+        try {
+            deleted = memory.delete(id);
+            position = deleted ? append(TodoLogRecord.delete(id)) : seq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return deleted;
+    }
+
+    List<Todo> saveAll(List<Todo> todos) {
+        long position;
+        writeLock.lock();
+        try {
+            for (Todo todo : todos) {
+                memory.save(todo);
+                append(TodoLogRecord.create(todo));
+            }
+            position = seq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return new ArrayList<>(todos);
+    }
+
+    List<Optional<Todo>> toggleAll(int[] ids) {
+        List<Optional<Todo>> toggled = new ArrayList<>(ids.length);
+        long position;
+        writeLock.lock();
+        try {
+            for (int id : ids) {
+                Optional<Todo> result = memory.toggle(id);
+                result.ifPresent(todo -> append(TodoLogRecord.setDone(todo)));
+                toggled.add(result);
+            }
+            position = seq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return toggled;
+    }
+
+    boolean[] deleteAll(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        long position;
+        writeLock.lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                deleted[i] = memory.delete(ids[i]);
+                if (deleted[i]) {
+                    append(TodoLogRecord.delete(ids[i]));
+                }
+            }
+            position = seq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitFollowers(position);
+        return deleted;
+    }
+
+    /** Adds a record to the ring and wakes the senders; must hold the write lock */
+    private long append(TodoLogRecord record) {
+        long position = seq + 1;
+        ring[(int) (position % ring.length)] = record;
+        seq = position;
+        appended.signalAll();
+        return position;
+    }
+
+    /**
+     * Blocks until every connected follower has applied the log up to {@code position},
+     * if the consistency mode asks for it. Followers that miss the deadline are left to
+     * catch up on their own rather than failing a write that is already applied here.
+     */
+    private void awaitFollowers(long position) {
+        if (properties.consistency() != ReplicationProperties.Consistency.READ_YOUR_WRITES) {
+            return;
+        }
+        long remaining = properties.ackTimeout().toNanos();
+        ackLock.lock();
+        try {
+            while (lagging(position)) {
+                if (remaining <= 0) {
+                    log.warn("Followers did not apply log position {} within {}", position, properties.ackTimeout());
+                    return;
+                }
+                remaining = ackAdvanced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ackLock.unlock();
+        }
+    }
+
+    private boolean lagging(long position) {
+        for (Follower follower : followers) {
+            if (follower.acked < position) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void signalAcks() {
+        ackLock.lock();
+        try {
+            ackAdvanced.signalAll();
+        } finally {
+            ackLock.unlock();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Follower follower = new Follower(socket);
+                Thread.ofPlatform().name("todo-replication-follower-" + socket.getPort()).daemon()
+                        .start(follower::serve);
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Replication accept failed: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting followers and drops the connected ones.
+     *
+     * @throws IOException if the server socket fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Follower follower : followers) {
+            follower.disconnect();
+        }
+        forwarded.shutdownNow();
+        writeLock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * One connected follower: its socket, its position in the log and the last position
+     * it confirmed applying.
+     */
+    private final class Follower {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        /** Serializes frames written by the sender thread and by forwarded-write replies */
+        private final ReentrantLock outLock = new ReentrantLock();
+
+        /** Last log position the follower reported as applied */
+        private volatile long acked;
+
+        /** Set once the follower has been sent its starting state and counts for acknowledgements */
+        private boolean joined;
+
+        private Follower(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+
+        /** Runs the handshake, then reads acks and forwarded writes until the connection drops */
+        private void serve() {
+            try {
+                byte[] nonce = new byte[ReplicationProtocol.NONCE_SIZE];
+                NONCES.nextBytes(nonce);
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                outLock.lock();
+                try {
+                    out.writeByte(ReplicationProtocol.CHALLENGE);
+                    out.write(nonce);
+                    out.flush();
+                } finally {
+                    outLock.unlock();
+                }
+                if (in.readByte() != ReplicationProtocol.HELLO) {
+                    throw new IOException("Expected HELLO");
+                }
+                byte[] challenge = new byte[ReplicationProtocol.NONCE_SIZE];
+                in.readFully(challenge);
+                byte[] proof = new byte[ReplicationProtocol.PROOF_SIZE];
+                in.readFully(proof);
+                if (!MessageDigest.isEqual(proof, ReplicationProtocol.proof(properties.secret(),
+                        ReplicationProtocol.HELLO, nonce, challenge))) {
+                    log.warn("Rejected replication peer {}: wrong secret", socket.getRemoteSocketAddress());
+                    return;
+                }
+                long followerEpoch = in.readLong();
+                long followerApplied = in.readLong();
+                outLock.lock();
+                try {
+                    out.writeByte(ReplicationProtocol.WELCOME);
+                    out.write(ReplicationProtocol.proof(properties.secret(), ReplicationProtocol.WELCOME, nonce, challenge));
+                    out.flush();
+                } finally {
+                    outLock.unlock();
+                }
+                socket.setSoTimeout(0);
+                long cursor = followerEpoch == epoch ? followerApplied : -1;
+                Thread.ofPlatform().name("todo-replication-sender-" + socket.getPort()).daemon()
+                        .start(() -> send(cursor));
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == ReplicationProtocol.ACK) {
+                        acknowledge(in.readLong());
+                    } else if (type == ReplicationProtocol.FORWARD) {
+                        long request = in.readLong();
+                        byte op = in.readByte();
+                        int id = in.readInt();
+                        String title = ReplicationProtocol.readTitle(in);
+                        forwarded.execute(() -> applyForwarded(request, op, id, title));
+                    } else {
+                        throw new IOException("Unexpected frame " + type);
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.info("Follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+                }
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void acknowledge(long position) {
+            acked = position;
+            signalAcks();
+        }
+
+        /** Streams the log from the cursor, or a snapshot first if the cursor is unusable */
+        private void send(long cursor) {
+            List<TodoLogRecord> batch = new ArrayList<>(MAX_BATCH);
+            try {
+                while (!closed && !socket.isClosed()) {
+                    long first;
+                    List<Todo> snapshot = null;
+                    writeLock.lock();
+                    try {
+                        long oldest = seq - ring.length;
+                        if (cursor < 0 || cursor < oldest || cursor > seq) {
+                            // The snapshot and its position are taken together, so no mutation falls between
+                            snapshot = memory.findAll();
+                            cursor = seq;
+                        } else {
+                            while (cursor == seq && !closed && !socket.isClosed()) {
+                                appended.await(1, TimeUnit.SECONDS);
+                            }
+                            long last = Math.min(seq, cursor + MAX_BATCH);
+                            for (long position = cursor + 1; position <= last; position++) {
+                                batch.add(ring[(int) (position % ring.length)]);
+                            }
+                        }
+                        first = cursor + 1;
+                    } finally {
+                        writeLock.unlock();
+                    }
+                    if (snapshot != null) {
+                        writeSnapshot(cursor, snapshot);
+                        // Until it is applied, the follower must not count as caught up
+                        continue;
+                    }
+                    writeRecords(first, batch);
+                    cursor += batch.size();
+                    batch.clear();
+                }
+            } catch (IOException e) {
+                disconnect();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                disconnect();
+            }
+        }
+
+        private void writeSnapshot(long position, List<Todo> todos) throws IOException {
+            outLock.lock();
+            try {
+                out.writeByte(ReplicationProtocol.SNAPSHOT);
+                out.writeLong(epoch);
+                out.writeLong(position);
+                out.writeInt(todos.size());
+                for (Todo todo : todos) {
+                    ReplicationProtocol.writeRecord(out, TodoLogRecord.create(todo));
+                }
+                out.flush();
+            } finally {
+                outLock.unlock();
+            }
+            // Joining only now keeps writes from waiting on a follower that is still loading
+            join();
+        }
+
+        private void writeRecords(long first, List<TodoLogRecord> records) throws IOException {
+            outLock.lock();
+            try {
+                long position = first;
+                for (TodoLogRecord record : records) {
+                    out.writeByte(ReplicationProtocol.RECORD);
+                    out.writeLong(position++);
+                    ReplicationProtocol.writeRecord(out, record);
+                }
+                out.flush();
+            } finally {
+                outLock.unlock();
+            }
+            join();
+        }
+
+        private void join() {
+            if (!joined) {
+                joined = true;
+                followers.add(this);
+                // A disconnect that ran before the add would otherwise leave a stale entry
+                if (socket.isClosed()) {
+                    disconnect();
+                }
+            }
+        }
+
+        /** Runs a write a follower received through the leader's own path and replies with the outcome */
+        private void applyForwarded(long request, byte op, int id, String title) {
+            TodoLogRecord outcome = null;
+            String failure = null;
+            try {
+                outcome = switch (op) {
+                    case ReplicationProtocol.OP_CREATE -> TodoLogRecord.create(save(new Todo(title)));
+                    case ReplicationProtocol.OP_TOGGLE -> toggle(id).map(TodoLogRecord::create).orElse(null);
+                    case ReplicationProtocol.OP_DELETE -> delete(id) ? TodoLogRecord.delete(id) : null;
+                    default -> throw new IllegalArgumentException("Unknown forwarded operation " + op);
+                };
+                if (outcome != null) {
+                    remoteChanges.accept(outcome.id());
+                }
+            } catch (RuntimeException e) {
+                // The follower's caller is waiting on this reply; tell it rather than let it time out
+                log.warn("Forwarded write from {} failed: {}", socket.getRemoteSocketAddress(), e.toString());
+                failure = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            }
+            long position = seq;
+            outLock.lock();
+            try {
+                out.writeByte(ReplicationProtocol.RESULT);
+                out.writeLong(request);
+                out.writeLong(position);
+                if (failure != null) {
+                    out.writeByte(ReplicationProtocol.RESULT_FAILED);
+                    ReplicationProtocol.writeTitle(out, failure);
+                } else if (outcome != null) {
+                    out.writeByte(ReplicationProtocol.RESULT_FOUND);
+                    ReplicationProtocol.writeRecord(out, outcome);
+                } else {
+                    out.writeByte(ReplicationProtocol.RESULT_MISSING);
+                }
+                out.flush();
+            } catch (IOException e) {
+                disconnect();
+            } finally {
+                outLock.unlock();
+            }
+        }
+
+        private void disconnect() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            if (followers.remove(this)) {
+                // Writes waiting for this follower's ack can stop waiting
+                signalAcks();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.crudzaso.TinyTasks.repository;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wire format between a replication leader and its followers.
+ * Every frame starts with a one-byte type; log records reuse the {@link TodoLogRecord}
+ * payload encoding, prefixed with their length.
+ *
+ * <p>The handshake authenticates both peers. The leader opens every connection with
+ * {@code CHALLENGE [nonce:32 bytes]}; the follower answers with its own nonce and a proof, and
+ * the leader with a {@code WELCOME} proof of its own. Each proof is an HMAC-SHA256 keyed by the
+ * shared secret over the frame type that carries it and both nonces, so the secret never crosses
+ * the wire, a recorded handshake cannot be replayed, and a proof collected in one direction is
+ * useless in the other. The leader reads no other frame from a follower whose proof does not
+ * match, and the follower applies nothing from a leader whose proof does not match.
+ *
+ * <p>Follower to leader:
+ * <ul>
+ *   <li>{@code HELLO [nonce:32 bytes][proof:32 bytes][epoch:long][applied:long]} once per connection:
+ *       the follower's challenge, its answer to the leader's and the last log position seen</li>
+ *   <li>{@code ACK [applied:long]} after every burst of applied records</li>
+ *   <li>{@code FORWARD [request:long][op:byte][id:int][titleLength:int][title:UTF-8]} a write received by the follower</li>
+ * </ul>
+ * Leader to follower:
+ * <ul>
+ *   <li>{@code CHALLENGE [nonce:32 bytes]} first, before anything else is sent</li>
+ *   <li>{@code WELCOME [proof:32 bytes]} the leader's answer to the follower's challenge, once the
+ *       follower's proof checks out and before any state is sent</li>
+ *   <li>{@code SNAPSHOT [epoch:long][seq:long][count:int]} then {@code count} CREATE records:
+ *       replaces the follower's whole store with the leader's state at {@code seq}</li>
+ *   <li>{@code RECORD [seq:long][record]} the next mutation of the log</li>
+ *   <li>{@code RESULT [request:long][seq:long][status:byte][record | message]} the outcome of a
+ *       forwarded write, once it is in the log at or before {@code seq}: the resulting record,
+ *       nothing if the id does not exist, or the leader's error message if the write failed</li>
+ * </ul>
+ */
+final class ReplicationProtocol {
+
+    static final byte CHALLENGE = 'C';
+    static final byte HELLO = 'H';
+    static final byte WELCOME = 'W';
+    static final byte ACK = 'A';
+    static final byte FORWARD = 'F';
+    static final byte SNAPSHOT = 'S';
+    static final byte RECORD = 'R';
+    static final byte RESULT = 'X';
+
+    /** Operations a follower forwards */
+    static final byte OP_CREATE = 1;
+    static final byte OP_TOGGLE = 2;
+    static final byte OP_DELETE = 3;
+
+    /** Status of a {@code RESULT} frame */
+    static final byte RESULT_MISSING = 0;
+    static final byte RESULT_FOUND = 1;
+    static final byte RESULT_FAILED = 2;
+
+    /** Size of each peer's challenge and proof */
+    static final int NONCE_SIZE = 32;
+    static final int PROOF_SIZE = 32;
+
+    /** Largest record payload accepted from the network */
+    private static final int MAX_PAYLOAD = 1 << 24;
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * Computes one peer's answer to the handshake.
+     *
+     * @param secret the secret shared by the leader and its followers
+     * @param frame the frame carrying the proof, {@link #HELLO} or {@link #WELCOME}, which binds it to one direction
+     * @param leaderNonce the leader's challenge
+     * @param followerNonce the follower's challenge
+     * @return HMAC-SHA256 of the frame type and both nonces, keyed by the SHA-256 of the secret
+     */
+    static byte[] proof(String secret, byte frame, byte[] leaderNonce, byte[] followerNonce) {
+        try {
+            byte[] key = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            mac.update(frame);
+            mac.update(leaderNonce);
+            return mac.doFinal(followerNonce);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is unavailable", e);
+        }
+    }
+
+    static void writeRecord(DataOutputStream out, TodoLogRecord record) throws IOException {
+        byte[] payload = record.encode();
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    static void writeTitle(DataOutputStream out, String title) throws IOException {
+        byte[] bytes = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readTitle(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("Corrupt replication frame: title length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static TodoLogRecord readRecord(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < TodoLogRecord.FIXED_SIZE || length > MAX_PAYLOAD) {
+            throw new IOException("Corrupt replication frame: record length " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return TodoLogRecord.decode(ByteBuffer.wrap(payload));
+    }
+}
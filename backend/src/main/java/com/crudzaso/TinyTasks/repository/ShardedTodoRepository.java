@@ -0,0 +1,544 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ShardedProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Partitioned in-memory implementation of {@link TodoRepository}.
+ * Ids are spread over N shards by {@code id mod N}; each shard owns its maps, secondary
+ * indexes, counters and {@link TodoSearchIndex}, and only its own writer thread ever mutates
+ * them. Request threads hand mutations to the owning shard's queue and wait for the result,
+ * so writes to different shards never touch the same memory and need no locks. Each writer
+ * drains its queue in batches, applying everything that arrived while it was busy in one pass.
+ *
+ * <p>Reads run on the calling thread against the shards' concurrent maps: point lookups go
+ * to one shard, while lists, counts, filtered pages and searches scatter over every shard and
+ * merge the results in id order. Ids come from one lock-free counter, so they stay globally
+ * unique and gap-free and consecutive saves land on different shards.
+ * Selected with {@code tinytasks.repository.type=sharded}.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "sharded")
+public class ShardedTodoRepository implements TodoRepository, AutoCloseable {
+
+    /** Largest number of queued mutations a shard applies in one pass */
+    private static final int MAX_BATCH = 1024;
+
+    private final Shard[] shards;
+
+    /** Counter for auto-incrementing IDs, shared by every shard */
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Creates a store with one shard per available core.
+     */
+    public ShardedTodoRepository() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a store with the configured number of shards.
+     *
+     * @param properties sharded engine settings
+     */
+    @Autowired
+    public ShardedTodoRepository(ShardedProperties properties) {
+        this(properties.shards() > 0 ? properties.shards() : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a store and starts one writer thread per shard.
+     *
+     * @param shardCount number of partitions
+     */
+    public ShardedTodoRepository(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+            Thread.ofPlatform().name("todo-shard-" + i).daemon().start(shards[i]::run);
+        }
+    }
+
+    /**
+     * Gets the number of partitions.
+     *
+     * @return shard count
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        List<Iterator<Todo>> sources = new ArrayList<>(shards.length);
+        int size = 0;
+        for (Shard shard : shards) {
+            sources.add(shard.todos.values().iterator());
+            size += shard.size;
+        }
+        return merge(sources, Integer.MAX_VALUE, size);
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        List<Iterator<Todo>> sources = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            sources.add(shard.todos.tailMap(afterId, false).values().iterator());
+        }
+        return merge(sources, limit, Math.min(limit, 256));
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        List<Iterator<Todo>> sources = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            sources.add(shard.findByDone(done, afterId));
+        }
+        return merge(sources, limit, Math.min(limit, 256));
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        return Optional.ofNullable(shard(id).todos.get(id));
+    }
+
+    /**
+     * Reserves an ID without any lock and lets the owning shard store the task.
+     *
+     * @param todo the task to save
+     * @return the saved {@link Todo} with assigned ID
+     */
+    @Override
+    public Todo save(Todo todo) {
+        todo.setId(nextId.getAndIncrement());
+        await(submit(shard(todo.getId()), shard -> {
+            shard.insert(todo);
+            return null;
+        }));
+        return todo;
+    }
+
+    @Override
+    public Optional<Todo> toggle(int id) {
+        return await(submit(shard(id), shard -> shard.toggle(id)));
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return await(submit(shard(id), shard -> shard.delete(id)));
+    }
+
+    /**
+     * Reserves a contiguous ID range for the whole batch and stores each shard's part in
+     * parallel, one queued mutation per shard.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        int first = nextId.getAndAdd(todos.size());
+        int[] ids = new int[todos.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = first + i;
+            todos.get(i).setId(ids[i]);
+        }
+        scatter(ids, (shard, positions) -> {
+            for (int position : positions) {
+                shard.insert(todos.get(position));
+            }
+        });
+        return new ArrayList<>(todos);
+    }
+
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        List<Optional<Todo>> toggled = new ArrayList<>(Collections.nCopies(ids.length, Optional.empty()));
+        scatter(ids, (shard, positions) -> {
+            for (int position : positions) {
+                toggled.set(position, shard.toggle(ids[position]));
+            }
+        });
+        return toggled;
+    }
+
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        scatter(ids, (shard, positions) -> {
+            for (int position : positions) {
+                deleted[position] = shard.delete(ids[position]);
+            }
+        });
+        return deleted;
+    }
+
+    @Override
+    public int count() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.size;
+        }
+        return count;
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += done ? shard.doneCount : shard.size - shard.doneCount;
+        }
+        return count;
+    }
+
+    /**
+     * Merges the hits of every shard's index before paging, so the ranking matches a
+     * single index over the whole store.
+     */
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        TodoSearchIndex.Hits hits = shards[0].searchIndex.match(query);
+        for (int i = 1; i < shards.length; i++) {
+            hits.addAll(shards[i].searchIndex.match(query));
+        }
+        return hits.page(offset, limit, id -> shard(id).todos.get(id));
+    }
+
+    /**
+     * Sums the shard versions. Each one only grows, so two equal sums mean no shard
+     * changed in between.
+     */
+    @Override
+    public long version() {
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.version;
+        }
+        return version;
+    }
+
+    /**
+     * Stops the writer threads. Mutations queued before the call are applied first;
+     * later ones are refused with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    private Shard shard(int id) {
+        return shards[Math.floorMod(id, shards.length)];
+    }
+
+    private <T> CompletableFuture<T> submit(Shard shard, Function<Shard, T> work) {
+        Mutation<T> mutation = new Mutation<>(work);
+        shard.enqueue(mutation);
+        return mutation.result;
+    }
+
+    /** Waits for a mutation, rethrowing whatever it threw on the shard thread */
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** Applies one batch step to the positions of {@code ids} owned by each shard, shards in parallel */
+    private void scatter(int[] ids, BatchStep step) {
+        int[] counts = new int[shards.length];
+        for (int id : ids) {
+            counts[Math.floorMod(id, shards.length)]++;
+        }
+        int[][] positions = new int[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            positions[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int position = 0; position < ids.length; position++) {
+            int owner = Math.floorMod(ids[position], shards.length);
+            positions[owner][counts[owner]++] = position;
+        }
+        List<CompletableFuture<Object>> pending = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int[] owned = positions[i];
+            if (owned.length > 0) {
+                pending.add(submit(shards[i], shard -> {
+                    step.apply(shard, owned);
+                    return null;
+                }));
+            }
+        }
+        for (CompletableFuture<Object> result : pending) {
+            await(result);
+        }
+    }
+
+    /**
+     * Merges id-ordered sources into one id-ordered list. Shards hold disjoint ids,
+     * so no duplicates need to be dropped.
+     */
+    private static List<Todo> merge(List<Iterator<Todo>> sources, int limit, int expectedSize) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (Iterator<Todo> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+        List<Todo> merged = new ArrayList<>(expectedSize);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            merged.add(head.todo);
+            if (head.source.hasNext()) {
+                head.todo = head.source.next();
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /** Current element of one source during a merge */
+    private static final class Head implements Comparable<Head> {
+        Todo todo;
+        final Iterator<Todo> source;
+
+        Head(Todo todo, Iterator<Todo> source) {
+            this.todo = todo;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return Integer.compare(todo.getId(), other.todo.getId());
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchStep {
+        void apply(Shard shard, int[] positions);
+    }
+
+    /** Work queued for a shard's writer thread */
+    private static final class Mutation<T> {
+
+        /** Tells the writer thread to exit */
+        static final Mutation<Object> STOP = new Mutation<>(shard -> null);
+
+        final Function<Shard, T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Mutation(Function<Shard, T> work) {
+            this.work = work;
+        }
+
+        /** Applies the work; an {@link Error} fails the mutation and is rethrown to stop the shard */
+        void run(Shard shard) {
+            try {
+                result.complete(work.apply(shard));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } catch (Error e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * One partition. Readers may use it from any thread; every field below is only written
+     * by the shard's own writer thread, which is why plain volatile increments are safe.
+     */
+    private static final class Shard {
+
+        final LinkedTransferQueue<Mutation<?>> inbox = new LinkedTransferQueue<>();
+
+        /** Makes the stopped check and the enqueue one step, so nothing is queued behind the last take */
+        private final ReentrantLock intake = new ReentrantLock();
+
+        /** Why the shard accepts no more work: closed, or its writer thread died; guarded by {@link #intake} */
+        private IllegalStateException stopped;
+
+        final ConcurrentSkipListMap<Integer, Todo> todos = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListSet<Integer> doneIds = new ConcurrentSkipListSet<>();
+        final ConcurrentSkipListSet<Integer> pendingIds = new ConcurrentSkipListSet<>();
+        final TodoSearchIndex searchIndex = new TodoSearchIndex();
+
+        volatile int size;
+        volatile int doneCount;
+
+        /** Bumped after every successful mutation */
+        volatile long version;
+
+        void enqueue(Mutation<?> mutation) {
+            intake.lock();
+            try {
+                if (stopped != null) {
+                    throw new IllegalStateException(stopped.getMessage(), stopped.getCause());
+                }
+                inbox.add(mutation);
+            } finally {
+                intake.unlock();
+            }
+        }
+
+        /** Refuses new work and queues the stop marker behind everything already accepted */
+        void stop() {
+            intake.lock();
+            try {
+                if (stopped == null) {
+                    stopped = new IllegalStateException("Repository is closed");
+                    inbox.add(Mutation.STOP);
+                }
+            } finally {
+                intake.unlock();
+            }
+        }
+
+        void run() {
+            List<Mutation<?>> batch = new ArrayList<>(MAX_BATCH);
+            try {
+                while (true) {
+                    batch.add(inbox.take());
+                    inbox.drainTo(batch, MAX_BATCH - 1);
+                    for (Iterator<Mutation<?>> pending = batch.iterator(); pending.hasNext(); ) {
+                        Mutation<?> mutation = pending.next();
+                        pending.remove();
+                        if (mutation == Mutation.STOP) {
+                            return;
+                        }
+                        mutation.run(this);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Error e) {
+                halt(new IllegalStateException("Shard writer " + Thread.currentThread().getName() + " died", e));
+                throw e;
+            } finally {
+                halt(new IllegalStateException("Repository is closed"));
+                failPending(batch);
+            }
+        }
+
+        /** Refuses new work for the given reason, unless a reason was already recorded */
+        private void halt(IllegalStateException reason) {
+            intake.lock();
+            try {
+                if (stopped == null) {
+                    stopped = reason;
+                }
+            } finally {
+                intake.unlock();
+            }
+        }
+
+        /** Fails what was taken but not applied and whatever is still queued */
+        private void failPending(List<Mutation<?>> batch) {
+            inbox.drainTo(batch);
+            for (Mutation<?> mutation : batch) {
+                mutation.result.completeExceptionally(stopped);
+            }
+        }
+
+        void insert(Todo todo) {
+            todos.put(todo.getId(), todo);
+            (todo.isDone() ? doneIds : pendingIds).add(todo.getId());
+            searchIndex.add(todo.getId(), todo.getTitle());
+            size++;
+            if (todo.isDone()) {
+                doneCount++;
+            }
+            version++;
+        }
+
+        Optional<Todo> toggle(int id) {
+            Todo current = todos.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            Todo toggled = current.withDone(!current.isDone());
+            todos.put(id, toggled);
+            // Add to the new index before leaving the old one, so a concurrent filtered page
+            // never misses the task; it re-checks the map and drops the stale entry
+            (toggled.isDone() ? doneIds : pendingIds).add(id);
+            (toggled.isDone() ? pendingIds : doneIds).remove(id);
+            doneCount += toggled.isDone() ? 1 : -1;
+            version++;
+            return Optional.of(toggled);
+        }
+
+        boolean delete(int id) {
+            Todo removed = todos.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            (removed.isDone() ? doneIds : pendingIds).remove(id);
+            searchIndex.remove(id);
+            size--;
+            if (removed.isDone()) {
+                doneCount--;
+            }
+            version++;
+            return true;
+        }
+
+        /** Tasks with the given status after the cursor, in id order, checked against the map */
+        Iterator<Todo> findByDone(boolean done, int afterId) {
+            Iterator<Integer> ids = (done ? doneIds : pendingIds).tailSet(afterId, false).iterator();
+            return new Iterator<>() {
+                private Todo next = advance();
+
+                private Todo advance() {
+                    while (ids.hasNext()) {
+                        Todo todo = todos.get(ids.next());
+                        if (todo != null && todo.isDone() == done) {
+                            return todo;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Todo next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Todo current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+    }
+}
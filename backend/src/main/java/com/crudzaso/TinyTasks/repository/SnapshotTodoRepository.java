@@ -0,0 +1,177 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-optimized implementation of {@link TodoRepository} for workloads that list far
+ * more often than they write. Tasks live in a {@link TodoRepositoryImp}; on top of it an
+ * immutable, versioned array of every task is published copy-on-write. {@link #findAll()}
+ * returns that array as a read-only list without locking or allocating as long as the
+ * store version has not moved, and full-list pages are served as views into it.
+ *
+ * <p>The snapshot is rebuilt lazily: a mutation only bumps the version, and the first
+ * read after it copies the store once while later readers reuse the copy. Rebuilds are
+ * serialized, so a burst of readers after a write does not copy the store many times.
+ * Lists returned by {@link #findAll()} and {@link #findPage(int, int)} are unmodifiable.
+ * Selected with {@code tinytasks.repository.type=snapshot}.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "snapshot")
+public class SnapshotTodoRepository implements TodoRepository {
+
+    /**
+     * Every task at {@code version}, in id order, and the read-only list handed out for it.
+     *
+     * @param version store version the array holds every change of
+     * @param todos tasks in id order; never written after publication
+     * @param view unmodifiable list over {@code todos}
+     */
+    private record Snapshot(long version, Todo[] todos, List<Todo> view) {
+
+        static Snapshot of(long version, List<Todo> todos) {
+            Todo[] array = todos.toArray(new Todo[0]);
+            return new Snapshot(version, array, Collections.unmodifiableList(Arrays.asList(array)));
+        }
+
+        /** Position of the first task with an id greater than {@code afterId} */
+        int indexAfter(int afterId) {
+            int low = 0;
+            int high = todos.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (todos[mid].getId() <= afterId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final TodoRepositoryImp memory = new TodoRepositoryImp();
+
+    private volatile Snapshot snapshot = Snapshot.of(memory.version(), List.of());
+
+    /** Lets one reader at a time rebuild a stale snapshot */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Returns the published snapshot, rebuilding it first if a mutation made it stale.
+     * The store is copied after its version is read, so the copy holds at least every
+     * change counted in that version.
+     *
+     * @return list of all {@link Todo} objects; unmodifiable and shared between callers
+     */
+    @Override
+    public List<Todo> findAll() {
+        return current().view();
+    }
+
+    /**
+     * Serves the page as a view of the snapshot when it is current; while writes are
+     * pending a rebuild, walks the store instead of copying all of it for one page.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} {@link Todo} objects; unmodifiable
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        Snapshot published = snapshot;
+        if (published.version() != memory.version()) {
+            return Collections.unmodifiableList(memory.findPage(afterId, limit));
+        }
+        int from = published.indexAfter(afterId);
+        int to = (int) Math.min(published.todos().length, (long) from + limit);
+        return published.view().subList(from, to);
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return memory.save(todo);
+    }
+
+    @Override
+    public Optional<Todo> toggle(int id) {
+        return memory.toggle(id);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return memory.delete(id);
+    }
+
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        return memory.saveAll(todos);
+    }
+
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        return memory.toggleAll(ids);
+    }
+
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        return memory.deleteAll(ids);
+    }
+
+    @Override
+    public int count() {
+        return memory.count();
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        return memory.countByDone(done);
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        return memory.findByDone(done, afterId, limit);
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        return memory.search(query, offset, limit);
+    }
+
+    @Override
+    public long version() {
+        return memory.version();
+    }
+
+    private Snapshot current() {
+        long version = memory.version();
+        Snapshot published = snapshot;
+        if (published.version() == version) {
+            return published;
+        }
+        rebuildLock.lock();
+        try {
+            published = snapshot;
+            if (published.version() >= version) {
+                // Another reader rebuilt it while this one waited
+                return published;
+            }
+            version = memory.version();
+            published = Snapshot.of(version, memory.findAll());
+            snapshot = published;
+            return published;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier of the in-memory engine: completed tasks moved out of the heap into
+ * append-only segment files of Deflate-compressed blocks.
+ * <pre>
+ * segment  archive-NNNNNN.seg, blocks back to back, rolled once it reaches the segment size
+ * block    rawLength:int compressedLength:int crc32c:int deflated payload
+ * payload  per task, in id order: id:int createdAt:long completedAt:long titleLength:int title
+ * </pre>
+ *
+ * <p>The heap keeps only an id-sorted index of 12 bytes per archived task: its id and the
+ * location of its block (segment number and offset). A lookup reads and inflates one block;
+ * a page inflates each block it touches once, and the last decoded block is kept for the
+ * next call. Removing a task, because it is deleted or reopened, drops it from the index;
+ * its bytes stay in the segment.
+ *
+ * <p>Segments only live as long as the process, like the rest of the memory engine: opening
+ * an archive clears any segments left in its directory, and closing it deletes its own.
+ */
+final class TodoArchive implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int TASK_HEADER_SIZE = 24;
+
+    /** Location of an index entry whose task was removed; dropped at the next merge */
+    private static final long REMOVED = -1L;
+
+    /** Bits of a location holding the offset within its segment */
+    private static final int OFFSET_BITS = 40;
+
+    /**
+     * Tasks of one inflated block.
+     *
+     * @param location segment and offset the block was read from
+     * @param todos tasks in id order
+     */
+    private record Block(long location, Todo[] todos) {
+
+        Todo find(int id) {
+            int low = 0;
+            int high = todos.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = todos[mid].getId();
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return todos[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Path directory;
+    private final int blockSize;
+    private final long segmentSize;
+
+    /** Every segment by number; read with positional reads, only the last one is appended to */
+    private final List<FileChannel> segments = new CopyOnWriteArrayList<>();
+
+    /** Serializes appends and segment rolls */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** Guards the index arrays; block reads happen outside it */
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    private int[] ids = new int[0];
+    private long[] locations = new long[0];
+    private int size;
+    private int removed;
+
+    private volatile Block lastBlock;
+    private volatile long diskBytes;
+
+    private TodoArchive(Path directory, int blockSize, long segmentSize) {
+        this.directory = directory;
+        this.blockSize = blockSize;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens an empty archive, deleting segments a previous process left in the directory.
+     *
+     * @param directory folder for segment files, created if missing
+     * @param blockSize uncompressed bytes gathered before a block is compressed and written
+     * @param segmentSize bytes after which a new segment file is started
+     * @return the archive
+     * @throws IOException if the directory cannot be prepared
+     */
+    static TodoArchive open(Path directory, int blockSize, long segmentSize) throws IOException {
+        if (blockSize < 1 || segmentSize < 1 || segmentSize >= 1L << OFFSET_BITS) {
+            throw new IllegalArgumentException("Archive block and segment sizes must be positive");
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(TodoArchive::isSegment).toList()) {
+                Files.delete(file);
+            }
+        }
+        return new TodoArchive(directory, blockSize, segmentSize);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Writes tasks to new blocks and adds them to the index. A task already archived
+     * under the same id is replaced.
+     *
+     * @param todos the tasks to archive, in any order
+     * @throws IOException if the blocks cannot be written; the index is then left unchanged
+     */
+    void append(List<Todo> todos) throws IOException {
+        if (todos.isEmpty()) {
+            return;
+        }
+        List<Todo> sorted = new ArrayList<>(todos);
+        sorted.sort(Comparator.comparingInt(Todo::getId));
+        int[] newIds = new int[sorted.size()];
+        long[] newLocations = new long[sorted.size()];
+        appendLock.lock();
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(blockSize + 256);
+            DataOutputStream out = new DataOutputStream(raw);
+            int blockStart = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                Todo todo = sorted.get(i);
+                byte[] title = todo.getTitle().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(todo.getId());
+                out.writeLong(todo.getCreatedAt());
+                out.writeLong(todo.getCompletedAt());
+                out.writeInt(title.length);
+                out.write(title);
+                newIds[i] = todo.getId();
+                if (raw.size() >= blockSize || i == sorted.size() - 1) {
+                    Arrays.fill(newLocations, blockStart, i + 1, writeBlock(raw.toByteArray()));
+                    raw.reset();
+                    blockStart = i + 1;
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        merge(newIds, newLocations);
+    }
+
+    /**
+     * Finds an archived task.
+     *
+     * @param id the task identifier
+     * @return the task, or empty if it is not archived
+     * @throws UncheckedIOException if its block cannot be read
+     */
+    Optional<Todo> find(int id) {
+        long location;
+        indexLock.readLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            location = index < 0 ? REMOVED : locations[index];
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return location == REMOVED ? Optional.empty() : Optional.ofNullable(block(location).find(id));
+    }
+
+    /**
+     * Retrieves archived tasks after a cursor, in ascending id order.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} tasks
+     * @throws UncheckedIOException if a block cannot be read
+     */
+    List<Todo> page(int afterId, int limit) {
+        int[] pageIds = new int[Math.min(limit, 256)];
+        long[] pageLocations = new long[pageIds.length];
+        int found = 0;
+        indexLock.readLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, afterId);
+            for (index = index < 0 ? -index - 1 : index + 1; index < size && found < limit; index++) {
+                if (locations[index] == REMOVED) {
+                    continue;
+                }
+                if (found == pageIds.length) {
+                    pageIds = Arrays.copyOf(pageIds, pageIds.length * 2);
+                    pageLocations = Arrays.copyOf(pageLocations, pageIds.length);
+                }
+                pageIds[found] = ids[index];
+                pageLocations[found++] = locations[index];
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        List<Todo> page = new ArrayList<>(found);
+        Block block = null;
+        for (int i = 0; i < found; i++) {
+            if (block == null || block.location() != pageLocations[i]) {
+                block = block(pageLocations[i]);
+            }
+            Todo todo = block.find(pageIds[i]);
+            if (todo != null) {
+                page.add(todo);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops a task from the archive.
+     *
+     * @param id the task identifier
+     * @param onRemoved receives the task before any other caller can observe it gone,
+     *                  or null if the caller does not need it
+     * @return true if the task was archived
+     * @throws UncheckedIOException if {@code onRemoved} is given and the block cannot be read
+     */
+    boolean remove(int id, Consumer<Todo> onRemoved) {
+        indexLock.writeLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0 || locations[index] == REMOVED) {
+                return false;
+            }
+            if (onRemoved != null) {
+                onRemoved.accept(block(locations[index]).find(id));
+            }
+            locations[index] = REMOVED;
+            removed++;
+            return true;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of archived tasks.
+     *
+     * @return tasks in the index
+     */
+    int count() {
+        indexLock.readLock().lock();
+        try {
+            return size - removed;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the compressed bytes written to segments, removed tasks included.
+     *
+     * @return bytes on disk
+     */
+    long diskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Closes and deletes every segment.
+     *
+     * @throws IOException if a segment cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            for (int number = 0; number < segments.size(); number++) {
+                segments.get(number).close();
+                Files.deleteIfExists(segmentPath(number));
+            }
+            segments.clear();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Compresses and appends one block; returns its location. Called under {@link #appendLock}. */
+    private long writeBlock(byte[] raw) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed;
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            compressed = out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(compressed);
+        ByteBuffer frame = ByteBuffer.allocate(BLOCK_HEADER_SIZE + compressed.length)
+                .putInt(raw.length).putInt(compressed.length).putInt((int) crc.getValue()).put(compressed)
+                .flip();
+
+        FileChannel segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.size() >= segmentSize) {
+            segment = FileChannel.open(segmentPath(segments.size()),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.add(segment);
+        }
+        long offset = segment.size();
+        while (frame.hasRemaining()) {
+            segment.write(frame, offset + frame.position());
+        }
+        diskBytes += frame.limit();
+        return ((long) (segments.size() - 1) << OFFSET_BITS) | offset;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /** Adds newly written ids to the index, dropping removed entries on the way */
+    private void merge(int[] newIds, long[] newLocations) {
+        indexLock.writeLock().lock();
+        try {
+            int[] mergedIds = new int[size - removed + newIds.length];
+            long[] mergedLocations = new long[mergedIds.length];
+            int count = 0;
+            int old = 0;
+            int added = 0;
+            while (old < size || added < newIds.length) {
+                if (old < size && locations[old] == REMOVED) {
+                    old++;
+                } else if (added == newIds.length || (old < size && ids[old] < newIds[added])) {
+                    mergedIds[count] = ids[old];
+                    mergedLocations[count++] = locations[old++];
+                } else {
+                    if (old < size && ids[old] == newIds[added]) {
+                        old++;
+                    }
+                    mergedIds[count] = newIds[added];
+                    mergedLocations[count++] = newLocations[added++];
+                }
+            }
+            ids = mergedIds;
+            locations = mergedLocations;
+            size = count;
+            removed = 0;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private Block block(long location) {
+        Block cached = lastBlock;
+        if (cached != null && cached.location() == location) {
+            return cached;
+        }
+        try {
+            FileChannel segment = segments.get((int) (location >>> OFFSET_BITS));
+            long offset = location & ((1L << OFFSET_BITS) - 1);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            readFully(segment, header, offset);
+            int rawLength = header.getInt(0);
+            byte[] compressed = new byte[header.getInt(4)];
+            readFully(segment, ByteBuffer.wrap(compressed), offset + BLOCK_HEADER_SIZE);
+            CRC32C crc = new CRC32C();
+            crc.update(compressed);
+            if ((int) crc.getValue() != header.getInt(8)) {
+                throw new IOException("Corrupt archive block at " + offset + " of segment " + (location >>> OFFSET_BITS));
+            }
+            Block block = new Block(location, decode(inflate(compressed, rawLength)));
+            lastBlock = block;
+            return block;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Truncated archive block at " + position);
+            }
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Archive block inflated to " + length + " bytes, expected " + rawLength);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static Todo[] decode(byte[] raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        List<Todo> todos = new ArrayList<>();
+        while (buffer.remaining() >= TASK_HEADER_SIZE) {
+            int id = buffer.getInt();
+            long createdAt = buffer.getLong();
+            long completedAt = buffer.getLong();
+            byte[] title = new byte[buffer.getInt()];
+            buffer.get(title);
+            todos.add(new Todo(id, new String(title, StandardCharsets.UTF_8), true, createdAt, completedAt));
+        }
+        return todos.toArray(new Todo[0]);
+    }
+}
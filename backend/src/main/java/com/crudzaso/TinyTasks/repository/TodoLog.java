@@ -0,0 +1,261 @@
+package com.crudzaso.TinyTasks.repository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One append-only segment of the write-ahead log, written through a {@link FileChannel}.
+ * Every record is framed as {@code [payloadLength:int][crc32c:int][payload]} so a
+ * torn write at the tail is detected and discarded on recovery. A write that fails is
+ * truncated away at once, so later records never follow a torn frame.
+ *
+ * <p>Durability uses group commit: {@link #sync(long)} forces the channel once for
+ * every record appended so far, and writers waiting behind an in-flight force usually
+ * find their record already covered when it completes.
+ */
+final class TodoLog implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Opens the channel behind a segment.
+     */
+    @FunctionalInterface
+    interface Channels {
+
+        /** Opens the segment file for reading and writing, creating it if missing */
+        Channels FILES = path -> FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        /**
+         * Opens a segment file.
+         *
+         * @param path the segment file
+         * @return a channel positioned anywhere; the caller moves it
+         * @throws IOException if the file cannot be opened
+         */
+        FileChannel open(Path path) throws IOException;
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+
+    /** Serializes appends; held only for the duration of a write syscall */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** Ensures a single force is in flight; later writers queue behind it */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer frame = ByteBuffer.allocateDirect(64 * 1024);
+
+    /** Number of records written to the channel */
+    private volatile long appendedSeq;
+
+    /** Number of records known to be forced to disk */
+    private volatile long durableSeq;
+
+    private TodoLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a segment for appending, discarding anything after {@code validLength}.
+     *
+     * @param path the segment file, created if missing
+     * @param validLength length returned by {@link #replay(Path, Consumer)}, 0 for a new segment
+     * @return the opened segment
+     * @throws IOException if the file cannot be opened
+     */
+    static TodoLog open(Path path, long validLength) throws IOException {
+        return open(path, validLength, Channels.FILES);
+    }
+
+    /**
+     * Opens a segment for appending through the given channels.
+     *
+     * @param path the segment file
+     * @param validLength length returned by {@link #replay(Path, Consumer)}, 0 for a new segment
+     * @param channels opens the file
+     * @return the opened segment
+     * @throws IOException if the file cannot be opened
+     */
+    static TodoLog open(Path path, long validLength, Channels channels) throws IOException {
+        FileChannel channel = channels.open(path);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new TodoLog(path, channel);
+    }
+
+    /**
+     * Reads every intact record of a segment in order.
+     * Reading stops at the first truncated or corrupt frame.
+     *
+     * @param path the segment file
+     * @param consumer receives each decoded record
+     * @return the byte length of the intact prefix of the file
+     * @throws IOException if the file cannot be read
+     */
+    static long replay(Path path, Consumer<TodoLogRecord> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                int expectedCrc;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < TodoLogRecord.FIXED_SIZE || length > (1 << 24)) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                consumer.accept(TodoLogRecord.decode(ByteBuffer.wrap(payload)));
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Appends one record to the segment.
+     *
+     * @param record the mutation to log
+     * @return sequence number to pass to {@link #sync(long)}
+     * @throws IOException if the write fails
+     */
+    long append(TodoLogRecord record) throws IOException {
+        return append(List.of(record));
+    }
+
+    /**
+     * Appends several records with a single write.
+     *
+     * @param records the mutations to log, in order
+     * @return sequence number of the last record, to pass to {@link #sync(long)}
+     * @throws IOException if the write fails; whatever part of it reached the file is cut off
+     *         again unless truncating fails too, which is then added as suppressed
+     */
+    long append(List<TodoLogRecord> records) throws IOException {
+        appendLock.lock();
+        long start = -1;
+        try {
+            frame.clear();
+            for (TodoLogRecord record : records) {
+                byte[] payload = record.encode();
+                ensureCapacity(HEADER_SIZE + payload.length);
+                checksum.reset();
+                checksum.update(payload);
+                frame.putInt(payload.length).putInt((int) checksum.getValue()).put(payload);
+            }
+            frame.flip();
+            start = channel.position();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            appendedSeq += records.size();
+            return appendedSeq;
+        } catch (IOException e) {
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException truncation) {
+                    e.addSuppressed(truncation);
+                }
+            }
+            throw e;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk.
+     *
+     * @param seq value returned by {@link #append(TodoLogRecord)}
+     * @throws IOException if the force fails
+     */
+    void sync(long seq) throws IOException {
+        if (durableSeq >= seq) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableSeq >= seq) {
+                return;
+            }
+            long target = appendedSeq;
+            channel.force(false);
+            durableSeq = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces every record appended so far.
+     *
+     * @throws IOException if the force fails
+     */
+    void sync() throws IOException {
+        sync(appendedSeq);
+    }
+
+    /**
+     * Gets the segment file.
+     *
+     * @return the path of this segment
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Gets the current size of the segment.
+     *
+     * @return size in bytes
+     * @throws IOException if the size cannot be read
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    private void ensureCapacity(int extra) {
+        if (frame.remaining() < extra) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(frame.capacity() * 2, frame.position() + extra));
+            frame.flip();
+            larger.put(frame);
+            frame = larger;
+        }
+    }
+}
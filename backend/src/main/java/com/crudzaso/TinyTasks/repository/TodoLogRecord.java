@@ -0,0 +1,141 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single mutation of the todo store, as written to the write-ahead log.
+ * Toggles are recorded as the resulting done value and completion time, so replaying a
+ * record more than once always yields the same state, timestamps included.
+ *
+ * <p>Payload layout: {@code [version|type:byte][id:int][done:byte][createdAt:long][completedAt:long]
+ * [titleLength:int][title:UTF-8]}. The high nibble of the first byte is the format version.
+ * Version 0 records, written before tasks had timestamps, have no timestamp fields and decode
+ * with both set to 0 (unknown).
+ *
+ * @param type the kind of mutation
+ * @param id the task identifier
+ * @param title the task title, only set for {@link Type#CREATE}
+ * @param done the completion status after the mutation
+ * @param createdAt creation time in epoch milliseconds, only set for {@link Type#CREATE}; 0 if unknown
+ * @param completedAt completion time after the mutation in epoch milliseconds; 0 if pending or unknown
+ */
+public record TodoLogRecord(Type type, int id, String title, boolean done, long createdAt, long completedAt) {
+
+    /** Format version written into the high nibble of the first payload byte */
+    static final int VERSION = 1;
+
+    /** Smallest payload without the title bytes, that of a version 0 record */
+    static final int FIXED_SIZE = 1 + 4 + 1 + 4;
+
+    /** Bytes the timestamps add from version 1 on */
+    private static final int TIMESTAMPS_SIZE = 8 + 8;
+
+    /**
+     * Kind of mutation recorded in the log.
+     */
+    public enum Type {
+        CREATE,
+        SET_DONE,
+        DELETE
+    }
+
+    /**
+     * Creates a record for a newly saved task.
+     *
+     * @param todo the saved task, with its assigned ID
+     * @return the CREATE record
+     */
+    public static TodoLogRecord create(Todo todo) {
+        return new TodoLogRecord(Type.CREATE, todo.getId(), todo.getTitle(), todo.isDone(),
+                todo.getCreatedAt(), todo.getCompletedAt());
+    }
+
+    /**
+     * Creates a record for a completion status change.
+     *
+     * @param todo the task after the change
+     * @return the SET_DONE record
+     */
+    public static TodoLogRecord setDone(Todo todo) {
+        return new TodoLogRecord(Type.SET_DONE, todo.getId(), null, todo.isDone(), 0, todo.getCompletedAt());
+    }
+
+    /**
+     * Creates a record for a removed task.
+     *
+     * @param id the task identifier
+     * @return the DELETE record
+     */
+    public static TodoLogRecord delete(int id) {
+        return new TodoLogRecord(Type.DELETE, id, null, false, 0, 0);
+    }
+
+    /**
+     * Builds the task a {@link Type#CREATE} record describes.
+     *
+     * @return a new {@link Todo} with the recorded fields
+     */
+    public Todo toTodo() {
+        return new Todo(id, title, done, createdAt, completedAt);
+    }
+
+    /**
+     * Applies a {@link Type#SET_DONE} record to a task, keeping the recorded completion time
+     * rather than stamping the time of the replay.
+     *
+     * @param current the task before the mutation
+     * @return a new {@link Todo} with the recorded status
+     */
+    public Todo applyTo(Todo current) {
+        return new Todo(current.getId(), current.getTitle(), done, current.getCreatedAt(), completedAt);
+    }
+
+    /**
+     * Encodes the payload of this record.
+     *
+     * @return the encoded bytes
+     */
+    byte[] encode() {
+        byte[] titleBytes = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + TIMESTAMPS_SIZE + titleBytes.length);
+        buffer.put((byte) (VERSION << 4 | type.ordinal()))
+                .putInt(id)
+                .put((byte) (done ? 1 : 0))
+                .putLong(createdAt)
+                .putLong(completedAt)
+                .putInt(titleBytes.length)
+                .put(titleBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a payload produced by {@link #encode()}.
+     *
+     * @param payload buffer positioned at the start of the payload
+     * @return the decoded record
+     * @throws IllegalStateException if the record was written by a newer format version
+     */
+    static TodoLogRecord decode(ByteBuffer payload) {
+        int first = payload.get() & 0xFF;
+        int version = first >>> 4;
+        if (version > VERSION) {
+            throw new IllegalStateException("Unsupported todo log record version " + version);
+        }
+        Type type = Type.values()[first & 0x0F];
+        int id = payload.getInt();
+        boolean done = payload.get() != 0;
+        long createdAt = version > 0 ? payload.getLong() : 0;
+        long completedAt = version > 0 ? payload.getLong() : 0;
+        int titleLength = payload.getInt();
+        String title = null;
+        if (type == Type.CREATE) {
+            byte[] titleBytes = new byte[titleLength];
+            payload.get(titleBytes);
+            title = new String(titleBytes, StandardCharsets.UTF_8);
+        }
+        return new TodoLogRecord(type, id, title, done, createdAt, completedAt);
+    }
+}
@@ -1,8 +1,10 @@
 package com.crudzaso.TinyTasks.repository;
 
 import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /**
  * Repository interface for Todo data access operations.
@@ -17,13 +19,23 @@ public interface TodoRepository {
      */
     List<Todo> findAll();
 
+    /**
+     * Retrieves one page of tasks in ascending id order using keyset pagination.
+     * Pass the last id of the previous page as the cursor, or 0 for the first page.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} {@link Todo} objects
+     */
+    List<Todo> findPage(int afterId, int limit);
+
     /**
      * Finds a task by its unique identifier.
      *
      * @param id the task identifier
      * @return Optional containing the {@link Todo} if found, empty otherwise
      */
-    Optional<Todo> findById(Integer id);
+    Optional<Todo> findById(int id);
 
     /**
      * Saves a new task and assigns an auto-generated ID.
@@ -33,11 +45,200 @@ public interface TodoRepository {
      */
     Todo save(Todo todo);
 
+    /**
+     * Inverts the completion status of a task as a single atomic operation.
+     * Concurrent toggles of the same task are never lost.
+     *
+     * @param id the task identifier
+     * @return Optional containing the updated {@link Todo} if found, empty otherwise
+     */
+    Optional<Todo> toggle(int id);
+
     /**
      * Removes a task from the data store.
      *
      * @param id the task identifier
+     * @return true if the task existed and was removed, false otherwise
+     */
+    boolean delete(int id);
+
+    /**
+     * Counts the stored tasks without copying them.
+     * Implementations should override this with a constant-time count.
+     *
+     * @return number of stored tasks
+     */
+    default int count() {
+        return findAll().size();
+    }
+
+    /**
+     * Counts the tasks with the given completion status.
+     * Implementations should override this with a constant-time count.
+     *
+     * @param done true to count completed tasks, false for pending ones
+     * @return number of matching tasks
+     */
+    default int countByDone(boolean done) {
+        return (int) findAll().stream().filter(todo -> todo.isDone() == done).count();
+    }
+
+    /**
+     * Retrieves one page of tasks with the given completion status, in ascending id order.
+     * The default walks {@link #findPage(int, int)} and filters; implementations with a
+     * secondary index should override it.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     */
+    default List<Todo> findByDone(boolean done, int afterId, int limit) {
+        List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+        int cursor = afterId;
+        List<Todo> chunk;
+        do {
+            chunk = findPage(cursor, 256);
+            for (Todo todo : chunk) {
+                if (todo.isDone() == done && page.size() < limit) {
+                    page.add(todo);
+                }
+                cursor = todo.getId();
+            }
+        } while (page.size() < limit && chunk.size() == 256);
+        return page;
+    }
+
+    /**
+     * Searches task titles with the rules of {@link TodoSearchIndex}: every query token must
+     * appear in the title, the last one possibly as a prefix, and whole-word matches rank first.
+     * The default builds a throwaway index from {@link #findAll()}; implementations should
+     * keep a {@link TodoSearchIndex} up to date instead.
+     *
+     * @param query free text to search for
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @return the total number of hits and the requested page
+     */
+    default TodoSearchResult search(String query, int offset, int limit) {
+        TodoSearchIndex index = new TodoSearchIndex();
+        Map<Integer, Todo> byId = new HashMap<>();
+        for (Todo todo : findAll()) {
+            index.add(todo.getId(), todo.getTitle());
+            byId.put(todo.getId(), todo);
+        }
+        return index.search(query, offset, limit, byId::get);
+    }
+
+    /**
+     * Gets the store version, which grows with every successful mutation.
+     * It is bumped after the change is visible, so a list read after observing version
+     * {@code v} reflects at least every mutation counted in {@code v}; equal versions
+     * therefore mean callers may reuse a previously built response.
+     *
+     * @return the current version, or -1 if the engine does not track one
+     */
+    default long version() {
+        return -1;
+    }
+
+    /**
+     * Tells whether every task may be read into the heap at once, as {@link #findAll()} does.
+     * Engines built for task sets larger than the heap return false; callers then walk
+     * {@link #findPage(int, int)} instead of asking for the whole list.
+     *
+     * @return true unless the store may outgrow the heap
+     */
+    default boolean fitsInHeap() {
+        return true;
+    }
+
+    /**
+     * Counts the tasks moved to cold storage, which {@link #count()} and {@link #findAll()}
+     * leave out. Engines without a cold tier have none, which is the default.
+     *
+     * @return number of archived tasks
+     */
+    default int countArchived() {
+        return 0;
+    }
+
+    /**
+     * Retrieves one page of archived tasks in ascending id order, using keyset pagination
+     * like {@link #findPage(int, int)}. Archived tasks remain reachable through
+     * {@link #findById(int)}, but only this method lists them.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} archived {@link Todo} objects
+     */
+    default List<Todo> findArchivedPage(int afterId, int limit) {
+        return List.of();
+    }
+
+    /**
+     * Registers a callback for mutations that reach the store without going through this
+     * node's own repository calls, such as writes replicated from another node.
+     * The callback receives the task id after the change is visible. Engines whose data only
+     * changes through their own methods can ignore it, which is the default.
+     *
+     * @param listener receives the id of every externally changed task
+     */
+    default void addRemoteChangeListener(IntConsumer listener) {
+    }
+
+    /**
+     * Estimates the heap retained by the stored tasks, for monitoring.
+     *
+     * @return approximate size in bytes, or -1 if the engine does not track it
+     */
+    default long estimatedBytes() {
+        return -1;
+    }
+
+    /**
+     * Saves several new tasks in one operation, assigning each an auto-generated ID.
+     * Implementations may override this to amortize locking or I/O over the batch.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    default List<Todo> saveAll(List<Todo> todos) {
+        List<Todo> saved = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            saved.add(save(todo));
+        }
+        return saved;
+    }
+
+    /**
+     * Toggles several tasks in one operation.
+     * Implementations may override this to amortize locking or I/O over the batch.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found, empty otherwise
+     */
+    default List<Optional<Todo>> toggleAll(int[] ids) {
+        List<Optional<Todo>> toggled = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            toggled.add(toggle(id));
+        }
+        return toggled;
+    }
+
+    /**
+     * Removes several tasks in one operation.
+     * Implementations may override this to amortize locking or I/O over the batch.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
      */
-    void delete(int id);
+    default boolean[] deleteAll(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            deleted[i] = delete(ids[i]);
+        }
+        return deleted;
+    }
 
 }
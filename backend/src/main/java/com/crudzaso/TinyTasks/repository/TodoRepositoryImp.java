@@ -1,23 +1,142 @@
 package com.crudzaso.TinyTasks.repository;
 
+import com.crudzaso.TinyTasks.config.ArchiveProperties;
 import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * In-memory implementation of {@link TodoRepository}.
- * Uses HashMap for storage with auto-incrementing IDs.
- * Data is volatile and not thread-safe.
+ * Uses a ConcurrentSkipListMap for storage with atomically allocated IDs,
+ * which keeps todos in id order for keyset pagination.
+ * Completed and pending ids are kept in two secondary indexes for filtered pages and counts,
+ * and titles in a {@link TodoSearchIndex}.
+ * Data is volatile but safe to share across request threads.
+ * This is the default engine ({@code tinytasks.repository.type=memory}).
+ *
+ * <p>With {@link ArchiveProperties#enabled()} the engine has a cold tier: tasks completed more
+ * than {@link ArchiveProperties#age()} ago are periodically moved into a {@link TodoArchive},
+ * so lists, counts and the indexes only cover the hot set. Archived tasks are still found by
+ * {@link #findById(int)}, listed by {@link #findArchivedPage(int, int)}, and come back to the
+ * hot set when reopened. They are no longer matched by {@link #search(String, int, int)}.
  */
 @Repository
-public class TodoRepositoryImp implements TodoRepository {
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "memory", matchIfMissing = true)
+public class TodoRepositoryImp implements TodoRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoRepositoryImp.class);
 
     /** Internal storage for todos, mapped by ID */
-    private final Map<Integer, Todo> todos = new HashMap<>();
+    private final ConcurrentNavigableMap<Integer, Todo> todos = new ConcurrentSkipListMap<>();
 
     /** Counter for auto-incrementing IDs */
-    private Integer nextId = 1;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /** Number of stored todos; the skip list's own size() walks every node */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Secondary indexes: ids of completed and of pending todos, in id order */
+    private final ConcurrentSkipListSet<Integer> doneIds = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<Integer> pendingIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger doneCount = new AtomicInteger();
+
+    private final TodoSearchIndex searchIndex = new TodoSearchIndex();
+
+    /** Bumped after every successful mutation */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Striped locks serializing index maintenance per id */
+    private final ReentrantLock[] indexLocks = new ReentrantLock[64];
+
+    /** Cold tier; null unless archiving is enabled */
+    private final TodoArchive archive;
+
+    /** Runs {@link #archiveCompleted(long)} periodically; null unless archiving is enabled */
+    private final ScheduledExecutorService archiver;
+
+    /** Age in milliseconds after which completed tasks are archived */
+    private final long archiveAge;
+
+    /** Delay in milliseconds between archiving runs */
+    private final long archivePeriod;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /** Serializes archiving runs */
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    /**
+     * Creates an empty store without a cold tier.
+     */
+    public TodoRepositoryImp() {
+        Arrays.setAll(indexLocks, stripe -> new ReentrantLock());
+        this.archive = null;
+        this.archiver = null;
+        this.archiveAge = 0;
+        this.archivePeriod = 0;
+    }
+
+    /**
+     * Creates an empty store, with a cold tier if archiving is enabled.
+     *
+     * @param properties archive settings
+     * @throws IOException if the archive directory cannot be prepared
+     */
+    @Autowired
+    public TodoRepositoryImp(ArchiveProperties properties) throws IOException {
+        Arrays.setAll(indexLocks, stripe -> new ReentrantLock());
+        if (!properties.enabled()) {
+            this.archive = null;
+            this.archiver = null;
+            this.archiveAge = 0;
+            this.archivePeriod = 0;
+            return;
+        }
+        this.archive = TodoArchive.open(properties.directory(), properties.blockSize(), properties.segmentSize());
+        this.archiver = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("tinytasks-archiver").daemon().factory());
+        this.archiveAge = properties.age().toMillis();
+        this.archivePeriod = Math.max(1, properties.interval().toMillis());
+    }
+
+    /**
+     * Starts archiving in the background if a cold tier is configured. Called by Spring once
+     * the store is constructed; callers outside Spring call it themselves or call
+     * {@link #archiveCompleted(long)}. Calling it again has no effect.
+     */
+    @PostConstruct
+    public void start() {
+        if (archiver == null || !started.compareAndSet(false, true)) {
+            return;
+        }
+        archiver.scheduleWithFixedDelay(() -> {
+            try {
+                archiveCompleted(System.currentTimeMillis() - archiveAge);
+            } catch (IOException | RuntimeException e) {
+                log.error("Archiving completed todos failed; they stay in memory", e);
+            }
+        }, archivePeriod, archivePeriod, TimeUnit.MILLISECONDS);
+    }
 
     /**
      * Retrieves all stored tasks as a new list.
@@ -30,38 +149,342 @@ public class TodoRepositoryImp implements TodoRepository {
     }
 
     /**
-     * Finds a task by ID using HashMap lookup.
+     * Walks the id-ordered map from the cursor without copying the rest of the store.
+     *
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} {@link Todo} objects
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+        for (Todo todo : todos.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(todo);
+        }
+        return page;
+    }
+
+    /**
+     * Finds a task by ID using a lock-free map lookup, then in the archive if it is not in memory.
      *
      * @param id the task identifier
      * @return Optional containing the {@link Todo} if found, empty otherwise
      */
     @Override
-    public Optional<Todo> findById(Integer id){
-        return Optional.ofNullable(todos.get(id));
+    public Optional<Todo> findById(int id){
+        Todo todo = todos.get(id);
+        if (todo != null || archive == null) {
+            return Optional.ofNullable(todo);
+        }
+        Optional<Todo> archived = archive.find(id);
+        // A concurrent reopen moves the task back to memory before dropping it from the archive
+        return archived.isPresent() ? archived : Optional.ofNullable(todos.get(id));
     }
 
     /**
      * Saves a task with auto-generated ID.
-     * Assigns the next available ID and stores in HashMap.
+     * The ID is reserved atomically, so concurrent saves never share one.
      *
      * @param todo the task to save
      * @return the saved {@link Todo} with assigned ID
      */
     @Override
     public Todo save(Todo todo) {
-        todo.setId(nextId++);
+        todo.setId(nextId.getAndIncrement());
         todos.put(todo.getId(), todo);
+        size.incrementAndGet();
+        reindex(todo.getId());
+        searchIndex.add(todo.getId(), todo.getTitle());
+        version.incrementAndGet();
         return todo;
     }
 
+    /**
+     * Toggles a task by swapping in a new {@link Todo} inside the map's
+     * per-key atomic update, so readers never observe a half-applied change.
+     *
+     * @param id the task identifier
+     * @return Optional containing the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> toggle(int id) {
+        Todo toggled = todos.computeIfPresent(id,
+                (key, current) -> current.withDone(!current.isDone()));
+        if (toggled == null) {
+            return reopenArchived(id);
+        }
+        reindex(id);
+        version.incrementAndGet();
+        return Optional.of(toggled);
+    }
+
     /**
      * Removes a task from storage by ID.
      *
      * @param id the task identifier
+     * @return true if the task existed and was removed, false otherwise
+     */
+    @Override
+    public boolean delete(int id) {
+        if (todos.remove(id) == null) {
+            if (archive != null && archive.remove(id, null)) {
+                version.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+        size.decrementAndGet();
+        reindex(id);
+        searchIndex.remove(id);
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public int count() {
+        return size.get();
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        return done ? doneCount.get() : size.get() - doneCount.get();
+    }
+
+    /**
+     * Walks the matching secondary index from the cursor, so the cost depends on
+     * the page size rather than on how many tasks have the other status.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId only tasks with an id strictly greater than this are returned
+     * @param limit maximum number of tasks in the page
+     * @return list of at most {@code limit} matching {@link Todo} objects
      */
     @Override
-    public void delete(int id) {
-        todos.remove(id);
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+        for (Integer id : (done ? doneIds : pendingIds).tailSet(afterId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            Todo todo = todos.get(id);
+            // The index can briefly trail a concurrent toggle or delete; the map is authoritative
+            if (todo != null && todo.isDone() == done) {
+                page.add(todo);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public int countArchived() {
+        return archive == null ? 0 : archive.count();
+    }
+
+    @Override
+    public List<Todo> findArchivedPage(int afterId, int limit) {
+        return archive == null ? List.of() : archive.page(afterId, limit);
+    }
+
+    /**
+     * Moves every task completed at or before the given time from memory to the archive.
+     * Each task leaves memory only if it is unchanged since it was written out; one that is
+     * toggled or deleted meanwhile stays in memory and is dropped from the archive again.
+     *
+     * @param completedBefore epoch milliseconds; tasks with an unknown completion time are kept
+     * @return the number of tasks archived
+     * @throws IOException if the archive cannot be written; every task then stays in memory
+     * @throws IllegalStateException if archiving is not enabled
+     */
+    public int archiveCompleted(long completedBefore) throws IOException {
+        if (archive == null) {
+            throw new IllegalStateException("Archiving is not enabled");
+        }
+        archiveLock.lock();
+        try {
+            List<Todo> candidates = new ArrayList<>();
+            for (Integer id : doneIds) {
+                Todo todo = todos.get(id);
+                if (todo != null && todo.isDone() && todo.getCompletedAt() != 0
+                        && todo.getCompletedAt() <= completedBefore) {
+                    candidates.add(todo);
+                }
+            }
+            archive.append(candidates);
+            int archived = 0;
+            for (Todo todo : candidates) {
+                // Compares by identity: a toggle swaps in a new instance
+                if (todos.remove(todo.getId(), todo)) {
+                    size.decrementAndGet();
+                    reindex(todo.getId());
+                    searchIndex.remove(todo.getId());
+                    archived++;
+                } else {
+                    archive.remove(todo.getId(), null);
+                }
+            }
+            if (archived > 0) {
+                version.incrementAndGet();
+                log.debug("Archived {} completed todos", archived);
+            }
+            return archived;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    /**
+     * Stops archiving and deletes the archive's segments, which are only valid for this process.
+     *
+     * @throws IOException if the segments cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (archive != null) {
+            archiver.shutdownNow();
+            archive.close();
+        }
+    }
+
+    /**
+     * Toggles an archived task, which is always completed, back to pending in memory.
+     * It is restored before it leaves the archive, so readers always find it in one tier.
+     */
+    private Optional<Todo> reopenArchived(int id) {
+        if (archive == null) {
+            return Optional.empty();
+        }
+        Todo[] reopened = {null};
+        archive.remove(id, archived -> {
+            reopened[0] = archived.withDone(false);
+            restore(reopened[0]);
+        });
+        return Optional.ofNullable(reopened[0]);
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        return searchIndex.search(query, offset, limit, todos::get);
+    }
+
+    /**
+     * Moves an id to the index matching its current state in the map.
+     * Every mutation calls this after updating the map, and the stripe lock makes the
+     * last call for an id observe the latest value, so the indexes always converge.
+     *
+     * @param id the task identifier
+     */
+    private void reindex(int id) {
+        ReentrantLock lock = indexLocks[id & (indexLocks.length - 1)];
+        lock.lock();
+        try {
+            Todo current = todos.get(id);
+            boolean wasDone = doneIds.contains(id);
+            boolean isDone = current != null && current.isDone();
+            if (isDone != wasDone) {
+                if (isDone) {
+                    doneIds.add(id);
+                } else {
+                    doneIds.remove(id);
+                }
+                doneCount.addAndGet(isDone ? 1 : -1);
+            }
+            if (current != null && !isDone) {
+                pendingIds.add(id);
+            } else {
+                pendingIds.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a logged mutation, keeping the ID it was originally assigned.
+     * Used when rebuilding the store from a snapshot or write-ahead log.
+     *
+     * @param record the mutation to replay
+     */
+    void apply(TodoLogRecord record) {
+        switch (record.type()) {
+            case CREATE -> restore(record.toTodo());
+            case SET_DONE -> {
+                if (todos.computeIfPresent(record.id(), (key, current) -> record.applyTo(current)) != null) {
+                    reindex(record.id());
+                    version.incrementAndGet();
+                }
+            }
+            case DELETE -> delete(record.id());
+        }
+    }
+
+    /**
+     * Stores a task under its existing ID and moves the ID counter past it.
+     *
+     * @param todo the task to restore
+     */
+    void restore(Todo todo) {
+        if (todos.put(todo.getId(), todo) == null) {
+            size.incrementAndGet();
+        }
+        reindex(todo.getId());
+        searchIndex.add(todo.getId(), todo.getTitle());
+        version.incrementAndGet();
+        nextId.accumulateAndGet(todo.getId() + 1, Math::max);
+    }
+
+    /**
+     * Loads a store written by {@link #writeSnapshot(Path)}.
+     *
+     * @param source the snapshot file
+     * @return the restored store, or an empty one if the file does not exist
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static TodoRepositoryImp readSnapshot(Path source) throws IOException {
+        TodoRepositoryImp restored = new TodoRepositoryImp();
+        TodoSnapshot.Header header = TodoSnapshot.read(source, restored::restore);
+        if (header != null) {
+            restored.advanceNextId(header.nextId());
+        }
+        return restored;
+    }
+
+    /**
+     * Writes every task, and the next ID to assign, to a snapshot file.
+     * The file is replaced atomically; concurrent writes may or may not be included.
+     *
+     * @param target the snapshot file; its directory is created if missing
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeSnapshot(Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        TodoSnapshot.write(target, new TodoSnapshot.Header(0, nextId()), this);
+    }
+
+    /**
+     * Gets the ID the next saved task will receive.
+     *
+     * @return the next ID
+     */
+    int nextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Moves the ID counter to at least {@code next}, so IDs assigned to tasks deleted before a
+     * snapshot are not handed out again after it is restored.
+     *
+     * @param next the next ID recorded with the snapshot
+     */
+    void advanceNextId(int next) {
+        nextId.accumulateAndGet(next, Math::max);
     }
 
 }
@@ -0,0 +1,329 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index over task titles.
+ * Titles are split into lowercase, accent-folded tokens; each token maps to the ascending
+ * list of ids whose title contains it. Terms are kept in a sorted dictionary, so the last
+ * query token can also be matched as a prefix for type-ahead.
+ *
+ * <p>A query matches a task when every token appears in its title, the last one possibly
+ * as a prefix. Tasks containing the last token as a whole word rank before prefix-only
+ * matches; within each group newer tasks (higher ids) come first.
+ *
+ * <p>Removals only clear a live bit; postings are rewritten once dead ids outnumber live
+ * ones, so deletes stay cheap even for very common terms. Safe for concurrent use.
+ */
+public final class TodoSearchIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final BitSet live = new BitSet();
+    private int liveCount;
+    private int deadCount;
+
+    /** Ascending id list for one term */
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size == 0 || ids[size - 1] < id) {
+                ids[size++] = id;
+                return;
+            }
+            // Concurrent saves can reach the index slightly out of id order
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+    }
+
+    /**
+     * Splits text into lowercase tokens of letters and digits, with accents removed.
+     *
+     * @param text the text to tokenize, may be null
+     * @return the tokens in order, possibly empty
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Indexes a task title.
+     *
+     * @param id the task identifier
+     * @param title the task title
+     */
+    public void add(int id, String title) {
+        Set<String> tokens = new HashSet<>(tokenize(title));
+        lock.writeLock().lock();
+        try {
+            if (!live.get(id)) {
+                live.set(id);
+                liveCount++;
+            }
+            for (String token : tokens) {
+                terms.computeIfAbsent(token, key -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param id the task identifier
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (!live.get(id)) {
+                return;
+            }
+            live.clear(id);
+            liveCount--;
+            deadCount++;
+            if (deadCount > 1024 && deadCount > liveCount) {
+                purge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query and resolves one page of ranked hits.
+     *
+     * @param query free text; the last token is matched as a prefix
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return
+     * @param resolver looks a task up by id, returning null if it no longer exists
+     * @return the total number of hits and the requested page
+     */
+    public TodoSearchResult search(String query, int offset, int limit, IntFunction<Todo> resolver) {
+        return match(query).page(offset, limit, resolver);
+    }
+
+    /**
+     * Finds every live id matching a query without resolving them, so hits from several
+     * indexes over disjoint ids can be merged before paging.
+     *
+     * @param query free text; the last token is matched as a prefix
+     * @return the matching ids, split by rank group
+     */
+    Hits match(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Hits(new BitSet(), new BitSet());
+        }
+        BitSet exact;
+        BitSet prefixOnly;
+        lock.readLock().lock();
+        try {
+            String last = tokens.get(tokens.size() - 1);
+            exact = new BitSet();
+            prefixOnly = new BitSet();
+            for (Map.Entry<String, Postings> term : terms.subMap(last, true, last + Character.MAX_VALUE, false).entrySet()) {
+                addAll(term.getKey().equals(last) ? exact : prefixOnly, term.getValue());
+            }
+            prefixOnly.andNot(exact);
+            for (String token : tokens.subList(0, tokens.size() - 1)) {
+                Postings postings = terms.get(token);
+                if (postings == null) {
+                    return new Hits(new BitSet(), new BitSet());
+                }
+                BitSet required = addAll(new BitSet(), postings);
+                exact.and(required);
+                prefixOnly.and(required);
+            }
+            exact.and(live);
+            prefixOnly.and(live);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Hits(exact, prefixOnly);
+    }
+
+    /**
+     * Ids matching a query: those containing the last token as a whole word, and the
+     * remaining prefix-only matches.
+     *
+     * @param exact ids ranked in the first group
+     * @param prefixOnly ids ranked in the second group
+     */
+    record Hits(BitSet exact, BitSet prefixOnly) {
+
+        /**
+         * Adds the hits of another index into this one.
+         *
+         * @param other hits over a disjoint set of ids
+         */
+        void addAll(Hits other) {
+            exact.or(other.exact);
+            prefixOnly.or(other.prefixOnly);
+        }
+
+        /**
+         * Resolves one page of ranked hits.
+         *
+         * @param offset number of ranked hits to skip
+         * @param limit maximum number of tasks to return
+         * @param resolver looks a task up by id, returning null if it no longer exists
+         * @return the total number of hits and the requested page
+         */
+        TodoSearchResult page(int offset, int limit, IntFunction<Todo> resolver) {
+            int total = exact.cardinality() + prefixOnly.cardinality();
+            List<Todo> page = new ArrayList<>(Math.min(limit, 256));
+            int skipped = 0;
+            for (BitSet group : List.of(exact, prefixOnly)) {
+                for (int id = group.length() - 1; id >= 0 && page.size() < limit; id = group.previousSetBit(id - 1)) {
+                    if (skipped < offset) {
+                        skipped++;
+                        continue;
+                    }
+                    Todo todo = resolver.apply(id);
+                    if (todo != null) {
+                        page.add(todo);
+                    }
+                }
+            }
+            return new TodoSearchResult(total, page);
+        }
+    }
+
+    /**
+     * Matches titles one at a time with the rules of {@link #match(String)}, for engines that
+     * scan their tasks instead of keeping an index. Only the ids of matching tasks are kept.
+     */
+    static final class Scan {
+
+        private final List<String> required;
+        private final String last;
+        private final Hits hits = new Hits(new BitSet(), new BitSet());
+
+        /**
+         * Prepares a scan for a query.
+         *
+         * @param query free text; the last token is matched as a prefix
+         */
+        Scan(String query) {
+            List<String> tokens = tokenize(query);
+            this.last = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+            this.required = tokens.isEmpty() ? List.of() : tokens.subList(0, tokens.size() - 1);
+        }
+
+        /**
+         * Checks one task against the query and records it if it matches.
+         *
+         * @param id the task identifier
+         * @param title the task title
+         */
+        void accept(int id, String title) {
+            if (last == null) {
+                return;
+            }
+            List<String> words = tokenize(title);
+            boolean exact = false;
+            boolean prefix = false;
+            for (String word : words) {
+                if (word.equals(last)) {
+                    exact = true;
+                } else if (word.startsWith(last)) {
+                    prefix = true;
+                }
+            }
+            if ((exact || prefix) && words.containsAll(required)) {
+                (exact ? hits.exact() : hits.prefixOnly()).set(id);
+            }
+        }
+
+        /**
+         * Gets the hits recorded so far.
+         *
+         * @return the matching ids, split by rank group
+         */
+        Hits hits() {
+            return hits;
+        }
+    }
+
+    /**
+     * Gets the number of distinct indexed terms.
+     *
+     * @return size of the term dictionary
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static BitSet addAll(BitSet bits, Postings postings) {
+        for (int i = 0; i < postings.size; i++) {
+            bits.set(postings.ids[i]);
+        }
+        return bits;
+    }
+
+    /** Drops dead ids from every posting list and removes terms left empty */
+    private void purge() {
+        Iterator<Postings> iterator = terms.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            int kept = 0;
+            for (int i = 0; i < postings.size; i++) {
+                if (live.get(postings.ids[i])) {
+                    postings.ids[kept++] = postings.ids[i];
+                }
+            }
+            postings.size = kept;
+            if (kept == 0) {
+                iterator.remove();
+            } else if (kept < postings.ids.length / 4) {
+                postings.ids = Arrays.copyOf(postings.ids, Math.max(2, kept));
+            }
+        }
+        deadCount = 0;
+    }
+}
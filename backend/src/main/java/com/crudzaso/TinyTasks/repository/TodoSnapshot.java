@@ -0,0 +1,337 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compacted point-in-time image of the todo store, read through a {@link MappedByteBuffer}.
+ * A snapshot records the log generation it supersedes, so recovery loads it
+ * and replays only the log segments written from that generation on.
+ *
+ * <p>The file is columnar so it can be served without decoding it up front:
+ * <pre>
+ * header   magic:int version:int generation:long nextId:int count:int titleBytes:long
+ * ids        int[count], ascending
+ * done       byte[count]
+ * created    long[count], epoch milliseconds or 0
+ * completed  long[count], epoch milliseconds or 0
+ * offsets    int[count + 1], start of each title within the title region
+ * titles     UTF-8 bytes
+ * </pre>
+ * Version 2 files, written before tasks carried timestamps, lack the two timestamp
+ * columns; they are still read, with every timestamp 0.
+ */
+final class TodoSnapshot {
+
+    private static final int MAGIC = 0x54545331;
+    private static final int VERSION = 3;
+    private static final int UNTIMED_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int PAGE_SIZE = 1024;
+
+    /** A {@link MappedByteBuffer} is indexed by int, so one snapshot file maps at most this much */
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final Header header;
+    private final int count;
+    private final int doneStart;
+    private final int createdStart;
+    private final int completedStart;
+    private final int offsetsStart;
+    private final int titlesStart;
+
+    /**
+     * Metadata stored at the start of a snapshot.
+     *
+     * @param generation first log generation not contained in the snapshot
+     * @param nextId ID counter at the time the snapshot was taken
+     */
+    record Header(long generation, int nextId) {
+    }
+
+    private TodoSnapshot(MappedByteBuffer buffer, Header header, int count, boolean timed) {
+        this.buffer = buffer;
+        this.header = header;
+        this.count = count;
+        this.doneStart = HEADER_SIZE + 4 * count;
+        this.createdStart = timed ? doneStart + count : -1;
+        this.completedStart = timed ? createdStart + 8 * count : -1;
+        this.offsetsStart = doneStart + count + (timed ? 16 * count : 0);
+        this.titlesStart = offsetsStart + 4 * (count + 1);
+    }
+
+    /**
+     * Maps a snapshot file; only the header is read.
+     *
+     * @param source the snapshot file
+     * @return the mapped snapshot, or null if no snapshot exists
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    static TodoSnapshot open(Path source) throws IOException {
+        if (!Files.exists(source)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_SIZE) {
+                throw new IOException(tooLarge(size, MAX_SIZE) + ": " + source);
+            }
+            if (size < HEADER_SIZE) {
+                throw new IOException("Truncated todo snapshot: " + source);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int version = buffer.getInt(4);
+            if (buffer.getInt(0) != MAGIC || (version != VERSION && version != UNTIMED_VERSION)) {
+                throw new IOException("Not a todo snapshot: " + source);
+            }
+            boolean timed = version == VERSION;
+            Header header = new Header(buffer.getLong(8), buffer.getInt(16));
+            int count = buffer.getInt(20);
+            if (HEADER_SIZE + (timed ? 25L : 9L) * count + 4 + buffer.getLong(24) != size) {
+                throw new IOException("Truncated todo snapshot: " + source);
+            }
+            return new TodoSnapshot(buffer, header, count, timed);
+        }
+    }
+
+    /**
+     * Reads every task of a snapshot.
+     *
+     * @param source the snapshot file
+     * @param consumer receives each stored task in id order
+     * @return the snapshot header, or null if no snapshot exists
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    static Header read(Path source, Consumer<Todo> consumer) throws IOException {
+        TodoSnapshot snapshot = open(source);
+        if (snapshot == null) {
+            return null;
+        }
+        for (int index = 0; index < snapshot.count(); index++) {
+            consumer.accept(snapshot.todoAt(index));
+        }
+        return snapshot.header();
+    }
+
+    /**
+     * Writes every task of {@code source} to {@code target}.
+     * Columns are gathered in memory while titles are streamed to a side file; both are
+     * then assembled into a temporary sibling that is forced and atomically renamed,
+     * so a crash never leaves a partial snapshot behind.
+     *
+     * @param target the snapshot file
+     * @param header generation and ID counter to record
+     * @param source the store to copy, read page by page
+     * @throws IOException if the snapshot cannot be written or would exceed {@link #MAX_SIZE}
+     */
+    static void write(Path target, Header header, TodoRepository source) throws IOException {
+        write(target, header, source, MAX_SIZE);
+    }
+
+    /**
+     * Writes every task of {@code source} to {@code target}, failing before the rename once
+     * the file would grow past {@code maxSize}.
+     *
+     * @param target the snapshot file
+     * @param header generation and ID counter to record
+     * @param source the store to copy, read page by page
+     * @param maxSize largest file to write, at most {@link #MAX_SIZE}
+     * @throws IOException if the snapshot cannot be written or would be too large to map
+     */
+    static void write(Path target, Header header, TodoRepository source, long maxSize) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Path titlesFile = target.resolveSibling(target.getFileName() + ".titles.tmp");
+        int[] ids = new int[PAGE_SIZE];
+        byte[] done = new byte[PAGE_SIZE];
+        long[] created = new long[PAGE_SIZE];
+        long[] completed = new long[PAGE_SIZE];
+        int[] offsets = new int[PAGE_SIZE + 1];
+        int count = 0;
+        long titleBytes = 0;
+        try {
+            try (OutputStream titles = new BufferedOutputStream(Files.newOutputStream(titlesFile), 1 << 16)) {
+                int after = 0;
+                List<Todo> page;
+                do {
+                    page = source.findPage(after, PAGE_SIZE);
+                    if (count + page.size() > ids.length) {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                        done = Arrays.copyOf(done, done.length * 2);
+                        created = Arrays.copyOf(created, ids.length);
+                        completed = Arrays.copyOf(completed, ids.length);
+                        offsets = Arrays.copyOf(offsets, ids.length + 1);
+                    }
+                    for (Todo todo : page) {
+                        byte[] title = todo.getTitle().getBytes(StandardCharsets.UTF_8);
+                        // Checked before the old snapshot is replaced, which keeps it usable
+                        if (sizeOf(count + 1, titleBytes + title.length) > maxSize) {
+                            throw new IOException(tooLarge(sizeOf(count + 1, titleBytes + title.length), maxSize)
+                                    + " at task " + todo.getId() + ": " + target);
+                        }
+                        ids[count] = todo.getId();
+                        done[count] = (byte) (todo.isDone() ? 1 : 0);
+                        created[count] = todo.getCreatedAt();
+                        completed[count] = todo.getCompletedAt();
+                        offsets[count] = Math.toIntExact(titleBytes);
+                        titles.write(title);
+                        titleBytes += title.length;
+                        count++;
+                        after = todo.getId();
+                    }
+                } while (page.size() == PAGE_SIZE);
+                offsets[count] = Math.toIntExact(titleBytes);
+            }
+
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel titles = FileChannel.open(titlesFile, StandardOpenOption.READ)) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+                chunk.putInt(MAGIC).putInt(VERSION).putLong(header.generation()).putInt(header.nextId())
+                        .putInt(count).putLong(titleBytes);
+                for (int i = 0; i < count; i++) {
+                    drainIfFull(out, chunk, 4);
+                    chunk.putInt(ids[i]);
+                }
+                for (int i = 0; i < count; i++) {
+                    drainIfFull(out, chunk, 1);
+                    chunk.put(done[i]);
+                }
+                for (int i = 0; i < count; i++) {
+                    drainIfFull(out, chunk, 8);
+                    chunk.putLong(created[i]);
+                }
+                for (int i = 0; i < count; i++) {
+                    drainIfFull(out, chunk, 8);
+                    chunk.putLong(completed[i]);
+                }
+                for (int i = 0; i <= count; i++) {
+                    drainIfFull(out, chunk, 4);
+                    chunk.putInt(offsets[i]);
+                }
+                drain(out, chunk);
+                long position = out.position();
+                for (long copied = 0; copied < titleBytes; ) {
+                    copied += out.transferFrom(titles, position + copied, titleBytes - copied);
+                }
+                out.force(true);
+            }
+        } finally {
+            Files.deleteIfExists(titlesFile);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Bytes of a current-version file holding {@code count} tasks and {@code titleBytes} of titles */
+    private static long sizeOf(int count, long titleBytes) {
+        return HEADER_SIZE + 25L * count + 4 + titleBytes;
+    }
+
+    private static String tooLarge(long size, long maxSize) {
+        return "Todo snapshot of " + size + " bytes exceeds the " + maxSize
+                + " bytes a single memory mapping can hold; delete or archive tasks first";
+    }
+
+    /**
+     * Gets the snapshot metadata.
+     *
+     * @return the header
+     */
+    Header header() {
+        return header;
+    }
+
+    /**
+     * Gets the number of stored tasks.
+     *
+     * @return the task count
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Gets the id stored at a position.
+     *
+     * @param index position between 0 and {@link #count()}
+     * @return the task id
+     */
+    int idAt(int index) {
+        return buffer.getInt(HEADER_SIZE + 4 * index);
+    }
+
+    /**
+     * Reads the done flag stored at a position without decoding the title.
+     *
+     * @param index position between 0 and {@link #count()}
+     * @return true if the task is completed
+     */
+    boolean isDoneAt(int index) {
+        return buffer.get(doneStart + index) != 0;
+    }
+
+    /**
+     * Decodes the task stored at a position.
+     *
+     * @param index position between 0 and {@link #count()}
+     * @return a new {@link Todo}
+     */
+    Todo todoAt(int index) {
+        int start = buffer.getInt(offsetsStart + 4 * index);
+        int end = buffer.getInt(offsetsStart + 4 * (index + 1));
+        byte[] title = new byte[end - start];
+        buffer.get(titlesStart + start, title);
+        return new Todo(idAt(index), new String(title, StandardCharsets.UTF_8), isDoneAt(index),
+                createdStart < 0 ? 0 : buffer.getLong(createdStart + 8 * index),
+                completedStart < 0 ? 0 : buffer.getLong(completedStart + 8 * index));
+    }
+
+    /**
+     * Binary-searches the id column.
+     *
+     * @param id the task id
+     * @return its position, or {@code -(insertionPoint + 1)} if absent
+     */
+    int indexOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void drainIfFull(FileChannel out, ByteBuffer chunk, int needed) throws IOException {
+        if (chunk.remaining() < needed) {
+            drain(out, chunk);
+        }
+    }
+
+    private static void drain(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+}
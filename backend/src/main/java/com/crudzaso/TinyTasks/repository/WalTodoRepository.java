@@ -0,0 +1,687 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Durable implementation of {@link TodoRepository} backed by a write-ahead log.
+ * Reads are served from an in-memory {@link TodoRepositoryImp}; every mutation is
+ * applied there and appended to the current log segment as a {@link TodoLogRecord}.
+ *
+ * <p>After {@link WalProperties#snapshotEvery()} records the log is rotated to a new
+ * generation and a compacted {@link TodoSnapshot} is written in the background.
+ * On startup the last snapshot is loaded and only the newer segments are replayed.
+ * Selected with {@code tinytasks.repository.type=wal}.
+ *
+ * <p>With {@link WalProperties.Ack#MEMORY} the request thread only applies the mutation in
+ * memory and queues its record; a single writer thread drains the bounded queue in batches,
+ * dropping status changes superseded later in the same batch, and writes each batch with one
+ * append. Writers block only when the queue is full.
+ *
+ * <p>In either mode, once a record cannot be written or forced the store stops accepting
+ * mutations, so no later write is acknowledged while the log may be missing records;
+ * {@link #writeFailure()} reports the cause until the store is reopened.
+ */
+@Repository
+@ConditionalOnProperty(name = "tinytasks.repository.type", havingValue = "wal")
+public class WalTodoRepository implements TodoRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WalTodoRepository.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final TodoRepositoryImp memory = new TodoRepositoryImp();
+    private final WalProperties properties;
+
+    /** Largest batch the background writer appends at once */
+    private static final int MAX_BATCH = 4096;
+
+    /** Orders mutations so the log matches the in-memory state */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Guards the current segment, rotation and the snapshot counter; taken after {@link #writeLock} */
+    private final ReentrantLock logLock = new ReentrantLock();
+
+    /** Records waiting for the background writer; null unless acknowledging on memory */
+    private final BlockingQueue<TodoLogRecord> queue;
+    private final Thread writer;
+
+    /** Records queued so far, and records the writer has finished with; both only grow */
+    private long queued;
+    private volatile long written;
+    private final ReentrantLock writtenLock = new ReentrantLock();
+    private final Condition writtenAdvanced = writtenLock.newCondition();
+
+    private volatile FlushObserver flushObserver = FlushObserver.NONE;
+
+    /** First failed log write or force; once set, mutations are refused */
+    private volatile Throwable writeFailure;
+
+    /** Opens the channels behind log segments */
+    private final TodoLog.Channels channels;
+
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("todo-wal-snapshot").daemon().factory());
+    private final ScheduledExecutorService flusher;
+
+    /** Current segment; replaced under the write lock on rotation */
+    private volatile TodoLog segment;
+    private long generation;
+    private long recordsSinceSnapshot;
+    private Future<?> pendingSnapshot = CompletableFuture.completedFuture(null);
+
+    /**
+     * Receives statistics for every batch the background writer appends.
+     */
+    @FunctionalInterface
+    public interface FlushObserver {
+
+        /** Observer that ignores every batch */
+        FlushObserver NONE = (records, coalesced, nanos) -> {
+        };
+
+        /**
+         * Called after a batch is written, and forced when {@link WalProperties.Fsync#ALWAYS}.
+         *
+         * @param records records appended
+         * @param coalesced records dropped because a later record of the batch superseded them
+         * @param nanos time spent writing and forcing the batch
+         */
+        void flushed(int records, int coalesced, long nanos);
+    }
+
+    /**
+     * Opens the log directory and recovers the last persisted state.
+     *
+     * @param properties log location, fsync policy and snapshot interval
+     * @throws IOException if the directory cannot be read or written
+     */
+    public WalTodoRepository(WalProperties properties) throws IOException {
+        this(properties, TodoLog.Channels.FILES);
+    }
+
+    /**
+     * Opens the log directory through the given channels, so tests can make writes fail.
+     *
+     * @param properties log location, fsync policy and snapshot interval
+     * @param channels opens the log segments
+     * @throws IOException if the directory cannot be read or written
+     */
+    WalTodoRepository(WalProperties properties, TodoLog.Channels channels) throws IOException {
+        this.properties = properties;
+        this.channels = channels;
+        Files.createDirectories(properties.directory());
+        recover();
+        if (properties.fsync() == WalProperties.Fsync.INTERVAL) {
+            long intervalNanos = properties.fsyncInterval().toNanos();
+            flusher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("todo-wal-flusher").daemon().factory());
+            flusher.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+        if (properties.ack() == WalProperties.Ack.MEMORY) {
+            queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+            writer = Thread.ofPlatform().name("todo-wal-writer").daemon().start(this::writeBehind);
+        } else {
+            queue = null;
+            writer = null;
+        }
+    }
+
+    /**
+     * Receives batch statistics from the background writer, for example to publish metrics.
+     *
+     * @param observer the observer, replacing any previous one
+     */
+    public void setFlushObserver(FlushObserver observer) {
+        this.flushObserver = observer;
+    }
+
+    /**
+     * Gets the number of records waiting for the background writer.
+     *
+     * @return queue depth, or 0 when mutations are acknowledged after the log write
+     */
+    public int pendingWrites() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Gets why the log may be missing records, if it is. While this is set every mutation
+     * fails with {@link IllegalStateException}; reopening the store recovers what reached
+     * the log.
+     *
+     * @return the first failed log write or force, or null if none failed
+     */
+    public Throwable writeFailure() {
+        return writeFailure;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return memory.findAll();
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return memory.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<Todo> findById(int id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public int count() {
+        return memory.count();
+    }
+
+    @Override
+    public int countByDone(boolean done) {
+        return memory.countByDone(done);
+    }
+
+    @Override
+    public long version() {
+        return memory.version();
+    }
+
+    @Override
+    public TodoSearchResult search(String query, int offset, int limit) {
+        return memory.search(query, offset, limit);
+    }
+
+    @Override
+    public List<Todo> findByDone(boolean done, int afterId, int limit) {
+        return memory.findByDone(done, afterId, limit);
+    }
+
+    /**
+     * Saves a task and logs its creation.
+     *
+     * @param todo the task to save
+     * @return the saved {@link Todo} with assigned ID
+     */
+    @Override
+    public Todo save(Todo todo) {
+        writeLock.lock();
+        Pending pending;
+        try {
+            ensureWritable();
+            memory.save(todo);
+            pending = append(TodoLogRecord.create(todo));
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return todo;
+    }
+
+    /**
+     * Toggles a task and logs its resulting status.
+     *
+     * @param id the task identifier
+     * @return Optional containing the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public Optional<Todo> toggle(int id) {
+        writeLock.lock();
+        Optional<Todo> toggled;
+        Pending pending = null;
+        try {
+            ensureWritable();
+            toggled = memory.toggle(id);
+            if (toggled.isPresent()) {
+                pending = append(TodoLogRecord.setDone(toggled.get()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return toggled;
+    }
+
+    /**
+     * Removes a task and logs the deletion.
+     *
+     * @param id the task identifier
+     * @return true if the task existed and was removed, false otherwise
+     */
+    @Override
+    public boolean delete(int id) {
+        writeLock.lock();
+        boolean deleted;
+        Pending pending = null;
+        try {
+            ensureWritable();
+            deleted = memory.delete(id);
+            if (deleted) {
+                pending = append(TodoLogRecord.delete(id));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return deleted;
+    }
+
+    /**
+     * Saves a batch of tasks with one log write and at most one fsync.
+     *
+     * @param todos the tasks to save, in order
+     * @return the saved {@link Todo} objects with assigned IDs, in the same order
+     */
+    @Override
+    public List<Todo> saveAll(List<Todo> todos) {
+        List<TodoLogRecord> records = new ArrayList<>(todos.size());
+        Pending pending;
+        writeLock.lock();
+        try {
+            ensureWritable();
+            for (Todo todo : todos) {
+                records.add(TodoLogRecord.create(memory.save(todo)));
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return todos;
+    }
+
+    /**
+     * Toggles a batch of tasks with one log write and at most one fsync.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, the updated {@link Todo} if found, empty otherwise
+     */
+    @Override
+    public List<Optional<Todo>> toggleAll(int[] ids) {
+        List<Optional<Todo>> toggled = new ArrayList<>(ids.length);
+        List<TodoLogRecord> records = new ArrayList<>(ids.length);
+        Pending pending;
+        writeLock.lock();
+        try {
+            ensureWritable();
+            for (int id : ids) {
+                Optional<Todo> result = memory.toggle(id);
+                result.ifPresent(todo -> records.add(TodoLogRecord.setDone(todo)));
+                toggled.add(result);
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return toggled;
+    }
+
+    /**
+     * Removes a batch of tasks with one log write and at most one fsync.
+     *
+     * @param ids the task identifiers, in order
+     * @return for each id, true if the task existed and was removed
+     */
+    @Override
+    public boolean[] deleteAll(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        List<TodoLogRecord> records = new ArrayList<>(ids.length);
+        Pending pending;
+        writeLock.lock();
+        try {
+            ensureWritable();
+            for (int i = 0; i < ids.length; i++) {
+                deleted[i] = memory.delete(ids[i]);
+                if (deleted[i]) {
+                    records.add(TodoLogRecord.delete(ids[i]));
+                }
+            }
+            pending = append(records);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(pending);
+        return deleted;
+    }
+
+    /**
+     * Rotates the log and writes a compacted snapshot, waiting for it to finish.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        Future<?> snapshot;
+        writeLock.lock();
+        try {
+            awaitWritten(queued);
+            logLock.lock();
+            try {
+                snapshot = rotate();
+            } finally {
+                logLock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            snapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for snapshot", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Snapshot failed", e.getCause());
+        }
+    }
+
+    /**
+     * Flushes the log and stops background work. Called by Spring on shutdown.
+     *
+     * @throws IOException if the final flush fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writeLock.lock();
+            try {
+                awaitWritten(queued);
+            } finally {
+                writeLock.unlock();
+            }
+            writer.interrupt();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logLock.lock();
+        try {
+            segment.close();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Position of an appended record that a writer may need to wait for.
+     */
+    private record Pending(TodoLog segment, long seq) {
+    }
+
+    /**
+     * Refuses a mutation once the log may be missing records.
+     * Must be called while holding the write lock, before the mutation is applied.
+     */
+    private void ensureWritable() {
+        Throwable failure = writeFailure;
+        if (failure != null) {
+            throw new IllegalStateException("Todo log writer failed; refusing writes until the store is reopened",
+                    failure);
+        }
+    }
+
+    /**
+     * Logs a record: appends it, or queues it for the background writer.
+     * Must be called while holding the write lock.
+     */
+    private Pending append(TodoLogRecord record) {
+        return append(List.of(record));
+    }
+
+    /**
+     * Logs records with a single write to the current segment, or queues them for the
+     * background writer in the order they were applied.
+     * Must be called while holding the write lock.
+     *
+     * @return the position to wait for, or null if there is nothing to wait for
+     */
+    private Pending append(List<TodoLogRecord> records) {
+        if (records.isEmpty()) {
+            return null;
+        }
+        if (queue != null) {
+            try {
+                for (TodoLogRecord record : records) {
+                    queue.put(record);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing todo log records", e);
+            }
+            queued += records.size();
+            return null;
+        }
+        try {
+            return write(records);
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not append to todo log", e);
+        }
+    }
+
+    /** Records the first log failure, after which mutations are refused */
+    private void fail(Throwable failure) {
+        if (writeFailure == null) {
+            writeFailure = failure;
+        }
+    }
+
+    /**
+     * Appends records to the current segment and starts a snapshot when due.
+     */
+    private Pending write(List<TodoLogRecord> records) throws IOException {
+        logLock.lock();
+        try {
+            TodoLog current = segment;
+            long seq = current.append(records);
+            recordsSinceSnapshot += records.size();
+            if (recordsSinceSnapshot >= properties.snapshotEvery() && pendingSnapshot.isDone()) {
+                rotate();
+            }
+            return new Pending(current, seq);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Background writer loop: takes whatever is queued, up to {@link #MAX_BATCH} records,
+     * coalesces it and appends it with one write.
+     */
+    private void writeBehind() {
+        List<TodoLogRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            long start = System.nanoTime();
+            List<TodoLogRecord> records = coalesce(batch);
+            try {
+                Pending pending = write(records);
+                if (properties.fsync() == WalProperties.Fsync.ALWAYS) {
+                    pending.segment().sync(pending.seq());
+                }
+                flushObserver.flushed(records.size(), batch.size() - records.size(), System.nanoTime() - start);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                log.error("Background write of {} todo log records failed; they are lost and further writes are "
+                        + "refused", records.size(), e);
+            }
+            writtenLock.lock();
+            try {
+                written += batch.size();
+                writtenAdvanced.signalAll();
+            } finally {
+                writtenLock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Drops every {@code SET_DONE} record followed in the same batch by another record
+     * for its id: status records carry the absolute value, so only the last one matters.
+     *
+     * @param batch records in the order they were applied
+     * @return the records to write, in the same relative order
+     */
+    static List<TodoLogRecord> coalesce(List<TodoLogRecord> batch) {
+        Set<Integer> superseded = new HashSet<>();
+        TodoLogRecord[] kept = new TodoLogRecord[batch.size()];
+        int count = 0;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            TodoLogRecord record = batch.get(i);
+            boolean later = !superseded.add(record.id());
+            if (record.type() != TodoLogRecord.Type.SET_DONE || !later) {
+                kept[count++] = record;
+            }
+        }
+        List<TodoLogRecord> records = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            records.add(kept[i]);
+        }
+        return records;
+    }
+
+    /** Waits until the background writer has taken care of the first {@code target} queued records */
+    private void awaitWritten(long target) {
+        if (queue == null) {
+            return;
+        }
+        writtenLock.lock();
+        try {
+            while (written < target) {
+                writtenAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    private void awaitDurable(Pending pending) {
+        if (pending == null || properties.fsync() != WalProperties.Fsync.ALWAYS) {
+            return;
+        }
+        try {
+            pending.segment().sync(pending.seq());
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not sync todo log", e);
+        }
+    }
+
+    /**
+     * Starts a new segment and schedules a snapshot that supersedes the older ones.
+     * Must be called while holding the log lock. Records applied after the rotation
+     * may or may not be captured by the snapshot; replaying them is idempotent.
+     */
+    private Future<?> rotate() throws IOException {
+        TodoLog previous = segment;
+        generation++;
+        segment = TodoLog.open(segmentPath(generation), 0, channels);
+        recordsSinceSnapshot = 0;
+        long snapshotGeneration = generation;
+        pendingSnapshot = snapshotter.submit(() -> {
+            try {
+                previous.close();
+                TodoSnapshot.write(snapshotPath(),
+                        new TodoSnapshot.Header(snapshotGeneration, memory.nextId()), memory);
+                deleteSegmentsBefore(snapshotGeneration);
+            } catch (IOException e) {
+                log.error("Todo snapshot for generation {} failed; older log segments are kept", snapshotGeneration, e);
+                throw e;
+            }
+            return null;
+        });
+        return pendingSnapshot;
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        TodoSnapshot.Header header = TodoSnapshot.read(snapshotPath(), memory::restore);
+        if (header != null) {
+            memory.advanceNextId(header.nextId());
+        }
+        long firstGeneration = header == null ? 0 : header.generation();
+        deleteSegmentsBefore(firstGeneration);
+        List<Long> generations = segmentGenerations();
+        generation = generations.isEmpty() ? firstGeneration : generations.get(generations.size() - 1);
+        long validLength = 0;
+        for (long replayed : generations) {
+            validLength = TodoLog.replay(segmentPath(replayed), record -> {
+                memory.apply(record);
+                recordsSinceSnapshot++;
+            });
+        }
+        segment = TodoLog.open(segmentPath(generation), validLength, channels);
+        log.info("Recovered todo store from {} in {} ms (snapshot generation {}, {} log records replayed)",
+                properties.directory(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                firstGeneration, recordsSinceSnapshot);
+    }
+
+    private List<Long> segmentGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsBefore(long firstGeneration) throws IOException {
+        for (long old : segmentGenerations()) {
+            if (old < firstGeneration) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            segment.sync();
+        } catch (IOException e) {
+            log.warn("Periodic todo log flush failed", e);
+        }
+    }
+
+    private Path snapshotPath() {
+        return properties.directory().resolve(SNAPSHOT_FILE);
+    }
+
+    private Path segmentPath(long segmentGeneration) {
+        return properties.directory().resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segmentGeneration, SEGMENT_SUFFIX));
+    }
+}
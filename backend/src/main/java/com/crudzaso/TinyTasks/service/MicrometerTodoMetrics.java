@@ -0,0 +1,81 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoMetrics} backed by Micrometer.
+ * Publishes a latency histogram per service operation, counters for validation
+ * rejections and not-found lookups, and gauges for the store size and estimated heap.
+ * Meters are resolved once up front so the hot path only touches prebuilt objects.
+ */
+public class MicrometerTodoMetrics implements TodoMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> notFound = new EnumMap<>(Operation.class);
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the meters.
+     *
+     * @param registry the registry to publish to
+     * @param repository the store whose size and footprint are reported as gauges
+     */
+    public MicrometerTodoMetrics(MeterRegistry registry, TodoRepository repository) {
+        this.registry = registry;
+        for (Operation operation : Operation.values()) {
+            String tag = operation.name().toLowerCase(Locale.ROOT);
+            timers.put(operation, Timer.builder("tinytasks.service.operations")
+                    .description("Latency of TodoService operations")
+                    .tag("operation", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            notFound.put(operation, Counter.builder("tinytasks.todos.not.found")
+                    .description("Operations that referenced a missing task")
+                    .tag("operation", tag)
+                    .register(registry));
+        }
+        Gauge.builder("tinytasks.todos.stored", repository, TodoRepository::count)
+                .description("Number of stored tasks")
+                .register(registry);
+        if (repository.estimatedBytes() >= 0) {
+            Gauge.builder("tinytasks.todos.estimated", repository, TodoRepository::estimatedBytes)
+                    .description("Estimated heap retained by the store")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public long start() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void stop(Operation operation, long start) {
+        timers.get(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void rejected(String reason) {
+        rejected.computeIfAbsent(reason, key -> Counter.builder("tinytasks.todos.rejected")
+                .description("Requests rejected by validation")
+                .tag("reason", key)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void notFound(Operation operation) {
+        notFound.get(operation).increment();
+    }
+}
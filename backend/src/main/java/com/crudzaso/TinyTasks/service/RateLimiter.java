@@ -0,0 +1,129 @@
+package com.crudzaso.TinyTasks.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket rate limiter keyed by client identity.
+ *
+ * <p>Each client's bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (the generic cell rate algorithm, which admits exactly what a token bucket
+ * of {@code burst} tokens refilled at {@code permitsPerSecond} would). Taking a token is one
+ * read and one compare-and-set, with no allocation once the client is known.
+ *
+ * <p>A bucket that has refilled carries no state, so when the number of tracked clients
+ * reaches {@code maxClients} the full buckets are dropped; if every tracked client is still
+ * active, further new clients share one overflow bucket rather than growing the map.
+ * Sweeps run at most once per second.
+ */
+public class RateLimiter {
+
+    /** Returned by {@link #tryAcquire(String)} when the request may proceed */
+    public static final long ALLOWED = 0L;
+
+    /** Shared by new clients once {@link #maxClients} active ones are tracked */
+    private static final String OVERFLOW = "";
+
+    private final long interval;
+    private final long capacity;
+    private final int maxClients;
+    private final LongSupplier clock;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /** Earliest time of the next sweep, so a flood of new clients does not scan the map each time */
+    private volatile long nextSweep;
+
+    /**
+     * Creates a limiter on the system clock.
+     *
+     * @param permitsPerSecond sustained rate per client, above 0
+     * @param burst requests a client may make at once after being idle, at least 1
+     * @param maxClients clients tracked individually
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        this(permitsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    /**
+     * Creates a limiter on the given clock.
+     *
+     * @param permitsPerSecond sustained rate per client, above 0
+     * @param burst requests a client may make at once after being idle, at least 1
+     * @param maxClients clients tracked individually
+     * @param clock monotonic time in nanoseconds
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxClients, LongSupplier clock) {
+        if (!(permitsPerSecond > 0) || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Rate, burst and client limit must be positive");
+        }
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.capacity = interval * burst;
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.nextSweep = clock.getAsLong();
+    }
+
+    /**
+     * Takes one token from the client's bucket if it has one.
+     *
+     * @param client identity of the caller
+     * @return {@link #ALLOWED}, or the nanoseconds until a token will be available
+     */
+    public long tryAcquire(String client) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = register(client);
+        }
+        long now = clock.getAsLong();
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now > 0 ? fullAt : now) + interval;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return ALLOWED;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of buckets currently held, the overflow bucket included.
+     *
+     * @return tracked clients
+     */
+    public int trackedClients() {
+        return buckets.size();
+    }
+
+    private AtomicLong register(String client) {
+        if (buckets.size() >= maxClients) {
+            sweep();
+            if (buckets.size() >= maxClients) {
+                return buckets.computeIfAbsent(OVERFLOW, key -> new AtomicLong(clock.getAsLong()));
+            }
+        }
+        return buckets.computeIfAbsent(client, key -> new AtomicLong(clock.getAsLong()));
+    }
+
+    /** Drops buckets that have refilled; they behave exactly like a new one */
+    private void sweep() {
+        long now = clock.getAsLong();
+        if (now - nextSweep < 0 || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextSweep = now + TimeUnit.SECONDS.toNanos(1);
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
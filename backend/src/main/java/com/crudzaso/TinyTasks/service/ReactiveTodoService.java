@@ -0,0 +1,390 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.model.BatchResult;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoCounts;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import com.crudzaso.TinyTasks.repository.ReactiveTodoRepository;
+import com.crudzaso.TinyTasks.service.TodoMetrics.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking variant of {@link TodoService} for the reactive API.
+ * Validation, the store cap, metrics and the change log behave exactly as in {@link TodoService};
+ * the difference is that every operation returns a {@link Mono} or {@link Flux} over a
+ * {@link ReactiveTodoRepository} and runs only when subscribed to. Validation failures are
+ * signalled as {@link IllegalArgumentException} errors, a full store as {@link StoreFullException}.
+ *
+ * <p>The change log is shared with the application's {@link TodoService}, which also records
+ * changes replicated from other nodes, so {@code /changes} and {@code /stream} see writes from both.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTodoService {
+
+    /** Repository lookups a change feed request keeps in flight at once */
+    private static final int CHANGES_CONCURRENCY = 16;
+
+    private final ReactiveTodoRepository todoRepository;
+    private final TodoMetrics metrics;
+    private final TodoChangeLog changeLog;
+    private final TodoValidator validator;
+
+    /** Tasks the store may hold, or {@link Integer#MAX_VALUE} when unlimited */
+    private final int maxTodos;
+
+    /**
+     * Constructs an uninstrumented service without a cap on the number of stored tasks.
+     *
+     * @param todoRepository the data access layer
+     */
+    public ReactiveTodoService(ReactiveTodoRepository todoRepository) {
+        this(todoRepository, TodoMetrics.NOOP, new TodoChangeLog(TodoChangeLog.DEFAULT_CAPACITY), new StoreProperties(0));
+    }
+
+    /**
+     * Constructs service with repository, metrics, change log and store limits dependency injection.
+     *
+     * @param todoRepository the data access layer
+     * @param metrics receives latencies, rejections and not-found events
+     * @param changeLog records the id of every task created, toggled or deleted
+     * @param storeProperties cap on the number of stored tasks
+     */
+    @Autowired
+    public ReactiveTodoService(ReactiveTodoRepository todoRepository, TodoMetrics metrics, TodoChangeLog changeLog,
+                               StoreProperties storeProperties) {
+        this.todoRepository = todoRepository;
+        this.metrics = metrics;
+        this.changeLog = changeLog;
+        this.validator = new TodoValidator(metrics);
+        this.maxTodos = storeProperties.maxTodos() > 0 ? storeProperties.maxTodos() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Streams every task, archived ones included when asked, in ascending id order.
+     * Tasks are read as the subscriber requests them.
+     *
+     * @param includeArchived true to add tasks the repository moved to cold storage
+     * @return all {@link Todo} objects
+     */
+    public Flux<Todo> getAllTodos(boolean includeArchived) {
+        if (!includeArchived) {
+            return timed(Operation.LIST, todoRepository.findAll());
+        }
+        Flux<Todo> all = mergedPage(0, TodoService.MAX_PAGE_SIZE)
+                .expand(page -> page.size() < TodoService.MAX_PAGE_SIZE
+                        ? Mono.empty()
+                        : mergedPage(page.get(page.size() - 1).getId(), TodoService.MAX_PAGE_SIZE))
+                .concatMapIterable(page -> page, 1);
+        return timed(Operation.LIST, all);
+    }
+
+    /**
+     * Retrieves one page of tasks after the given cursor, archived ones included when asked.
+     *
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link TodoService#MAX_PAGE_SIZE}
+     * @param includeArchived true to merge in tasks the repository moved to cold storage
+     * @return list of at most {@code limit} {@link Todo} objects
+     */
+    public Mono<List<Todo>> getTodoPage(int afterId, int limit, boolean includeArchived) {
+        return Mono.defer(() -> {
+            validator.page(afterId, limit);
+            return timed(Operation.PAGE, includeArchived
+                    ? mergedPage(afterId, limit)
+                    : todoRepository.findPage(afterId, limit));
+        });
+    }
+
+    /**
+     * Retrieves one page of completed or pending tasks, archived ones included when asked.
+     * Archived tasks are all completed, so they only add to pages of completed tasks.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link TodoService#MAX_PAGE_SIZE}
+     * @param includeArchived true to merge in tasks the repository moved to cold storage
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     */
+    public Mono<List<Todo>> getTodoPageByDone(boolean done, int afterId, int limit, boolean includeArchived) {
+        return Mono.defer(() -> {
+            validator.page(afterId, limit);
+            Mono<List<Todo>> page = todoRepository.findByDone(done, afterId, limit);
+            if (includeArchived && done) {
+                page = page.zipWith(todoRepository.findArchivedPage(afterId, limit),
+                        (hot, archived) -> TodoValidator.mergeArchived(hot, archived, limit));
+            }
+            return timed(Operation.FILTER, page);
+        });
+    }
+
+    /**
+     * Searches task titles with the rules of {@link TodoService#searchTodos(String, int, int)}.
+     *
+     * @param query free text to search for, not blank
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return, between 1 and {@link TodoService#MAX_PAGE_SIZE}
+     * @return the total number of hits and the requested page
+     */
+    public Mono<TodoSearchResult> searchTodos(String query, int offset, int limit) {
+        return Mono.defer(() -> {
+            validator.search(query, offset, limit);
+            return timed(Operation.SEARCH, todoRepository.search(query, offset, limit));
+        });
+    }
+
+    /**
+     * Lists what changed since a cursor from a previous call, as
+     * {@link TodoService#getChangesSince(long)} does.
+     *
+     * @param since the {@code latest} value of the previous response, or 0 to start
+     * @return the upserted tasks and deleted ids, plus the next cursor
+     */
+    public Mono<TodoChanges> getChangesSince(long since) {
+        Mono<TodoChanges> changes = Mono.defer(() -> {
+            TodoChangeLog.Window window = changeLog.since(since);
+            if (window == null) {
+                long latest = changeLog.latest();
+                if (!todoRepository.fitsInHeap()) {
+                    return Mono.just(TodoChanges.reload(latest));
+                }
+                return todoRepository.findAll().collectList()
+                        .map(all -> new TodoChanges(latest, true, all, List.of()));
+            }
+            return Flux.fromStream(Arrays.stream(window.ids()).boxed())
+                    .flatMapSequential(id -> todoRepository.findById(id)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty()), CHANGES_CONCURRENCY)
+                    .collectList()
+                    .map(found -> {
+                        List<Todo> upserted = new ArrayList<>();
+                        List<Integer> deleted = new ArrayList<>();
+                        for (int i = 0; i < found.size(); i++) {
+                            if (found.get(i).isPresent()) {
+                                upserted.add(found.get(i).get());
+                            } else {
+                                deleted.add(window.ids()[i]);
+                            }
+                        }
+                        return new TodoChanges(window.latest(), false, upserted, deleted);
+                    });
+        });
+        return timed(Operation.CHANGES, changes);
+    }
+
+    /**
+     * Gets the sequence number of the newest recorded change.
+     *
+     * @return the change cursor
+     */
+    public long getChangeSequence() {
+        return changeLog.latest();
+    }
+
+    /**
+     * Gets the store version, which changes whenever a task is created, toggled or deleted.
+     *
+     * @return the current version, or -1 if the storage engine does not track one
+     */
+    public Mono<Long> getVersion() {
+        return todoRepository.version();
+    }
+
+    /**
+     * Counts stored tasks by completion status without reading them.
+     *
+     * @return total, completed and pending counts of tasks in memory, and archived tasks
+     */
+    public Mono<TodoCounts> countTodos() {
+        return timed(Operation.COUNT, Mono.zip(todoRepository.countByDone(true), todoRepository.countByDone(false),
+                        todoRepository.countArchived())
+                .map(counts -> new TodoCounts(counts.getT1() + counts.getT2(), counts.getT1(), counts.getT2(),
+                        counts.getT3())));
+    }
+
+    /**
+     * Creates a new task with the validation rules of {@link TodoService#createTodo(String)}.
+     *
+     * @param title the task description
+     * @return the created {@link Todo} with auto-generated ID
+     */
+    public Mono<Todo> createTodo(String title) {
+        return Mono.defer(() -> {
+            Todo newTodo = new Todo(validator.title(title));
+            return freeSlots(1).flatMap(free -> {
+                if (free < 1) {
+                    return Mono.error(new StoreFullException(maxTodos));
+                }
+                return timed(Operation.CREATE, todoRepository.save(newTodo)
+                        .doOnNext(saved -> changeLog.record(saved.getId())));
+            });
+        });
+    }
+
+    /**
+     * Creates several tasks with one repository operation, reporting each title like
+     * {@link TodoService#createTodos(List)}.
+     *
+     * @param titles the task descriptions, in order
+     * @return one {@link BatchResult} per title, in the same order
+     */
+    public Mono<List<BatchResult>> createTodos(List<String> titles) {
+        return Mono.defer(() -> {
+            validator.batchSize(titles.size());
+            BatchResult[] results = new BatchResult[titles.size()];
+            List<Todo> valid = new ArrayList<>(titles.size());
+            List<Integer> positions = new ArrayList<>(titles.size());
+            for (int i = 0; i < titles.size(); i++) {
+                try {
+                    valid.add(new Todo(validator.title(titles.get(i))));
+                    positions.add(i);
+                } catch (IllegalArgumentException e) {
+                    results[i] = BatchResult.badRequest(e.getMessage());
+                }
+            }
+            return freeSlots(valid.size()).flatMap(admitted -> {
+                for (int i = admitted; i < valid.size(); i++) {
+                    results[positions.get(i)] = BatchResult.storeFull(new StoreFullException(maxTodos).getMessage());
+                }
+                List<Todo> batch = admitted == valid.size() ? valid : valid.subList(0, admitted);
+                return timed(Operation.BATCH_CREATE, todoRepository.saveAll(batch)).map(saved -> {
+                    for (int i = 0; i < saved.size(); i++) {
+                        changeLog.record(saved.get(i).getId());
+                        results[positions.get(i)] = BatchResult.created(saved.get(i));
+                    }
+                    return Arrays.asList(results);
+                });
+            });
+        });
+    }
+
+    /**
+     * Toggles the completion status of a task atomically.
+     *
+     * @param id the task identifier
+     * @return the updated {@link Todo}, or empty if there is none
+     */
+    public Mono<Todo> toggleTodo(int id) {
+        return timed(Operation.TOGGLE, todoRepository.toggle(id)
+                .doOnNext(toggled -> changeLog.record(id))
+                .switchIfEmpty(Mono.fromRunnable(() -> metrics.notFound(Operation.TOGGLE))));
+    }
+
+    /**
+     * Toggles several tasks with one repository operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return one {@link BatchResult} per id, in the same order
+     */
+    public Mono<List<BatchResult>> toggleTodos(int[] ids) {
+        return Mono.defer(() -> {
+            validator.batchSize(ids.length);
+            return timed(Operation.BATCH_TOGGLE, todoRepository.toggleAll(ids).map(toggled -> {
+                List<BatchResult> results = new ArrayList<>(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    if (toggled.get(i).isPresent()) {
+                        changeLog.record(ids[i]);
+                        results.add(BatchResult.ok(toggled.get(i).get()));
+                    } else {
+                        metrics.notFound(Operation.BATCH_TOGGLE);
+                        results.add(BatchResult.notFound());
+                    }
+                }
+                return results;
+            }));
+        });
+    }
+
+    /**
+     * Deletes a task if it exists.
+     *
+     * @param id the task identifier
+     * @return true if the task was found and deleted
+     */
+    public Mono<Boolean> deleteTodo(int id) {
+        return timed(Operation.DELETE, todoRepository.delete(id).doOnNext(deleted -> {
+            if (deleted) {
+                changeLog.record(id);
+            } else {
+                metrics.notFound(Operation.DELETE);
+            }
+        }));
+    }
+
+    /**
+     * Deletes several tasks with one repository operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return one {@link BatchResult} per id, in the same order
+     */
+    public Mono<List<BatchResult>> deleteTodos(int[] ids) {
+        return Mono.defer(() -> {
+            validator.batchSize(ids.length);
+            return timed(Operation.BATCH_DELETE, todoRepository.deleteAll(ids).map(deleted -> {
+                List<BatchResult> results = new ArrayList<>(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    if (deleted[i]) {
+                        changeLog.record(ids[i]);
+                        results.add(BatchResult.deleted());
+                    } else {
+                        metrics.notFound(Operation.BATCH_DELETE);
+                        results.add(BatchResult.notFound());
+                    }
+                }
+                return results;
+            }));
+        });
+    }
+
+    /**
+     * Counts how many of the requested creates still fit under {@link #maxTodos}, with the
+     * same best-effort semantics as in {@link TodoService}.
+     *
+     * @param requested number of tasks about to be created
+     * @return how many of them may be saved, between 0 and {@code requested}
+     */
+    private Mono<Integer> freeSlots(int requested) {
+        if (maxTodos == Integer.MAX_VALUE) {
+            return Mono.just(requested);
+        }
+        return todoRepository.count().map(count -> {
+            int free = Math.max(0, maxTodos - count);
+            if (free < requested) {
+                metrics.rejected("store_full");
+            }
+            return Math.min(free, requested);
+        });
+    }
+
+    /** Reads a page from memory and the archived tasks after the same cursor, and merges them by id */
+    private Mono<List<Todo>> mergedPage(int afterId, int limit) {
+        return todoRepository.findPage(afterId, limit).zipWith(todoRepository.findArchivedPage(afterId, limit),
+                (hot, archived) -> TodoValidator.mergeArchived(hot, archived, limit));
+    }
+
+    /** Times from subscription until the result completes, fails or is cancelled */
+    private <T> Mono<T> timed(Operation operation, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = metrics.start();
+            return mono.doFinally(signal -> metrics.stop(operation, start));
+        });
+    }
+
+    private <T> Flux<T> timed(Operation operation, Flux<T> flux) {
+        return Flux.defer(() -> {
+            long start = metrics.start();
+            return flux.doFinally(signal -> metrics.stop(operation, start));
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.crudzaso.TinyTasks.service;
+
+/**
+ * Thrown when a task cannot be created because the store holds the configured maximum.
+ * Unlike a validation error, the same request may succeed once tasks are deleted.
+ */
+public class StoreFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     *
+     * @param maxTodos the configured cap
+     */
+    public StoreFullException(int maxTodos) {
+        super("Store is full: at most " + maxTodos + " tasks may be stored");
+    }
+}
@@ -0,0 +1,19 @@
+package com.crudzaso.TinyTasks.service;
+
+/**
+ * Thrown when a request names a tenant that does not exist yet and the configured number of
+ * tenants already exists. Requests for existing tenants are unaffected.
+ */
+public class TenantLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     *
+     * @param maxTenants the configured limit
+     */
+    public TenantLimitException(int maxTenants) {
+        super("Tenant limit reached: at most " + maxTenants + " tenants may exist");
+    }
+}
@@ -0,0 +1,131 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.ChangeLogProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, sequence-numbered record of which tasks changed.
+ * Each change takes the next sequence number and overwrites the oldest entry once the ring
+ * is full. Only ids are kept: readers look up the current state of every changed id, so two
+ * concurrent changes to one task can never leave a stale state behind.
+ *
+ * <p>Sequence numbers start from the wall clock in microseconds, so cursors handed out
+ * before a restart fall outside the new window and lead to a resync instead of a wrong diff.
+ */
+@Component
+public class TodoChangeLog {
+
+    /** Retained changes when no configuration is given */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int[] ids;
+    private final long first;
+    private volatile long latest;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Ids changed after a cursor, and the cursor to use next time.
+     *
+     * @param latest sequence number of the newest change included
+     * @param ids distinct changed ids, oldest change first
+     */
+    public record Window(long latest, int[] ids) {
+    }
+
+    /**
+     * Creates a change log sized from configuration.
+     *
+     * @param properties change feed settings
+     */
+    @Autowired
+    public TodoChangeLog(ChangeLogProperties properties) {
+        this(properties.capacity());
+    }
+
+    /**
+     * Creates a change log retaining the given number of changes.
+     *
+     * @param capacity number of changes kept, at least 1
+     */
+    public TodoChangeLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.ids = new int[capacity];
+        this.first = System.currentTimeMillis() * 1000;
+        this.latest = first;
+    }
+
+    /**
+     * Records that a task was created, updated or deleted, then notifies listeners.
+     * Must be called after the change is visible in the repository.
+     *
+     * @param id the task identifier
+     */
+    public void record(int id) {
+        lock.lock();
+        try {
+            long sequence = latest + 1;
+            ids[(int) (sequence % ids.length)] = id;
+            latest = sequence;
+        } finally {
+            lock.unlock();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers a callback run on the mutating thread after every recorded change.
+     * Listeners must return quickly and never block; read the changes with {@link #since(long)}.
+     *
+     * @param listener the callback
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the sequence number of the newest change.
+     * Every change up to it is visible in the repository.
+     *
+     * @return the latest sequence number
+     */
+    public long latest() {
+        return latest;
+    }
+
+    /**
+     * Collects the ids changed after a cursor.
+     *
+     * @param since sequence number the caller is up to date with
+     * @return the changed ids, or null if the cursor is older than the retained window,
+     *         newer than any change, or from before a restart
+     */
+    public Window since(long since) {
+        long current;
+        int[] changed;
+        lock.lock();
+        try {
+            current = latest;
+            if (since < first || since < current - ids.length || since > current) {
+                return null;
+            }
+            changed = new int[(int) (current - since)];
+            for (int i = 0; i < changed.length; i++) {
+                changed[i] = ids[(int) ((since + 1 + i) % ids.length)];
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Window(current, Arrays.stream(changed).distinct().toArray());
+    }
+}
@@ -0,0 +1,271 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.StreamProperties;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes task changes to connected clients.
+ *
+ * <p>Subscribers hold no queue: each one keeps a cursor into the service's change log
+ * and, when woken, sends everything since that cursor as one {@link TodoChanges} batch.
+ * The mutating thread only flips a flag; fan-out and every blocking write run on virtual
+ * threads, so an idle stream costs no thread and a slow client delays nobody but itself.
+ * Changes that pile up while a client is slow are coalesced into its next batch, and a client
+ * that falls out of the change log's window gets a resync instead of an ever-growing backlog.
+ */
+@Component
+public class TodoEventBroadcaster implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoEventBroadcaster.class);
+
+    /** Open streams allowed when no configuration is given */
+    public static final int DEFAULT_MAX_SUBSCRIBERS = 20_000;
+
+    /** Keep-alive interval when no configuration is given */
+    public static final Duration DEFAULT_HEARTBEAT = Duration.ofSeconds(30);
+
+    private final TodoService todoService;
+    private final int maxSubscribers;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats;
+    private final boolean ownsHeartbeats;
+    private final ScheduledFuture<?> heartbeatTask;
+    private final AtomicBoolean fanOutScheduled = new AtomicBoolean();
+
+    /**
+     * Receives the batches of one subscriber. Calls are never concurrent for one sink.
+     */
+    public interface EventSink {
+
+        /**
+         * Writes a batch of changes; may block until the client accepts it.
+         *
+         * @param changes the changes since the previous batch
+         * @throws IOException if the client is gone
+         */
+        void send(TodoChanges changes) throws IOException;
+
+        /**
+         * Writes a keep-alive so proxies keep the idle connection open and dead clients are noticed.
+         *
+         * @throws IOException if the client is gone
+         */
+        void heartbeat() throws IOException;
+
+        /**
+         * Ends the stream after the subscription is cancelled or the client failed.
+         */
+        void close();
+    }
+
+    /**
+     * Creates a broadcaster with default limits.
+     *
+     * @param todoService source of changes
+     */
+    public TodoEventBroadcaster(TodoService todoService) {
+        this(todoService, DEFAULT_MAX_SUBSCRIBERS, DEFAULT_HEARTBEAT);
+    }
+
+    /**
+     * Creates a broadcaster with configured limits.
+     *
+     * @param todoService source of changes
+     * @param properties stream settings
+     */
+    @Autowired
+    public TodoEventBroadcaster(TodoService todoService, StreamProperties properties) {
+        this(todoService, properties.maxSubscribers(), properties.heartbeat());
+    }
+
+    /**
+     * Creates a broadcaster.
+     *
+     * @param todoService source of changes
+     * @param maxSubscribers open streams allowed at once
+     * @param heartbeat interval between keep-alives on idle streams
+     */
+    public TodoEventBroadcaster(TodoService todoService, int maxSubscribers, Duration heartbeat) {
+        this(todoService, maxSubscribers, heartbeat, null);
+    }
+
+    /**
+     * Creates a broadcaster whose keep-alives run on a scheduler shared with other broadcasters,
+     * so many of them add no threads. The scheduler stays running when this broadcaster closes.
+     *
+     * @param todoService source of changes
+     * @param properties stream settings
+     * @param heartbeats scheduler owned by the caller
+     */
+    public TodoEventBroadcaster(TodoService todoService, StreamProperties properties,
+                                ScheduledExecutorService heartbeats) {
+        this(todoService, properties.maxSubscribers(), properties.heartbeat(), heartbeats);
+    }
+
+    private TodoEventBroadcaster(TodoService todoService, int maxSubscribers, Duration heartbeat,
+                                 ScheduledExecutorService sharedHeartbeats) {
+        this.todoService = todoService;
+        this.maxSubscribers = maxSubscribers;
+        this.ownsHeartbeats = sharedHeartbeats == null;
+        this.heartbeats = ownsHeartbeats
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                        .name("tinytasks-stream-heartbeat").daemon().factory())
+                : sharedHeartbeats;
+        long period = heartbeat.toMillis();
+        this.heartbeatTask = heartbeats.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        todoService.addChangeListener(this::changed);
+    }
+
+    /**
+     * Starts streaming to a client.
+     *
+     * @param sink where batches are written
+     * @param since change cursor the client is current with, usually the {@code X-Change-Seq}
+     *              of its list or the last event id it saw; null to start from now
+     * @return the subscription, or null if the subscriber limit is reached
+     */
+    public Subscription subscribe(EventSink sink, Long since) {
+        if (subscriptions.size() >= maxSubscribers) {
+            return null;
+        }
+        long cursor = since == null ? todoService.getChangeSequence() : since;
+        Subscription subscription = new Subscription(sink, cursor);
+        subscriptions.add(subscription);
+        // Catches up on anything recorded before the fan-out could see the new subscriber
+        subscription.wake();
+        return subscription;
+    }
+
+    /**
+     * Gets the number of open streams.
+     *
+     * @return subscriber count
+     */
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /** Runs on the mutating thread: at most one fan-out is ever queued */
+    private void changed() {
+        if (fanOutScheduled.compareAndSet(false, true)) {
+            senders.execute(this::fanOut);
+        }
+    }
+
+    private void fanOut() {
+        fanOutScheduled.set(false);
+        for (Subscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeat();
+        }
+    }
+
+    /**
+     * Cancels every subscription and stops the sender threads.
+     */
+    @Override
+    public void close() {
+        if (ownsHeartbeats) {
+            heartbeats.shutdownNow();
+        } else {
+            heartbeatTask.cancel(false);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        senders.shutdownNow();
+    }
+
+    /**
+     * One connected client and its position in the change log.
+     */
+    public final class Subscription {
+
+        private final EventSink sink;
+
+        /** Set while a sender owns this subscription; guards the cursor and the sink */
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private long cursor;
+
+        private Subscription(EventSink sink, long cursor) {
+            this.sink = sink;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Stops streaming and closes the sink.
+         */
+        public void cancel() {
+            if (subscriptions.remove(this)) {
+                sink.close();
+            }
+        }
+
+        private void wake() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    if (todoService.getChangeSequence() != cursor) {
+                        TodoChanges changes = todoService.getChangesSince(cursor);
+                        sink.send(changes);
+                        cursor = changes.latest();
+                        continue;
+                    }
+                    sending.set(false);
+                    // A change recorded after the check above may have found us still sending
+                    if (todoService.getChangeSequence() == cursor || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Dropping stream subscriber: {}", e.toString());
+                cancel();
+            }
+        }
+
+        private void heartbeat() {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+            senders.execute(() -> {
+                try {
+                    sink.heartbeat();
+                } catch (IOException | RuntimeException e) {
+                    cancel();
+                    return;
+                }
+                // Hand over to a drain in case a change arrived while the heartbeat held the flag
+                sending.set(false);
+                if (todoService.getChangeSequence() != cursor) {
+                    wake();
+                }
+            });
+        }
+    }
+}
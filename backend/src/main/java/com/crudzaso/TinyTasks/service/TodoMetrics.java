@@ -0,0 +1,52 @@
+package com.crudzaso.TinyTasks.service;
+
+/**
+ * Instrumentation hooks called by {@link TodoService}.
+ * Every method has an empty default, so {@link #NOOP} costs nothing once the JIT inlines it;
+ * that is the implementation used when {@code tinytasks.metrics.enabled=false}.
+ */
+public interface TodoMetrics {
+
+    /** Implementation that records nothing */
+    TodoMetrics NOOP = new TodoMetrics() {
+    };
+
+    /** Service operations timed individually */
+    enum Operation {
+        LIST, PAGE, FILTER, SEARCH, CHANGES, COUNT, CREATE, TOGGLE, DELETE, BATCH_CREATE, BATCH_TOGGLE, BATCH_DELETE
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return an opaque start mark to pass to {@link #stop(Operation, long)}
+     */
+    default long start() {
+        return 0L;
+    }
+
+    /**
+     * Records the latency of an operation started with {@link #start()}.
+     *
+     * @param operation the operation that finished
+     * @param start the mark returned by {@link #start()}
+     */
+    default void stop(Operation operation, long start) {
+    }
+
+    /**
+     * Counts a request rejected by validation.
+     *
+     * @param reason short machine-readable reason, such as {@code title} or {@code batch_size}
+     */
+    default void rejected(String reason) {
+    }
+
+    /**
+     * Counts an operation that referenced a task that does not exist.
+     *
+     * @param operation the operation that missed
+     */
+    default void notFound(Operation operation) {
+    }
+}
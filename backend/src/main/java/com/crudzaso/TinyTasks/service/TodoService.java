@@ -1,9 +1,18 @@
 package com.crudzaso.TinyTasks.service;
 
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.model.BatchResult;
 import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoCounts;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
 import com.crudzaso.TinyTasks.repository.TodoRepository;
+import com.crudzaso.TinyTasks.service.TodoMetrics.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,15 +23,69 @@ import java.util.Optional;
 @Service
 public class TodoService {
 
+    /** Largest page a single request may ask for */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Largest number of items a single batch request may carry */
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final TodoRepository todoRepository;
+    private final TodoMetrics metrics;
+    private final TodoChangeLog changeLog;
+    private final TodoValidator validator;
+
+    /** Tasks the store may hold, or {@link Integer#MAX_VALUE} when unlimited */
+    private final int maxTodos;
 
     /**
-     * Constructs service with repository dependency injection.
+     * Constructs an uninstrumented service.
      *
      * @param todoRepository the data access layer
      */
     public TodoService(TodoRepository todoRepository) {
+        this(todoRepository, TodoMetrics.NOOP);
+    }
+
+    /**
+     * Constructs an instrumented service with a default-sized change log.
+     *
+     * @param todoRepository the data access layer
+     * @param metrics receives latencies, rejections and not-found events
+     */
+    public TodoService(TodoRepository todoRepository, TodoMetrics metrics) {
+        this(todoRepository, metrics, new TodoChangeLog(TodoChangeLog.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a service without a cap on the number of stored tasks.
+     *
+     * @param todoRepository the data access layer
+     * @param metrics receives latencies, rejections and not-found events
+     * @param changeLog records the id of every task created, toggled or deleted, here or on
+     *                  another node when the repository is replicated
+     */
+    public TodoService(TodoRepository todoRepository, TodoMetrics metrics, TodoChangeLog changeLog) {
+        this(todoRepository, metrics, changeLog, new StoreProperties(0));
+    }
+
+    /**
+     * Constructs service with repository, metrics, change log and store limits dependency injection.
+     *
+     * @param todoRepository the data access layer
+     * @param metrics receives latencies, rejections and not-found events
+     * @param changeLog records the id of every task created, toggled or deleted, here or on
+     *                  another node when the repository is replicated
+     * @param storeProperties cap on the number of stored tasks
+     */
+    @Autowired
+    public TodoService(TodoRepository todoRepository, TodoMetrics metrics, TodoChangeLog changeLog,
+                       StoreProperties storeProperties) {
         this.todoRepository = todoRepository;
+        this.metrics = metrics;
+        this.changeLog = changeLog;
+        this.validator = new TodoValidator(metrics);
+        this.maxTodos = storeProperties.maxTodos() > 0 ? storeProperties.maxTodos() : Integer.MAX_VALUE;
+        todoRepository.addRemoteChangeListener(changeLog::record);
     }
 
     /**
@@ -31,7 +94,232 @@ public class TodoService {
      * @return list of all {@link Todo} objects
      */
     public List<Todo> getAllTodos() {
-        return todoRepository.findAll();
+        long start = metrics.start();
+        try {
+            return todoRepository.findAll();
+        } finally {
+            metrics.stop(Operation.LIST, start);
+        }
+    }
+
+    /**
+     * Retrieves one page of tasks after the given cursor, in ascending id order.
+     *
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link #MAX_PAGE_SIZE}
+     * @return list of at most {@code limit} {@link Todo} objects
+     * @throws IllegalArgumentException if the cursor is negative or the limit is out of range
+     */
+    public List<Todo> getTodoPage(int afterId, int limit) {
+        validator.page(afterId, limit);
+        long start = metrics.start();
+        try {
+            return todoRepository.findPage(afterId, limit);
+        } finally {
+            metrics.stop(Operation.PAGE, start);
+        }
+    }
+
+    /**
+     * Retrieves one page of completed or pending tasks after the given cursor, in ascending id order.
+     * Served from the repository's done/pending index, so the cost does not depend on
+     * how many tasks have the other status.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link #MAX_PAGE_SIZE}
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     * @throws IllegalArgumentException if the cursor is negative or the limit is out of range
+     */
+    public List<Todo> getTodoPageByDone(boolean done, int afterId, int limit) {
+        validator.page(afterId, limit);
+        long start = metrics.start();
+        try {
+            return todoRepository.findByDone(done, afterId, limit);
+        } finally {
+            metrics.stop(Operation.FILTER, start);
+        }
+    }
+
+    /**
+     * Retrieves every task, archived ones included when asked, in ascending id order.
+     *
+     * @param includeArchived true to add tasks the repository moved to cold storage
+     * @return list of all {@link Todo} objects
+     */
+    public List<Todo> getAllTodos(boolean includeArchived) {
+        if (!includeArchived) {
+            return getAllTodos();
+        }
+        long start = metrics.start();
+        try {
+            List<Todo> all = new ArrayList<>();
+            int after = 0;
+            List<Todo> page;
+            do {
+                page = mergeArchived(todoRepository.findPage(after, MAX_PAGE_SIZE), after, MAX_PAGE_SIZE);
+                all.addAll(page);
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == MAX_PAGE_SIZE);
+            return all;
+        } finally {
+            metrics.stop(Operation.LIST, start);
+        }
+    }
+
+    /**
+     * Retrieves one page of tasks after the given cursor, archived ones included when asked.
+     *
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link #MAX_PAGE_SIZE}
+     * @param includeArchived true to merge in tasks the repository moved to cold storage
+     * @return list of at most {@code limit} {@link Todo} objects
+     * @throws IllegalArgumentException if the cursor is negative or the limit is out of range
+     */
+    public List<Todo> getTodoPage(int afterId, int limit, boolean includeArchived) {
+        if (!includeArchived) {
+            return getTodoPage(afterId, limit);
+        }
+        validator.page(afterId, limit);
+        long start = metrics.start();
+        try {
+            return mergeArchived(todoRepository.findPage(afterId, limit), afterId, limit);
+        } finally {
+            metrics.stop(Operation.PAGE, start);
+        }
+    }
+
+    /**
+     * Retrieves one page of completed or pending tasks, archived ones included when asked.
+     * Archived tasks are all completed, so they only add to pages of completed tasks.
+     *
+     * @param done true for completed tasks, false for pending ones
+     * @param afterId id of the last task of the previous page, or 0 for the first page
+     * @param limit maximum number of tasks to return, between 1 and {@link #MAX_PAGE_SIZE}
+     * @param includeArchived true to merge in tasks the repository moved to cold storage
+     * @return list of at most {@code limit} matching {@link Todo} objects
+     * @throws IllegalArgumentException if the cursor is negative or the limit is out of range
+     */
+    public List<Todo> getTodoPageByDone(boolean done, int afterId, int limit, boolean includeArchived) {
+        if (!includeArchived || !done) {
+            return getTodoPageByDone(done, afterId, limit);
+        }
+        validator.page(afterId, limit);
+        long start = metrics.start();
+        try {
+            return mergeArchived(todoRepository.findByDone(true, afterId, limit), afterId, limit);
+        } finally {
+            metrics.stop(Operation.FILTER, start);
+        }
+    }
+
+    /**
+     * Searches task titles. Every word of the query must appear in the title, the last one
+     * possibly as a prefix; whole-word matches come first, newest first within each group.
+     *
+     * @param query free text to search for, not blank
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of tasks to return, between 1 and {@link #MAX_PAGE_SIZE}
+     * @return the total number of hits and the requested page
+     * @throws IllegalArgumentException if the query is blank, the offset negative or the limit out of range
+     */
+    public TodoSearchResult searchTodos(String query, int offset, int limit) {
+        validator.search(query, offset, limit);
+        long start = metrics.start();
+        try {
+            return todoRepository.search(query, offset, limit);
+        } finally {
+            metrics.stop(Operation.SEARCH, start);
+        }
+    }
+
+    /**
+     * Lists what changed since a cursor from a previous call.
+     * Only the tasks touched since then are returned, in their current state; a cursor
+     * outside the retained window yields a full resync instead. When the store does not
+     * fit in the heap the resync carries no tasks and asks the client to reload the list,
+     * which is streamed page by page.
+     *
+     * @param since the {@code latest} value of the previous response, or 0 to start
+     * @return the upserted tasks and deleted ids, plus the next cursor
+     */
+    public TodoChanges getChangesSince(long since) {
+        long start = metrics.start();
+        try {
+            TodoChangeLog.Window window = changeLog.since(since);
+            if (window == null) {
+                long latest = changeLog.latest();
+                if (!todoRepository.fitsInHeap()) {
+                    return TodoChanges.reload(latest);
+                }
+                return new TodoChanges(latest, true, todoRepository.findAll(), List.of());
+            }
+            List<Todo> upserted = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+            for (int id : window.ids()) {
+                todoRepository.findById(id).ifPresentOrElse(upserted::add, () -> deleted.add(id));
+            }
+            return new TodoChanges(window.latest(), false, upserted, deleted);
+        } finally {
+            metrics.stop(Operation.CHANGES, start);
+        }
+    }
+
+    /**
+     * Gets the sequence number of the newest recorded change.
+     * Every change up to it is visible to reads that start afterwards.
+     *
+     * @return the change cursor
+     */
+    public long getChangeSequence() {
+        return changeLog.latest();
+    }
+
+    /**
+     * Registers a callback run after every recorded change, on the mutating thread.
+     * It must not block; fetch the changes with {@link #getChangesSince(long)}.
+     *
+     * @param listener the callback
+     */
+    public void addChangeListener(Runnable listener) {
+        changeLog.addListener(listener);
+    }
+
+    /**
+     * Tells whether the whole list may be built in memory; when it may not, callers should
+     * read it with {@link #getTodoPage(int, int, boolean)} and write each page as it comes.
+     *
+     * @return true unless the storage engine may outgrow the heap
+     */
+    public boolean fitsInHeap() {
+        return todoRepository.fitsInHeap();
+    }
+
+    /**
+     * Gets the store version, which changes whenever a task is created, toggled or deleted.
+     *
+     * @return the current version, or -1 if the storage engine does not track one
+     */
+    public long getVersion() {
+        return todoRepository.version();
+    }
+
+    /**
+     * Counts stored tasks by completion status without reading them.
+     *
+     * @return total, completed and pending counts of tasks in memory, and archived tasks
+     */
+    public TodoCounts countTodos() {
+        long start = metrics.start();
+        try {
+            int done = todoRepository.countByDone(true);
+            int pending = todoRepository.countByDone(false);
+            return new TodoCounts(done + pending, done, pending, todoRepository.countArchived());
+        } finally {
+            metrics.stop(Operation.COUNT, start);
+        }
     }
 
     /**
@@ -42,34 +330,114 @@ public class TodoService {
      * @param title the task description
      * @return the created {@link Todo} with auto-generated ID
      * @throws IllegalArgumentException if title is null, empty, or less than 3 characters
+     * @throws StoreFullException if the store already holds the configured maximum
      */
     public Todo createTodo(String title) {
-        if (title == null || title.trim().isEmpty()) {
-            throw new IllegalArgumentException("Title is required");
+        Todo newTodo = new Todo(validator.title(title));
+        if (freeSlots(1) < 1) {
+            throw new StoreFullException(maxTodos);
         }
-        if (title.trim().length() < 3) {
-            throw new IllegalArgumentException("Title must be at least 3 characters");
+        long start = metrics.start();
+        try {
+            Todo saved = todoRepository.save(newTodo);
+            changeLog.record(saved.getId());
+            return saved;
+        } finally {
+            metrics.stop(Operation.CREATE, start);
         }
+    }
 
-        Todo newTodo = new Todo(title.trim());
-        return todoRepository.save(newTodo);
+    /**
+     * Creates several tasks with one repository operation.
+     * Each title is validated with the same rules as {@link #createTodo(String)};
+     * invalid titles are reported per item and do not prevent the others from being saved.
+     * When the store cannot take every valid title, the first ones are saved and the rest
+     * are reported with status 507.
+     *
+     * @param titles the task descriptions, in order
+     * @return one {@link BatchResult} per title, in the same order
+     * @throws IllegalArgumentException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}
+     */
+    public List<BatchResult> createTodos(List<String> titles) {
+        validator.batchSize(titles.size());
+        BatchResult[] results = new BatchResult[titles.size()];
+        List<Todo> valid = new ArrayList<>(titles.size());
+        List<Integer> positions = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            try {
+                valid.add(new Todo(validator.title(titles.get(i))));
+                positions.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.badRequest(e.getMessage());
+            }
+        }
+        int admitted = freeSlots(valid.size());
+        for (int i = admitted; i < valid.size(); i++) {
+            results[positions.get(i)] = BatchResult.storeFull(new StoreFullException(maxTodos).getMessage());
+        }
+        long start = metrics.start();
+        List<Todo> saved;
+        try {
+            saved = todoRepository.saveAll(admitted == valid.size() ? valid : valid.subList(0, admitted));
+        } finally {
+            metrics.stop(Operation.BATCH_CREATE, start);
+        }
+        for (int i = 0; i < saved.size(); i++) {
+            changeLog.record(saved.get(i).getId());
+            results[positions.get(i)] = BatchResult.created(saved.get(i));
+        }
+        return Arrays.asList(results);
     }
 
     /**
      * Toggles the completion status of a task.
      * Changes done field from true to false or vice versa.
+     * The flip is delegated to the repository so it happens atomically.
      *
      * @param id the task identifier
      * @return Optional containing the updated {@link Todo} if found, empty otherwise
      */
     public Optional<Todo> toggleTodo(int id) {
-        Optional<Todo> todoOpt = todoRepository.findById(id);
-        if (todoOpt.isPresent()) {
-            Todo todo = todoOpt.get();
-            todo.setDone(!todo.isDone());
-            return Optional.of(todo);
+        long start = metrics.start();
+        try {
+            Optional<Todo> toggled = todoRepository.toggle(id);
+            if (toggled.isEmpty()) {
+                metrics.notFound(Operation.TOGGLE);
+            } else {
+                changeLog.record(id);
+            }
+            return toggled;
+        } finally {
+            metrics.stop(Operation.TOGGLE, start);
+        }
+    }
+
+    /**
+     * Toggles several tasks with one repository operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return one {@link BatchResult} per id, in the same order
+     * @throws IllegalArgumentException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}
+     */
+    public List<BatchResult> toggleTodos(int[] ids) {
+        validator.batchSize(ids.length);
+        long start = metrics.start();
+        try {
+            List<Optional<Todo>> toggled = todoRepository.toggleAll(ids);
+            List<BatchResult> results = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (toggled.get(i).isPresent()) {
+                    changeLog.record(ids[i]);
+                    results.add(BatchResult.ok(toggled.get(i).get()));
+                } else {
+                    metrics.notFound(Operation.BATCH_TOGGLE);
+                    results.add(BatchResult.notFound());
+                }
+            }
+            return results;
+        } finally {
+            metrics.stop(Operation.BATCH_TOGGLE, start);
         }
-        return Optional.empty();
     }
 
     /**
@@ -79,10 +447,70 @@ public class TodoService {
      * @return true if the task was found and deleted, false otherwise
      */
     public boolean deleteTodo(int id) {
-        if (todoRepository.findById(id).isPresent()) {
-            todoRepository.delete(id);
-            return true;
+        long start = metrics.start();
+        try {
+            boolean deleted = todoRepository.delete(id);
+            if (deleted) {
+                changeLog.record(id);
+            } else {
+                metrics.notFound(Operation.DELETE);
+            }
+            return deleted;
+        } finally {
+            metrics.stop(Operation.DELETE, start);
         }
-        return false;
+    }
+
+    /**
+     * Deletes several tasks with one repository operation.
+     *
+     * @param ids the task identifiers, in order
+     * @return one {@link BatchResult} per id, in the same order
+     * @throws IllegalArgumentException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}
+     */
+    public List<BatchResult> deleteTodos(int[] ids) {
+        validator.batchSize(ids.length);
+        long start = metrics.start();
+        try {
+            boolean[] deleted = todoRepository.deleteAll(ids);
+            List<BatchResult> results = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (deleted[i]) {
+                    changeLog.record(ids[i]);
+                    results.add(BatchResult.deleted());
+                } else {
+                    metrics.notFound(Operation.BATCH_DELETE);
+                    results.add(BatchResult.notFound());
+                }
+            }
+            return results;
+        } finally {
+            metrics.stop(Operation.BATCH_DELETE, start);
+        }
+    }
+
+    /**
+     * Counts how many of the requested creates still fit under {@link #maxTodos}.
+     * The count is read without reserving anything, so creates racing each other can
+     * overshoot the cap by at most what is in flight at once; the cap bounds growth
+     * rather than being an exact quota.
+     *
+     * @param requested number of tasks about to be created
+     * @return how many of them may be saved, between 0 and {@code requested}
+     */
+    private int freeSlots(int requested) {
+        if (maxTodos == Integer.MAX_VALUE) {
+            return requested;
+        }
+        int free = Math.max(0, maxTodos - todoRepository.count());
+        if (free < requested) {
+            metrics.rejected("store_full");
+        }
+        return Math.min(free, requested);
+    }
+
+    /** Merges the archived tasks after the same cursor into a page read from memory */
+    private List<Todo> mergeArchived(List<Todo> hot, int afterId, int limit) {
+        return TodoValidator.mergeArchived(hot, todoRepository.findArchivedPage(afterId, limit), limit);
     }
 }
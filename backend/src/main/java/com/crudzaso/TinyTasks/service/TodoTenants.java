@@ -0,0 +1,574 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.config.StreamProperties;
+import com.crudzaso.TinyTasks.config.TenantProperties;
+import com.crudzaso.TinyTasks.repository.TodoRepository;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Partitions tasks by tenant. Each named tenant gets its own {@link TodoRepositoryImp},
+ * {@link TodoService} and change log, so its lists, counts, versions and change feed only
+ * ever involve its own tasks. Requests without a tenant use the default tenant, which is
+ * the application's configured storage engine and service. Named tenants always live in a
+ * {@link TodoRepositoryImp} whatever {@code tinytasks.repository.type} says; they are only
+ * persisted when parked, so with a durable engine such as {@code wal} or {@code lsm} only the
+ * default tenant gets that engine's durability.
+ *
+ * <p>Named tenants are created on first use, up to {@link TenantProperties#maxTenants()} of
+ * them counting parked ones. Each is capped at {@link TenantProperties#maxTodos()} tasks, or at
+ * its share of {@link StoreProperties#maxTodos()} if that is smaller, so together they never
+ * hold more than the store cap. The default tenant keeps the full store cap on top of that,
+ * so the process as a whole may hold up to twice {@link StoreProperties#maxTodos()}. A tenant that sees no request for {@link TenantProperties#idleTimeout()} and has
+ * no open stream is written to a snapshot in {@link TenantProperties#directory()} and dropped
+ * from memory; its next request loads it back, and the snapshot stays until the next park
+ * atomically replaces it. Resident tenants are parked the same way on shutdown.
+ * A tenant that holds no task when it would be parked is dropped instead, with its snapshot,
+ * and no longer counts against the tenant limit, so names that were only read free their slot.
+ *
+ * <p>Looking up a resident tenant is one map read and usually no write; eviction and
+ * lookup agree through a compare-and-set on the tenant's last access time, so a tenant is
+ * never evicted under a request that has just looked it up.
+ */
+@Component
+public class TodoTenants implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoTenants.class);
+
+    /** Name of the tenant used when a request names none */
+    public static final String DEFAULT = "default";
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /** Marks a tenant whose last access time must no longer be advanced */
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    /**
+     * Notified as named tenants enter and leave memory, for per-tenant metrics. Calls for
+     * one tenant never overlap and must not look tenants up.
+     */
+    public interface Observer {
+
+        /** Observer that does nothing */
+        Observer NONE = new Observer() {
+        };
+
+        /**
+         * Called after a tenant is created or loaded back.
+         *
+         * @param name the tenant
+         * @param repository its store
+         */
+        default void loaded(String name, TodoRepository repository) {
+        }
+
+        /**
+         * Called after a tenant is written out and dropped.
+         *
+         * @param name the tenant
+         */
+        default void evicted(String name) {
+        }
+    }
+
+    /**
+     * Full-list body serialized for one store version, reused until the version changes.
+     *
+     * @param version store version the body was read at
+     * @param changeSequence change cursor the body is current with
+     * @param json the serialized list
+     */
+    public record CachedBody(long version, long changeSequence, byte[] json) {
+    }
+
+    private final Tenant defaultTenant;
+    private final TodoMetrics metrics;
+    private final TenantProperties properties;
+    private final StreamProperties streamProperties;
+    private final LongSupplier clock;
+    private final long idleNanos;
+
+    /** A tenant touched more recently than this is not worth another write of its access time */
+    private final long touchGranularity;
+
+    /** Tasks each named tenant may hold, 0 = unlimited */
+    private final int tenantMaxTodos;
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    /** Every named tenant, resident or parked, up to the tenant limit; empty tenants leave it when evicted */
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock admissionLock = new ReentrantLock();
+
+    /** Runs eviction and the keep-alives of every named tenant's streams */
+    private final ScheduledExecutorService scheduler;
+
+    /** Delay between idle sweeps */
+    private final long evictionPeriod;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Observer observer = Observer.NONE;
+
+    /**
+     * Creates a registry with default settings around the given default tenant, for tests
+     * and callers outside Spring.
+     *
+     * @param defaultService service of the default tenant
+     */
+    public TodoTenants(TodoService defaultService) {
+        this(defaultService, new TodoEventBroadcaster(defaultService), TodoMetrics.NOOP,
+                new TenantProperties(100_000, 100, 1000, Duration.ofMinutes(30), Path.of("data", "tenants")),
+                new StreamProperties(TodoEventBroadcaster.DEFAULT_MAX_SUBSCRIBERS, TodoEventBroadcaster.DEFAULT_HEARTBEAT),
+                new StoreProperties(0), System::nanoTime);
+    }
+
+    /**
+     * Creates the registry.
+     *
+     * @param defaultService service of the default tenant
+     * @param defaultBroadcaster live updates of the default tenant
+     * @param metrics service metrics shared by every tenant
+     * @param properties tenant limits and eviction settings
+     * @param streamProperties stream limits applied to each tenant
+     * @param storeProperties store cap the named tenants share
+     */
+    @Autowired
+    public TodoTenants(TodoService defaultService, TodoEventBroadcaster defaultBroadcaster, TodoMetrics metrics,
+                       TenantProperties properties, StreamProperties streamProperties,
+                       StoreProperties storeProperties) {
+        this(defaultService, defaultBroadcaster, metrics, properties, streamProperties, storeProperties,
+                System::nanoTime);
+    }
+
+    /**
+     * Creates the registry on the given clock.
+     *
+     * @param defaultService service of the default tenant
+     * @param defaultBroadcaster live updates of the default tenant
+     * @param metrics service metrics shared by every tenant
+     * @param properties tenant limits and eviction settings
+     * @param streamProperties stream limits applied to each tenant
+     * @param storeProperties store cap the named tenants share
+     * @param clock monotonic time in nanoseconds
+     * @throws UncheckedIOException if the parked tenants cannot be listed
+     */
+    public TodoTenants(TodoService defaultService, TodoEventBroadcaster defaultBroadcaster, TodoMetrics metrics,
+                       TenantProperties properties, StreamProperties streamProperties,
+                       StoreProperties storeProperties, LongSupplier clock) {
+        if (!properties.idleTimeout().isPositive()) {
+            throw new IllegalArgumentException("Tenant idle timeout must be positive");
+        }
+        if (properties.maxTenants() < 1) {
+            throw new IllegalArgumentException("Tenant limit must be positive");
+        }
+        this.tenantMaxTodos = tenantMaxTodos(properties, storeProperties);
+        this.metrics = metrics;
+        this.properties = properties;
+        this.streamProperties = streamProperties;
+        this.clock = clock;
+        this.idleNanos = properties.idleTimeout().toNanos();
+        this.touchGranularity = Math.min(TimeUnit.SECONDS.toNanos(1), idleNanos / 2);
+        this.defaultTenant = new Tenant(DEFAULT, defaultService, null, defaultBroadcaster);
+        this.evictionPeriod = Math.max(1000, Math.min(properties.idleTimeout().toMillis() / 2, 60_000));
+        findParked();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("tinytasks-tenant-scheduler").daemon().factory());
+    }
+
+    /**
+     * Starts evicting idle tenants in the background. Called by Spring once the registry is
+     * constructed; callers outside Spring that want idle tenants parked call it themselves,
+     * or call {@link #evictIdle()}. Calling it again has no effect.
+     */
+    @PostConstruct
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            scheduler.scheduleWithFixedDelay(this::evictIdleQuietly, evictionPeriod, evictionPeriod,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Divides the store cap between the named tenants, so all of them together stay within it;
+     * the default tenant is capped separately by its own service.
+     */
+    private static int tenantMaxTodos(TenantProperties properties, StoreProperties storeProperties) {
+        int cap = properties.maxTodos() > 0 ? properties.maxTodos() : Integer.MAX_VALUE;
+        if (storeProperties.maxTodos() > 0) {
+            cap = Math.min(cap, Math.max(1, storeProperties.maxTodos() / properties.maxTenants()));
+        }
+        return cap == Integer.MAX_VALUE ? 0 : cap;
+    }
+
+    /** Counts tenants parked by earlier runs against the tenant limit */
+    private void findParked() {
+        if (!Files.isDirectory(properties.directory())) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(file -> file.endsWith(SNAPSHOT_SUFFIX))
+                    .map(file -> file.substring(0, file.length() - SNAPSHOT_SUFFIX.length()))
+                    .filter(name -> NAME.matcher(name).matches())
+                    .forEach(known::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list parked tenants in " + properties.directory(), e);
+        }
+    }
+
+    /**
+     * Sets the observer notified as tenants are loaded and evicted.
+     *
+     * @param observer the observer
+     */
+    public void setObserver(Observer observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Gets a tenant, creating it or loading it back from disk if it is not in memory.
+     *
+     * @param name the tenant, or null or empty for the default tenant
+     * @return the tenant
+     * @throws IllegalArgumentException if the name is not 1 to 64 letters, digits, '-' or '_'
+     * @throws TenantLimitException if the tenant is new and the tenant limit is reached
+     * @throws UncheckedIOException if a parked tenant cannot be read back
+     */
+    public Tenant get(String name) {
+        if (name == null || name.isEmpty() || name.equals(DEFAULT)) {
+            return defaultTenant;
+        }
+        Tenant tenant = tenants.get(name);
+        if (tenant != null && tenant.touch()) {
+            return tenant;
+        }
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Tenant must be 1 to 64 letters, digits, '-' or '_'");
+        }
+        while (true) {
+            // An evicted tenant is removed under the same map lock, so this loops at most once
+            tenant = tenants.computeIfAbsent(name, this::load);
+            if (tenant.touch()) {
+                return tenant;
+            }
+        }
+    }
+
+    /**
+     * Registers a tenant seen for the first time, unless the tenant limit is reached. Called
+     * while loading it, under the same map lock that drops an empty tenant from {@link #known}.
+     */
+    private void admit(String name) {
+        if (known.contains(name)) {
+            return;
+        }
+        admissionLock.lock();
+        try {
+            if (!known.contains(name)) {
+                if (known.size() >= properties.maxTenants()) {
+                    throw new TenantLimitException(properties.maxTenants());
+                }
+                known.add(name);
+            }
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of named tenants in memory.
+     *
+     * @return resident tenants, the default one excluded
+     */
+    public int residentTenants() {
+        return tenants.size();
+    }
+
+    /**
+     * Gets the number of tasks held by named tenants in memory.
+     *
+     * @return tasks across resident tenants, the default one excluded
+     */
+    public long residentTodos() {
+        long total = 0;
+        for (Tenant tenant : tenants.values()) {
+            total += tenant.repository.count();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of tasks each named tenant may hold.
+     *
+     * @return the per-tenant cap, 0 = unlimited
+     */
+    public int tenantMaxTodos() {
+        return tenantMaxTodos;
+    }
+
+    /**
+     * Writes out and drops every named tenant idle for longer than the idle timeout.
+     *
+     * @return the number of tenants evicted
+     */
+    public int evictIdle() {
+        long idleBefore = clock.getAsLong() - idleNanos;
+        int evicted = 0;
+        for (String name : tenants.keySet()) {
+            if (evict(name, idleBefore, false)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Stops evicting and parks every resident tenant on disk.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (String name : tenants.keySet()) {
+            evict(name, Long.MAX_VALUE, true);
+        }
+    }
+
+    private void evictIdleQuietly() {
+        try {
+            evictIdle();
+        } catch (RuntimeException e) {
+            log.error("Tenant eviction failed", e);
+        }
+    }
+
+    /**
+     * Parks one tenant if it has been idle since {@code idleBefore}.
+     *
+     * @param name the tenant
+     * @param idleBefore last access time at or before which the tenant counts as idle
+     * @param force true to park it even with open streams, which are then closed
+     * @return true if the tenant was evicted
+     */
+    private boolean evict(String name, long idleBefore, boolean force) {
+        boolean[] evicted = {false};
+        tenants.computeIfPresent(name, (key, tenant) -> {
+            if ((!force && tenant.streaming()) || !tenant.markEvicted(idleBefore)) {
+                return tenant;
+            }
+            boolean empty = tenant.repository.count() == 0;
+            try {
+                if (empty) {
+                    Files.deleteIfExists(snapshotPath(name));
+                } else {
+                    tenant.repository.writeSnapshot(snapshotPath(name));
+                }
+            } catch (IOException e) {
+                log.error("Could not park tenant {}; keeping it in memory", name, e);
+                tenant.revive(clock.getAsLong());
+                return tenant;
+            }
+            tenant.closeBroadcaster();
+            if (empty) {
+                known.remove(name);
+            }
+            // Under the map lock, so it cannot interleave with loading the same tenant back
+            observer.evicted(name);
+            evicted[0] = true;
+            return null;
+        });
+        if (evicted[0]) {
+            log.debug("Evicted idle tenant {}", name);
+        }
+        return evicted[0];
+    }
+
+    private Tenant load(String name) {
+        admit(name);
+        Path snapshot = snapshotPath(name);
+        TodoRepositoryImp repository;
+        try {
+            // The snapshot stays until the next park replaces it, so a crash only loses what changed since
+            repository = TodoRepositoryImp.readSnapshot(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load tenant " + name, e);
+        }
+        TodoService service = new TodoService(repository, metrics, new TodoChangeLog(properties.changesCapacity()),
+                new StoreProperties(tenantMaxTodos));
+        Tenant tenant = new Tenant(name, service, repository, null);
+        observer.loaded(name, repository);
+        return tenant;
+    }
+
+    private Path snapshotPath(String name) {
+        return properties.directory().resolve(name + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * One tenant's service, live updates and cached list body.
+     */
+    public final class Tenant {
+
+        private final String name;
+        private final TodoService service;
+
+        /** Store of a named tenant; null for the default tenant, which is never evicted */
+        private final TodoRepositoryImp repository;
+
+        /** Distinguishes ETags of this incarnation from those of earlier ones */
+        private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+        private final AtomicLong lastAccess = new AtomicLong(clock.getAsLong());
+        private final ReentrantLock broadcasterLock = new ReentrantLock();
+        private volatile TodoEventBroadcaster broadcaster;
+        private volatile CachedBody cachedBody;
+
+        private Tenant(String name, TodoService service, TodoRepositoryImp repository, TodoEventBroadcaster broadcaster) {
+            this.name = name;
+            this.service = service;
+            this.repository = repository;
+            this.broadcaster = broadcaster;
+        }
+
+        /**
+         * Gets the tenant name.
+         *
+         * @return the name
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Gets the service over this tenant's tasks.
+         *
+         * @return the service
+         */
+        public TodoService service() {
+            return service;
+        }
+
+        /**
+         * Gets a prefix that makes ETags unique to this tenant and incarnation.
+         *
+         * @return the prefix
+         */
+        public String etagPrefix() {
+            return etagPrefix;
+        }
+
+        /**
+         * Gets the broadcaster for this tenant's live updates, creating it on first use.
+         *
+         * @return the broadcaster
+         */
+        public TodoEventBroadcaster broadcaster() {
+            TodoEventBroadcaster current = broadcaster;
+            if (current != null) {
+                return current;
+            }
+            broadcasterLock.lock();
+            try {
+                if (broadcaster == null) {
+                    broadcaster = new TodoEventBroadcaster(service, streamProperties, scheduler);
+                }
+                return broadcaster;
+            } finally {
+                broadcasterLock.unlock();
+            }
+        }
+
+        /**
+         * Gets the most recently cached full-list body.
+         *
+         * @return the body, or null if none was cached yet
+         */
+        public CachedBody cachedBody() {
+            return cachedBody;
+        }
+
+        /**
+         * Caches a full-list body unless a newer version is already cached.
+         *
+         * @param body the serialized list
+         */
+        public void cacheBody(CachedBody body) {
+            CachedBody current = cachedBody;
+            if (current == null || current.version() < body.version()) {
+                cachedBody = body;
+            }
+        }
+
+        /**
+         * Records that the tenant is in use, which postpones its eviction.
+         *
+         * @return false if the tenant was evicted and must be looked up again
+         */
+        public boolean touch() {
+            while (true) {
+                long last = lastAccess.get();
+                if (last == EVICTED) {
+                    return false;
+                }
+                long now = clock.getAsLong();
+                if (now - last < touchGranularity || lastAccess.compareAndSet(last, now)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean markEvicted(long idleBefore) {
+            while (true) {
+                long last = lastAccess.get();
+                // Long.MAX_VALUE means now, whatever the clock's origin
+                if (last == EVICTED || (idleBefore != Long.MAX_VALUE && last - idleBefore > 0)) {
+                    return false;
+                }
+                if (lastAccess.compareAndSet(last, EVICTED)) {
+                    return true;
+                }
+            }
+        }
+
+        private void revive(long now) {
+            lastAccess.set(now);
+        }
+
+        private boolean streaming() {
+            TodoEventBroadcaster current = broadcaster;
+            return current != null && current.subscriberCount() > 0;
+        }
+
+        private void closeBroadcaster() {
+            TodoEventBroadcaster current = broadcaster;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.model.Todo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request rules shared by {@link TodoService} and {@link ReactiveTodoService}, so both APIs
+ * accept the same input and count the same rejections.
+ */
+final class TodoValidator {
+
+    private final TodoMetrics metrics;
+
+    /**
+     * Creates a validator.
+     *
+     * @param metrics counts every rejection by reason
+     */
+    TodoValidator(TodoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Validates a task title.
+     * Title must not be empty and must have at least 3 characters after trimming.
+     *
+     * @param title the task description
+     * @return the trimmed title
+     * @throws IllegalArgumentException if title is null, empty, or less than 3 characters
+     */
+    String title(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            metrics.rejected("title");
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (title.trim().length() < 3) {
+            metrics.rejected("title");
+            throw new IllegalArgumentException("Title must be at least 3 characters");
+        }
+        return title.trim();
+    }
+
+    void page(int afterId, int limit) {
+        if (afterId < 0) {
+            metrics.rejected("cursor");
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        limit(limit);
+    }
+
+    void search(String query, int offset, int limit) {
+        if (query == null || query.isBlank()) {
+            metrics.rejected("query");
+            throw new IllegalArgumentException("Query must not be empty");
+        }
+        if (offset < 0) {
+            metrics.rejected("offset");
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        limit(limit);
+    }
+
+    void batchSize(int size) {
+        if (size < 1 || size > TodoService.MAX_BATCH_SIZE) {
+            metrics.rejected("batch_size");
+            throw new IllegalArgumentException("Batch must contain between 1 and " + TodoService.MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    private void limit(int limit) {
+        if (limit < 1 || limit > TodoService.MAX_PAGE_SIZE) {
+            metrics.rejected("limit");
+            throw new IllegalArgumentException("Limit must be between 1 and " + TodoService.MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Merges a page from memory with the archived tasks after the same cursor, by id.
+     * A task caught in both tiers while being archived or reopened is listed once.
+     *
+     * @param hot page read from the repository's memory tier
+     * @param archived page read from its cold tier after the same cursor
+     * @param limit maximum number of tasks in the merged page
+     * @return at most {@code limit} tasks in ascending id order
+     */
+    static List<Todo> mergeArchived(List<Todo> hot, List<Todo> archived, int limit) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Todo> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            if (a == archived.size() || (h < hot.size() && hot.get(h).getId() <= archived.get(a).getId())) {
+                if (a < archived.size() && hot.get(h).getId() == archived.get(a).getId()) {
+                    a++;
+                }
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+}
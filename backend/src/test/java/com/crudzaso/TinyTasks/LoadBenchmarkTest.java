@@ -0,0 +1,167 @@
+package com.crudzaso.TinyTasks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load harness comparing the platform-thread Tomcat pool, virtual-thread request execution and
+ * the reactive stack (WebFlux on Netty over the storage thread pool).
+ * Each mode boots the full application on a random port and is driven over HTTP by many
+ * concurrent clients running a create/page/toggle mix.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark}. The defaults use the WAL engine with
+ * {@code fsync=always}, so every write blocks on the disk; tune with
+ * {@code -Dtinytasks.bench.engine}, {@code -Dtinytasks.bench.clients} and
+ * {@code -Dtinytasks.bench.seconds}.
+ */
+@Tag("benchmark")
+@DisplayName("Load Benchmark")
+class LoadBenchmarkTest {
+
+    private static final String ENGINE = System.getProperty("tinytasks.bench.engine", "wal");
+    private static final int CLIENTS = Integer.getInteger("tinytasks.bench.clients", 1000);
+    private static final int SECONDS = Integer.getInteger("tinytasks.bench.seconds", 10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Report latency percentiles and throughput for platform threads, virtual threads and WebFlux")
+    void reportPlatformVsVirtualThreadsVsReactive() throws Exception {
+        System.out.printf("engine=%s clients=%d duration=%ds%n", ENGINE, CLIENTS, SECONDS);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "stack", "requests", "req/sec", "p50 ms", "p99 ms", "errors");
+        for (String mode : List.of("platform", "virtual", "reactive")) {
+            try (ConfigurableApplicationContext context = start(mode)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI base = URI.create("http://localhost:" + port + "/api/todos");
+                // Warm up the JIT and connection pools before measuring
+                drive(base, Math.max(1, SECONDS / 5));
+                Result result = drive(base, SECONDS);
+                System.out.printf("%-10s %12d %10.0f %10.2f %10.2f %8d%n", mode,
+                        result.latencies.length, result.latencies.length / (double) SECONDS,
+                        result.percentile(0.50), result.percentile(0.99), result.errors);
+                assertTrue(result.latencies.length > 0);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(String mode) {
+        // Passed as arguments rather than default properties, so they win over application.properties
+        return new SpringApplicationBuilder(TinyTasksApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                        "--spring.main.web-application-type=" + (mode.equals("reactive") ? "reactive" : "servlet"),
+                        "--tinytasks.repository.type=" + ENGINE,
+                        // Every simulated client shares one address; measure the server, not the limiter
+                        "--tinytasks.rate-limit.enabled=false",
+                        "--tinytasks.store.max-todos=0",
+                        "--tinytasks.wal.directory=" + directory.resolve(mode),
+                        "--tinytasks.lsm.directory=" + directory.resolve(mode).resolve("lsm"),
+                        "--tinytasks.mapped.snapshot=" + directory.resolve(mode).resolve("todos.snapshot"));
+    }
+
+    private Result drive(URI base, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            List<Future<Result>> futures = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> client(http, base, deadline)));
+            }
+            List<Result> results = new ArrayList<>(CLIENTS);
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return Result.merge(results);
+        }
+    }
+
+    /** One simulated user: create a task, read a page, toggle the task, until the deadline */
+    private static Result client(HttpClient http, URI base, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        int errors = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int lastId = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = switch (count % 3) {
+                case 0 -> HttpRequest.newBuilder(base)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Load task " + random.nextInt() + "\"}"))
+                        .build();
+                case 1 -> HttpRequest.newBuilder(URI.create(base + "?after=" + Math.max(0, lastId - 50) + "&limit=20"))
+                        .GET()
+                        .build();
+                default -> HttpRequest.newBuilder(URI.create(base + "/" + lastId + "/toggle"))
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+            };
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() >= 400) {
+                    errors++;
+                } else if (count % 3 == 0) {
+                    lastId = parseId(response.body());
+                }
+            } catch (Exception e) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private static int parseId(String body) {
+        int start = body.indexOf("\"id\":") + 5;
+        int end = start;
+        while (end < body.length() && Character.isDigit(body.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(body, start, end, 10);
+    }
+
+    private record Result(long[] latencies, int errors) {
+
+        static Result merge(List<Result> results) {
+            long[] all = results.stream().flatMapToLong(result -> Arrays.stream(result.latencies)).sorted().toArray();
+            return new Result(all, results.stream().mapToInt(Result::errors).sum());
+        }
+
+        double percentile(double quantile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
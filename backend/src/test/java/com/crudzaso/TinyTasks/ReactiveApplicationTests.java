@@ -0,0 +1,59 @@
+package com.crudzaso.TinyTasks;
+
+import com.crudzaso.TinyTasks.controller.ReactiveTodoController;
+import com.crudzaso.TinyTasks.controller.TodoController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.main.web-application-type=reactive",
+        "tinytasks.rate-limit.writes-per-second=1",
+        "tinytasks.rate-limit.write-burst=2"
+})
+@AutoConfigureWebTestClient
+@DisplayName("Reactive stack")
+class ReactiveApplicationTests {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    @DisplayName("Should serve /api/todos from the reactive controller on Netty, behind the rate limiter")
+    void servesApiOnReactiveStack() {
+        // Given
+        assertInstanceOf(NettyWebServer.class, ((ReactiveWebServerApplicationContext) context).getWebServer());
+        assertEquals(1, context.getBeansOfType(ReactiveTodoController.class).size());
+        assertTrue(context.getBeansOfType(TodoController.class).isEmpty());
+
+        // When & Then
+        for (int i = 1; i <= 2; i++) {
+            client.post().uri("/api/todos").contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"title\":\"Task " + i + "\"}")
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        client.post().uri("/api/todos").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"title\":\"Task 3\"}")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+        client.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+    }
+}
@@ -0,0 +1,211 @@
+package com.crudzaso.TinyTasks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Startup harness for the deployment modes: the plain jar, the extracted jar with a CDS
+ * archive, the same with Spring AOT, and the native executable when one has been built.
+ * Each mode is launched as a separate process and timed from launch to the first
+ * {@code 200} from {@code GET /api/todos}; its resident set size is read at that moment.
+ *
+ * <p>Build first, then run the harness:
+ * <pre>
+ * mvn -Pfast-start package -DskipTests
+ * mvn -Pnative native:compile -DskipTests      # optional, needs GraalVM
+ * mvn test -Pbenchmark -Dtest=StartupBenchmarkTest
+ * </pre>
+ * Tune with {@code -Dtinytasks.bench.jar}, {@code -Dtinytasks.bench.native} and
+ * {@code -Dtinytasks.bench.runs}. RSS is read from {@code /proc}, so it is only reported on Linux.
+ */
+@Tag("benchmark")
+@DisplayName("Startup Benchmark")
+class StartupBenchmarkTest {
+
+    private static final Path JAR = Path.of(System.getProperty("tinytasks.bench.jar", "target/TinyTasks-0.0.1-SNAPSHOT.jar"));
+    private static final Path NATIVE = Path.of(System.getProperty("tinytasks.bench.native", "target/TinyTasks"));
+    private static final int RUNS = Integer.getInteger("tinytasks.bench.runs", 5);
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/com/crudzaso/TinyTasks/TinyTasksApplication__ApplicationContextInitializer.class";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @TempDir
+    Path directory;
+
+    /**
+     * One way of launching the application.
+     *
+     * @param name label in the report
+     * @param command the command line, without the port, which goes in {@code PORT}
+     */
+    private record Mode(String name, List<String> command) {
+    }
+
+    /**
+     * Outcome of one launch.
+     *
+     * @param millis launch to first successful request
+     * @param rssKilobytes resident set size at that moment, or -1 if unknown
+     */
+    private record Sample(long millis, long rssKilobytes) {
+    }
+
+    @Test
+    @DisplayName("Report time to first GET /api/todos and RSS for each startup mode")
+    void reportStartupModes() throws Exception {
+        assertTrue(Files.exists(JAR), "build the jar first: mvn -Pfast-start package -DskipTests");
+        List<Mode> modes = modes();
+        System.out.printf("runs=%d jar=%s%n", RUNS, JAR);
+        System.out.printf("%-10s %18s %10s%n", "mode", "first GET ms (p50)", "RSS MB");
+        for (Mode mode : modes) {
+            long[] millis = new long[RUNS];
+            long[] rss = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                Sample sample = launch(mode);
+                millis[run] = sample.millis();
+                rss[run] = sample.rssKilobytes();
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rss);
+            long medianRss = rss[RUNS / 2];
+            System.out.printf("%-10s %18d %10s%n", mode.name(), millis[RUNS / 2],
+                    medianRss < 0 ? "-" : String.valueOf(medianRss / 1024));
+        }
+    }
+
+    private List<Mode> modes() throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("jar", List.of(java, "-jar", JAR.toAbsolutePath().toString())));
+
+        Path extracted = directory.resolve("application");
+        run(List.of(java, "-Djarmode=tools", "-jar", JAR.toAbsolutePath().toString(),
+                "extract", "--destination", extracted.toString()));
+        String application = extracted.resolve(JAR.getFileName()).toString();
+
+        Path cds = directory.resolve("cds.jsa");
+        train(List.of(java, "-XX:ArchiveClassesAtExit=" + cds, "-Dspring.context.exit=onRefresh", "-jar", application));
+        modes.add(new Mode("cds", List.of(java, "-XX:SharedArchiveFile=" + cds, "-jar", application)));
+
+        boolean aotProcessed;
+        try (JarFile jar = new JarFile(JAR.toFile())) {
+            aotProcessed = jar.getEntry(AOT_INITIALIZER) != null;
+        }
+        if (aotProcessed) {
+            Path aotCds = directory.resolve("aot-cds.jsa");
+            train(List.of(java, "-XX:ArchiveClassesAtExit=" + aotCds, "-Dspring.aot.enabled=true",
+                    "-Dspring.context.exit=onRefresh", "-jar", application));
+            modes.add(new Mode("aot+cds", List.of(java, "-XX:SharedArchiveFile=" + aotCds,
+                    "-Dspring.aot.enabled=true", "-jar", application)));
+        } else {
+            System.out.println("aot+cds skipped: the jar was not built with -Pfast-start");
+        }
+
+        if (Files.isExecutable(NATIVE)) {
+            modes.add(new Mode("native", List.of(NATIVE.toAbsolutePath().toString())));
+        } else {
+            System.out.println("native skipped: no executable at " + NATIVE);
+        }
+        return modes;
+    }
+
+    /** Starts the application, polls until it answers and stops it again */
+    private Sample launch(Mode mode) throws Exception {
+        int port = freePort();
+        Path data = Files.createTempDirectory(directory, "data");
+        ProcessBuilder builder = new ProcessBuilder(mode.command())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("startup.log").toFile());
+        builder.environment().put("PORT", String.valueOf(port));
+        builder.environment().put("TINYTASKS_DATA_DIR", data.toString());
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/todos"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    fail(mode.name() + " exited with " + process.exitValue() + "; see " + directory.resolve("startup.log"));
+                }
+                assertTrue(System.nanoTime() - start < STARTUP_TIMEOUT.toNanos(), mode.name() + " did not start");
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        return new Sample(millis, rssKilobytes(process.pid()));
+                    }
+                } catch (IOException notListening) {
+                    // Not accepting connections yet
+                }
+                Thread.sleep(5);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /** Runs the application until its context is refreshed, writing a CDS archive on exit */
+    private void train(List<String> command) throws Exception {
+        Path data = Files.createTempDirectory(directory, "training");
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().put("PORT", "0");
+        builder.environment().put("TINYTASKS_DATA_DIR", data.toString());
+        run(builder);
+    }
+
+    private void run(List<String> command) throws Exception {
+        run(new ProcessBuilder(command));
+    }
+
+    private void run(ProcessBuilder builder) throws Exception {
+        Process process = builder.redirectErrorStream(true)
+                .redirectOutput(directory.resolve("prepare.log").toFile())
+                .start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "preparation step timed out");
+        assertEquals(0, process.exitValue(), "preparation step failed; see " + directory.resolve("prepare.log"));
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.crudzaso.TinyTasks.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AotSettingsCheck Tests")
+class AotSettingsCheckTest {
+
+    @Test
+    @DisplayName("Should accept runtime settings equal to the build-time ones, defaults included")
+    void shouldAcceptMatchingSettings() {
+        // Given: a build with every default
+        Properties baked = AotSettingsCheck.snapshot(new MockEnvironment());
+
+        // When & Then
+        assertEquals("memory", baked.getProperty("tinytasks.repository.type"));
+        assertDoesNotThrow(() -> AotSettingsCheck.verify(baked, new MockEnvironment()
+                .withProperty("tinytasks.repository.type", "memory")
+                .withProperty("spring.main.web-application-type", "SERVLET")));
+    }
+
+    @Test
+    @DisplayName("Should fail naming every setting that differs from the build")
+    void shouldRejectChangedSettings() {
+        // Given
+        Properties baked = AotSettingsCheck.snapshot(new MockEnvironment()
+                .withProperty("tinytasks.repository.type", "wal"));
+
+        // When
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> AotSettingsCheck.verify(baked,
+                new MockEnvironment()
+                        .withProperty("spring.main.web-application-type", "reactive")));
+
+        // Then
+        assertTrue(error.getMessage().contains("tinytasks.repository.type=memory (built with wal)"), error.getMessage());
+        assertTrue(error.getMessage().contains("spring.main.web-application-type=reactive (built with servlet)"),
+                error.getMessage());
+    }
+}
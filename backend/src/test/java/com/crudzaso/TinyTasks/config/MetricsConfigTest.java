@@ -0,0 +1,60 @@
+package com.crudzaso.TinyTasks.config;
+
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import com.crudzaso.TinyTasks.service.TodoEventBroadcaster;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import com.crudzaso.TinyTasks.service.TodoService;
+import com.crudzaso.TinyTasks.service.TodoTenants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MetricsConfig Tests")
+class MetricsConfigTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should publish each resident tenant's size and drop its gauge on eviction")
+    void shouldTagTenantSizeUntilEviction() {
+        // Given
+        AtomicLong clock = new AtomicLong();
+        TodoService defaultService = new TodoService(new TodoRepositoryImp());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (TodoTenants tenants = new TodoTenants(defaultService, new TodoEventBroadcaster(defaultService),
+                TodoMetrics.NOOP, new TenantProperties(0, 10, 100, Duration.ofMinutes(10), directory),
+                new StreamProperties(TodoEventBroadcaster.DEFAULT_MAX_SUBSCRIBERS, TodoEventBroadcaster.DEFAULT_HEARTBEAT),
+                new StoreProperties(0), clock::get)) {
+            MetricsConfig.instrumentTenants(tenants, registry);
+
+            // When
+            tenants.get("acme").service().createTodo("Task 1");
+            tenants.get("acme").service().createTodo("Task 2");
+            tenants.get("globex").service().createTodo("Task");
+
+            // Then
+            assertEquals(2, registry.get("tinytasks.tenants.todos").tag("tenant", "acme").gauge().value());
+            assertEquals(1, registry.get("tinytasks.tenants.todos").tag("tenant", "globex").gauge().value());
+            assertEquals(3, registry.get("tinytasks.tenants.todos.stored").gauge().value());
+
+            clock.addAndGet(TimeUnit.MINUTES.toNanos(11));
+            tenants.evictIdle();
+            assertNull(registry.find("tinytasks.tenants.todos").tag("tenant", "acme").gauge());
+            assertEquals(2, registry.get("tinytasks.tenants.evicted").counter().count());
+
+            tenants.get("acme");
+            Gauge reloaded = registry.get("tinytasks.tenants.todos").tag("tenant", "acme").gauge();
+            assertEquals(2, reloaded.value());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.repository.ReactiveTodoRepositoryAdapter;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import com.crudzaso.TinyTasks.service.ReactiveTodoService;
+import com.crudzaso.TinyTasks.service.TodoChangeLog;
+import com.crudzaso.TinyTasks.service.TodoEventBroadcaster;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import com.crudzaso.TinyTasks.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReactiveTodoController Tests")
+class ReactiveTodoControllerTest {
+
+    private WebTestClient client;
+    private TodoService todoService;
+    private ReactiveTodoRepositoryAdapter reactiveRepository;
+    private TodoEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        TodoRepositoryImp repository = new TodoRepositoryImp();
+        TodoChangeLog changeLog = new TodoChangeLog(TodoChangeLog.DEFAULT_CAPACITY);
+        todoService = new TodoService(repository, TodoMetrics.NOOP, changeLog);
+        // Two tasks per page, so every list below spans several storage reads
+        reactiveRepository = new ReactiveTodoRepositoryAdapter(repository,
+                Schedulers.newBoundedElastic(4, 100, "tinytasks-storage-test"), 2);
+        ReactiveTodoService reactiveService = new ReactiveTodoService(reactiveRepository, TodoMetrics.NOOP, changeLog,
+                new StoreProperties(3));
+        broadcaster = new TodoEventBroadcaster(todoService);
+        client = WebTestClient.bindToController(new ReactiveTodoController(reactiveService, broadcaster)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.close();
+        reactiveRepository.close();
+    }
+
+    @Test
+    @DisplayName("Should stream the full list with an ETag and answer a matching If-None-Match with 304")
+    void shouldStreamFullListWithEtag() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.createTodo("Task 3");
+
+        // When
+        String etag = client.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.noCache())
+                .expectHeader().exists(TodoController.CHANGE_SEQUENCE_HEADER)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[2].title").isEqualTo("Task 3")
+                .returnResult().getResponseHeaders().getETag();
+
+        // Then
+        assertNotNull(etag);
+        client.get().uri("/api/todos").header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        todoService.toggleTodo(1);
+        client.get().uri("/api/todos").header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("Should return keyset pages with the next cursor and reject invalid paging parameters")
+    void shouldReturnPages() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.createTodo("Task 3");
+        todoService.toggleTodo(3);
+
+        // When & Then
+        client.get().uri("/api/todos?after=0&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(TodoController.NEXT_CURSOR_HEADER, "2")
+                .expectBody().jsonPath("$[*].id").isEqualTo(List.of(1, 2));
+        client.get().uri("/api/todos?done=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(TodoController.NEXT_CURSOR_HEADER)
+                .expectBody().jsonPath("$[*].id").isEqualTo(List.of(3));
+        client.get().uri("/api/todos?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Limit must be between 1 and " + TodoService.MAX_PAGE_SIZE);
+        client.get().uri("/api/todos?include=everything")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should create tasks with 201, 400 on invalid titles and 507 once the store is full")
+    void shouldCreateTodos() {
+        // When & Then
+        client.post().uri("/api/todos").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"title\":\"Task 1\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isEqualTo(1).jsonPath("$.done").isEqualTo(false);
+        client.post().uri("/api/todos").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"title\":\"ab\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Title must be at least 3 characters");
+        client.post().uri("/api/todos/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"title\":\"Task 2\"},{\"title\":\"\"},{\"title\":\"Task 3\"},{\"title\":\"Task 4\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[*].status").isEqualTo(List.of(201, 400, 201, 507));
+        client.post().uri("/api/todos").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"title\":\"Task 5\"}")
+                .exchange()
+                .expectStatus().isEqualTo(507);
+    }
+
+    @Test
+    @DisplayName("Should toggle and delete tasks, answering 404 for unknown ids")
+    void shouldToggleAndDelete() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+
+        // When & Then
+        client.put().uri("/api/todos/1/toggle")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.done").isEqualTo(true);
+        client.put().uri("/api/todos/42/toggle").exchange().expectStatus().isNotFound();
+        client.put().uri("/api/todos/batch/toggle").contentType(MediaType.APPLICATION_JSON).bodyValue("[2, 42]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[*].status").isEqualTo(List.of(200, 404));
+        client.delete().uri("/api/todos/1").exchange().expectStatus().isNoContent();
+        client.delete().uri("/api/todos/1").exchange().expectStatus().isNotFound();
+        client.get().uri("/api/todos/count")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.total").isEqualTo(1).jsonPath("$.done").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should stream every task as newline-delimited JSON")
+    void shouldStreamNdjson() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.createTodo("Task 3");
+
+        // When
+        List<Todo> todos = client.get().uri("/api/todos")
+                .accept(MediaType.parseMediaType(TodoController.NDJSON))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TodoController.NDJSON)
+                .returnResult(Todo.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(todos);
+        assertEquals(List.of(1, 2, 3), todos.stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should push changes to stream subscribers as they happen")
+    void shouldStreamChanges() {
+        // Given
+        long since = todoService.getChangeSequence();
+        var events = client.get().uri("/api/todos/stream?since=" + since)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<TodoChanges>>() {
+                })
+                .getResponseBody();
+
+        // When
+        todoService.createTodo("Task 1");
+
+        // Then
+        StepVerifier.create(events)
+                .assertNext(opened -> assertEquals("connected", opened.comment()))
+                .assertNext(event -> {
+                    assertEquals("changes", event.event());
+                    assertNotNull(event.data());
+                    assertEquals(String.valueOf(event.data().latest()), event.id());
+                    assertEquals(List.of(1), event.data().upserted().stream().map(Todo::getId).toList());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should reject named tenants, which only the servlet stack serves")
+    void shouldRejectNamedTenants() {
+        // When & Then
+        client.get().uri("/api/todos").header(TodoController.TENANT_HEADER, "acme")
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/todos/count").header(TodoController.TENANT_HEADER, "default")
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
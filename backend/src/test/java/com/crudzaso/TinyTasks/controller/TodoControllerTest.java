@@ -0,0 +1,406 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.config.LsmProperties;
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.repository.LsmTodoRepository;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import com.crudzaso.TinyTasks.service.RateLimiter;
+import com.crudzaso.TinyTasks.service.TodoChangeLog;
+import com.crudzaso.TinyTasks.service.TodoMetrics;
+import com.crudzaso.TinyTasks.service.TodoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DisplayName("TodoController Tests")
+class TodoControllerTest {
+
+    private MockMvc mockMvc;
+    private TodoService todoService;
+
+    @BeforeEach
+    void setUp() {
+        todoService = new TodoService(new TodoRepositoryImp());
+        mockMvc = mockMvc(todoService);
+    }
+
+    private static MockMvc mockMvc(TodoService todoService) {
+        MappingJackson2HttpMessageConverter jackson = new MappingJackson2HttpMessageConverter();
+        return MockMvcBuilders
+                .standaloneSetup(new TodoController(todoService))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new StringHttpMessageConverter(),
+                        new TodoHttpMessageConverter(TodoJsonCodec.shared(), jackson), jackson)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should return the full list when no paging parameters are given")
+    void shouldReturnFullList() throws Exception {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+
+        // When & Then
+        mockMvc.perform(get("/api/todos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().doesNotExist(TodoController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should stream the full list page by page and ask for a reload on resync when the store outgrows the heap")
+    void shouldStreamFullListOfLsmStore(@TempDir Path directory) throws Exception {
+        // Given: more tasks than two pages of the streamed list
+        LsmProperties settings = new LsmProperties(directory, WalProperties.Fsync.NEVER, Duration.ofMillis(10),
+                1000, 4096, 10, 4, 8L << 20, 10, 4L << 20);
+        try (LsmTodoRepository repository = new LsmTodoRepository(settings)) {
+            TodoService lsmService = new TodoService(repository);
+            MockMvc lsmMvc = mockMvc(lsmService);
+            int total = 201;
+            for (int i = 1; i <= total; i++) {
+                lsmService.createTodo("Task " + i);
+            }
+            String changeSequence = String.valueOf(lsmService.getChangeSequence());
+
+            // When & Then
+            String etag = lsmMvc.perform(get("/api/todos"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(total))
+                    .andExpect(jsonPath("$[0].title").value("Task 1"))
+                    .andExpect(jsonPath("$[" + (total - 1) + "].id").value(total))
+                    .andExpect(header().string(TodoController.CHANGE_SEQUENCE_HEADER, changeSequence))
+                    .andReturn().getResponse().getHeader("ETag");
+            lsmMvc.perform(get("/api/todos").header("If-None-Match", etag))
+                    .andExpect(status().isNotModified());
+            lsmMvc.perform(get("/api/todos").param("include", "archived"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(total));
+            // A cursor ahead of the log, as after a restart, forces a resync
+            lsmMvc.perform(get("/api/todos/changes").param("since", String.valueOf(lsmService.getChangeSequence() + 1)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.resync").value(true))
+                    .andExpect(jsonPath("$.reload").value(true))
+                    .andExpect(jsonPath("$.upserted.length()").value(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 until the list changes")
+    void shouldRevalidateFullListWithEtag() throws Exception {
+        // Given
+        todoService.createTodo("Task 1");
+        String etag = mockMvc.perform(get("/api/todos"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        // When & Then: unchanged store
+        mockMvc.perform(get("/api/todos").header("If-None-Match", "\"other\", " + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        // When & Then: a failed mutation keeps the version, a successful one changes it
+        todoService.deleteTodo(42);
+        mockMvc.perform(get("/api/todos").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        todoService.toggleTodo(1);
+        mockMvc.perform(get("/api/todos").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$[0].done").value(true));
+    }
+
+    @Test
+    @DisplayName("Should send changes since the cursor from the full list")
+    void shouldReturnChangesSinceListCursor() throws Exception {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        String cursor = mockMvc.perform(get("/api/todos"))
+                .andReturn().getResponse().getHeader(TodoController.CHANGE_SEQUENCE_HEADER);
+        assertNotNull(cursor);
+
+        // When
+        todoService.toggleTodo(2);
+        todoService.deleteTodo(1);
+
+        // Then
+        mockMvc.perform(get("/api/todos/changes").param("since", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resync").value(false))
+                .andExpect(jsonPath("$.latest").value(Long.parseLong(cursor) + 2))
+                .andExpect(jsonPath("$.upserted.length()").value(1))
+                .andExpect(jsonPath("$.upserted[0].done").value(true))
+                .andExpect(jsonPath("$.deleted[0]").value(1));
+
+        mockMvc.perform(get("/api/todos/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resync").value(true))
+                .andExpect(jsonPath("$.upserted.length()").value(1));
+    }
+
+    @Test
+    @DisplayName("Should push changes over Server-Sent Events")
+    void shouldStreamChanges() throws Exception {
+        // Given
+        todoService.createTodo("Task 1");
+        long cursor = todoService.getChangeSequence();
+        MvcResult stream = mockMvc.perform(get("/api/todos/stream").param("since", String.valueOf(cursor)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When
+        todoService.toggleTodo(1);
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body = stream.getResponse().getContentAsString();
+        while (!body.endsWith("\n\n") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("id:" + (cursor + 1)), body);
+        assertTrue(body.contains("event:changes"), body);
+        assertTrue(body.contains("\"done\":true"), body);
+    }
+
+    @Test
+    @DisplayName("Should return a page with the next cursor header")
+    void shouldReturnPageWithNextCursor() throws Exception {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            todoService.createTodo("Task " + i);
+        }
+
+        // When & Then
+        mockMvc.perform(get("/api/todos").param("after", "1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(3))
+                .andExpect(header().string(TodoController.NEXT_CURSOR_HEADER, "3"));
+
+        mockMvc.perform(get("/api/todos").param("after", "3").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().doesNotExist(TodoController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should reject an out-of-range page limit")
+    void shouldRejectInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/todos").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @DisplayName("Should filter by status and report counts")
+    void shouldFilterAndCount() throws Exception {
+        // Given
+        for (int i = 1; i <= 4; i++) {
+            todoService.createTodo("Task " + i);
+        }
+        todoService.toggleTodo(3);
+
+        // When & Then
+        mockMvc.perform(get("/api/todos").param("done", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        mockMvc.perform(get("/api/todos").param("done", "false").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(header().string(TodoController.NEXT_CURSOR_HEADER, "2"));
+
+        mockMvc.perform(get("/api/todos/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(4))
+                .andExpect(jsonPath("$.done").value(1))
+                .andExpect(jsonPath("$.pending").value(3));
+    }
+
+    @Test
+    @DisplayName("Should search titles and report the hit total")
+    void shouldSearchTitles() throws Exception {
+        // Given
+        todoService.createTodo("Plan team offsite");
+        todoService.createTodo("Book offsite venue");
+        todoService.createTodo("Plan sprint");
+
+        // When & Then
+        mockMvc.perform(get("/api/todos/search").param("q", "plan off").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TodoController.TOTAL_COUNT_HEADER, "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(get("/api/todos/search").param("q", "offsite").param("offset", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TodoController.TOTAL_COUNT_HEADER, "2"))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(get("/api/todos/search"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Query must not be empty"));
+    }
+
+    @Test
+    @DisplayName("Should create from a JSON body and reject malformed ones")
+    void shouldCreateTodo() throws Exception {
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"priority\": [1, {\"x\": null}], \"title\": \"Say \\\"hi\\\" \\u00e9\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.title").value("Say \"hi\" \u00e9"))
+                .andExpect(jsonPath("$.done").value(false));
+
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Title is required"));
+
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Unterminated"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After over a client's budget and 507 when the store is full")
+    void shouldApplyAdmissionControl() throws Exception {
+        // Given: one write per minute per client, reads unthrottled, room for one task
+        TodoService capped = new TodoService(new TodoRepositoryImp(), TodoMetrics.NOOP,
+                new TodoChangeLog(TodoChangeLog.DEFAULT_CAPACITY), new StoreProperties(1));
+        MockMvc limited = MockMvcBuilders
+                .standaloneSetup(new TodoController(capped))
+                .addInterceptors(new RateLimitInterceptor(new RateLimiter(1000, 1000, 10),
+                        new RateLimiter(1 / 60.0, 1, 10), "X-Client-Id", TodoMetrics.NOOP))
+                .build();
+
+        // When & Then
+        limited.perform(post("/api/todos").header("X-Client-Id", "alice")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Task 1\"}"))
+                .andExpect(status().isCreated());
+        limited.perform(post("/api/todos").header("X-Client-Id", "alice")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Task 2\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"))
+                .andExpect(jsonPath("$.error").value("Too many requests"));
+        limited.perform(get("/api/todos").header("X-Client-Id", "alice"))
+                .andExpect(status().isOk());
+        limited.perform(post("/api/todos").header("X-Client-Id", "bob")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Task 2\"}"))
+                .andExpect(status().isInsufficientStorage())
+                .andExpect(jsonPath("$.error").value("Store is full: at most 1 tasks may be stored"));
+        assertEquals(1, capped.countTodos().total());
+    }
+
+    @Test
+    @DisplayName("Should keep each tenant's tasks apart and reject invalid tenant names")
+    void shouldIsolateTenants() throws Exception {
+        // Given
+        todoService.createTodo("Default task");
+
+        // When
+        mockMvc.perform(post("/api/todos").header(TodoController.TENANT_HEADER, "acme")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Acme task\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+
+        // Then
+        mockMvc.perform(get("/api/todos").header(TodoController.TENANT_HEADER, "acme"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Acme task"));
+        mockMvc.perform(get("/api/todos/count").header(TodoController.TENANT_HEADER, "globex"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+        mockMvc.perform(get("/api/todos"))
+                .andExpect(jsonPath("$[0].title").value("Default task"));
+        mockMvc.perform(delete("/api/todos/1").header(TodoController.TENANT_HEADER, "globex"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/todos/count").header(TodoController.TENANT_HEADER, "not a tenant"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Tenant must be 1 to 64 letters, digits, '-' or '_'"));
+        assertEquals(1, todoService.countTodos().total());
+    }
+
+    @Test
+    @DisplayName("Should create, toggle and delete in batches with per-item results")
+    void shouldHandleBatchEndpoints() throws Exception {
+        mockMvc.perform(post("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"Task 1\"},{\"title\":\"x\"},{\"title\":\"Task 2\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].todo.id").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].error").value("Title must be at least 3 characters"))
+                .andExpect(jsonPath("$[2].todo.id").value(2));
+
+        mockMvc.perform(put("/api/todos/batch/toggle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 42]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].todo.done").value(true))
+                .andExpect(jsonPath("$[1].status").value(404));
+
+        mockMvc.perform(delete("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(204))
+                .andExpect(jsonPath("$[1].status").value(204));
+
+        mockMvc.perform(delete("/api/todos/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should stream todos as newline-delimited JSON")
+    void shouldStreamNdjson() throws Exception {
+        // Given
+        int total = 250;
+        for (int i = 1; i <= total; i++) {
+            todoService.createTodo("Task " + i);
+        }
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/todos").accept(TodoController.NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(total, lines.length);
+        assertTrue(lines[0].contains("\"id\":1"));
+        assertTrue(lines[total - 1].contains("\"title\":\"Task 250\""));
+    }
+}
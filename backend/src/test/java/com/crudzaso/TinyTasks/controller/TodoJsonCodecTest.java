@@ -0,0 +1,91 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoJsonCodec Tests")
+class TodoJsonCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should write the same bytes as Jackson, including escapes and large lists")
+    void shouldMatchJackson() throws Exception {
+        // Given
+        TodoJsonCodec codec = new TodoJsonCodec(4);
+        List<Todo> todos = new ArrayList<>(List.of(
+                new Todo(1, "Plain", false),
+                new Todo(-42, "Quote \" slash \\ tab \t newline \n bell \u0007 escape \u001b del \u007f", true),
+                new Todo(Integer.MAX_VALUE, "Ünïcödé ✓ 😀 </script>", false),
+                new Todo(Integer.MIN_VALUE, null, true),
+                new Todo(0, "", false),
+                new Todo(7, "Stamped", true, 1_760_000_000_000L, Long.MAX_VALUE),
+                new Todo(8, "Created only", false, 1L, 0L),
+                new Todo(9, "Completed only", true, 0L, Long.MIN_VALUE)));
+        for (int i = 0; i < 3000; i++) {
+            todos.add(new Todo(i, "Repeated title " + (i % 7), i % 3 == 0));
+        }
+
+        // When
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        codec.writeList(todos, streamed);
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        codec.write(todos.get(1), single);
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        codec.writeLines(todos.subList(0, 3), lines);
+
+        // Then
+        String expected = objectMapper.writeValueAsString(todos);
+        assertEquals(expected, streamed.toString(StandardCharsets.UTF_8));
+        assertEquals(expected, new String(codec.encodeList(todos), StandardCharsets.UTF_8));
+        assertEquals(objectMapper.writeValueAsString(todos.get(1)), single.toString(StandardCharsets.UTF_8));
+        String[] written = lines.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, written.length);
+        assertEquals(objectMapper.writeValueAsString(todos.get(2)), written[2]);
+        assertEquals("[]", new String(codec.encodeList(List.of()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should extract the title of a create request and skip other fields")
+    void shouldReadTitle() {
+        // Given
+        TodoJsonCodec codec = TodoJsonCodec.shared();
+
+        // When & Then
+        assertEquals("Buy milk", codec.readTitle(bytes("{\"title\":\"Buy milk\"}")));
+        assertEquals("Tab\there \"q\" é ✓", codec.readTitle(bytes(
+                " {\n \"tags\": [\"a\", {\"b\": [true, null]}], \"title\" : \"Tab\\there \\\"q\\\" \\u00e9 ✓\", \"n\": -1.5e3 } ")));
+        assertEquals("123", codec.readTitle(bytes("{\"title\": 123}")));
+        assertNull(codec.readTitle(bytes("{\"title\": null}")));
+        assertNull(codec.readTitle(bytes("{}")));
+        assertNull(codec.readTitle(bytes("{\"name\": \"Other\"}")));
+    }
+
+    @Test
+    @DisplayName("Should reject bodies that are not a single JSON object")
+    void shouldRejectMalformedBodies() {
+        // Given
+        TodoJsonCodec codec = TodoJsonCodec.shared();
+
+        // When & Then
+        for (String body : List.of("", "[]", "{\"title\":\"x\"", "{\"title\" \"x\"}", "{\"title\":\"x\"} {}",
+                "{\"title\":{\"a\":1}}", "{\"title\":\"\\q\"}", "{\"title\":\"\\u12\"}", "{title:1}",
+                "{\"title\": truex}", "{\"title\": nul}", "{\"title\":\"x\", \"n\": abc}", "{\"n\": [yes]}",
+                "{\"title\": 01}", "{\"title\": 1.}", "{\"title\": -}", "{\"title\": 1e}")) {
+            assertThrows(IllegalArgumentException.class, () -> codec.readTitle(bytes(body)), body);
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+package com.crudzaso.TinyTasks.controller;
+
+import com.crudzaso.TinyTasks.model.CreateTodoRequest;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for the JSON encoding done by {@link TodoController}: a whole
+ * {@code List<Todo>} as one array, and the same list as NDJSON lines, each with Jackson and
+ * with {@link TodoJsonCodec}. The {@code converter*} pairs go through the message converters
+ * as Spring MVC does, comparing the default Jackson converter with {@link TodoHttpMessageConverter}
+ * for writing a list and for reading a create request.
+ *
+ * <p>Run with {@code mvn test -Pjmh}; results are written to {@code target/jmh-results.json}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoSerializationBenchmark {
+
+    private static final byte[] CREATE_REQUEST = "{\"title\":\"Benchmark task created over HTTP\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"100", "1000", "10000"})
+    int listSize;
+
+    ObjectMapper objectMapper;
+    ObjectWriter ndjsonWriter;
+    TodoJsonCodec codec;
+    MappingJackson2HttpMessageConverter jacksonConverter;
+    TodoHttpMessageConverter todoConverter;
+    List<Todo> todos;
+
+    @Setup
+    public void prepare() {
+        objectMapper = new ObjectMapper();
+        ndjsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        codec = new TodoJsonCodec(1 << 14);
+        jacksonConverter = new MappingJackson2HttpMessageConverter();
+        todoConverter = new TodoHttpMessageConverter(codec, jacksonConverter);
+        todos = new ArrayList<>(listSize);
+        for (int i = 1; i <= listSize; i++) {
+            todos.add(new Todo(i, "Benchmark task " + i, i % 2 == 0));
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonArray() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(todos);
+    }
+
+    @Benchmark
+    public byte[] jsonArrayCodec() {
+        return codec.encodeList(todos);
+    }
+
+    @Benchmark
+    public byte[] ndjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(listSize * 64);
+        for (Todo todo : todos) {
+            ndjsonWriter.writeValue(out, todo);
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] ndjsonCodec() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(listSize * 64);
+        codec.writeLines(todos, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage converterWriteJackson() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        jacksonConverter.write(todos, List.class, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage converterWriteCodec() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        todoConverter.write(todos, List.class, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    @Benchmark
+    public Object converterReadJackson() throws IOException {
+        MockHttpInputMessage message = new MockHttpInputMessage(CREATE_REQUEST);
+        message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return ((Map<?, ?>) jacksonConverter.read(Map.class, message)).get("title");
+    }
+
+    @Benchmark
+    public Object converterReadCodec() throws IOException {
+        MockHttpInputMessage message = new MockHttpInputMessage(CREATE_REQUEST);
+        message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return todoConverter.read(CreateTodoRequest.class, null, message);
+    }
+}
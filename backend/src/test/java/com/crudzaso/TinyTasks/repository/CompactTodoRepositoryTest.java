@@ -0,0 +1,141 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CompactTodoRepository Tests")
+class CompactTodoRepositoryTest {
+
+    private CompactTodoRepository todoRepository;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = new CompactTodoRepository();
+    }
+
+    @Test
+    @DisplayName("Should save and retrieve a todo with a non-ASCII title")
+    void shouldSaveAndRetrieveTodo() {
+        // Given
+        Todo saved = todoRepository.save(new Todo("Café ☕ meeting"));
+
+        // When
+        Optional<Todo> retrieved = todoRepository.findById(saved.getId());
+
+        // Then
+        assertTrue(retrieved.isPresent());
+        assertEquals(1, retrieved.get().getId());
+        assertEquals("Café ☕ meeting", retrieved.get().getTitle());
+        assertFalse(retrieved.get().isDone());
+    }
+
+    @Test
+    @DisplayName("Should toggle and delete by id")
+    void shouldToggleAndDelete() {
+        // Given
+        int id = todoRepository.save(new Todo("Task")).getId();
+
+        // When & Then
+        assertTrue(todoRepository.toggle(id).get().isDone());
+        assertTrue(todoRepository.findById(id).get().isDone());
+        assertTrue(todoRepository.delete(id));
+        assertFalse(todoRepository.delete(id));
+        assertTrue(todoRepository.findById(id).isEmpty());
+        assertTrue(todoRepository.toggle(id).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep creation and completion times through toggles and compaction")
+    void shouldKeepTimestamps() {
+        // Given
+        for (int i = 1; i <= 2_000; i++) {
+            todoRepository.save(new Todo(0, "Task " + i, false, i, 0));
+        }
+
+        // When
+        Todo completed = todoRepository.toggle(2_000).get();
+        for (int i = 1; i < 1_500; i++) {
+            todoRepository.delete(i);
+        }
+
+        // Then: the deletes compacted the columns
+        Todo kept = todoRepository.findById(2_000).get();
+        assertEquals(2_000, kept.getCreatedAt());
+        assertTrue(completed.getCompletedAt() > 0);
+        assertEquals(completed.getCompletedAt(), kept.getCompletedAt());
+        assertEquals(1_999, todoRepository.findById(1_999).get().getCreatedAt());
+        assertEquals(0, todoRepository.toggle(2_000).get().getCompletedAt());
+    }
+
+    @Test
+    @DisplayName("Should keep data intact across growth and compaction")
+    void shouldSurviveGrowthAndCompaction() {
+        // Given
+        int total = 10_000;
+        for (int i = 1; i <= total; i++) {
+            todoRepository.save(new Todo("Task " + i));
+        }
+
+        // When: delete three quarters and toggle a few survivors
+        for (int id = 1; id <= total; id++) {
+            if (id % 4 != 0) {
+                todoRepository.delete(id);
+            }
+        }
+        todoRepository.toggle(400);
+        Todo added = todoRepository.save(new Todo("After compaction"));
+
+        // Then
+        List<Todo> all = todoRepository.findAll();
+        assertEquals(total / 4 + 1, all.size());
+        assertEquals(4, all.get(0).getId());
+        assertEquals(total + 1, added.getId());
+        assertEquals("Task 400", todoRepository.findById(400).get().getTitle());
+        assertTrue(todoRepository.findById(400).get().isDone());
+        assertFalse(todoRepository.findById(404).get().isDone());
+        assertTrue(todoRepository.findById(401).isEmpty());
+        assertEquals("After compaction", todoRepository.findById(added.getId()).get().getTitle());
+        assertEquals(List.of(404, 408), todoRepository.findPage(401, 2).stream().map(Todo::getId).toList());
+        assertEquals(List.of(added.getId()), todoRepository.findPage(total, 10).stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report retained heap per todo against the HashMap engine")
+    void reportFootprint() {
+        int count = 1_000_000;
+        long mapBytes = retainedBytes(TodoRepositoryImp::new, count);
+        long compactBytes = retainedBytes(CompactTodoRepository::new, count);
+        System.out.printf("%-10s %12s %14s%n", "engine", "MB", "bytes/todo");
+        System.out.printf("%-10s %12.1f %14.1f%n", "memory", mapBytes / 1e6, (double) mapBytes / count);
+        System.out.printf("%-10s %12.1f %14.1f%n", "compact", compactBytes / 1e6, (double) compactBytes / count);
+    }
+
+    private static long retainedBytes(Supplier<TodoRepository> factory, int count) {
+        long before = usedHeap();
+        TodoRepository repository = factory.get();
+        for (int i = 0; i < count; i++) {
+            repository.save(new Todo("Write report section " + i));
+        }
+        long after = usedHeap();
+        assertEquals(count, repository.findAll().size());
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
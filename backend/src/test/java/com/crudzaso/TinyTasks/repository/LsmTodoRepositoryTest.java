@@ -0,0 +1,369 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.LsmProperties;
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.controller.TodoController;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import com.crudzaso.TinyTasks.service.TodoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LsmTodoRepository Tests")
+class LsmTodoRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    /** Tiny memtables, blocks and levels so a few thousand tasks span several levels */
+    static LsmProperties properties(Path directory, WalProperties.Fsync fsync, int memtableEntries) {
+        return new LsmProperties(directory, fsync, Duration.ofMillis(10), memtableEntries, 256, 10, 2,
+                8 * 1024, 4, 4 * 1024);
+    }
+
+    @Test
+    @DisplayName("Should replay the memtable log after reopening")
+    void shouldRecoverAfterRestart() throws IOException {
+        // Given
+        try (LsmTodoRepository repository = new LsmTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            repository.saveAll(List.of(new Todo("Task 1"), new Todo("Task 2"), new Todo("Task 3")));
+            repository.toggle(2);
+            repository.delete(3);
+            assertFalse(repository.delete(3));
+        }
+
+        // When
+        try (LsmTodoRepository reopened = new LsmTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            // Then
+            assertEquals(List.of(1, 2), reopened.findAll().stream().map(Todo::getId).toList());
+            assertTrue(reopened.findById(2).orElseThrow().isDone());
+            assertTrue(reopened.findById(3).isEmpty());
+            assertEquals(1, reopened.countByDone(true));
+            assertEquals(4, reopened.save(new Todo("Task 4")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should flush and compact into levels without changing what readers see")
+    void shouldMatchModelAcrossFlushesAndCompactions() throws IOException {
+        // Given: a plain map receiving the same mutations
+        TreeMap<Integer, Boolean> model = new TreeMap<>();
+        LsmProperties settings = properties(directory, WalProperties.Fsync.NEVER, 64);
+        try (LsmTodoRepository repository = new LsmTodoRepository(settings)) {
+            // When
+            for (int i = 1; i <= 3000; i++) {
+                Todo saved = repository.save(new Todo("Task " + i));
+                model.put(saved.getId(), false);
+                if (i % 3 == 0) {
+                    int toggled = ThreadLocalRandom.current().nextInt(1, i + 1);
+                    if (repository.toggle(toggled).isPresent()) {
+                        model.put(toggled, !model.get(toggled));
+                    }
+                }
+                if (i % 5 == 0) {
+                    int deleted = ThreadLocalRandom.current().nextInt(1, i + 1);
+                    assertEquals(model.remove(deleted) != null, repository.delete(deleted));
+                }
+            }
+            repository.checkpoint();
+
+            // Then
+            LsmTodoRepository.Stats stats = repository.stats();
+            assertTrue(stats.runsPerLevel().size() >= 3, "runs reached level 2: " + stats.runsPerLevel());
+            assertTrue(stats.compactedBytes() > 0);
+            assertTrue(stats.writeAmplification() > 1);
+            assertMatches(model, repository);
+            assertEquals(model.tailMap(100, false).keySet().stream().limit(2).toList(),
+                    repository.findPage(100, 2).stream().map(Todo::getId).toList());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.getFileName().toString().endsWith(".log")).count(),
+                    "flushed memtable logs are deleted");
+        }
+
+        // And after a restart
+        try (LsmTodoRepository reopened = new LsmTodoRepository(settings)) {
+            assertMatches(model, reopened);
+            assertEquals(3001, reopened.save(new Todo("Task 3001")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer lookups with about one block read thanks to the bloom filters")
+    void shouldReadAboutOneBlockPerLookup() throws IOException {
+        // Given
+        try (LsmTodoRepository repository = new LsmTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 64))) {
+            List<Todo> batch = new ArrayList<>();
+            for (int i = 1; i <= 4000; i++) {
+                batch.add(new Todo("Task " + i));
+            }
+            repository.saveAll(batch);
+            repository.checkpoint();
+            long before = repository.stats().blockReads();
+
+            // When
+            for (int id = 1; id <= 4000; id++) {
+                assertEquals("Task " + id, repository.findById(id).orElseThrow().getTitle());
+            }
+
+            // Then
+            double readsPerLookup = (repository.stats().blockReads() - before) / 4000.0;
+            assertTrue(readsPerLookup < 1.2, "block reads per lookup: " + readsPerLookup);
+        }
+    }
+
+    @Test
+    @DisplayName("Should cut off a failed log write and acknowledge or flush nothing after it")
+    void shouldFailStopWhenLogWriteFails() throws IOException {
+        // Given
+        List<WalTodoRepositoryTest.FailingChannel> opened = new ArrayList<>();
+        TodoLog.Channels channels = path -> {
+            WalTodoRepositoryTest.FailingChannel channel =
+                    new WalTodoRepositoryTest.FailingChannel(TodoLog.Channels.FILES.open(path));
+            opened.add(channel);
+            return channel;
+        };
+        LsmProperties settings = properties(directory, WalProperties.Fsync.ALWAYS, 1024);
+        try (LsmTodoRepository repository = new LsmTodoRepository(settings, channels)) {
+            repository.save(new Todo("Task 1"));
+
+            // When
+            opened.getLast().failing = true;
+            assertThrows(UncheckedIOException.class, () -> repository.save(new Todo("Task 2")));
+            opened.getLast().failing = false;
+
+            // Then
+            assertNotNull(repository.writeFailure());
+            assertThrows(IllegalStateException.class, () -> repository.save(new Todo("Task 3")));
+            assertThrows(IllegalStateException.class, () -> repository.toggle(1));
+            assertThrows(IOException.class, repository::checkpoint);
+        }
+        try (LsmTodoRepository reopened = new LsmTodoRepository(settings)) {
+            assertEquals(List.of(1), reopened.findAll().stream().map(Todo::getId).toList());
+            assertEquals(2, reopened.save(new Todo("Task 4")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail writers instead of blocking them while flushes keep failing")
+    void shouldNotBlockWritersOnFailingFlush() throws IOException {
+        try (LsmTodoRepository repository = new LsmTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 8))) {
+            // Given: the manifest cannot be replaced, so no flush completes
+            Files.createDirectories(directory.resolve("MANIFEST.tmp"));
+
+            // When
+            int saved = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                int count = 0;
+                try {
+                    while (true) {
+                        repository.save(new Todo("Task"));
+                        count++;
+                    }
+                } catch (UncheckedIOException e) {
+                    return count;
+                }
+            });
+
+            // Then
+            assertTrue(saved >= 8 * 2, "frozen memtables are queued before writers are held back");
+            assertEquals(saved, repository.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should rank search hits like the in-memory index without reading every task first")
+    void shouldSearchLikeTheIndex() throws IOException {
+        // Given
+        TodoSearchIndex index = new TodoSearchIndex();
+        try (LsmTodoRepository repository = new LsmTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 64))) {
+            String[] words = {"buy", "milk", "bread", "butter", "call", "bank", "book"};
+            List<Todo> batch = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                batch.add(new Todo(words[i % 7] + " " + words[(i / 7) % 7] + " " + i));
+            }
+            repository.saveAll(batch);
+            for (int id = 1; id <= 1500; id += 5) {
+                repository.delete(id);
+            }
+            for (Todo todo : repository.findAll()) {
+                index.add(todo.getId(), todo.getTitle());
+            }
+
+            // When & Then
+            for (String query : List.of("bu", "buy", "milk b", "bank bo", "nothing", "")) {
+                TodoSearchResult expected = index.search(query, 3, 20, id -> repository.findById(id).orElse(null));
+                TodoSearchResult actual = repository.search(query, 3, 20);
+                assertEquals(expected.total(), actual.total(), "hits for " + query);
+                assertEquals(expected.todos().stream().map(Todo::getId).toList(),
+                        actual.todos().stream().map(Todo::getId).toList(), "page for " + query);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should list, resync and search a set larger than a small heap")
+    void shouldServeSetLargerThanHeap() throws Exception {
+        // Given: a JVM whose heap cannot hold the tasks it stores
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-Xmx" + SmallHeap.HEAP_MB + "m",
+                "-cp", System.getProperty("java.class.path"), SmallHeap.class.getName(), directory.toString())
+                .redirectErrorStream(true)
+                .start();
+
+        // When
+        String output = new String(process.getInputStream().readAllBytes());
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES), "small heap check did not finish");
+
+        // Then
+        assertEquals(0, process.exitValue(), output);
+    }
+
+    /**
+     * Loads {@link #TODOS} tasks into an LSM store under a heap too small to hold them, then
+     * runs the full list, a change feed resync and a search. Exits non-zero on failure.
+     */
+    static final class SmallHeap {
+
+        static final int HEAP_MB = 48;
+        static final int TODOS = 400_000;
+
+        public static void main(String[] args) throws Exception {
+            String filler = "x".repeat(150);
+            long dataSet = (long) TODOS * (filler.length() + 64);
+            check(Runtime.getRuntime().maxMemory() < dataSet, "heap is large enough to hold the tasks");
+            LsmProperties settings = new LsmProperties(Path.of(args[0]), WalProperties.Fsync.NEVER,
+                    Duration.ofMillis(10), 10_000, 4096, 10, 4, 8L << 20, 10, 4L << 20);
+            try (LsmTodoRepository repository = new LsmTodoRepository(settings)) {
+                List<Todo> batch = new ArrayList<>(1000);
+                for (int i = 1; i <= TODOS; i++) {
+                    batch.add(new Todo("task " + i + " " + filler));
+                    if (batch.size() == 1000) {
+                        repository.saveAll(batch);
+                        batch = new ArrayList<>(1000);
+                    }
+                }
+                TodoService service = new TodoService(repository);
+
+                long[] objects = new long[1];
+                ResponseEntity<?> list = new TodoController(service).getAllTodos(null, null, null, null, null, null);
+                ((StreamingResponseBody) list.getBody()).writeTo(new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        if (b == '{') {
+                            objects[0]++;
+                        }
+                    }
+                });
+                check(objects[0] == TODOS, "full list streamed " + objects[0] + " tasks");
+
+                // No change was recorded yet, so any later cursor is from before a restart
+                TodoChanges changes = service.getChangesSince(1);
+                check(changes.reload() && changes.upserted().isEmpty(), "resync did not ask for a reload");
+
+                TodoSearchResult all = service.searchTodos("task", 0, 10);
+                check(all.total() == TODOS && all.todos().get(0).getId() == TODOS, "search for every task");
+                TodoSearchResult one = service.searchTodos("task " + (TODOS - 1), 0, 10);
+                check(one.total() == 1, "search for one task found " + one.total());
+            }
+            System.exit(0);
+        }
+
+        private static void check(boolean condition, String message) {
+            if (!condition) {
+                System.out.println(message);
+                System.exit(1);
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report load throughput, write amplification and lookup latency")
+    void reportWriteAmplificationAndReadLatency() throws Exception {
+        long todos = Long.getLong("tinytasks.bench.todos", 10_000_000);
+        int lookups = Integer.getInteger("tinytasks.bench.lookups", 100_000);
+        LsmProperties settings = new LsmProperties(directory, WalProperties.Fsync.NEVER, Duration.ofMillis(10),
+                262_144, 4096, 10, 4, 128L << 20, 10, 32L << 20);
+        try (LsmTodoRepository repository = new LsmTodoRepository(settings)) {
+            long start = System.nanoTime();
+            List<Todo> batch = new ArrayList<>(1000);
+            for (long i = 1; i <= todos; i++) {
+                batch.add(new Todo("Benchmark task " + i));
+                if (batch.size() == 1000) {
+                    repository.saveAll(batch);
+                    batch = new ArrayList<>(1000);
+                }
+                if (i % 10 == 0) {
+                    repository.toggle((int) (i / 2));
+                }
+            }
+            repository.saveAll(batch);
+            repository.checkpoint();
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+            LsmTodoRepository.Stats stats = repository.stats();
+            System.out.printf("todos=%d load=%.0fs (%.0f writes/sec) heap=%dMB%n", todos, loadSeconds,
+                    todos * 1.1 / loadSeconds,
+                    (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+            System.out.printf("runs per level=%s disk=%dMB write amplification=%.2f (log %.2f, flush %.2f, compaction %.2f)%n",
+                    stats.runsPerLevel(), stats.diskBytes() >> 20, stats.writeAmplification(),
+                    (double) stats.loggedBytes() / stats.ingestedBytes(),
+                    (double) stats.flushedBytes() / stats.ingestedBytes(),
+                    (double) stats.compactedBytes() / stats.ingestedBytes());
+
+            long[] latencies = new long[lookups];
+            long readsBefore = repository.stats().blockReads();
+            for (int i = 0; i < lookups; i++) {
+                int id = (int) ThreadLocalRandom.current().nextLong(1, todos + 1);
+                long lookupStart = System.nanoTime();
+                repository.findById(id).orElseThrow();
+                latencies[i] = System.nanoTime() - lookupStart;
+            }
+            double reads = (double) (repository.stats().blockReads() - readsBefore) / lookups;
+            Arrays.sort(latencies);
+            System.out.printf("findById: p50=%.1fus p99=%.1fus max=%.1fus, %.2f block reads per lookup%n",
+                    latencies[lookups / 2] / 1e3, latencies[lookups * 99 / 100] / 1e3,
+                    latencies[lookups - 1] / 1e3, reads);
+
+            long pageStart = System.nanoTime();
+            int pages = 1000;
+            for (int i = 0; i < pages; i++) {
+                repository.findPage((int) ThreadLocalRandom.current().nextLong(0, todos), 50);
+            }
+            System.out.printf("findPage(50): mean=%.1fus%n", (System.nanoTime() - pageStart) / 1e3 / pages);
+        }
+    }
+
+    private static void assertMatches(TreeMap<Integer, Boolean> model, LsmTodoRepository repository) {
+        List<Todo> all = repository.findAll();
+        assertEquals(List.copyOf(model.keySet()), all.stream().map(Todo::getId).toList());
+        for (Todo todo : all) {
+            assertEquals(model.get(todo.getId()), todo.isDone(), "done of " + todo.getId());
+            assertEquals("Task " + todo.getId(), todo.getTitle());
+        }
+        long completed = model.values().stream().filter(done -> done).count();
+        assertEquals(model.size(), repository.count());
+        assertEquals(completed, repository.countByDone(true));
+        assertEquals(completed, repository.findByDone(true, 0, Integer.MAX_VALUE).size());
+        for (int id = 1; id <= 3000; id += 7) {
+            assertEquals(model.containsKey(id), repository.findById(id).isPresent(), "lookup of " + id);
+        }
+    }
+}
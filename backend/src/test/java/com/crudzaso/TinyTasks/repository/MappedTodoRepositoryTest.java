@@ -0,0 +1,281 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.MappedProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MappedTodoRepository Tests")
+class MappedTodoRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedProperties properties() {
+        return new MappedProperties(directory.resolve("todos.snapshot"));
+    }
+
+    @Test
+    @DisplayName("Should serve a checkpointed snapshot after reopening")
+    void shouldServeSnapshotAfterReopen() throws IOException {
+        // Given
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            repository.save(new Todo("Task 1"));
+            repository.save(new Todo("Tâche 2"));
+            repository.toggle(2);
+        }
+
+        // When
+        try (MappedTodoRepository reopened = new MappedTodoRepository(properties())) {
+            // Then
+            assertEquals(2, reopened.findAll().size());
+            assertEquals("Tâche 2", reopened.findById(2).get().getTitle());
+            assertTrue(reopened.findById(2).get().isDone());
+            assertEquals(3, reopened.save(new Todo("Task 3")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should merge overlay changes and tombstones with the mapped base")
+    void shouldMergeOverlayWithBase() throws IOException {
+        // Given
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            for (int i = 1; i <= 6; i++) {
+                repository.save(new Todo("Task " + i));
+            }
+        }
+
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            // When
+            repository.delete(2);
+            repository.toggle(4);
+            repository.save(new Todo("Task 7"));
+            int transientId = repository.save(new Todo("Task 8")).getId();
+            repository.delete(transientId);
+
+            // Then
+            assertEquals(List.of(1, 3, 4, 5, 6, 7), repository.findAll().stream().map(Todo::getId).toList());
+            assertEquals(List.of(3, 4), repository.findPage(1, 2).stream().map(Todo::getId).toList());
+            assertEquals(List.of(6, 7), repository.findPage(5, 10).stream().map(Todo::getId).toList());
+            assertTrue(repository.findById(4).get().isDone());
+            assertTrue(repository.findById(2).isEmpty());
+            assertFalse(repository.delete(2));
+
+            // When
+            repository.checkpoint();
+
+            // Then
+            assertEquals(List.of(1, 3, 4, 5, 6, 7), repository.findAll().stream().map(Todo::getId).toList());
+            assertTrue(repository.findById(4).get().isDone());
+        }
+    }
+
+    @Test
+    @DisplayName("Should count and filter by status across base and overlay")
+    void shouldCountAndFilterByStatus() throws IOException {
+        // Given
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            for (int i = 1; i <= 5; i++) {
+                repository.save(new Todo("Task " + i));
+            }
+            repository.toggle(2);
+            repository.toggle(4);
+        }
+
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            // When
+            assertEquals(2, repository.countByDone(true));
+            repository.toggle(1);
+            repository.delete(4);
+            repository.save(new Todo("Task 6"));
+
+            // Then
+            assertEquals(2, repository.countByDone(true));
+            assertEquals(3, repository.countByDone(false));
+            assertEquals(List.of(1, 2), repository.findByDone(true, 0, 10).stream().map(Todo::getId).toList());
+            assertEquals(List.of(5, 6), repository.findByDone(false, 3, 10).stream().map(Todo::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should page by status like a filtered full list, before and after a checkpoint")
+    void shouldPageByStatusLikeFilteredList() throws IOException {
+        // Given: a base with both statuses, then overlay toggles, deletes and saves
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            for (int i = 1; i <= 300; i++) {
+                repository.save(new Todo("Task " + i));
+                if (i % 3 == 0) {
+                    repository.toggle(i);
+                }
+            }
+            repository.checkpoint();
+            for (int id = 1; id <= 300; id += 7) {
+                repository.toggle(id);
+            }
+            for (int id = 2; id <= 300; id += 11) {
+                repository.delete(id);
+            }
+            repository.save(new Todo("Task 301"));
+
+            for (int round = 0; round < 2; round++) {
+                for (boolean done : new boolean[]{true, false}) {
+                    // When: walking every page of 17
+                    List<Integer> paged = new ArrayList<>();
+                    List<Todo> page;
+                    int after = 0;
+                    do {
+                        page = repository.findByDone(done, after, 17);
+                        page.forEach(todo -> paged.add(todo.getId()));
+                        if (!page.isEmpty()) {
+                            after = page.get(page.size() - 1).getId();
+                        }
+                    } while (page.size() == 17);
+
+                    // Then
+                    assertEquals(repository.findAll().stream().filter(todo -> todo.isDone() == done)
+                            .map(Todo::getId).toList(), paged, "done=" + done + " round " + round);
+                    assertEquals(paged.size(), repository.countByDone(done));
+                }
+                repository.checkpoint();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should never show readers a base without its overlay while checkpoints run")
+    void shouldKeepReadersConsistentAcrossCheckpoints() throws Exception {
+        // Given: tasks are only ever added, so a list read after n saves holds ids 1..n or more
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            AtomicInteger saved = new AtomicInteger();
+            AtomicBoolean stop = new AtomicBoolean();
+            List<String> failures = new CopyOnWriteArrayList<>();
+            Thread[] readers = new Thread[3];
+            for (int r = 0; r < readers.length; r++) {
+                readers[r] = Thread.ofPlatform().start(() -> {
+                    while (!stop.get()) {
+                        int before = saved.get();
+                        List<Todo> all = repository.findAll();
+                        for (int i = 0; i < all.size(); i++) {
+                            if (all.get(i).getId() != i + 1) {
+                                failures.add("gap at id " + (i + 1));
+                            }
+                        }
+                        if (all.size() < before) {
+                            failures.add("saw " + all.size() + " tasks after " + before + " saves");
+                        }
+                        if (repository.findById(Math.max(1, before)).isEmpty() && before > 0) {
+                            failures.add("lost task " + before);
+                        }
+                    }
+                });
+            }
+
+            // When
+            for (int round = 0; round < 40; round++) {
+                for (int i = 0; i < 50; i++) {
+                    saved.set(repository.save(new Todo("Task")).getId());
+                }
+                repository.checkpoint();
+            }
+            stop.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            // Then
+            assertEquals(List.of(), failures.stream().distinct().limit(5).toList());
+            assertEquals(2000, repository.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse a snapshot too large to map and keep the previous one")
+    void shouldRefuseSnapshotTooLargeToMap() throws IOException {
+        // Given
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            repository.save(new Todo("Task 1"));
+            repository.checkpoint();
+            repository.save(new Todo("Task 2 " + "x".repeat(100)));
+            byte[] previous = Files.readAllBytes(properties().snapshot());
+
+            // When: a limit standing in for the 2 GB a single mapping can hold
+            IOException error = assertThrows(IOException.class, () -> TodoSnapshot.write(properties().snapshot(),
+                    new TodoSnapshot.Header(0, 3), repository, 100));
+
+            // Then
+            assertTrue(error.getMessage().contains("single memory mapping"), error.getMessage());
+            assertArrayEquals(previous, Files.readAllBytes(properties().snapshot()));
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(List.of(properties().snapshot()), files.filter(file -> !file.toString().endsWith(".tmp")).toList());
+            }
+        }
+
+        // When & Then: a file over the limit fails with the same message instead of a mapping error
+        try (RandomAccessFile file = new RandomAccessFile(properties().snapshot().toFile(), "rw")) {
+            file.setLength(TodoSnapshot.MAX_SIZE + 1);
+        }
+        IOException error = assertThrows(IOException.class, () -> new MappedTodoRepository(properties()));
+        assertTrue(error.getMessage().contains("single memory mapping"), error.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should start empty when no snapshot exists")
+    void shouldStartEmpty() throws IOException {
+        try (MappedTodoRepository repository = new MappedTodoRepository(properties())) {
+            assertTrue(repository.findAll().isEmpty());
+            assertTrue(repository.findById(1).isEmpty());
+            assertFalse(repository.delete(1));
+        }
+        assertFalse(Files.exists(properties().snapshot()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report cold start time as the dataset grows")
+    void reportColdStart() throws IOException {
+        System.out.printf("%-12s %16s %16s%n", "todos", "mapped open ms", "heap load ms");
+        // The first size only warms up class loading and the JIT
+        for (int size : new int[] {10_000, 100_000, 1_000_000, 10_000_000}) {
+            Path snapshot = directory.resolve("bench-" + size + ".snapshot");
+            writeSnapshot(snapshot, size);
+            System.gc();
+
+            long mappedStart = System.nanoTime();
+            MappedTodoRepository mapped = new MappedTodoRepository(new MappedProperties(snapshot));
+            assertTrue(mapped.findById(size / 2).isPresent());
+            double mappedMillis = (System.nanoTime() - mappedStart) / 1e6;
+
+            long loadStart = System.nanoTime();
+            TodoRepositoryImp loaded = new TodoRepositoryImp();
+            TodoSnapshot.read(snapshot, loaded::restore);
+            double loadMillis = (System.nanoTime() - loadStart) / 1e6;
+
+            if (size > 10_000) {
+                System.out.printf("%-12d %16.1f %16.1f%n", size, mappedMillis, loadMillis);
+            }
+        }
+    }
+
+    private static void writeSnapshot(Path snapshot, int size) throws IOException {
+        TodoRepositoryImp source = new TodoRepositoryImp();
+        for (int i = 0; i < size; i++) {
+            source.save(new Todo("Benchmark task " + i));
+        }
+        TodoSnapshot.write(snapshot, new TodoSnapshot.Header(0, size + 1), source);
+    }
+}
@@ -0,0 +1,265 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ReplicationProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReplicatedTodoRepository Tests")
+class ReplicatedTodoRepositoryTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final List<ReplicatedTodoRepository> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ReplicatedTodoRepository node : nodes) {
+            node.close();
+        }
+    }
+
+    static ReplicationProperties properties(ReplicationProperties.Role role, int port,
+                                            ReplicationProperties.Consistency consistency, int backlog) {
+        return properties(role, port, SECRET, consistency, backlog);
+    }
+
+    private static ReplicationProperties properties(ReplicationProperties.Role role, int port, String secret,
+                                                    ReplicationProperties.Consistency consistency, int backlog) {
+        return new ReplicationProperties(role, role == ReplicationProperties.Role.LEADER ? 0 : port,
+                "127.0.0.1", secret, "localhost:" + port, consistency, Duration.ofSeconds(5), backlog, Duration.ofMillis(50));
+    }
+
+    private ReplicatedTodoRepository leader(ReplicationProperties.Consistency consistency, int backlog) throws IOException {
+        return start(properties(ReplicationProperties.Role.LEADER, 0, consistency, backlog));
+    }
+
+    private ReplicatedTodoRepository follower(ReplicatedTodoRepository leader,
+                                              ReplicationProperties.Consistency consistency) throws IOException {
+        return start(properties(ReplicationProperties.Role.FOLLOWER, leader.replicationPort(), consistency, 1024));
+    }
+
+    private ReplicatedTodoRepository start(ReplicationProperties properties) throws IOException {
+        ReplicatedTodoRepository node = new ReplicatedTodoRepository(properties);
+        nodes.add(node);
+        return node;
+    }
+
+    @Test
+    @DisplayName("Should stream leader creates, toggles and deletes to a follower in order")
+    void shouldReplicateLeaderWrites() throws Exception {
+        // Given
+        ReplicatedTodoRepository leader = leader(ReplicationProperties.Consistency.ASYNC, 1024);
+        ReplicatedTodoRepository follower = follower(leader, ReplicationProperties.Consistency.ASYNC);
+        awaitUntil(() -> leader.followerCount() == 1);
+
+        // When
+        for (int i = 1; i <= 50; i++) {
+            leader.save(new Todo("Task " + i));
+        }
+        leader.toggleAll(new int[] {2, 4, 6});
+        leader.delete(10);
+
+        // Then
+        awaitUntil(() -> follower.count() == 49 && follower.countByDone(true) == 3);
+        assertEquals(ids(leader.findAll()), ids(follower.findAll()));
+        assertTrue(follower.findById(4).get().isDone());
+        assertTrue(follower.findById(10).isEmpty());
+        assertEquals(1, follower.search("task 50", 0, 10).total());
+    }
+
+    @Test
+    @DisplayName("Should forward follower writes to the leader and make them readable on every node")
+    void shouldForwardWritesWithReadYourWrites() throws Exception {
+        // Given
+        ReplicationProperties.Consistency consistency = ReplicationProperties.Consistency.READ_YOUR_WRITES;
+        ReplicatedTodoRepository leader = leader(consistency, 1024);
+        ReplicatedTodoRepository first = follower(leader, consistency);
+        ReplicatedTodoRepository second = follower(leader, consistency);
+        awaitUntil(() -> leader.followerCount() == 2);
+
+        // When
+        Todo created = first.save(new Todo("Written on a follower"));
+        Todo other = leader.save(new Todo("Written on the leader"));
+        boolean toggled = second.toggle(created.getId()).get().isDone();
+
+        // Then: no waiting, every node already reflects both writes
+        assertEquals(1, created.getId());
+        assertEquals(2, other.getId());
+        assertTrue(toggled);
+        for (ReplicatedTodoRepository node : List.of(leader, first, second)) {
+            assertEquals(List.of(1, 2), ids(node.findAll()));
+            assertTrue(node.findById(1).get().isDone());
+        }
+        assertTrue(first.toggle(99).isEmpty());
+        assertTrue(second.delete(2));
+        assertFalse(first.delete(2));
+        assertTrue(first.findById(2).isEmpty());
+        Todo onLeader = leader.findById(1).get();
+        assertTrue(onLeader.getCreatedAt() > 0 && onLeader.getCompletedAt() > 0);
+        for (ReplicatedTodoRepository node : List.of(first, second)) {
+            assertEquals(onLeader.getCreatedAt(), node.findById(1).get().getCreatedAt());
+            assertEquals(onLeader.getCompletedAt(), node.findById(1).get().getCompletedAt());
+        }
+        assertEquals(onLeader.getCreatedAt(), created.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Should send a snapshot to a follower that joins after the backlog has rolled over")
+    void shouldSnapshotLateFollower() throws Exception {
+        // Given
+        ReplicatedTodoRepository leader = leader(ReplicationProperties.Consistency.ASYNC, 16);
+        for (int i = 1; i <= 100; i++) {
+            leader.save(new Todo("Task " + i));
+        }
+        leader.toggle(7);
+        leader.delete(8);
+
+        // When
+        ReplicatedTodoRepository follower = follower(leader, ReplicationProperties.Consistency.ASYNC);
+        Set<Integer> notified = ConcurrentHashMap.newKeySet();
+        follower.addRemoteChangeListener(notified::add);
+        awaitUntil(() -> follower.count() == 99);
+        leader.save(new Todo("After snapshot"));
+
+        // Then
+        awaitUntil(() -> follower.findById(101).isPresent());
+        assertEquals(ids(leader.findAll()), ids(follower.findAll()));
+        assertTrue(follower.findById(7).get().isDone());
+        assertTrue(notified.contains(101));
+        assertEquals(103, follower.replicatedPosition());
+    }
+
+    @Test
+    @DisplayName("Should fail follower writes while the leader is unreachable")
+    void shouldRejectWritesWithoutLeader() throws Exception {
+        // Given
+        ReplicatedTodoRepository leader = leader(ReplicationProperties.Consistency.ASYNC, 1024);
+        int port = leader.replicationPort();
+        leader.close();
+
+        // When
+        ReplicatedTodoRepository follower = start(
+                properties(ReplicationProperties.Role.FOLLOWER, port, ReplicationProperties.Consistency.ASYNC, 1024));
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> follower.save(new Todo("Nowhere to go")));
+        assertTrue(follower.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should refuse peers without the shared secret and an open address without one")
+    void shouldRequireSharedSecret() throws Exception {
+        // Given
+        ReplicatedTodoRepository leader = leader(ReplicationProperties.Consistency.ASYNC, 1024);
+        leader.save(new Todo("Private task"));
+
+        // When
+        ReplicatedTodoRepository intruder = start(properties(ReplicationProperties.Role.FOLLOWER,
+                leader.replicationPort(), "wrong-secret", ReplicationProperties.Consistency.ASYNC, 1024));
+        Thread.sleep(200);
+
+        // Then
+        assertEquals(0, leader.followerCount());
+        assertTrue(intruder.findAll().isEmpty());
+        assertThrows(IllegalStateException.class, () -> intruder.save(new Todo("Injected")));
+        assertEquals(1, leader.count());
+        ReplicationProperties open = new ReplicationProperties(ReplicationProperties.Role.LEADER, 0, "0.0.0.0", "",
+                "localhost:0", ReplicationProperties.Consistency.ASYNC, Duration.ofSeconds(5), 16, Duration.ofMillis(50));
+        assertThrows(IllegalStateException.class, () -> start(open));
+    }
+
+    @Test
+    @DisplayName("Should answer a forwarded write the leader fails with an error instead of leaving it to time out")
+    void shouldReportFailedForwardedWrites() throws Exception {
+        // Given
+        ReplicatedTodoRepository leader = leader(ReplicationProperties.Consistency.ASYNC, 1024);
+        TodoRepositoryImp local = new TodoRepositoryImp();
+        try (ReplicationFollower follower = new ReplicationFollower(
+                properties(ReplicationProperties.Role.FOLLOWER, leader.replicationPort(),
+                        ReplicationProperties.Consistency.ASYNC, 1024),
+                () -> local, installed -> { }, record -> { })) {
+            awaitUntil(() -> leader.followerCount() == 1);
+
+            // When
+            long start = System.nanoTime();
+            IllegalStateException failure = assertThrows(IllegalStateException.class,
+                    () -> follower.forward((byte) 99, 0, null));
+
+            // Then
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+            assertTrue(failure.getCause().getMessage().contains("Unknown forwarded operation"),
+                    failure.getCause().getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply nothing from a leader that cannot prove the shared secret")
+    void shouldRequireLeaderProof() throws Exception {
+        // Given
+        TodoRepositoryImp local = new TodoRepositoryImp();
+        AtomicInteger installs = new AtomicInteger();
+        try (ServerSocket impostor = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             ReplicationFollower follower = new ReplicationFollower(
+                     properties(ReplicationProperties.Role.FOLLOWER, impostor.getLocalPort(),
+                             ReplicationProperties.Consistency.ASYNC, 1024),
+                     () -> local, installed -> installs.incrementAndGet(), record -> { });
+             Socket peer = impostor.accept()) {
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            DataOutputStream out = new DataOutputStream(peer.getOutputStream());
+            out.writeByte(ReplicationProtocol.CHALLENGE);
+            out.write(new byte[ReplicationProtocol.NONCE_SIZE]);
+            out.flush();
+            assertEquals(ReplicationProtocol.HELLO, in.readByte());
+            in.readFully(new byte[ReplicationProtocol.NONCE_SIZE]);
+            byte[] followerProof = new byte[ReplicationProtocol.PROOF_SIZE];
+            in.readFully(followerProof);
+            in.readLong();
+            in.readLong();
+
+            // When
+            out.writeByte(ReplicationProtocol.WELCOME);
+            out.write(followerProof);
+            out.writeByte(ReplicationProtocol.SNAPSHOT);
+            out.writeLong(1);
+            out.writeLong(1);
+            out.writeInt(1);
+            ReplicationProtocol.writeRecord(out, TodoLogRecord.create(new Todo(1, "Planted", false)));
+            out.flush();
+
+            // Then
+            assertEquals(-1, in.read());
+            assertEquals(0, installs.get());
+            assertTrue(local.findAll().isEmpty());
+        }
+    }
+
+    private static List<Integer> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShardedTodoRepository Tests")
+class ShardedTodoRepositoryTest {
+
+    private ShardedTodoRepository todoRepository;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = new ShardedTodoRepository(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        todoRepository.close();
+    }
+
+    @Test
+    @DisplayName("Should merge every shard into id order for lists and pages")
+    void shouldMergeShardsInIdOrder() {
+        // Given
+        for (int i = 1; i <= 20; i++) {
+            todoRepository.save(new Todo("Task " + i));
+        }
+        todoRepository.delete(7);
+        todoRepository.delete(8);
+
+        // When
+        List<Integer> all = todoRepository.findAll().stream().map(Todo::getId).toList();
+        List<Integer> page = todoRepository.findPage(5, 4).stream().map(Todo::getId).toList();
+
+        // Then
+        assertEquals(IntStream.rangeClosed(1, 20).filter(id -> id != 7 && id != 8).boxed().toList(), all);
+        assertEquals(List.of(6, 9, 10, 11), page);
+        assertEquals(18, todoRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should split batches by shard and return results in request order")
+    void shouldKeepBatchOrder() {
+        // Given
+        List<Todo> saved = todoRepository.saveAll(List.of(new Todo("A"), new Todo("B"), new Todo("C"), new Todo("D")));
+
+        // When
+        List<Optional<Todo>> toggled = todoRepository.toggleAll(new int[] {4, 1, 99, 4});
+        boolean[] deleted = todoRepository.deleteAll(new int[] {2, 3, 2});
+
+        // Then
+        assertEquals(List.of(1, 2, 3, 4), saved.stream().map(Todo::getId).toList());
+        assertTrue(toggled.get(0).get().isDone());
+        assertTrue(toggled.get(1).get().isDone());
+        assertTrue(toggled.get(2).isEmpty());
+        assertFalse(toggled.get(3).get().isDone());
+        assertArrayEquals(new boolean[] {true, true, false}, deleted);
+        assertEquals(List.of(1), todoRepository.findByDone(true, 0, 10).stream().map(Todo::getId).toList());
+        assertEquals(List.of(4), todoRepository.findByDone(false, 0, 10).stream().map(Todo::getId).toList());
+        assertEquals(1, todoRepository.countByDone(true));
+    }
+
+    @Test
+    @DisplayName("Should rank search hits across shards like a single index")
+    void shouldRankSearchAcrossShards() {
+        // Given
+        todoRepository.save(new Todo("Write report"));
+        todoRepository.save(new Todo("Reporting tool"));
+        todoRepository.save(new Todo("Report draft"));
+        todoRepository.save(new Todo("Groceries"));
+
+        // When
+        List<Integer> hits = todoRepository.search("report", 0, 10).todos().stream().map(Todo::getId).toList();
+
+        // Then
+        assertEquals(List.of(3, 1, 2), hits);
+    }
+
+    @Test
+    @DisplayName("Should reject mutations once closed")
+    void shouldRejectMutationsAfterClose() {
+        // Given
+        todoRepository.save(new Todo("Task"));
+
+        // When
+        todoRepository.close();
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> todoRepository.save(new Todo("Late")));
+        assertEquals(1, todoRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should settle every write that races with close")
+    void shouldSettleWritesRacingClose() throws Exception {
+        // Given
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int worker = 0; worker < 4; worker++) {
+            results.add(writers.submit(() -> {
+                int saved = 0;
+                try {
+                    while (true) {
+                        todoRepository.save(new Todo("Task"));
+                        saved++;
+                    }
+                } catch (IllegalStateException e) {
+                    return saved;
+                }
+            }));
+        }
+
+        // When
+        Thread.sleep(20);
+        todoRepository.close();
+
+        // Then
+        int saved = 0;
+        for (Future<Integer> result : results) {
+            saved += assertTimeoutPreemptively(Duration.ofSeconds(10), () -> result.get());
+        }
+        writers.shutdown();
+        assertEquals(saved, todoRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should refuse writes once a shard thread dies instead of hanging")
+    void shouldRefuseWritesAfterShardDies() {
+        // Given
+        todoRepository.close();
+        todoRepository = new ShardedTodoRepository(1);
+        Todo poisoned = new Todo("Poisoned") {
+            @Override
+            public String getTitle() {
+                throw new AssertionError("poisoned title");
+            }
+        };
+
+        // When
+        AssertionError death = assertThrows(AssertionError.class, () -> todoRepository.save(poisoned));
+
+        // Then
+        IllegalStateException refused = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> todoRepository.save(new Todo("Late"))));
+        assertSame(death, refused.getCause());
+    }
+}
@@ -0,0 +1,71 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SnapshotTodoRepository Tests")
+class SnapshotTodoRepositoryTest {
+
+    private SnapshotTodoRepository todoRepository;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = new SnapshotTodoRepository();
+    }
+
+    @Test
+    @DisplayName("Should hand out the same read-only snapshot until a mutation")
+    void shouldReuseSnapshotUntilMutation() {
+        // Given
+        todoRepository.save(new Todo("Task 1"));
+        todoRepository.save(new Todo("Task 2"));
+
+        // When
+        List<Todo> first = todoRepository.findAll();
+        List<Todo> second = todoRepository.findAll();
+        todoRepository.toggle(1);
+        List<Todo> afterToggle = todoRepository.findAll();
+
+        // Then
+        assertSame(first, second);
+        assertNotSame(first, afterToggle);
+        assertFalse(first.get(0).isDone(), "an earlier snapshot must not change under its reader");
+        assertTrue(afterToggle.get(0).isDone());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Todo("Sneaky")));
+        assertThrows(UnsupportedOperationException.class, () -> first.remove(0));
+    }
+
+    @Test
+    @DisplayName("Should page from the snapshot and from the store while it is stale")
+    void shouldPageWithOrWithoutCurrentSnapshot() {
+        // Given
+        for (int i = 1; i <= 10; i++) {
+            todoRepository.save(new Todo("Task " + i));
+        }
+        todoRepository.delete(4);
+
+        // When: the snapshot is stale, then current
+        List<Integer> stale = ids(todoRepository.findPage(2, 3));
+        todoRepository.findAll();
+        List<Integer> current = ids(todoRepository.findPage(2, 3));
+        List<Integer> tail = ids(todoRepository.findPage(8, Integer.MAX_VALUE));
+        List<Integer> beyond = ids(todoRepository.findPage(10, 5));
+
+        // Then
+        assertEquals(List.of(3, 5, 6), stale);
+        assertEquals(stale, current);
+        assertEquals(List.of(9, 10), tail);
+        assertTrue(beyond.isEmpty());
+        assertEquals(9, todoRepository.count());
+    }
+
+    private static List<Integer> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.ArchiveProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoArchive Tests")
+class TodoArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private TodoRepositoryImp repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A tiny block size spreads the archive over many blocks and segments
+        repository = new TodoRepositoryImp(new ArchiveProperties(true, Duration.ofDays(365), Duration.ofDays(1),
+                directory.resolve("archive"), 64, 512));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should move old completed todos to the archive and keep them readable by id and page")
+    void shouldArchiveCompletedTodos() throws Exception {
+        // Given: ids 1..100, every third one completed
+        for (int i = 1; i <= 100; i++) {
+            repository.save(new Todo("Task " + i));
+            if (i % 3 == 0) {
+                repository.toggle(i);
+            }
+        }
+        Todo completed = repository.findById(3).orElseThrow();
+        long version = repository.version();
+
+        // When
+        int archived = repository.archiveCompleted(System.currentTimeMillis());
+
+        // Then
+        assertEquals(33, archived);
+        assertEquals(67, repository.count());
+        assertEquals(0, repository.countByDone(true));
+        assertEquals(67, repository.findAll().size());
+        assertEquals(33, repository.countArchived());
+        assertTrue(repository.version() > version);
+        assertEquals(0, repository.search("Task 33", 0, 10).total(), "search covers the hot set only");
+
+        Todo fromArchive = repository.findById(3).orElseThrow();
+        assertEquals("Task 3", fromArchive.getTitle());
+        assertTrue(fromArchive.isDone());
+        assertEquals(completed.getCreatedAt(), fromArchive.getCreatedAt());
+        assertEquals(completed.getCompletedAt(), fromArchive.getCompletedAt());
+
+        List<Todo> page = repository.findArchivedPage(10, 5);
+        assertEquals(List.of(12, 15, 18, 21, 24), page.stream().map(Todo::getId).toList());
+        assertTrue(Files.size(directory.resolve("archive").resolve("archive-000001.seg")) > 0);
+        assertEquals(0, repository.archiveCompleted(System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("Should keep recently completed todos and bring reopened ones back to memory")
+    void shouldReopenAndDeleteArchivedTodos() throws Exception {
+        // Given
+        repository.save(new Todo("Old"));
+        repository.save(new Todo("Recent"));
+        repository.save(new Todo("Gone"));
+        repository.toggle(1);
+        repository.toggle(3);
+        long cutoff = System.currentTimeMillis();
+        Thread.sleep(5);
+        repository.toggle(2);
+
+        // When
+        int archived = repository.archiveCompleted(cutoff);
+
+        // Then
+        assertEquals(2, archived);
+        assertTrue(repository.findById(2).orElseThrow().isDone(), "completed after the cutoff stays in memory");
+
+        Todo reopened = repository.toggle(1).orElseThrow();
+        assertFalse(reopened.isDone());
+        assertEquals(0, reopened.getCompletedAt());
+        assertEquals(1, repository.countByDone(false));
+        assertEquals(1, repository.countArchived());
+        assertEquals(List.of("Old"), repository.search("old", 0, 10).todos().stream().map(Todo::getTitle).toList());
+
+        assertTrue(repository.delete(3));
+        assertFalse(repository.delete(3));
+        assertTrue(repository.findById(3).isEmpty());
+        assertEquals(0, repository.countArchived());
+        assertEquals(List.of(), repository.findArchivedPage(0, 10));
+    }
+
+    @Test
+    @DisplayName("Should clear segments left by a previous process and keep timestamps in snapshots")
+    void shouldStartEmptyAndSnapshotTimestamps() throws Exception {
+        // Given
+        repository.save(new Todo("Done"));
+        repository.toggle(1);
+        repository.archiveCompleted(System.currentTimeMillis());
+        repository.save(new Todo("Pending"));
+        Todo pending = repository.findById(2).orElseThrow();
+
+        // When
+        TodoRepositoryImp restarted = new TodoRepositoryImp(new ArchiveProperties(true, Duration.ofDays(1),
+                Duration.ofDays(1), directory.resolve("archive"), 64, 512));
+        Path snapshot = directory.resolve("todos.snapshot");
+        repository.writeSnapshot(snapshot);
+        TodoRepositoryImp restored = TodoRepositoryImp.readSnapshot(snapshot);
+
+        // Then
+        assertEquals(0, restarted.countArchived());
+        try (Stream<Path> files = Files.list(directory.resolve("archive"))) {
+            assertEquals(0, files.count());
+        }
+        restarted.close();
+        Todo copy = restored.findById(2).orElseThrow();
+        assertTrue(copy.getCreatedAt() > 0);
+        assertEquals(pending.getCreatedAt(), copy.getCreatedAt());
+        assertTrue(restored.findById(1).isEmpty(), "snapshots hold the hot set");
+    }
+}
@@ -0,0 +1,124 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH microbenchmarks for the {@link TodoRepository} hot paths of the in-memory engines.
+ * Every benchmark runs against datasets from 1K to 10M tasks; the {@code contended}
+ * variants repeat the point operations with four threads sharing one store.
+ *
+ * <p>Run with {@code mvn test -Pjmh}; results are written to {@code target/jmh-results.json}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TodoRepositoryBenchmark {
+
+    /** Number of deletes timed per single-shot iteration; matches the smallest dataset */
+    private static final int DELETE_BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"memory", "compact"})
+    String engine;
+
+    /** Store filled once per trial; reads and toggles leave its size unchanged */
+    @State(Scope.Benchmark)
+    public static class Filled {
+
+        TodoRepository repository;
+
+        @Setup(Level.Trial)
+        public void fill(TodoRepositoryBenchmark dataset) {
+            repository = create(dataset.engine, dataset.size);
+        }
+    }
+
+    /** Store rebuilt before every iteration, for benchmarks that grow or shrink it */
+    @State(Scope.Benchmark)
+    public static class Mutable {
+
+        TodoRepository repository;
+        final AtomicInteger nextDelete = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void fill(TodoRepositoryBenchmark dataset) {
+            // Drop the previous store first so two full datasets never share the heap
+            repository = null;
+            repository = create(dataset.engine, dataset.size);
+            nextDelete.set(1);
+        }
+    }
+
+    static TodoRepository create(String engine, int size) {
+        TodoRepository repository = switch (engine) {
+            case "memory" -> new TodoRepositoryImp();
+            case "compact" -> new CompactTodoRepository();
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+        for (int i = 0; i < size; i++) {
+            repository.save(new Todo("Benchmark task " + i));
+        }
+        return repository;
+    }
+
+    @Benchmark
+    public Optional<Todo> findById(Filled store) {
+        return store.repository.findById(ThreadLocalRandom.current().nextInt(1, size + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Todo> findAll(Filled store) {
+        return store.repository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Todo> toggle(Filled store) {
+        return store.repository.toggle(ThreadLocalRandom.current().nextInt(1, size + 1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Todo> findByIdContended(Filled store) {
+        return findById(store);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Todo> toggleContended(Filled store) {
+        return toggle(store);
+    }
+
+    @Benchmark
+    public Todo save(Mutable store) {
+        return store.repository.save(new Todo("Benchmark task"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Todo saveContended(Mutable store) {
+        return save(store);
+    }
+
+    /** Times batches of deletes of existing ids; the store is refilled between iterations */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = DELETE_BATCH)
+    @Measurement(iterations = 10, batchSize = DELETE_BATCH)
+    public void delete(Mutable store, Blackhole blackhole) {
+        blackhole.consume(store.repository.delete(store.nextDelete.getAndIncrement()));
+    }
+}
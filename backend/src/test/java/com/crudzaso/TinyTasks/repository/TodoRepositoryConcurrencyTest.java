@@ -0,0 +1,342 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.LsmProperties;
+import com.crudzaso.TinyTasks.config.MappedProperties;
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoRepository Concurrency Tests")
+class TodoRepositoryConcurrencyTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int SAVES_PER_THREAD = 5_000;
+
+    static Stream<Arguments> repositories() {
+        return Stream.of(
+                Arguments.of("memory", (Supplier<TodoRepository>) TodoRepositoryImp::new),
+                Arguments.of("snapshot", (Supplier<TodoRepository>) SnapshotTodoRepository::new),
+                Arguments.of("compact", (Supplier<TodoRepository>) CompactTodoRepository::new),
+                Arguments.of("wal", (Supplier<TodoRepository>) () -> walRepository(WalProperties.Ack.FLUSH)),
+                Arguments.of("wal-write-behind", (Supplier<TodoRepository>) () -> walRepository(WalProperties.Ack.MEMORY)),
+                Arguments.of("mapped", (Supplier<TodoRepository>) TodoRepositoryConcurrencyTest::mappedRepository),
+                Arguments.of("sharded", (Supplier<TodoRepository>) () -> new ShardedTodoRepository(4)),
+                Arguments.of("lsm", (Supplier<TodoRepository>) TodoRepositoryConcurrencyTest::lsmRepository)
+        );
+    }
+
+    /** Repositories created by the current test, closed afterwards so writer threads do not pile up */
+    private final List<AutoCloseable> opened = new ArrayList<>();
+
+    private TodoRepository open(Supplier<TodoRepository> factory) {
+        TodoRepository repository = factory.get();
+        if (repository instanceof AutoCloseable closeable) {
+            opened.add(closeable);
+        }
+        return repository;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable closeable : opened) {
+            closeable.close();
+        }
+    }
+
+    private static TodoRepository walRepository(WalProperties.Ack ack) {
+        try {
+            Path directory = Files.createTempDirectory("todo-wal");
+            return new WalTodoRepository(WalTodoRepositoryTest.properties(directory, WalProperties.Fsync.NEVER, 10_000, ack));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TodoRepository mappedRepository() {
+        try {
+            Path directory = Files.createTempDirectory("todo-mapped");
+            return new MappedTodoRepository(new MappedProperties(directory.resolve("todos.snapshot")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TodoRepository lsmRepository() {
+        try {
+            Path directory = Files.createTempDirectory("todo-lsm");
+            LsmProperties properties = LsmTodoRepositoryTest.properties(directory, WalProperties.Fsync.NEVER, 1024);
+            return new LsmTodoRepository(properties);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should assign every concurrent save a distinct, gap-free ID")
+    void shouldNotLoseOrDuplicateIdsUnderConcurrentSaves(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        // When
+        runConcurrently(THREADS, worker -> {
+            for (int i = 0; i < SAVES_PER_THREAD; i++) {
+                Todo saved = repository.save(new Todo("Task " + worker + "-" + i));
+                assertTrue(ids.add(saved.getId()), "duplicate id " + saved.getId());
+            }
+        });
+
+        // Then
+        int expected = THREADS * SAVES_PER_THREAD;
+        assertEquals(expected, ids.size());
+        assertEquals(expected, repository.findAll().size());
+        for (int id = 1; id <= expected; id++) {
+            assertTrue(ids.contains(id), "missing id " + id);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should not lose toggles applied concurrently to the same todo")
+    void shouldNotLoseConcurrentToggles(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+        int id = repository.save(new Todo("Contended task")).getId();
+        int togglesPerThread = 1_001;
+
+        // When
+        runConcurrently(THREADS, worker -> {
+            for (int i = 0; i < togglesPerThread; i++) {
+                repository.toggle(id);
+            }
+        });
+
+        // Then
+        boolean expectedDone = (THREADS * togglesPerThread) % 2 == 1;
+        assertEquals(expectedDone, repository.findById(id).get().isDone());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should report exactly one successful delete per todo")
+    void shouldDeleteExactlyOnce(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+        int todoCount = 1_000;
+        for (int i = 0; i < todoCount; i++) {
+            repository.save(new Todo("Task " + i));
+        }
+        AtomicInteger successfulDeletes = new AtomicInteger();
+
+        // When
+        runConcurrently(THREADS, worker -> {
+            for (int id = 1; id <= todoCount; id++) {
+                if (repository.delete(id)) {
+                    successfulDeletes.incrementAndGet();
+                }
+            }
+        });
+
+        // Then
+        assertEquals(todoCount, successfulDeletes.get());
+        assertTrue(repository.findAll().isEmpty());
+        assertEquals(0, repository.count());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should keep count in step with concurrent saves and deletes")
+    void shouldKeepCountConsistent(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+
+        // When
+        runConcurrently(THREADS, worker -> {
+            for (int i = 0; i < 1_000; i++) {
+                Todo saved = repository.save(new Todo("Task " + worker + "-" + i));
+                if (i % 4 == 0) {
+                    repository.delete(saved.getId());
+                }
+            }
+        });
+
+        // Then
+        assertEquals(THREADS * 750, repository.count());
+        assertEquals(repository.findAll().size(), repository.count());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should keep done/pending indexes in step with concurrent toggles and deletes")
+    void shouldKeepDoneIndexConsistent(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+        int todoCount = 2_000;
+        for (int i = 0; i < todoCount; i++) {
+            repository.save(new Todo("Task " + i));
+        }
+
+        // When: every id is toggled three times, then every tenth one is deleted
+        runConcurrently(THREADS, worker -> {
+            for (int round = 0; round < 3; round++) {
+                for (int id = 1 + worker; id <= todoCount; id += THREADS) {
+                    repository.toggle(id);
+                }
+            }
+            for (int id = 10 * (worker + 1); id <= todoCount; id += 10 * THREADS) {
+                repository.delete(id);
+            }
+        });
+
+        // Then
+        int expected = todoCount - todoCount / 10;
+        assertEquals(expected, repository.countByDone(true));
+        assertEquals(0, repository.countByDone(false));
+        assertTrue(repository.findByDone(false, 0, 100).isEmpty());
+        List<Todo> firstPage = repository.findByDone(true, 0, 12);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 11, 12, 13), firstPage.stream().map(Todo::getId).toList());
+        assertEquals(List.of(14, 15), repository.findByDone(true, 13, 2).stream().map(Todo::getId).toList());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should bump the version once per successful concurrent mutation")
+    void shouldCountMutationsInVersion(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given
+        TodoRepository repository = open(factory);
+        long initial = repository.version();
+        int perThread = 1_000;
+
+        // When: each worker saves, toggles and deletes its own tasks, plus misses on unknown ids
+        runConcurrently(THREADS, worker -> {
+            for (int i = 0; i < perThread; i++) {
+                Todo saved = repository.save(new Todo("Task " + worker + "-" + i));
+                repository.toggle(saved.getId());
+                if (i % 2 == 0) {
+                    repository.delete(saved.getId());
+                }
+                repository.toggle(Integer.MAX_VALUE);
+                repository.delete(Integer.MAX_VALUE);
+            }
+        });
+
+        // Then
+        assertEquals(initial + THREADS * (2L * perThread + perThread / 2), repository.version());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    @DisplayName("Should keep the title index in step with concurrent saves and deletes")
+    void shouldKeepSearchIndexConsistent(String name, Supplier<TodoRepository> factory) throws Exception {
+        // Given: a search before any writes, so lazily built indexes exist during the run
+        TodoRepository repository = open(factory);
+        assertEquals(0, repository.search("report", 0, 10).total());
+
+        // When: every worker saves reports and notes, then deletes its even-numbered reports
+        int perThread = 500;
+        runConcurrently(THREADS, worker -> {
+            List<Integer> reports = new ArrayList<>();
+            for (int i = 0; i < perThread; i++) {
+                reports.add(repository.save(new Todo("Weekly report " + worker + "-" + i)).getId());
+                repository.save(new Todo("Grocery note " + worker + "-" + i));
+            }
+            for (int i = 0; i < perThread; i += 2) {
+                repository.delete(reports.get(i));
+            }
+        });
+
+        // Then
+        assertEquals(THREADS * perThread / 2, repository.search("weekly rep", 0, 10).total());
+        assertEquals(THREADS * perThread, repository.search("grocery", 0, 10).total());
+        assertEquals(0, repository.search("weekly grocery", 0, 10).total());
+        List<Todo> page = repository.search("report", 0, 5).todos();
+        assertEquals(5, page.size());
+        assertTrue(page.stream().allMatch(todo -> todo.getTitle().startsWith("Weekly report")));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report save/toggle throughput as thread count grows")
+    void reportThroughputScaling() throws Exception {
+        int operationsPerThread = 200_000;
+        int maxThreads = Integer.getInteger("tinytasks.bench.threads", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %15s %15s%n", "threads", "memory ops/sec", "sharded ops/sec");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.printf("%-8d %15.0f %15.0f%n", threads,
+                    throughput(new TodoRepositoryImp(), threads, operationsPerThread),
+                    throughput(new ShardedTodoRepository(threads), threads, operationsPerThread));
+        }
+    }
+
+    private static double throughput(TodoRepository repository, int threads, int operationsPerThread) throws Exception {
+        long start = System.nanoTime();
+        runConcurrently(threads, worker -> {
+            for (int i = 0; i < operationsPerThread; i++) {
+                Todo saved = repository.save(new Todo("Task"));
+                repository.toggle(saved.getId());
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        return threads * operationsPerThread * 2 / seconds;
+    }
+
+    /**
+     * Starts all workers behind a shared latch so they contend from the first operation,
+     * then rethrows the first failure observed by any of them.
+     */
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int workerId = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    worker.run(workerId);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        void run(int workerId) throws Exception;
+    }
+}
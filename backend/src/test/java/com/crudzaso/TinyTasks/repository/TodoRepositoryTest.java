@@ -80,6 +80,26 @@ class TodoRepositoryTest {
         assertEquals(3, todos.size());
     }
 
+    @Test
+    @DisplayName("Should page through todos in id order using a cursor")
+    void shouldPageThroughTodosWithCursor() {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            todoRepository.save(new Todo("Task " + i));
+        }
+        todoRepository.delete(3);
+
+        // When
+        List<Todo> firstPage = todoRepository.findPage(0, 2);
+        List<Todo> secondPage = todoRepository.findPage(firstPage.get(1).getId(), 2);
+        List<Todo> lastPage = todoRepository.findPage(5, 2);
+
+        // Then
+        assertEquals(List.of(1, 2), firstPage.stream().map(Todo::getId).toList());
+        assertEquals(List.of(4, 5), secondPage.stream().map(Todo::getId).toList());
+        assertTrue(lastPage.isEmpty());
+    }
+
     @Test
     @DisplayName("Should delete a todo by ID")
     void shouldDeleteTodoById() {
@@ -95,6 +115,32 @@ class TodoRepositoryTest {
         assertFalse(result.isPresent());
     }
 
+    @Test
+    @DisplayName("Should toggle a todo and return the updated copy")
+    void shouldToggleTodo() {
+        // Given
+        Todo todo = todoRepository.save(new Todo("Task to toggle"));
+
+        // When
+        Optional<Todo> toggled = todoRepository.toggle(todo.getId());
+
+        // Then
+        assertTrue(toggled.isPresent());
+        assertTrue(toggled.get().isDone());
+        assertTrue(todoRepository.findById(todo.getId()).get().isDone());
+    }
+
+    @Test
+    @DisplayName("Should report whether delete removed a todo")
+    void shouldReportDeleteResult() {
+        // Given
+        Todo todo = todoRepository.save(new Todo("Task to delete"));
+
+        // When & Then
+        assertTrue(todoRepository.delete(todo.getId()));
+        assertFalse(todoRepository.delete(todo.getId()));
+    }
+
     @Test
     @DisplayName("Should return empty list when no todos exist")
     void shouldReturnEmptyListWhenNoTodos() {
@@ -0,0 +1,86 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for title search as the index grows.
+ * Titles are three to five words drawn from a skewed vocabulary, so {@code review} hits
+ * about half of all tasks while {@code zeppelin} hits a few percent. {@code scan} is the
+ * client-side alternative the index replaces: a lowercase substring test over {@code findAll()}.
+ *
+ * <p>Run with {@code mvn test -Pjmh -Djmh.args="TodoSearchBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TodoSearchBenchmark {
+
+    private static final String[] VOCABULARY = {
+            "review", "update", "call", "email", "report", "meeting", "plan", "fix", "deploy", "write",
+            "budget", "client", "invoice", "sprint", "design", "release", "backup", "survey", "onboard", "audit",
+            "dentist", "groceries", "passport", "birthday", "garden", "laundry", "insurance", "mortgage", "recital",
+            "zeppelin"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"memory", "compact"})
+    String engine;
+
+    @Param({"review", "zeppelin", "rev", "client invoice"})
+    String query;
+
+    TodoRepository repository;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        repository = switch (engine) {
+            case "memory" -> new TodoRepositoryImp();
+            case "compact" -> new CompactTodoRepository();
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            title.setLength(0);
+            int words = 3 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                // Squaring a uniform draw skews picks towards the front of the vocabulary
+                double u = random.nextDouble();
+                title.append(VOCABULARY[(int) (u * u * VOCABULARY.length)]).append(' ');
+            }
+            title.append(i);
+            repository.save(new Todo(title.toString()));
+        }
+    }
+
+    @Benchmark
+    public TodoSearchResult firstPage() {
+        return repository.search(query, 0, 20);
+    }
+
+    @Benchmark
+    public TodoSearchResult deepPage() {
+        return repository.search(query, 500, 20);
+    }
+
+    @Benchmark
+    public List<Todo> scan() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return repository.findAll().stream()
+                .filter(todo -> todo.getTitle().toLowerCase(Locale.ROOT).contains(needle))
+                .limit(20)
+                .toList();
+    }
+}
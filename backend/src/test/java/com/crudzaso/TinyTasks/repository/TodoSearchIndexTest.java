@@ -0,0 +1,117 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoSearchIndex Tests")
+class TodoSearchIndexTest {
+
+    private TodoSearchIndex index;
+    private Map<Integer, Todo> todos;
+
+    @BeforeEach
+    void setUp() {
+        index = new TodoSearchIndex();
+        todos = new HashMap<>();
+    }
+
+    private void add(int id, String title) {
+        todos.put(id, new Todo(id, title, false));
+        index.add(id, title);
+    }
+
+    private List<Integer> ids(TodoSearchResult result) {
+        return result.todos().stream().map(Todo::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Should lowercase, fold accents and split on punctuation")
+    void shouldTokenizeTitles() {
+        assertEquals(List.of("revisar", "cafe", "v2", "ano"), TodoSearchIndex.tokenize("Revisar  CAFÉ-v2, año!"));
+        assertEquals(List.of(), TodoSearchIndex.tokenize("  ... "));
+        assertEquals(List.of(), TodoSearchIndex.tokenize(null));
+    }
+
+    @Test
+    @DisplayName("Should require every token and match the last one as a prefix")
+    void shouldMatchAllTokensWithPrefix() {
+        // Given
+        add(1, "Buy milk");
+        add(2, "Buy milkshake mix");
+        add(3, "Drink milk");
+        add(4, "Buy bread");
+
+        // When
+        TodoSearchResult result = index.search("buy mil", 0, 10, todos::get);
+
+        // Then
+        assertEquals(2, result.total());
+        assertEquals(List.of(2, 1), ids(result));
+        assertEquals(0, index.search("buy cheese", 0, 10, todos::get).total());
+    }
+
+    @Test
+    @DisplayName("Should rank whole-word matches before prefix-only matches")
+    void shouldRankExactMatchesFirst() {
+        // Given
+        add(1, "Call mom");
+        add(2, "Calling plan");
+        add(3, "Call bank");
+        add(4, "Callback review");
+
+        // When
+        TodoSearchResult result = index.search("call", 0, 10, todos::get);
+
+        // Then
+        assertEquals(List.of(3, 1, 4, 2), ids(result));
+    }
+
+    @Test
+    @DisplayName("Should page hits with offset and limit while reporting the full total")
+    void shouldPageResults() {
+        // Given
+        for (int id = 1; id <= 25; id++) {
+            add(id, "Task number " + id);
+        }
+
+        // When
+        TodoSearchResult page = index.search("task", 20, 10, todos::get);
+
+        // Then
+        assertEquals(25, page.total());
+        assertEquals(List.of(5, 4, 3, 2, 1), ids(page));
+        assertTrue(index.search("task", 30, 10, todos::get).todos().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should stop returning removed tasks and purge dead postings")
+    void shouldRemoveTasks() {
+        // Given
+        for (int id = 1; id <= 3_000; id++) {
+            add(id, id % 2 == 0 ? "Even chore " + id : "Odd chore");
+        }
+
+        // When
+        for (int id = 2; id <= 3_000; id += 2) {
+            index.remove(id);
+        }
+        for (int id = 1; id <= 2_999; id += 2) {
+            index.remove(id);
+        }
+        add(3_001, "Odd chore");
+
+        // Then
+        assertEquals(List.of(3_001), ids(index.search("chore", 0, 10, todos::get)));
+        assertEquals(0, index.search("even", 0, 10, todos::get).total());
+        assertEquals(2, index.termCount());
+    }
+}
@@ -0,0 +1,64 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmark comparing the copying {@code findAll()} of the {@code memory} engine
+ * with the copy-on-write snapshot of the {@code snapshot} engine under mixed workloads.
+ * Every operation is a {@code findAll()}, except that one in {@code readsPerWrite + 1}
+ * toggles a random task instead, so the cost per operation includes rebuilding stale snapshots.
+ *
+ * <p>Run with {@code mvn test -Pjmh -Djmh.args="TodoSnapshotBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TodoSnapshotBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"1", "10", "100", "1000"})
+    int readsPerWrite;
+
+    @Param({"memory", "snapshot"})
+    String engine;
+
+    TodoRepository repository;
+
+    /** Per-thread position in the read/write cycle */
+    @State(Scope.Thread)
+    public static class Cycle {
+        int step;
+    }
+
+    @Setup(Level.Trial)
+    public void fill() {
+        repository = switch (engine) {
+            case "memory" -> new TodoRepositoryImp();
+            case "snapshot" -> new SnapshotTodoRepository();
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+        for (int i = 0; i < size; i++) {
+            repository.save(new Todo("Benchmark task " + i));
+        }
+    }
+
+    @Benchmark
+    public Object mixed(Cycle cycle) {
+        if (cycle.step++ % (readsPerWrite + 1) == 0) {
+            return repository.toggle(ThreadLocalRandom.current().nextInt(1, size + 1));
+        }
+        List<Todo> todos = repository.findAll();
+        // Touch the list the way a serializer would start walking it
+        return todos.get(todos.size() - 1);
+    }
+}
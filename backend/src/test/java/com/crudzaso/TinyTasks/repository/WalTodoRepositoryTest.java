@@ -0,0 +1,516 @@
+package com.crudzaso.TinyTasks.repository;
+
+import com.crudzaso.TinyTasks.config.WalProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WalTodoRepository Tests")
+class WalTodoRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    static WalProperties properties(Path directory, WalProperties.Fsync fsync, int snapshotEvery) {
+        return properties(directory, fsync, snapshotEvery, WalProperties.Ack.FLUSH);
+    }
+
+    static WalProperties properties(Path directory, WalProperties.Fsync fsync, int snapshotEvery, WalProperties.Ack ack) {
+        return new WalProperties(directory, fsync, Duration.ofMillis(10), snapshotEvery, ack, 1024);
+    }
+
+    @Test
+    @DisplayName("Should recover creates, toggles and deletes after reopening")
+    void shouldRecoverAfterRestart() throws IOException {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            repository.save(new Todo("Task 1"));
+            repository.save(new Todo("Task 2"));
+            repository.save(new Todo("Task 3"));
+            repository.toggle(2);
+            repository.delete(3);
+        }
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            // Then
+            assertEquals(2, reopened.findAll().size());
+            assertFalse(reopened.findById(1).get().isDone());
+            assertTrue(reopened.findById(2).get().isDone());
+            assertTrue(reopened.findById(3).isEmpty());
+            assertEquals(4, reopened.save(new Todo("Task 4")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover batch operations written with a single log append")
+    void shouldRecoverBatches() throws IOException {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            repository.saveAll(List.of(new Todo("Task 1"), new Todo("Task 2"), new Todo("Task 3")));
+            repository.toggleAll(new int[] {1, 3, 99});
+            assertArrayEquals(new boolean[] {true, false}, repository.deleteAll(new int[] {2, 2}));
+        }
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            // Then
+            assertEquals(List.of(1, 3), reopened.findAll().stream().map(Todo::getId).toList());
+            assertTrue(reopened.findById(1).get().isDone());
+            assertTrue(reopened.findById(3).get().isDone());
+        }
+    }
+
+    @Test
+    @DisplayName("Should load the snapshot and replay only the newer log tail")
+    void shouldReplaySnapshotAndTail() throws IOException {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 1000))) {
+            for (int i = 1; i <= 10; i++) {
+                repository.save(new Todo("Task " + i));
+            }
+            repository.checkpoint();
+            repository.toggle(5);
+            repository.delete(10);
+        }
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 1000))) {
+            // Then
+            assertEquals(1, segmentCount());
+            assertEquals(9, reopened.findAll().size());
+            assertTrue(reopened.findById(5).get().isDone());
+            assertTrue(reopened.findById(10).isEmpty());
+            assertEquals(11, reopened.save(new Todo("Task 11")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should not reuse the id of a task deleted before the snapshot")
+    void shouldNotReuseIdsDeletedBeforeSnapshot() throws IOException {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 1000))) {
+            repository.save(new Todo("Task 1"));
+            repository.save(new Todo("Task 2"));
+            repository.save(new Todo("Task 3"));
+            repository.delete(3);
+            repository.checkpoint();
+        }
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 1000))) {
+            // Then
+            assertEquals(List.of(1, 2), reopened.findAll().stream().map(Todo::getId).toList());
+            assertEquals(4, reopened.save(new Todo("Task 4")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should discard a torn record at the end of the log")
+    void shouldDiscardTornTail() throws IOException {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            repository.save(new Todo("Task 1"));
+            repository.save(new Todo("Task 2"));
+        }
+        Path segment = lastSegment();
+        Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            reopened.save(new Todo("Task 3"));
+        }
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            // Then
+            assertEquals(List.of(1, 2, 3), reopened.findAll().stream().map(Todo::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should snapshot automatically once enough records are logged")
+    void shouldSnapshotAutomatically() throws Exception {
+        // Given
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 100))) {
+            // When
+            for (int i = 1; i <= 250; i++) {
+                repository.save(new Todo("Task " + i));
+            }
+        }
+
+        // Then
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.NEVER, 100))) {
+            assertEquals(250, reopened.findAll().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover creation and completion times as recorded, not as replayed")
+    void shouldRecoverTimestamps() throws Exception {
+        // Given
+        Todo created;
+        Todo completed;
+        try (WalTodoRepository repository = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            created = repository.save(new Todo(0, "Task 1", false, 1_000, 0));
+            completed = repository.toggle(created.getId()).get();
+        }
+        Thread.sleep(5);
+
+        // When
+        try (WalTodoRepository reopened = new WalTodoRepository(properties(directory, WalProperties.Fsync.ALWAYS, 1000))) {
+            Todo recovered = reopened.findById(created.getId()).get();
+
+            // Then
+            assertEquals(1_000, recovered.getCreatedAt());
+            assertTrue(completed.getCompletedAt() > 0);
+            assertEquals(completed.getCompletedAt(), recovered.getCompletedAt());
+        }
+    }
+
+    @Test
+    @DisplayName("Should read log records written before timestamps with both times unknown")
+    void shouldDecodeVersionZeroRecords() {
+        // Given: [type][id][done][titleLength][title], as logged before the format carried timestamps
+        byte[] title = "Task 1".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer legacy = ByteBuffer.allocate(TodoLogRecord.FIXED_SIZE + title.length)
+                .put((byte) TodoLogRecord.Type.CREATE.ordinal()).putInt(7).put((byte) 1).putInt(title.length).put(title)
+                .flip();
+
+        // When
+        TodoLogRecord record = TodoLogRecord.decode(legacy);
+
+        // Then
+        assertEquals(new TodoLogRecord(TodoLogRecord.Type.CREATE, 7, "Task 1", true, 0, 0), record);
+        TodoLogRecord current = TodoLogRecord.setDone(new Todo(7, "Task 1", true, 1_000, 2_000));
+        assertEquals(current, TodoLogRecord.decode(ByteBuffer.wrap(current.encode())));
+    }
+
+    @Test
+    @DisplayName("Should keep only the last status record of each id in a batch")
+    void shouldCoalesceStatusRecords() {
+        // Given
+        List<TodoLogRecord> batch = List.of(
+                TodoLogRecord.create(new Todo(1, "Task 1", false)),
+                TodoLogRecord.setDone(new Todo(1, "Task 1", true)),
+                TodoLogRecord.setDone(new Todo(2, "Task 2", true)),
+                TodoLogRecord.setDone(new Todo(1, "Task 1", false)),
+                TodoLogRecord.setDone(new Todo(3, "Task 3", true)),
+                TodoLogRecord.delete(3),
+                TodoLogRecord.setDone(new Todo(2, "Task 2", false)));
+
+        // When
+        List<TodoLogRecord> records = WalTodoRepository.coalesce(batch);
+
+        // Then
+        assertEquals(List.of(batch.get(0), batch.get(3), batch.get(5), batch.get(6)), records);
+    }
+
+    @Test
+    @DisplayName("Should write queued mutations behind the caller and recover them after close")
+    void shouldRecoverWriteBehind() throws Exception {
+        // Given
+        AtomicInteger flushed = new AtomicInteger();
+        AtomicInteger coalesced = new AtomicInteger();
+        WalProperties settings = properties(directory, WalProperties.Fsync.ALWAYS, 1000, WalProperties.Ack.MEMORY);
+        try (WalTodoRepository repository = new WalTodoRepository(settings)) {
+            repository.setFlushObserver((records, dropped, nanos) -> {
+                flushed.addAndGet(records);
+                coalesced.addAndGet(dropped);
+            });
+
+            // When
+            repository.saveAll(List.of(new Todo("Task 1"), new Todo("Task 2"), new Todo("Task 3")));
+            for (int i = 0; i < 501; i++) {
+                repository.toggle(1);
+            }
+            repository.delete(3);
+            repository.checkpoint();
+            repository.save(new Todo("Task 4"));
+            repository.toggle(4);
+        }
+
+        // Then
+        assertEquals(507, flushed.get() + coalesced.get());
+        try (WalTodoRepository reopened = new WalTodoRepository(settings)) {
+            assertEquals(List.of(1, 2, 4), reopened.findAll().stream().map(Todo::getId).toList());
+            assertTrue(reopened.findById(1).get().isDone());
+            assertTrue(reopened.findById(4).get().isDone());
+            assertEquals(0, reopened.pendingWrites());
+        }
+    }
+
+    @Test
+    @DisplayName("Should cut off a failed write and acknowledge nothing after it")
+    void shouldFailStopWhenLogWriteFails() throws Exception {
+        // Given
+        List<FailingChannel> opened = new ArrayList<>();
+        TodoLog.Channels channels = path -> {
+            FailingChannel channel = new FailingChannel(TodoLog.Channels.FILES.open(path));
+            opened.add(channel);
+            return channel;
+        };
+        WalProperties settings = properties(directory, WalProperties.Fsync.ALWAYS, 1000);
+        try (WalTodoRepository repository = new WalTodoRepository(settings, channels)) {
+            repository.save(new Todo("Task 1"));
+
+            // When
+            opened.getLast().failing = true;
+            assertThrows(UncheckedIOException.class, () -> repository.save(new Todo("Task 2")));
+            opened.getLast().failing = false;
+
+            // Then
+            assertNotNull(repository.writeFailure());
+            assertThrows(IllegalStateException.class, () -> repository.save(new Todo("Task 3")));
+            assertThrows(IllegalStateException.class, () -> repository.toggle(1));
+            assertThrows(IllegalStateException.class, () -> repository.deleteAll(new int[] {1}));
+        }
+        Path segment = lastSegment();
+        assertEquals(Files.size(segment), TodoLog.replay(segment, record -> { }));
+        try (WalTodoRepository reopened = new WalTodoRepository(settings)) {
+            assertEquals(List.of(1), reopened.findAll().stream().map(Todo::getId).toList());
+            assertFalse(reopened.findById(1).get().isDone());
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse mutations once a background batch cannot be written")
+    void shouldRefuseWritesAfterWriteBehindFails() throws Exception {
+        // Given
+        UncheckedIOException diskFull = new UncheckedIOException(new IOException("No space left on device"));
+        WalProperties settings = properties(directory, WalProperties.Fsync.NEVER, 1000, WalProperties.Ack.MEMORY);
+        try (WalTodoRepository repository = new WalTodoRepository(settings)) {
+            repository.setFlushObserver((records, dropped, nanos) -> {
+                throw diskFull;
+            });
+
+            // When
+            repository.save(new Todo("Task 1"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (repository.writeFailure() == null && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            // Then
+            assertSame(diskFull, repository.writeFailure());
+            IllegalStateException refused = assertThrows(IllegalStateException.class,
+                    () -> repository.save(new Todo("Task 2")));
+            assertSame(diskFull, refused.getCause());
+            assertThrows(IllegalStateException.class, () -> repository.toggleAll(new int[] {1}));
+            assertEquals(1, repository.count());
+            assertFalse(repository.findById(1).get().isDone());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report mutation latency when acknowledging on flush or on memory")
+    void reportAckLatency() throws Exception {
+        int operations = Integer.getInteger("tinytasks.bench.operations", 20_000);
+        System.out.printf("%-8s %12s %12s %12s%n", "ack", "p50 us", "p99 us", "max us");
+        for (WalProperties.Ack ack : WalProperties.Ack.values()) {
+            Path benchDirectory = Files.createTempDirectory(directory, ack.name());
+            long[] latencies = new long[operations];
+            try (WalTodoRepository repository = new WalTodoRepository(
+                    properties(benchDirectory, WalProperties.Fsync.ALWAYS, 1_000_000, ack))) {
+                for (int i = 0; i < operations; i++) {
+                    long start = System.nanoTime();
+                    if (i % 2 == 0) {
+                        repository.save(new Todo("Benchmark task " + i));
+                    } else {
+                        repository.toggle(i / 2 + 1);
+                    }
+                    latencies[i] = System.nanoTime() - start;
+                }
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-8s %12.1f %12.1f %12.1f%n", ack,
+                    latencies[operations / 2] / 1e3, latencies[operations * 99 / 100] / 1e3,
+                    latencies[operations - 1] / 1e3);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Report write throughput and recovery time")
+    void reportThroughputAndRecovery() throws Exception {
+        long operations = Long.getLong("tinytasks.bench.operations", 10_000_000);
+        System.out.printf("%-10s %12s %14s %14s%n", "fsync", "operations", "writes/sec", "recovery ms");
+        for (WalProperties.Fsync fsync : WalProperties.Fsync.values()) {
+            Path benchDirectory = Files.createTempDirectory(directory, fsync.name());
+            // Every ALWAYS write waits for the disk, so measure it on a smaller sample
+            long sample = fsync == WalProperties.Fsync.ALWAYS ? Math.min(operations, 20_000) : operations;
+            WalProperties settings = properties(benchDirectory, fsync, 1_000_000);
+            long start = System.nanoTime();
+            try (WalTodoRepository repository = new WalTodoRepository(settings)) {
+                for (long i = 0; i < sample; i++) {
+                    // 60% creates, 30% toggles, 10% deletes
+                    int kind = (int) (i % 10);
+                    if (kind < 6 || i < 10) {
+                        repository.save(new Todo("Benchmark task " + i));
+                    } else if (kind < 9) {
+                        repository.toggle((int) (i / 2) + 1);
+                    } else {
+                        repository.delete((int) (i / 3) + 1);
+                    }
+                }
+            }
+            double writeSeconds = (System.nanoTime() - start) / 1e9;
+            long recoveryStart = System.nanoTime();
+            try (WalTodoRepository ignored = new WalTodoRepository(settings)) {
+                long recoveryMillis = (System.nanoTime() - recoveryStart) / 1_000_000;
+                System.out.printf("%-10s %12d %14.0f %14d%n", fsync, sample, sample / writeSeconds, recoveryMillis);
+            }
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .reduce((first, second) -> second)
+                    .orElseThrow();
+        }
+    }
+
+    /**
+     * File channel that, while {@link #failing} is set, writes half of each buffer and then
+     * fails as a full disk would, leaving a torn frame behind.
+     */
+    static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        volatile boolean failing;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!failing) {
+                return delegate.write(src);
+            }
+            ByteBuffer half = src.slice(src.position(), Math.max(1, src.remaining() / 2));
+            delegate.write(half);
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (failing) {
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if (failing) {
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.repository.CompactTodoRepository;
+import com.crudzaso.TinyTasks.repository.MeteredTodoRepository;
+import com.crudzaso.TinyTasks.repository.TodoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MicrometerTodoMetrics Tests")
+class MicrometerTodoMetricsTest {
+
+    private MeterRegistry registry;
+    private TodoService todoService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        TodoRepository repository = new MeteredTodoRepository(new CompactTodoRepository(), registry);
+        todoService = new TodoService(repository, new MicrometerTodoMetrics(registry, repository));
+    }
+
+    @Test
+    @DisplayName("Should time service and repository operations")
+    void shouldTimeOperations() {
+        // When
+        int id = todoService.createTodo("Task 1").getId();
+        todoService.toggleTodo(id);
+        todoService.getAllTodos();
+
+        // Then
+        assertEquals(1, registry.get("tinytasks.service.operations").tag("operation", "create").timer().count());
+        assertEquals(1, registry.get("tinytasks.service.operations").tag("operation", "toggle").timer().count());
+        assertEquals(1, registry.get("tinytasks.repository.operations").tag("operation", "findAll").timer().count());
+        assertEquals("CompactTodoRepository",
+                registry.get("tinytasks.repository.operations").tag("operation", "save").timer().getId().getTag("engine"));
+    }
+
+    @Test
+    @DisplayName("Should count validation rejections and not-found lookups")
+    void shouldCountRejectionsAndMisses() {
+        // When
+        assertThrows(IllegalArgumentException.class, () -> todoService.createTodo("ab"));
+        assertThrows(IllegalArgumentException.class, () -> todoService.getTodoPage(0, 0));
+        todoService.toggleTodo(42);
+        todoService.deleteTodo(42);
+        todoService.deleteTodos(new int[] {1, 2});
+
+        // Then
+        assertEquals(1, registry.get("tinytasks.todos.rejected").tag("reason", "title").counter().count());
+        assertEquals(1, registry.get("tinytasks.todos.rejected").tag("reason", "limit").counter().count());
+        assertEquals(1, registry.get("tinytasks.todos.not.found").tag("operation", "toggle").counter().count());
+        assertEquals(1, registry.get("tinytasks.todos.not.found").tag("operation", "delete").counter().count());
+        assertEquals(2, registry.get("tinytasks.todos.not.found").tag("operation", "batch_delete").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should report store size and footprint as gauges")
+    void shouldReportStoreGauges() {
+        // When
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.deleteTodo(1);
+
+        // Then
+        assertEquals(1, registry.get("tinytasks.todos.stored").gauge().value());
+        assertTrue(registry.get("tinytasks.todos.estimated").gauge().value() > 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.crudzaso.TinyTasks.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH microbenchmarks for the per-request cost of {@link RateLimiter}: one client with
+ * budget to spare, one client already over budget, and a population of known clients.
+ * The {@code contended} variant has four threads taking tokens from the same bucket.
+ *
+ * <p>Run with {@code mvn test -Pjmh -Djmh.args="RateLimiterBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    RateLimiter generous;
+    RateLimiter exhausted;
+    String[] clients;
+
+    @Setup
+    public void prepare() {
+        generous = new RateLimiter(1e9, 1_000_000, CLIENTS * 2);
+        exhausted = new RateLimiter(1e-3, 1, CLIENTS * 2);
+        exhausted.tryAcquire("10.0.0.1");
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xFF);
+            generous.tryAcquire(clients[i]);
+        }
+    }
+
+    @Benchmark
+    public long allowed() {
+        return generous.tryAcquire("10.0.0.1");
+    }
+
+    @Benchmark
+    public long refused() {
+        return exhausted.tryAcquire("10.0.0.1");
+    }
+
+    @Benchmark
+    public long manyClients() {
+        return generous.tryAcquire(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long contended() {
+        return generous.tryAcquire("10.0.0.1");
+    }
+}
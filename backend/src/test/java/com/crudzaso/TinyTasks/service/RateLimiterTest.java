@@ -0,0 +1,100 @@
+package com.crudzaso.TinyTasks.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RateLimiter Tests")
+class RateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(-5_000 * MILLIS);
+
+    @Test
+    @DisplayName("Should allow a burst, then one request per refill interval")
+    void shouldAllowBurstThenRefill() {
+        // Given: 10 per second with a burst of 3
+        RateLimiter limiter = new RateLimiter(10, 3, 100, clock::get);
+
+        // When & Then
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("alice"));
+        }
+        assertEquals(100 * MILLIS, limiter.tryAcquire("alice"));
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("bob"), "budgets are per client");
+
+        clock.addAndGet(40 * MILLIS);
+        assertEquals(60 * MILLIS, limiter.tryAcquire("alice"), "a refused request takes no token");
+        clock.addAndGet(60 * MILLIS);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice") > 0);
+
+        clock.addAndGet(10_000 * MILLIS);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("alice"), "idle time refills at most the burst");
+        }
+        assertTrue(limiter.tryAcquire("alice") > 0);
+    }
+
+    @Test
+    @DisplayName("Should drop refilled buckets and share one bucket once every tracked client is active")
+    void shouldBoundTrackedClients() {
+        // Given: one request per second, two clients tracked
+        RateLimiter limiter = new RateLimiter(1, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        // When: both are still throttled
+        long first = limiter.tryAcquire("c");
+        long second = limiter.tryAcquire("d");
+
+        // Then
+        assertEquals(RateLimiter.ALLOWED, first);
+        assertTrue(second > 0, "c and d share the overflow bucket");
+        assertEquals(3, limiter.trackedClients());
+
+        // When: the buckets have refilled
+        clock.addAndGet(2_000 * MILLIS);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("e"));
+
+        // Then
+        assertEquals(1, limiter.trackedClients());
+    }
+
+    @Test
+    @DisplayName("Should admit exactly the burst when many threads race for one bucket")
+    void shouldNotOverAdmitUnderContention() throws Exception {
+        // Given: a frozen clock, so no token is refilled during the race
+        RateLimiter limiter = new RateLimiter(1, 1000, 10, clock::get);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.tryAcquire("shared") == RateLimiter.ALLOWED) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        // Then
+        assertEquals(1000, admitted.get());
+    }
+}
@@ -0,0 +1,181 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.ReactiveProperties;
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.model.BatchResult;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.repository.ReactiveTodoRepositoryAdapter;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReactiveTodoService Tests")
+class ReactiveTodoServiceTest {
+
+    /** Counts page reads and the threads they ran on */
+    private final AtomicInteger pageReads = new AtomicInteger();
+    private final Set<String> pageThreads = ConcurrentHashMap.newKeySet();
+
+    private TodoRepositoryImp todoRepository;
+    private ReactiveTodoRepositoryAdapter reactiveRepository;
+    private TodoChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        todoRepository = new TodoRepositoryImp() {
+            @Override
+            public List<Todo> findPage(int afterId, int limit) {
+                pageReads.incrementAndGet();
+                pageThreads.add(Thread.currentThread().getName());
+                return super.findPage(afterId, limit);
+            }
+        };
+        reactiveRepository = new ReactiveTodoRepositoryAdapter(todoRepository, new ReactiveProperties(4, 100, 2));
+        changeLog = new TodoChangeLog(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveRepository.close();
+    }
+
+    private ReactiveTodoService service(int maxTodos) {
+        return new ReactiveTodoService(reactiveRepository, TodoMetrics.NOOP, changeLog, new StoreProperties(maxTodos));
+    }
+
+    @Test
+    @DisplayName("Should read the next page of the full list only when the subscriber asks for more")
+    void shouldStreamFullListWithBackpressure() {
+        // Given: five pages of two tasks
+        for (int i = 1; i <= 10; i++) {
+            todoRepository.save(new Todo("Task " + i));
+        }
+        ReactiveTodoService reactiveService = service(0);
+
+        // When: the subscriber takes one task and waits
+        StepVerifier.create(reactiveService.getAllTodos(false), 1)
+                .assertNext(todo -> assertEquals(1, todo.getId()))
+                .then(() -> {
+                    // Then: at most the current page and the one behind it have been read
+                    assertTrue(pageReads.get() <= 2, "pages read: " + pageReads.get());
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(9)
+                .verifyComplete();
+
+        // And every read ran on a storage thread, never on the subscriber's
+        assertTrue(pageThreads.stream().allMatch(name -> name.startsWith("tinytasks-storage")), pageThreads.toString());
+    }
+
+    @Test
+    @DisplayName("Should apply the validation rules and store cap of the blocking service")
+    void shouldValidateLikeBlockingService() {
+        // Given
+        ReactiveTodoService reactiveService = service(2);
+
+        // When & Then
+        StepVerifier.create(reactiveService.createTodo("  "))
+                .expectErrorSatisfies(e -> assertEquals("Title is required", e.getMessage()))
+                .verify();
+        StepVerifier.create(reactiveService.getTodoPage(0, TodoService.MAX_PAGE_SIZE + 1, false))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(reactiveService.createTodo("  Task 1  "))
+                .assertNext(todo -> assertEquals("Task 1", todo.getTitle()))
+                .verifyComplete();
+        StepVerifier.create(reactiveService.createTodos(Arrays.asList("Task 2", "ab", "Task 3")))
+                .assertNext(results -> assertEquals(List.of(201, 400, 507),
+                        results.stream().map(BatchResult::status).toList()))
+                .verifyComplete();
+        StepVerifier.create(reactiveService.createTodo("Task 4"))
+                .expectError(StoreFullException.class)
+                .verify();
+        StepVerifier.create(reactiveService.countTodos())
+                .assertNext(counts -> assertEquals(2, counts.total()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should record changes in the change log shared with the blocking service")
+    void shouldShareChangeLogWithBlockingService() {
+        // Given
+        TodoService blockingService = new TodoService(todoRepository, TodoMetrics.NOOP, changeLog);
+        ReactiveTodoService reactiveService = service(0);
+        long since = changeLog.latest();
+
+        // When
+        Todo created = reactiveService.createTodo("Task 1").block();
+        blockingService.createTodo("Task 2");
+        reactiveService.toggleTodo(2).block();
+        assertEquals(Boolean.TRUE, reactiveService.deleteTodo(created.getId()).block());
+        StepVerifier.create(reactiveService.toggleTodo(42)).verifyComplete();
+
+        // Then
+        TodoChanges changes = reactiveService.getChangesSince(since).block();
+        assertNotNull(changes);
+        assertFalse(changes.resync());
+        assertEquals(List.of(2), changes.upserted().stream().map(Todo::getId).toList());
+        assertTrue(changes.upserted().get(0).isDone());
+        assertEquals(List.of(1), changes.deleted());
+        assertEquals(changes.latest(), blockingService.getChangesSince(since).latest());
+    }
+
+    @Test
+    @DisplayName("Should keep slow storage calls off the caller and refuse them once the queue is full")
+    void shouldRefuseCallsBeyondStorageQueue() throws Exception {
+        // Given: one storage thread stuck in a slow lookup and room for one queued call
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        TodoRepositoryImp slow = new TodoRepositoryImp() {
+            @Override
+            public Optional<Todo> findById(int id) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findById(id);
+            }
+        };
+        slow.save(new Todo("Task 1"));
+        try (ReactiveTodoRepositoryAdapter adapter = new ReactiveTodoRepositoryAdapter(slow,
+                Schedulers.newBoundedElastic(1, 1, "tinytasks-storage-test"), 2)) {
+            // When: subscribing returns at once although the lookup blocks
+            long start = System.nanoTime();
+            Mono<Todo> inFlight = adapter.findById(1).cache();
+            inFlight.subscribe();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Mono<Todo> queued = adapter.findById(1).cache();
+            queued.subscribe();
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+            // Then
+            StepVerifier.create(adapter.findById(1))
+                    .expectError(RejectedExecutionException.class)
+                    .verify(Duration.ofSeconds(5));
+            release.countDown();
+            StepVerifier.create(inFlight).expectNextCount(1).verifyComplete();
+            StepVerifier.create(queued).expectNextCount(1).verifyComplete();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.crudzaso.TinyTasks.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoChangeLog Tests")
+class TodoChangeLogTest {
+
+    @Test
+    @DisplayName("Should return each changed id once, oldest change first")
+    void shouldReturnDistinctIdsSinceCursor() {
+        // Given
+        TodoChangeLog changeLog = new TodoChangeLog(8);
+        long cursor = changeLog.latest();
+
+        // When
+        changeLog.record(3);
+        changeLog.record(1);
+        changeLog.record(3);
+        TodoChangeLog.Window window = changeLog.since(cursor);
+
+        // Then
+        assertNotNull(window);
+        assertEquals(cursor + 3, window.latest());
+        assertArrayEquals(new int[]{3, 1}, window.ids());
+        assertEquals(0, changeLog.since(window.latest()).ids().length);
+    }
+
+    @Test
+    @DisplayName("Should require a resync once the cursor falls out of the ring")
+    void shouldRejectEvictedCursor() {
+        // Given
+        TodoChangeLog changeLog = new TodoChangeLog(4);
+        long cursor = changeLog.latest();
+
+        // When
+        for (int id = 1; id <= 5; id++) {
+            changeLog.record(id);
+        }
+
+        // Then
+        assertNull(changeLog.since(cursor));
+        assertArrayEquals(new int[]{2, 3, 4, 5}, changeLog.since(cursor + 1).ids());
+    }
+
+    @Test
+    @DisplayName("Should require a resync for cursors from the future or from before a restart")
+    void shouldRejectForeignCursor() {
+        // Given
+        TodoChangeLog changeLog = new TodoChangeLog(4);
+        changeLog.record(1);
+
+        // When & Then
+        assertNull(changeLog.since(0));
+        assertNull(changeLog.since(changeLog.latest() + 1));
+    }
+}
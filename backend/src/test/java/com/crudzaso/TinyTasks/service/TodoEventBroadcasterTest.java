@@ -0,0 +1,164 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoEventBroadcaster Tests")
+class TodoEventBroadcasterTest {
+
+    private TodoService todoService;
+    private TodoEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        todoService = new TodoService(new TodoRepositoryImp());
+        broadcaster = new TodoEventBroadcaster(todoService, 2, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.close();
+    }
+
+    /** Records batches and applies them like a client would */
+    private static class RecordingSink implements TodoEventBroadcaster.EventSink {
+        final List<TodoChanges> batches = new CopyOnWriteArrayList<>();
+        final Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        final AtomicInteger heartbeats = new AtomicInteger();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(TodoChanges changes) throws IOException {
+            batches.add(changes);
+            changes.upserted().forEach(todo -> seen.add(todo.getId()));
+            changes.deleted().forEach(seen::remove);
+        }
+
+        @Override
+        public void heartbeat() {
+            heartbeats.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Should push every change to subscribers")
+    void shouldPushChanges() throws Exception {
+        // Given
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(sink, null);
+
+        // When
+        Todo first = todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.deleteTodo(first.getId());
+
+        // Then
+        await(() -> !sink.batches.isEmpty()
+                && sink.batches.get(sink.batches.size() - 1).latest() == todoService.getChangeSequence());
+        assertEquals(Set.of(2), sink.seen);
+        assertTrue(sink.batches.stream().noneMatch(TodoChanges::resync));
+    }
+
+    @Test
+    @DisplayName("Should not let a stalled subscriber hold back writers or other subscribers")
+    void shouldIsolateSlowSubscriber() throws Exception {
+        // Given: one subscriber blocks inside its first send
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink() {
+            @Override
+            public void send(TodoChanges changes) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.send(changes);
+            }
+        };
+        RecordingSink fast = new RecordingSink();
+        broadcaster.subscribe(slow, null);
+        broadcaster.subscribe(fast, null);
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            todoService.createTodo("Task " + i);
+        }
+
+        // Then: the fast subscriber is current while the slow one is still stuck
+        await(() -> fast.seen.size() == 200);
+        assertTrue(slow.batches.isEmpty());
+
+        // When: the slow subscriber recovers, its backlog arrives coalesced
+        release.countDown();
+        await(() -> slow.seen.size() == 200);
+        assertTrue(slow.batches.size() < 200);
+    }
+
+    @Test
+    @DisplayName("Should refuse subscribers beyond the limit and drop failing ones")
+    void shouldLimitAndDropSubscribers() throws Exception {
+        // Given
+        RecordingSink failing = new RecordingSink() {
+            @Override
+            public void send(TodoChanges changes) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertNotNull(broadcaster.subscribe(failing, null));
+        assertNotNull(broadcaster.subscribe(new RecordingSink(), null));
+
+        // When & Then
+        assertNull(broadcaster.subscribe(new RecordingSink(), null));
+        todoService.createTodo("Task 1");
+        assertTrue(failing.closed.await(5, TimeUnit.SECONDS));
+        await(() -> broadcaster.subscriberCount() == 1);
+    }
+
+    @Test
+    @DisplayName("Should resume from a cursor and keep idle streams alive")
+    void shouldResumeAndHeartbeat() throws Exception {
+        // Given
+        todoService.createTodo("Task 1");
+        long cursor = todoService.getChangeSequence();
+        todoService.createTodo("Task 2");
+
+        // When
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(sink, cursor);
+
+        // Then
+        await(() -> sink.seen.equals(Set.of(2)));
+        await(() -> sink.heartbeats.get() > 0);
+    }
+}
@@ -0,0 +1,74 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH microbenchmarks for {@link TodoService} on top of the default in-memory repository,
+ * covering validation plus the repository call for datasets from 1K to 10M tasks.
+ *
+ * <p>Run with {@code mvn test -Pjmh}; results are written to {@code target/jmh-results.json}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TodoServiceBenchmark {
+
+    private static final int DELETE_BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    TodoService todoService;
+    final AtomicInteger nextDelete = new AtomicInteger();
+
+    /** Rebuilt before every iteration so creates and deletes do not drift the dataset size */
+    @Setup(Level.Iteration)
+    public void fill() {
+        todoService = null;
+        todoService = new TodoService(new TodoRepositoryImp());
+        for (int i = 0; i < size; i++) {
+            todoService.createTodo("Benchmark task " + i);
+        }
+        nextDelete.set(1);
+    }
+
+    @Benchmark
+    public Todo createTodo() {
+        return todoService.createTodo("Benchmark task");
+    }
+
+    @Benchmark
+    public List<Todo> getTodoPage() {
+        return todoService.getTodoPage(ThreadLocalRandom.current().nextInt(size), 100);
+    }
+
+    @Benchmark
+    public Optional<Todo> toggleTodo() {
+        return todoService.toggleTodo(ThreadLocalRandom.current().nextInt(1, size + 1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Todo> toggleTodoContended() {
+        return toggleTodo();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = DELETE_BATCH)
+    @Measurement(iterations = 10, batchSize = DELETE_BATCH)
+    public boolean deleteTodo() {
+        return todoService.deleteTodo(nextDelete.getAndIncrement());
+    }
+}
@@ -1,12 +1,22 @@
 package com.crudzaso.TinyTasks.service;
 
+import com.crudzaso.TinyTasks.config.ArchiveProperties;
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.model.BatchResult;
 import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.model.TodoChanges;
+import com.crudzaso.TinyTasks.model.TodoCounts;
+import com.crudzaso.TinyTasks.model.TodoSearchResult;
 import com.crudzaso.TinyTasks.repository.TodoRepository;
 import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +52,25 @@ class TodoServiceTest {
         assertFalse(createdTodo.isDone());
     }
 
+    @Test
+    @DisplayName("Should refuse creates beyond the store cap until a task is deleted")
+    void shouldEnforceStoreCap() {
+        // Given
+        TodoService capped = new TodoService(todoRepository, TodoMetrics.NOOP,
+                new TodoChangeLog(TodoChangeLog.DEFAULT_CAPACITY), new StoreProperties(3));
+        capped.createTodo("Task 1");
+
+        // When
+        List<BatchResult> batch = capped.createTodos(List.of("Task 2", "x", "Task 3", "Task 4"));
+
+        // Then
+        assertEquals(List.of(201, 400, 201, 507), batch.stream().map(BatchResult::status).toList());
+        assertThrows(StoreFullException.class, () -> capped.createTodo("Task 5"));
+        assertEquals(3, todoRepository.count());
+        capped.deleteTodo(1);
+        assertEquals(4, capped.createTodo("Task 5").getId());
+    }
+
     @Test
     @DisplayName("Should throw exception when title is null")
     void shouldThrowExceptionWhenTitleIsNull() {
@@ -174,6 +203,151 @@ class TodoServiceTest {
         assertFalse(deleted);
     }
 
+    // ===== BATCH TESTS =====
+
+    @Test
+    @DisplayName("Should create valid titles and report invalid ones per item")
+    void shouldCreateBatchWithPerItemResults() {
+        // When
+        List<BatchResult> results = todoService.createTodos(Arrays.asList("First task", "ab", null, "  Second task  "));
+
+        // Then
+        assertEquals(4, results.size());
+        assertEquals(201, results.get(0).status());
+        assertEquals("First task", results.get(0).todo().getTitle());
+        assertEquals(400, results.get(1).status());
+        assertEquals("Title must be at least 3 characters", results.get(1).error());
+        assertEquals(400, results.get(2).status());
+        assertEquals("Title is required", results.get(2).error());
+        assertEquals("Second task", results.get(3).todo().getTitle());
+        assertEquals(2, todoService.getAllTodos().size());
+    }
+
+    @Test
+    @DisplayName("Should toggle and delete batches reporting missing ids")
+    void shouldToggleAndDeleteBatches() {
+        // Given
+        int first = todoService.createTodo("Task 1").getId();
+        int second = todoService.createTodo("Task 2").getId();
+
+        // When
+        List<BatchResult> toggled = todoService.toggleTodos(new int[] {first, 999, second});
+        List<BatchResult> deleted = todoService.deleteTodos(new int[] {first, first});
+
+        // Then
+        assertEquals(List.of(200, 404, 200), toggled.stream().map(BatchResult::status).toList());
+        assertTrue(toggled.get(2).todo().isDone());
+        assertEquals(List.of(204, 404), deleted.stream().map(BatchResult::status).toList());
+        assertEquals(1, todoService.getAllTodos().size());
+    }
+
+    @Test
+    @DisplayName("Should reject empty or oversized batches")
+    void shouldRejectInvalidBatchSize() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> todoService.createTodos(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> todoService.deleteTodos(new int[TodoService.MAX_BATCH_SIZE + 1]));
+    }
+
+    // ===== FILTER AND COUNT TESTS =====
+
+    @Test
+    @DisplayName("Should page through completed or pending todos only")
+    void shouldFilterByStatus() {
+        // Given
+        for (int i = 1; i <= 6; i++) {
+            todoService.createTodo("Task " + i);
+        }
+        todoService.toggleTodo(2);
+        todoService.toggleTodo(5);
+
+        // When
+        List<Todo> done = todoService.getTodoPageByDone(true, 0, 10);
+        List<Todo> pending = todoService.getTodoPageByDone(false, 1, 2);
+
+        // Then
+        assertEquals(List.of(2, 5), done.stream().map(Todo::getId).toList());
+        assertEquals(List.of(3, 4), pending.stream().map(Todo::getId).toList());
+        assertThrows(IllegalArgumentException.class, () -> todoService.getTodoPageByDone(true, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Should count todos by status")
+    void shouldCountByStatus() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.createTodo("Task 3");
+        todoService.toggleTodo(1);
+        todoService.deleteTodo(2);
+
+        // When
+        TodoCounts counts = todoService.countTodos();
+
+        // Then
+        assertEquals(new TodoCounts(2, 1, 1), counts);
+    }
+
+    @Test
+    @DisplayName("Should search titles and validate the query, offset and limit")
+    void shouldSearchTitles() {
+        // Given
+        todoService.createTodo("Write quarterly report");
+        todoService.createTodo("Review report draft");
+        todoService.createTodo("Water plants");
+
+        // When
+        TodoSearchResult result = todoService.searchTodos("REPORT", 0, 10);
+
+        // Then
+        assertEquals(2, result.total());
+        assertEquals(List.of(2, 1), result.todos().stream().map(Todo::getId).toList());
+        assertThrows(IllegalArgumentException.class, () -> todoService.searchTodos("  ", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> todoService.searchTodos("report", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> todoService.searchTodos("report", 0, 0));
+    }
+
+    @Test
+    @DisplayName("Should return only the tasks changed since the cursor")
+    void shouldReturnChangesSinceCursor() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        long cursor = todoService.getChangeSequence();
+
+        // When
+        todoService.toggleTodo(1);
+        todoService.deleteTodo(2);
+        todoService.createTodo("Task 3");
+        todoService.deleteTodo(42);
+        TodoChanges changes = todoService.getChangesSince(cursor);
+
+        // Then
+        assertFalse(changes.resync());
+        assertEquals(cursor + 3, changes.latest());
+        assertEquals(List.of(1, 3), changes.upserted().stream().map(Todo::getId).toList());
+        assertTrue(changes.upserted().get(0).isDone());
+        assertEquals(List.of(2), changes.deleted());
+    }
+
+    @Test
+    @DisplayName("Should fall back to a full resync for an unknown cursor")
+    void shouldResyncUnknownCursor() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+
+        // When
+        TodoChanges changes = todoService.getChangesSince(0);
+
+        // Then
+        assertTrue(changes.resync());
+        assertEquals(todoService.getChangeSequence(), changes.latest());
+        assertEquals(2, changes.upserted().size());
+        assertTrue(changes.deleted().isEmpty());
+    }
+
     // ===== GET ALL TODOS TESTS =====
 
     @Test
@@ -191,6 +365,36 @@ class TodoServiceTest {
         assertEquals(3, todos.size());
     }
 
+    @Test
+    @DisplayName("Should return a page of todos after the cursor")
+    void shouldReturnTodoPage() {
+        // Given
+        todoService.createTodo("Task 1");
+        todoService.createTodo("Task 2");
+        todoService.createTodo("Task 3");
+
+        // When
+        List<Todo> page = todoService.getTodoPage(1, 10);
+
+        // Then
+        assertEquals(2, page.size());
+        assertEquals("Task 2", page.get(0).getTitle());
+    }
+
+    @Test
+    @DisplayName("Should reject page limits outside the allowed range")
+    void shouldRejectInvalidPageLimit() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> todoService.getTodoPage(0, TodoService.MAX_PAGE_SIZE + 1)
+        );
+
+        assertEquals("Limit must be between 1 and " + TodoService.MAX_PAGE_SIZE, exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> todoService.getTodoPage(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> todoService.getTodoPage(-1, 10));
+    }
+
     @Test
     @DisplayName("Should return empty list when no todos exist")
     void shouldReturnEmptyListWhenNoTodos() {
@@ -200,4 +404,39 @@ class TodoServiceTest {
         // Then
         assertTrue(todos.isEmpty());
     }
+
+    @Test
+    @DisplayName("Should merge archived todos into lists, pages and counts only when asked")
+    void shouldIncludeArchivedTodos(@TempDir Path directory) throws Exception {
+        // Given: tasks 1..6 with 2 and 5 archived
+        TodoRepositoryImp tiered = new TodoRepositoryImp(new ArchiveProperties(true, Duration.ofDays(1),
+                Duration.ofDays(1), directory, 4096, 1 << 20));
+        TodoService service = new TodoService(tiered);
+        for (int i = 1; i <= 6; i++) {
+            service.createTodo("Task " + i);
+        }
+        service.toggleTodo(2);
+        service.toggleTodo(5);
+        tiered.archiveCompleted(System.currentTimeMillis());
+        service.toggleTodo(6);
+
+        try {
+            // When & Then
+            assertEquals(List.of(1, 3, 4, 6), ids(service.getAllTodos()));
+            assertEquals(List.of(1, 2, 3, 4, 5, 6), ids(service.getAllTodos(true)));
+            assertEquals(List.of(2, 3, 4), ids(service.getTodoPage(1, 3, true)));
+            assertEquals(List.of(5, 6), ids(service.getTodoPage(4, 3, true)));
+            assertEquals(List.of(2, 5, 6), ids(service.getTodoPageByDone(true, 0, 10, true)));
+            assertEquals(List.of(1, 3, 4), ids(service.getTodoPageByDone(false, 0, 10, true)));
+            assertEquals(new TodoCounts(4, 1, 3, 2), service.countTodos());
+            assertTrue(service.toggleTodo(5).isPresent());
+            assertEquals(List.of(1, 3, 4, 5, 6), ids(service.getAllTodos()));
+        } finally {
+            tiered.close();
+        }
+    }
+
+    private static List<Integer> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
 }
@@ -0,0 +1,214 @@
+package com.crudzaso.TinyTasks.service;
+
+import com.crudzaso.TinyTasks.config.StoreProperties;
+import com.crudzaso.TinyTasks.config.StreamProperties;
+import com.crudzaso.TinyTasks.config.TenantProperties;
+import com.crudzaso.TinyTasks.model.Todo;
+import com.crudzaso.TinyTasks.repository.TodoRepository;
+import com.crudzaso.TinyTasks.repository.TodoRepositoryImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TodoTenants Tests")
+class TodoTenantsTest {
+
+    private static final long MINUTES = TimeUnit.MINUTES.toNanos(1);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong clock = new AtomicLong(-100 * MINUTES);
+    private TodoService defaultService;
+    private TodoTenants tenants;
+
+    @BeforeEach
+    void setUp() {
+        defaultService = new TodoService(new TodoRepositoryImp());
+        tenants = tenants(new TenantProperties(3, 3, 100, Duration.ofMinutes(10), directory), new StoreProperties(0));
+    }
+
+    private TodoTenants tenants(TenantProperties properties, StoreProperties storeProperties) {
+        return new TodoTenants(defaultService, new TodoEventBroadcaster(defaultService), TodoMetrics.NOOP, properties,
+                new StreamProperties(TodoEventBroadcaster.DEFAULT_MAX_SUBSCRIBERS, TodoEventBroadcaster.DEFAULT_HEARTBEAT),
+                storeProperties, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tenants.close();
+    }
+
+    @Test
+    @DisplayName("Should keep each tenant's tasks, ids and cap separate from the others")
+    void shouldIsolateTenants() {
+        // Given
+        defaultService.createTodo("Shared task");
+        TodoService acme = tenants.get("acme").service();
+        TodoService globex = tenants.get("globex").service();
+
+        // When
+        acme.createTodo("Acme task 1");
+        acme.createTodo("Acme task 2");
+        Todo first = globex.createTodo("Globex task");
+
+        // Then
+        assertSame(defaultService, tenants.get(null).service());
+        assertSame(defaultService, tenants.get(TodoTenants.DEFAULT).service());
+        assertSame(acme, tenants.get("acme").service());
+        assertEquals(1, first.getId(), "ids are numbered per tenant");
+        assertEquals(2, acme.countTodos().total());
+        assertEquals(1, globex.getAllTodos().size());
+        assertEquals(1, defaultService.getAllTodos().size());
+        assertEquals(2, tenants.residentTenants());
+
+        acme.createTodo("Acme task 3");
+        assertThrows(StoreFullException.class, () -> acme.createTodo("Acme task 4"));
+        assertDoesNotThrow(() -> globex.createTodo("Globex task 2"), "caps apply to each tenant on its own");
+    }
+
+    @Test
+    @DisplayName("Should park idle tenants on disk and load them back on their next request")
+    void shouldEvictIdleTenants() {
+        // Given
+        List<String> events = new ArrayList<>();
+        tenants.setObserver(new TodoTenants.Observer() {
+            @Override
+            public void loaded(String name, TodoRepository repository) {
+                events.add("loaded " + name);
+            }
+
+            @Override
+            public void evicted(String name) {
+                events.add("evicted " + name);
+            }
+        });
+        TodoService idle = tenants.get("idle").service();
+        idle.createTodo("Parked task");
+        idle.toggleTodo(1);
+        tenants.get("busy").service().createTodo("Busy task");
+
+        // When: only one of them is used within the idle timeout
+        clock.addAndGet(6 * MINUTES);
+        tenants.get("busy");
+        clock.addAndGet(6 * MINUTES);
+        int evicted = tenants.evictIdle();
+
+        // Then
+        assertEquals(1, evicted);
+        assertEquals(1, tenants.residentTenants());
+        assertTrue(Files.exists(directory.resolve("idle.snapshot")));
+
+        TodoService reloaded = tenants.get("idle").service();
+        assertNotSame(idle, reloaded);
+        assertEquals(List.of("Parked task"), reloaded.getAllTodos().stream().map(Todo::getTitle).toList());
+        assertTrue(reloaded.getAllTodos().get(0).isDone());
+        assertEquals(2, reloaded.createTodo("New task").getId(), "ids continue after a reload");
+        assertTrue(Files.exists(directory.resolve("idle.snapshot")), "the parked copy survives until the next park");
+        assertEquals(List.of("loaded idle", "loaded busy", "evicted idle", "loaded idle"), events);
+
+        TodoTenants afterCrash = tenants(new TenantProperties(3, 3, 100, Duration.ofMinutes(10), directory),
+                new StoreProperties(0));
+        assertEquals(List.of("Parked task"),
+                afterCrash.get("idle").service().getAllTodos().stream().map(Todo::getTitle).toList(),
+                "a crash loses only what changed since the last park");
+    }
+
+    @Test
+    @DisplayName("Should reject tenant names that are not plain identifiers")
+    void shouldRejectInvalidNames() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> tenants.get("../etc"));
+        assertThrows(IllegalArgumentException.class, () -> tenants.get("a".repeat(65)));
+        assertEquals(0, tenants.residentTenants());
+    }
+
+    @Test
+    @DisplayName("Should refuse new tenants beyond the limit, counting parked ones, and keep serving known ones")
+    void shouldLimitTenantCount() {
+        // Given
+        for (String name : List.of("a", "b", "c")) {
+            tenants.get(name).service().createTodo("Task");
+        }
+
+        // When
+        clock.addAndGet(11 * MINUTES);
+        tenants.evictIdle();
+
+        // Then
+        assertThrows(TenantLimitException.class, () -> tenants.get("d"));
+        assertEquals(1, tenants.get("a").service().countTodos().total());
+        tenants.close();
+        tenants = tenants(new TenantProperties(3, 3, 100, Duration.ofMinutes(10), directory), new StoreProperties(0));
+        assertThrows(TenantLimitException.class, () -> tenants.get("d"), "tenants parked by an earlier run count");
+        assertDoesNotThrow(() -> tenants.get("b"));
+    }
+
+    @Test
+    @DisplayName("Should give back the slot of a tenant that is empty when evicted")
+    void shouldReclaimEmptyTenants() throws IOException {
+        // Given: three names that were only read, and one tenant emptied again
+        tenants.get("a");
+        tenants.get("b");
+        TodoService emptied = tenants.get("c").service();
+        emptied.deleteTodo(emptied.createTodo("Task").getId());
+        assertThrows(TenantLimitException.class, () -> tenants.get("d"));
+
+        // When
+        clock.addAndGet(11 * MINUTES);
+        int evicted = tenants.evictIdle();
+
+        // Then
+        assertEquals(3, evicted);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count(), "empty tenants leave no snapshot behind");
+        }
+        assertDoesNotThrow(() -> tenants.get("d"));
+        assertDoesNotThrow(() -> tenants.get("e"));
+        assertDoesNotThrow(() -> tenants.get("c"));
+        assertEquals(0, tenants.get("c").service().countTodos().total());
+        assertThrows(TenantLimitException.class, () -> tenants.get("f"));
+    }
+
+    @Test
+    @DisplayName("Should split the store cap between tenants and share one heartbeat thread")
+    void shouldShareStoreCapAndScheduler() {
+        // Given
+        tenants.close();
+        tenants = tenants(new TenantProperties(0, 4, 100, Duration.ofMinutes(10), directory), new StoreProperties(10));
+        long heartbeatThreads = heartbeatThreads();
+
+        // When
+        TodoService first = tenants.get("first").service();
+        first.createTodo("Task 1");
+        first.createTodo("Task 2");
+        for (String name : List.of("first", "second", "third")) {
+            tenants.get(name).broadcaster();
+        }
+
+        // Then
+        assertEquals(2, tenants.tenantMaxTodos());
+        assertThrows(StoreFullException.class, () -> first.createTodo("Task 3"));
+        assertEquals(heartbeatThreads, heartbeatThreads(), "tenant streams add no heartbeat threads");
+    }
+
+    private static long heartbeatThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("tinytasks-stream-heartbeat"))
+                .count();
+    }
+}
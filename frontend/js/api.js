@@ -6,24 +6,55 @@ const API_URL = 'https://tinytasks-backend.onrender.com/api/todos';
 
 /**
  * Fetches all tasks from the backend
- * @returns {Promise<Array>} Array of todo objects
+ * Revalidates the cached list with its ETag; an unchanged list comes back as 304
+ * and the browser serves the cached body.
+ * @returns {Promise<{tasks: Array, changeSeq: number}>} Todo objects and the change cursor they are current with
  * @throws {Error} If the request fails
  */
 async function fetchTodos() {
     try {
-        const response = await fetch(API_URL);
+        const response = await fetch(API_URL, { cache: 'no-cache' });
 
         if (!response.ok) {
             throw new Error(`HTTP error! status: ${response.status}`);
         }
 
-        return await response.json();
+        const tasks = await response.json();
+        return { tasks, changeSeq: Number(response.headers.get('X-Change-Seq') ?? 0) };
     } catch (error) {
         console.error('Error fetching todos:', error);
         throw new Error('Could not load tasks. Please check if the backend is running.');
     }
 }
 
+/**
+ * Fetches the changes made since a cursor
+ * @param {number} since - Change cursor the client is current with
+ * @returns {Promise<Object>} Object with latest, resync, upserted, deleted and reload
+ * @throws {Error} If the request fails
+ */
+async function fetchChanges(since) {
+    const response = await fetch(`${API_URL}/changes?since=${since}`);
+
+    if (!response.ok) {
+        throw new Error(`HTTP error! status: ${response.status}`);
+    }
+
+    return await response.json();
+}
+
+/**
+ * Opens the live update stream
+ * @param {number} since - Change cursor the client is current with
+ * @param {Function} onChanges - Called with each 'changes' event
+ * @returns {EventSource} The open stream
+ */
+function openChangeStream(since, onChanges) {
+    const source = new EventSource(`${API_URL}/stream?since=${since}`);
+    source.addEventListener('changes', onChanges);
+    return source;
+}
+
 /**
  * Creates a new task
  * @param {string} title - Task title
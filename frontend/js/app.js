@@ -2,6 +2,12 @@
  * Main application module - Orchestrates the application
  */
 
+/** Tasks currently displayed, keyed by id */
+let currentTasks = new Map();
+
+/** Change cursor the displayed tasks are current with */
+let changeCursor = 0;
+
 /**
  * Loads and displays all tasks from the backend
  */
@@ -9,7 +15,9 @@ async function loadTasks() {
     showLoading();
 
     try {
-        const tasks = await fetchTodos();
+        const { tasks, changeSeq } = await fetchTodos();
+        currentTasks = new Map(tasks.map(task => [task.id, task]));
+        changeCursor = changeSeq;
         renderTasks(tasks);
     } catch (error) {
         console.error('Error loading tasks:', error);
@@ -20,6 +28,51 @@ async function loadTasks() {
     }
 }
 
+/**
+ * Applies only the changes made since the last load or sync,
+ * falling back to a full reload if the change feed is unavailable
+ */
+async function syncTasks() {
+    try {
+        await applyChanges(await fetchChanges(changeCursor));
+    } catch (error) {
+        console.error('Error syncing tasks:', error);
+        await loadTasks();
+    }
+}
+
+/**
+ * Patches the displayed tasks with a batch from the change feed or the live stream.
+ * A batch flagged reload carries no tasks: the full list is fetched again instead.
+ * @param {Object} changes - Object with latest, resync, upserted, deleted and reload
+ */
+function applyChanges(changes) {
+    if (changes.latest < changeCursor && !changes.resync) {
+        return;
+    }
+    if (changes.reload) {
+        return loadTasks();
+    }
+    if (changes.resync) {
+        currentTasks = new Map();
+    }
+    changes.upserted.forEach(task => currentTasks.set(task.id, task));
+    changes.deleted.forEach(id => currentTasks.delete(id));
+    changeCursor = changes.latest;
+    renderTasks([...currentTasks.values()].sort((a, b) => a.id - b.id));
+}
+
+/**
+ * Subscribes to live updates so changes made in other tabs show up without polling.
+ * The browser reconnects on its own and resumes from the last event it received.
+ */
+function subscribeToChanges() {
+    if (typeof EventSource === 'undefined') {
+        return;
+    }
+    openChangeStream(changeCursor, event => applyChanges(JSON.parse(event.data)));
+}
+
 /**
  * Handles form submission to add a new task
  * @param {Event} event - Form submit event
@@ -38,7 +91,7 @@ async function handleAddTask(event) {
         await createTodo(title);
         clearInput();
         clearErrorMessage();
-        await loadTasks();
+        await syncTasks();
     } catch (error) {
         displayError(error.message);
     }
@@ -58,7 +111,7 @@ async function handleTaskAction(event) {
     if (action === 'toggle') {
         try {
             await toggleTodo(taskId);
-            await loadTasks();
+            await syncTasks();
         } catch (error) {
             alert('Error: ' + error.message);
         }
@@ -66,7 +119,7 @@ async function handleTaskAction(event) {
         if (confirm('Are you sure you want to delete this task?')) {
             try {
                 await deleteTodo(taskId);
-                await loadTasks();
+                await syncTasks();
             } catch (error) {
                 alert('Error: ' + error.message);
             }
@@ -96,7 +149,7 @@ function setupEventListeners() {
 function init() {
     initializeElements();
     setupEventListeners();
-    loadTasks();
+    loadTasks().then(subscribeToChanges);
 }
 
 // Start the application when DOM is ready